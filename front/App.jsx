@@ -90,6 +90,9 @@ const getApiUrl = async (endpoint, selectedServer = null, selectedApp = null) =>
   return endpoint;
 };
 
+// 本页面的查询标识：发起新的查询时服务端取消同一标识下还在执行的查询，关闭页面时通知服务端取消
+const QUERY_REQUEST_ID = `${Date.now().toString(36)}-${Math.random().toString(36).slice(2, 10)}`;
+
 const fetchLogs = async (
     date,
     keyword,
@@ -301,6 +304,8 @@ const App = () => {
     const [selectedServer, setSelectedServer] = useState(null);
     const [selectedApp, setSelectedApp] = useState(null);
     const scrollRef = useRef(null);
+    // 正在执行的查询的取消地址
+    const pendingCancelUrl = useRef(null);
 
     // 获取可用日期列表
     const [availableDates, setAvailableDates] = useState([]);
@@ -420,6 +425,14 @@ const App = () => {
             if (selectedFile) url += `&file=${encodeURIComponent(selectedFile)}`;
             if (selectedApp) url += `&appId=${selectedApp}`;
             if (logType !== 'all') url += `&type=${logType}`;
+            url += `&requestId=${QUERY_REQUEST_ID}`;
+
+            // 同一服务器上的上一个查询由服务端按 requestId 取消，换了服务器时单独通知原服务器
+            const cancelUrl = `${await getApiUrl('/api/logs/query/cancel', selectedServer, selectedApp)}?requestId=${QUERY_REQUEST_ID}`;
+            if (pendingCancelUrl.current && pendingCancelUrl.current !== cancelUrl) {
+                navigator.sendBeacon(pendingCancelUrl.current);
+            }
+            pendingCancelUrl.current = cancelUrl;
 
             const response = await fetch(url, {
                 method: 'GET',
@@ -452,6 +465,17 @@ const App = () => {
         loadLogs();
     }, [selectedDate, selectedServer, selectedApp]); // 当服务器或应用改变时也重新加载日志
 
+    // 关闭或离开页面时取消还在执行的查询，服务端感知不到连接断开
+    useEffect(() => {
+        const cancelPendingQuery = () => {
+            if (pendingCancelUrl.current) {
+                navigator.sendBeacon(pendingCancelUrl.current);
+            }
+        };
+        window.addEventListener('pagehide', cancelPendingQuery);
+        return () => window.removeEventListener('pagehide', cancelPendingQuery);
+    }, []); // 只在挂载时注册一次，取消地址从 ref 中读取
+
     // 过滤日志
     const filteredLogs = useMemo(() => {
         return logs.filter(log => {
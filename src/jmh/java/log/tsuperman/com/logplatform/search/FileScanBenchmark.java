@@ -0,0 +1,146 @@
+package log.tsuperman.com.logplatform.search;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 整个文件的扫描速度：每次操作扫描一遍 {@link SyntheticLogGenerator} 生成的文件（命中行交给 Blackhole，不保存）
+ *
+ * 结果中 mb、lines 两列为每秒扫描的 MB 数和行数；加 -prof gc 查看每次扫描分配的字节数（gc.alloc.rate.norm）。
+ * 文件大小用 -p size=10m,1g,5g 指定，生成的文件保存在 benchmark.dir（默认 target/benchmark-logs）中复用。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class FileScanBenchmark {
+
+    @Param({"10m"})
+    public String size;
+
+    private Path file;
+    private double megabytes;
+    private long lines;
+
+    /**
+     * 每秒扫描的字节数和行数
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Throughput {
+        public double mb;
+        public long lines;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            mb = 0;
+            lines = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = SyntheticLogGenerator.ensure(Paths.get(System.getProperty("benchmark.dir", "target/benchmark-logs")), size);
+        megabytes = Files.size(file) / (1024.0 * 1024.0);
+        try (LogLineReader reader = LogLineReader.open(file, 0)) {
+            while (reader.next()) {
+                lines++;
+            }
+        }
+    }
+
+    /**
+     * 只按行读取，不解析，作为其他扫描的上限
+     */
+    @Benchmark
+    public long readLines(Throughput throughput) throws IOException {
+        long count = 0;
+        try (LogLineReader reader = LogLineReader.open(file, 0)) {
+            while (reader.next()) {
+                count += reader.lineEnd() - reader.lineStart();
+            }
+        }
+        count(throughput);
+        return count;
+    }
+
+    @Benchmark
+    public FileScanResult rareKeyword(Throughput throughput, Blackhole blackhole) throws IOException {
+        return scan(new LogFileScanner(SyntheticLogGenerator.RARE_KEYWORD, "00:00:00", "23:59:59"), throughput, blackhole);
+    }
+
+    @Benchmark
+    public FileScanResult commonKeyword(Throughput throughput, Blackhole blackhole) throws IOException {
+        return scan(new LogFileScanner(SyntheticLogGenerator.COMMON_KEYWORD, "00:00:00", "23:59:59"), throughput, blackhole);
+    }
+
+    @Benchmark
+    public FileScanResult chineseKeyword(Throughput throughput, Blackhole blackhole) throws IOException {
+        return scan(new LogFileScanner(SyntheticLogGenerator.CHINESE_KEYWORD, "00:00:00", "23:59:59"), throughput, blackhole);
+    }
+
+    /**
+     * 一小时的时间段，没有时间索引时要读到时间段结束
+     */
+    @Benchmark
+    public FileScanResult timeWindow(Throughput throughput, Blackhole blackhole) throws IOException {
+        return scan(new LogFileScanner(null, "14:00:00", "14:59:59"), throughput, blackhole);
+    }
+
+    @Benchmark
+    public FileScanResult levelFilter(Throughput throughput, Blackhole blackhole) throws IOException {
+        return scan(new LogFileScanner(null, "00:00:00", "23:59:59", new TimestampParser(),
+                FieldFilter.parseAll(Collections.singletonList("level=ERROR"))), throughput, blackhole);
+    }
+
+    /**
+     * 文件时间范围分析（对应文件列表中的 analyzeFileTimeRange），每次使用新的缓存
+     */
+    @Benchmark
+    public FileTimeRange analyzeTimeRange() throws IOException {
+        return new FileTimeRangeCache(new TimeIndexRegistry()).get(file);
+    }
+
+    /**
+     * 建立布隆过滤器（后台建立索引时的读取和分词）
+     */
+    @Benchmark
+    public TokenBloomFilter buildBloomFilter(Throughput throughput) throws IOException {
+        TokenBloomFilter filter = TokenBloomFilter.build(file, Files.size(file),
+                Files.getLastModifiedTime(file).toMillis());
+        count(throughput);
+        return filter;
+    }
+
+    private FileScanResult scan(LogFileScanner scanner, Throughput throughput, Blackhole blackhole) throws IOException {
+        FileScanResult result = scanner.scanFile(file, Integer.MAX_VALUE, null, 0, blackhole::consume);
+        count(throughput);
+        return result;
+    }
+
+    private void count(Throughput throughput) {
+        throughput.mb += megabytes;
+        throughput.lines += lines;
+    }
+}
@@ -0,0 +1,127 @@
+package log.tsuperman.com.logplatform.search;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单行处理的速度：时间戳解析、关键词匹配、字段解析和字段过滤
+ *
+ * 先把生成的日志中的 {@link #LINES} 行读入内存，每次操作处理所有行，结果为每秒处理的行数，不含读文件的开销。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LineParsingBenchmark {
+
+    private static final int LINES = 100_000;
+
+    private byte[] data;
+    /** 第 i 行为 data 的 [starts[i], ends[i]) */
+    private int[] starts;
+    private int[] ends;
+
+    private final TimestampParser timestampParser = new TimestampParser();
+    private final KeywordMatcher asciiKeyword = KeywordMatcher.compile(SyntheticLogGenerator.RARE_KEYWORD);
+    private final KeywordMatcher chineseKeyword = KeywordMatcher.compile(SyntheticLogGenerator.CHINESE_KEYWORD);
+    private final LogFields fields = new LogFields();
+    private final FieldFilter loggerFilter = FieldFilter.parseAll(
+            Collections.singletonList("logger=com.central.*.job.*")).get(0);
+
+    @Setup
+    public void setUp() throws IOException {
+        Path file = SyntheticLogGenerator.ensure(Paths.get(System.getProperty("benchmark.dir", "target/benchmark-logs")), "64m");
+        ByteArrayOutputStream out = new ByteArrayOutputStream(LINES * 200);
+        starts = new int[LINES];
+        ends = new int[LINES];
+        int count = 0;
+        try (LogLineReader reader = LogLineReader.open(file, 0)) {
+            while (count < LINES && reader.next()) {
+                starts[count] = out.size();
+                out.write(reader.array(), reader.lineStart(), reader.lineEnd() - reader.lineStart());
+                ends[count] = out.size();
+                count++;
+            }
+        }
+        data = out.toByteArray();
+        starts = Arrays.copyOf(starts, count);
+        ends = Arrays.copyOf(ends, count);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public long parseTimestamp() {
+        long sum = 0;
+        for (int i = 0; i < starts.length; i++) {
+            sum += timestampParser.parse(data, starts[i], ends[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public int matchAsciiKeyword() {
+        int matched = 0;
+        for (int i = 0; i < starts.length; i++) {
+            if (asciiKeyword.matches(data, starts[i], ends[i])) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public int matchChineseKeyword() {
+        int matched = 0;
+        for (int i = 0; i < starts.length; i++) {
+            if (chineseKeyword.matches(data, starts[i], ends[i])) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public int parseFields() {
+        int parsed = 0;
+        for (int i = 0; i < starts.length; i++) {
+            if (fields.parse(data, starts[i], ends[i])) {
+                parsed++;
+            }
+        }
+        return parsed;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public int filterLogger() {
+        int matched = 0;
+        for (int i = 0; i < starts.length; i++) {
+            if (fields.parse(data, starts[i], ends[i]) && loggerFilter.matches(data, fields)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+}
@@ -0,0 +1,268 @@
+package log.tsuperman.com.logplatform.search;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * 生成基准测试用的日志文件
+ *
+ * 格式与线上一致：{@code [应用:IP:端口] [traceId,spanId] yyyy-MM-dd HH:mm:ss.SSS LEVEL pid [线程] logger 消息}，
+ * 消息多为中文，部分 ERROR 日志后带多行堆栈（含 Caused by）。时间戳在一天内递增，大小不同的文件都覆盖整天。
+ * 同样的种子和大小生成的内容完全相同，生成的文件可以在多次运行之间复用。
+ */
+public class SyntheticLogGenerator {
+
+    /** 生成的日志所属日期 */
+    public static final String DATE = "2026-01-08";
+
+    /** 大约每十万条日志出现一次的关键词，用于测试命中很少时的扫描速度 */
+    public static final String RARE_KEYWORD = "task-lost-7f3a";
+
+    /** 大多数日志都包含的关键词 */
+    public static final String COMMON_KEYWORD = "JobThread";
+
+    /** 只出现在部分中文消息中的关键词 */
+    public static final String CHINESE_KEYWORD = "青海拉晶";
+
+    private static final long DEFAULT_SEED = 20260108L;
+
+    /** 一条日志（含堆栈）的平均字节数，用于估算时间间隔 */
+    private static final int AVERAGE_EVENT_BYTES = 260;
+
+    private static final long MILLIS_PER_DAY = 24L * 3600 * 1000;
+
+    private static final String[] THREADS = {
+            "xxl-job, JobThread-11-1767852360014", "xxl-job, JobThread-12-1767852360521", "http-nio-8080-exec-3",
+            "http-nio-8080-exec-17", "scheduling-1", "main", "RMI TCP Connection(2)-127.0.0.1"
+    };
+
+    private static final String[] LOGGERS = {
+            "com.central.apps.job.TroubleSubmitJob", "com.central.apps.service.impl.FlowServiceImpl",
+            "com.central.apps.controller.TaskController", "com.central.common.feign.FeignLogger",
+            "org.springframework.web.servlet.DispatcherServlet", "com.zaxxer.hikari.pool.HikariPool"
+    };
+
+    private static final String[] LOCATIONS = {
+            "拉晶事业部/青海拉晶/二期切方硅料车间/开方/14#高测开方机", "切片事业部/曲靖切片/一车间/脱胶/3#脱胶机",
+            "电池事业部/西咸电池/扩散车间/5#扩散炉", "组件事业部/泰州组件/层压车间/2#层压机"
+    };
+
+    private static final String[] STATUSES = {"待处理", "处理中", "已完成", "已驳回"};
+
+    private final Random random;
+
+    public SyntheticLogGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * 生成或复用 dir 下指定大小的日志文件
+     * @param size 如 10m、512m、5g
+     */
+    public static Path ensure(Path dir, String size) throws IOException {
+        long bytes = parseSize(size);
+        Path file = dir.resolve("task-center-info." + DATE + "." + size.toLowerCase(Locale.ROOT) + ".log");
+        if (Files.isRegularFile(file) && Files.size(file) >= bytes) {
+            return file;
+        }
+        Files.createDirectories(dir);
+        Path tmp = dir.resolve(file.getFileName() + ".tmp");
+        new SyntheticLogGenerator(DEFAULT_SEED).write(tmp, bytes);
+        return Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 解析 10m、1g、5g、1048576 等大小
+     */
+    public static long parseSize(String size) {
+        String s = size.trim().toLowerCase(Locale.ROOT);
+        long unit = 1;
+        if (s.endsWith("k")) {
+            unit = 1024;
+        } else if (s.endsWith("m")) {
+            unit = 1024 * 1024;
+        } else if (s.endsWith("g")) {
+            unit = 1024L * 1024 * 1024;
+        }
+        if (unit > 1) {
+            s = s.substring(0, s.length() - 1);
+        }
+        return Long.parseLong(s) * unit;
+    }
+
+    /**
+     * 写入至少 targetBytes 字节的完整日志
+     */
+    public void write(Path file, long targetBytes) throws IOException {
+        long step = Math.max(1, MILLIS_PER_DAY * AVERAGE_EVENT_BYTES / Math.max(1, targetBytes));
+        long millis = 0;
+        long event = 0;
+        CountingOutputStream counter;
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                counter = new CountingOutputStream(Files.newOutputStream(file)), StandardCharsets.UTF_8), 1 << 16)) {
+            StringBuilder line = new StringBuilder(512);
+            while (true) {
+                line.setLength(0);
+                appendEvent(line, Math.min(millis, MILLIS_PER_DAY - 1), event++);
+                out.append(line);
+                // 每1000条检查一次写入的字节数
+                if (event % 1000 == 0) {
+                    out.flush();
+                    if (counter.count >= targetBytes) {
+                        break;
+                    }
+                }
+                millis += random.nextInt((int) Math.min(Integer.MAX_VALUE, step * 2)) + 1;
+            }
+        }
+    }
+
+    private void appendEvent(StringBuilder sb, long millis, long event) {
+        int levelRoll = random.nextInt(100);
+        String level = levelRoll < 85 ? "INFO" : levelRoll < 92 ? "WARN" : levelRoll < 97 ? "ERROR" : "DEBUG";
+
+        sb.append("[task-center:172.28.243.190:30736] [");
+        if (random.nextInt(10) < 4) {
+            appendHex(sb, random.nextLong());
+            sb.append(',');
+            appendHex(sb, random.nextLong());
+        } else {
+            sb.append(',');
+        }
+        sb.append("] ").append(DATE).append(' ');
+        appendTime(sb, millis);
+        sb.append(' ').append(level).append(" 6762 [").append(THREADS[random.nextInt(THREADS.length)]).append("] ")
+                .append(LOGGERS[random.nextInt(LOGGERS.length)]).append(' ');
+        appendMessage(sb, event);
+        sb.append('\n');
+
+        if ("ERROR".equals(level) && random.nextInt(10) < 7) {
+            appendStackTrace(sb);
+        }
+    }
+
+    private void appendMessage(StringBuilder sb, long event) {
+        if (event % 100_000 == 4242) {
+            sb.append("任务丢失，标识 ").append(RARE_KEYWORD);
+            return;
+        }
+        switch (random.nextInt(6)) {
+            case 0:
+                sb.append("最终的结果是：null,位置描述为：").append(LOCATIONS[random.nextInt(LOCATIONS.length)]);
+                break;
+            case 1:
+                sb.append("调用流程服务成功，耗时 ").append(random.nextInt(2000)).append(" ms");
+                break;
+            case 2:
+                sb.append("工单 ORD");
+                appendPadded(sb, random.nextInt(100_000_000), 8);
+                sb.append(" 状态更新为 ").append(STATUSES[random.nextInt(STATUSES.length)]);
+                break;
+            case 3:
+                sb.append("请求参数: {\"deviceId\":").append(random.nextInt(100_000))
+                        .append(",\"location\":\"").append(LOCATIONS[random.nextInt(LOCATIONS.length)])
+                        .append("\",\"alarm\":true,\"level\":").append(random.nextInt(5)).append('}');
+                break;
+            case 4:
+                sb.append("==>  Preparing: SELECT id, name, status FROM t_trouble WHERE device_id = ? AND create_time > ?");
+                break;
+            default:
+                sb.append("xxl-job 调度任务 JobThread 执行完成，处理 ").append(random.nextInt(500)).append(" 条记录");
+                break;
+        }
+    }
+
+    private void appendStackTrace(StringBuilder sb) {
+        sb.append("java.lang.IllegalStateException: 设备状态异常，位置描述为：")
+                .append(LOCATIONS[random.nextInt(LOCATIONS.length)]).append('\n');
+        int frames = 8 + random.nextInt(16);
+        for (int i = 0; i < frames; i++) {
+            String logger = LOGGERS[random.nextInt(LOGGERS.length)];
+            String simpleName = logger.substring(logger.lastIndexOf('.') + 1);
+            sb.append("\tat ").append(logger).append(".execute(").append(simpleName).append(".java:")
+                    .append(20 + random.nextInt(400)).append(")\n");
+        }
+        if (random.nextBoolean()) {
+            sb.append("Caused by: java.net.SocketTimeoutException: 连接流程服务超时\n");
+            sb.append("\tat java.net.SocketInputStream.socketRead0(Native Method)\n");
+            sb.append("\t... ").append(frames).append(" common frames omitted\n");
+        }
+    }
+
+    private static void appendTime(StringBuilder sb, long millis) {
+        long seconds = millis / 1000;
+        appendPadded(sb, seconds / 3600, 2);
+        sb.append(':');
+        appendPadded(sb, seconds / 60 % 60, 2);
+        sb.append(':');
+        appendPadded(sb, seconds % 60, 2);
+        sb.append('.');
+        appendPadded(sb, millis % 1000, 3);
+    }
+
+    private static void appendPadded(StringBuilder sb, long value, int width) {
+        String s = Long.toString(value);
+        for (int i = s.length(); i < width; i++) {
+            sb.append('0');
+        }
+        sb.append(s);
+    }
+
+    private static void appendHex(StringBuilder sb, long value) {
+        String s = Long.toHexString(value);
+        for (int i = s.length(); i < 16; i++) {
+            sb.append('0');
+        }
+        sb.append(s);
+    }
+
+    /**
+     * 统计写入的字节数
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    /**
+     * 用法：SyntheticLogGenerator 输出目录 大小...，如 target/benchmark-logs 10m 1g 5g
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("用法: SyntheticLogGenerator <输出目录> <大小，如 10m 1g 5g>...");
+            System.exit(1);
+        }
+        for (int i = 1; i < args.length; i++) {
+            long start = System.currentTimeMillis();
+            Path file = ensure(Paths.get(args[0]), args[i]);
+            System.out.println("已生成 " + file + "，" + Files.size(file) + " 字节，耗时 "
+                    + (System.currentTimeMillis() - start) + "ms");
+        }
+    }
+}
@@ -3,6 +3,8 @@ package log.tsuperman.com.logplatform.Controller;
 import log.tsuperman.com.logplatform.config.LogPlatformProperties;
 import log.tsuperman.com.logplatform.entity.AppConfig;
 import log.tsuperman.com.logplatform.entity.ServerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
@@ -14,6 +16,8 @@ import java.util.stream.Collectors;
 @CrossOrigin(origins = "*")
 public class ConfigController {
 
+    private static final Logger log = LoggerFactory.getLogger(ConfigController.class);
+
     @Autowired
     private LogPlatformProperties logPlatformProperties;
 
@@ -24,7 +28,7 @@ public class ConfigController {
             List<ServerConfig> servers = logPlatformProperties.getServers();
             return ApiResponse.success(servers);
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("获取服务器列表失败", e);
             return ApiResponse.error("获取服务器列表失败: " + e.getMessage());
         }
     }
@@ -39,7 +43,7 @@ public class ConfigController {
                 .collect(Collectors.toList());
             return ApiResponse.success(serverApps);
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("获取服务器应用列表失败", e);
             return ApiResponse.error("获取服务器应用列表失败: " + e.getMessage());
         }
     }
@@ -1,12 +1,39 @@
 package log.tsuperman.com.logplatform;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import log.tsuperman.com.logplatform.config.LogPlatformProperties;
 import log.tsuperman.com.logplatform.entity.ServerConfig;
+import log.tsuperman.com.logplatform.search.CancellationToken;
+import log.tsuperman.com.logplatform.search.FederatedLogLine;
+import log.tsuperman.com.logplatform.search.FederatedQueryResult;
+import log.tsuperman.com.logplatform.search.LineSink;
+import log.tsuperman.com.logplatform.search.LogBatchCodec;
+import log.tsuperman.com.logplatform.search.LogQuery;
+import log.tsuperman.com.logplatform.search.LogQueryResult;
+import log.tsuperman.com.logplatform.search.QueryResultCache;
+import log.tsuperman.com.logplatform.search.RunningQueries;
 import log.tsuperman.com.logplatform.service.ConfigService;
+import log.tsuperman.com.logplatform.service.LogIndexService;
+import log.tsuperman.com.logplatform.service.LogTailService;
 import log.tsuperman.com.logplatform.service.RemoteLogService;
+import log.tsuperman.com.logplatform.service.TraceService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -16,6 +43,8 @@ import java.util.Set;
 @CrossOrigin(origins = "*") // 开发阶段允许跨域，生产环境应配置具体的域名
 public class LogController {
 
+    private static final Logger log = LoggerFactory.getLogger(LogController.class);
+
     @Autowired
     private LogService logService;
 
@@ -25,6 +54,27 @@ public class LogController {
     @Autowired
     private RemoteLogService remoteLogService;
 
+    @Autowired
+    private QueryResultCache queryResultCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private LogTailService logTailService;
+
+    @Autowired
+    private LogIndexService logIndexService;
+
+    @Autowired
+    private TraceService traceService;
+
+    @Autowired
+    private LogPlatformProperties properties;
+
+    @Autowired
+    private RunningQueries runningQueries;
+
     /**
      * 查询日志（本地）
      * @param date 日期，格式：yyyy-MM-dd
@@ -33,36 +83,342 @@ public class LogController {
      * @param endTime 结束时间，格式：HH:mm
      * @param file 要查询的文件名（可选）
      * @param appId 应用ID（可选）
-     * @return 日志列表
+     * @param cursor 上一页返回的 meta.nextCursor（可选），从上一页停止的位置继续
+     * @param pageSize 每页行数（可选，默认1500，最大为 log.platform.max-page-size）
+     * @param filter 字段过滤条件（可选，可以有多个，需同时满足），如 level=ERROR、logger=com.x.*、level=WARN,ERROR；
+     *               可用字段：app、traceId、spanId、level、pid、thread、logger、message
+     * @param profile 为true时在 meta.profile 中返回执行情况：每个文件是否被跳过、是否用了索引、读取的字节数和行数、
+     *                匹配行数，以及列出文件、读取、匹配的用时和结果缓存是否命中
+     * @param explain 为true时只返回执行计划（meta.profile），不读取文件内容，日志列表为空
+     * @param requestId 页面的请求标识（可选）：同一标识发起新的查询时取消还在执行的查询，也可以通过 /query/cancel 取消
+     * @return 日志列表；超过查询超时时间或被取消时停止读取，返回已找到的行，meta.truncated 为 timeout 或 cancelled，
+     *         meta.nextCursor 指向停止的位置；游标无效或已失效时返回 400
      */
     @GetMapping("/query")
-    public ApiResponse<List<String>> queryLogs(
+    public WebAsyncTask<ResponseEntity<ApiResponse<List<String>>>> queryLogs(
             @RequestParam String date,
             @RequestParam(required = false) String keyword,
             @RequestParam(defaultValue = "00:00") String startTime,
             @RequestParam(defaultValue = "23:59") String endTime,
             @RequestParam(required = false) String file,
             @RequestParam(required = false) String appId,
-            @RequestParam(required = false, defaultValue = "all") String type) {
-        
+            @RequestParam(required = false, defaultValue = "all") String type,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "0") int pageSize,
+            @RequestParam(required = false) List<String> filter,
+            @RequestParam(required = false, defaultValue = "false") boolean profile,
+            @RequestParam(required = false, defaultValue = "false") boolean explain,
+            @RequestParam(required = false) String requestId) {
+
+        log.debug("收到日志查询请求 - 日期: {}, 关键词: {}, 开始时间: {}, 结束时间: {}, 文件: {}, 应用ID: {}, 类型: {}",
+                date, keyword, startTime, endTime, file, appId, type);
+
+        // 将时间格式从 HH:mm 转换为 HH:mm:ss
+        LogQuery query = new LogQuery(date, keyword, startTime + ":00", endTime + ":59", file, appId, type);
+        query.setCursor(cursor);
+        query.setPageSize(pageSize);
+        query.setFilters(filter);
+        query.setProfile(profile);
+        query.setExplain(explain);
+
+        // 在异步线程中检索，页面发起新的查询、关闭页面或请求超时时通过取消标记停止扫描
+        CancellationToken cancellation = new CancellationToken(properties.getQueryTimeoutMillis());
+        query.setCancellation(cancellation);
+        Runnable unregister = requestId == null || requestId.isEmpty() ? () -> { }
+                : runningQueries.register(requestId, cancellation);
+        WebAsyncTask<ResponseEntity<ApiResponse<List<String>>>> task = new WebAsyncTask<>(() -> search(query));
+        task.onCompletion(() -> {
+            cancellation.cancel();
+            unregister.run();
+        });
+        return task;
+    }
+
+    /**
+     * 取消带 requestId 的查询，页面关闭时通过 navigator.sendBeacon 调用
+     * @return 是否有正在执行的查询被取消
+     */
+    @PostMapping("/query/cancel")
+    public ApiResponse<Boolean> cancelQuery(@RequestParam String requestId) {
+        boolean cancelled = runningQueries.cancel(requestId);
+        log.debug("取消查询 {}: {}", requestId, cancelled);
+        return ApiResponse.success(cancelled);
+    }
+
+    /**
+     * 在异步线程中执行 /query 的检索
+     */
+    private ResponseEntity<ApiResponse<List<String>>> search(LogQuery query) {
         try {
-            System.out.println("收到日志查询请求 - 日期: " + date + ", 关键词: " + keyword + 
-                             ", 开始时间: " + startTime + ", 结束时间: " + endTime + 
-                             ", 文件: " + file + ", 应用ID: " + appId + ", 类型: " + type);
-            
-            // 将时间格式从 HH:mm 转换为 HH:mm:ss
-            String startTimeSec = startTime + ":00";
-            String endTimeSec = endTime + ":59";
-            
-            List<String> logs = logService.queryLogs(date, keyword, startTimeSec, endTimeSec, file, appId, type);
+            LogQueryResult result = logService.search(query);
+            List<String> logs = result.getLines();
             
-            System.out.println("查询结果: 找到 " + logs.size() + " 条日志");
+            log.debug("查询结果: 找到 {} 条日志", logs.size());
             
-            return ApiResponse.success(logs);
+            ApiResponse<List<String>> response = ApiResponse.success(logs)
+                    .meta("filesMatched", result.getFilesMatched())
+                    .meta("filesPruned", result.getFilesPruned())
+                    .meta("filesKeywordPruned", result.getFilesKeywordPruned())
+                    .meta("filesScanned", result.getFilesScanned())
+                    .meta("hasMore", result.getNextCursor() != null)
+                    .meta("nextCursor", result.getNextCursor())
+                    .meta("cached", result.isCached());
+            if (result.getTruncated() != null) {
+                response.meta("truncated", result.getTruncated());
+            }
+            if (result.getProfile() != null) {
+                response.meta("profile", result.getProfile());
+            }
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            // 游标无效、应用不存在等请求参数错误
+            log.debug("查询参数无效: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(ApiResponse.error("查询日志失败: " + e.getMessage()));
+        } catch (Exception e) {
+            log.error("查询日志失败", e);
+            return ResponseEntity.ok(ApiResponse.error("查询日志失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 查询日志（本地），参数同 /query，结果使用紧凑二进制格式（application/x-log-batch，见 {@link LogBatchCodec}）
+     *
+     * 供其他服务器的日志平台调用，比 JSON 少得多的字节数；可以把 pageSize 设大一些（不超过 log.platform.max-page-size），一次取回更多行。
+     * 失败时返回500和 JSON 格式的错误信息。
+     */
+    @GetMapping("/query/batch")
+    public ResponseEntity<?> queryLogsBatch(
+            @RequestParam String date,
+            @RequestParam(required = false) String keyword,
+            @RequestParam(defaultValue = "00:00") String startTime,
+            @RequestParam(defaultValue = "23:59") String endTime,
+            @RequestParam(required = false) String file,
+            @RequestParam(required = false) String appId,
+            @RequestParam(required = false, defaultValue = "all") String type,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "0") int pageSize,
+            @RequestParam(required = false) List<String> filter) {
+
+        try {
+            log.debug("收到批量日志查询请求 - 日期: {}, 关键词: {}, 开始时间: {}, 结束时间: {}, 文件: {}, 应用ID: {}, 类型: {}",
+                    date, keyword, startTime, endTime, file, appId, type);
+
+            LogQuery query = new LogQuery(date, keyword, startTime + ":00", endTime + ":59", file, appId, type);
+            query.setCursor(cursor);
+            query.setPageSize(pageSize);
+            query.setFilters(filter);
+            LogQueryResult result = logService.search(query);
+
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(LogBatchCodec.MEDIA_TYPE))
+                    .body(LogBatchCodec.encode(result.getLines(), result.getNextCursor()));
+        } catch (IllegalArgumentException e) {
+            log.debug("批量查询参数无效: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(ApiResponse.error("查询日志失败: " + e.getMessage()));
+        } catch (Exception e) {
+            log.error("批量查询日志失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(ApiResponse.error("查询日志失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 流式查询日志（本地），参数同 /query
+     *
+     * 匹配行边找边写到响应中，第一行不必等整个查询结束；最后一条记录为汇总（文件统计、下一页游标）。
+     * @param format ndjson（默认，application/x-ndjson）或 sse（text/event-stream）
+     * @param pageSize 最多输出的行数（可选，默认不限制）
+     */
+    @GetMapping("/query/stream")
+    public ResponseEntity<StreamingResponseBody> streamLogs(
+            @RequestParam String date,
+            @RequestParam(required = false) String keyword,
+            @RequestParam(defaultValue = "00:00") String startTime,
+            @RequestParam(defaultValue = "23:59") String endTime,
+            @RequestParam(required = false) String file,
+            @RequestParam(required = false) String appId,
+            @RequestParam(required = false, defaultValue = "all") String type,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "0") int pageSize,
+            @RequestParam(required = false) List<String> filter,
+            @RequestParam(required = false, defaultValue = "ndjson") String format) {
+
+        log.debug("收到流式日志查询请求 - 日期: {}, 关键词: {}, 开始时间: {}, 结束时间: {}, 文件: {}, 应用ID: {}, 类型: {}, 格式: {}",
+                date, keyword, startTime, endTime, file, appId, type, format);
+
+        LogQuery query = new LogQuery(date, keyword, startTime + ":00", endTime + ":59", file, appId, type);
+        query.setCursor(cursor);
+        query.setPageSize(pageSize);
+        query.setFilters(filter);
+        // 客户端断开时写入失败而停止；一直没有匹配行可写时由截止时间兜底
+        query.setCancellation(new CancellationToken(properties.getStreamTimeoutMillis()));
+        boolean sse = "sse".equalsIgnoreCase(format);
+
+        StreamingResponseBody body = out -> {
+            LogStreamWriter writer = new LogStreamWriter(out, objectMapper, sse);
+            LogQueryResult result;
+            try {
+                result = logService.stream(query, writer);
+            } catch (UncheckedIOException e) {
+                // 客户端已断开，停止扫描
+                log.debug("流式查询中止: {}", e.getCause().getMessage());
+                return;
+            } catch (Exception e) {
+                log.error("流式查询日志失败", e);
+                writer.finish(null, "查询日志失败: " + e.getMessage());
+                return;
+            }
+            writer.finish(result, null);
+        };
+
+        return ResponseEntity.ok()
+                .contentType(sse ? MediaType.TEXT_EVENT_STREAM : MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                // 经过 nginx 反向代理（虚拟目录）时关闭代理缓冲，否则要等缓冲区满才到达浏览器
+                .header("X-Accel-Buffering", "no")
+                .body(body);
+    }
+
+    /**
+     * 实时跟踪当天的活跃日志文件（本地，Server-Sent Events）
+     *
+     * 每轮读到新内容时发送一个 lines 事件（data 为匹配行的 JSON 数组），长时间没有新内容时发送注释行作为心跳。
+     * 文件轮转后自动切换到新文件。
+     * @param appId 应用ID（可选）
+     * @param keyword 搜索关键词（可选）
+     * @param type 日志类型（info/error/all）
+     */
+    @GetMapping("/tail")
+    public SseEmitter tailLogs(
+            @RequestParam(required = false) String appId,
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false, defaultValue = "all") String type) {
+        // 不超时，直到客户端断开
+        SseEmitter emitter = new SseEmitter(0L);
+        try {
+            log.debug("收到实时跟踪请求 - 应用ID: {}, 关键词: {}, 类型: {}", appId, keyword, type);
+            Runnable unsubscribe = logTailService.subscribe(appId, type, keyword, new TailEventSink(emitter));
+            emitter.onCompletion(unsubscribe);
+            emitter.onTimeout(unsubscribe);
+            emitter.onError(e -> unsubscribe.run());
         } catch (Exception e) {
-            e.printStackTrace();
-            System.err.println("查询日志失败: " + e.getMessage());
-            return ApiResponse.error("查询日志失败: " + e.getMessage());
+            log.warn("实时跟踪失败: {}", e.getMessage());
+            try {
+                emitter.send(SseEmitter.event().name("error").data("实时跟踪失败: " + e.getMessage()));
+            } catch (IOException ignored) {
+                // 客户端已断开
+            }
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    /**
+     * 把每轮匹配的行作为一个 SSE 事件发送，没有内容时发送心跳；在发送线程中调用，见 LogTailService
+     */
+    private static class TailEventSink implements LineSink {
+        private final SseEmitter emitter;
+        private List<String> batch = new ArrayList<>();
+
+        TailEventSink(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void accept(String line) {
+            batch.add(line);
+        }
+
+        @Override
+        public void flush() {
+            try {
+                if (batch.isEmpty()) {
+                    emitter.send(SseEmitter.event().comment("keepalive"));
+                } else {
+                    List<String> lines = batch;
+                    batch = new ArrayList<>();
+                    emitter.send(SseEmitter.event().name("lines").data(lines, MediaType.APPLICATION_JSON));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            emitter.complete();
+        }
+    }
+
+    /**
+     * 跨服务器查询：同时查询多个服务器，结果按时间归并，每行标注来源
+     *
+     * 每个服务器有各自的超时时间，部分服务器超时或不可用时返回其余服务器的结果，meta.sources 为每个来源的执行情况。
+     * @param serverIds 服务器ID列表
+     * @param appIds 应用ID列表（可选，为空时查询所选服务器上的所有应用）
+     * @param startTime 开始时间，格式：HH:mm
+     * @param endTime 结束时间，格式：HH:mm
+     * @param filter 字段过滤条件（可选，可以有多个），同 /query
+     * @param limit 归并后最多返回的行数，最大为 log.platform.max-page-size
+     */
+    @GetMapping("/federated/query")
+    public ApiResponse<List<FederatedLogLine>> federatedQuery(
+            @RequestParam List<String> serverIds,
+            @RequestParam(required = false) List<String> appIds,
+            @RequestParam String date,
+            @RequestParam(required = false) String keyword,
+            @RequestParam(defaultValue = "00:00") String startTime,
+            @RequestParam(defaultValue = "23:59") String endTime,
+            @RequestParam(required = false, defaultValue = "all") String type,
+            @RequestParam(required = false) List<String> filter,
+            @RequestParam(required = false, defaultValue = "1500") int limit) {
+
+        try {
+            log.debug("收到跨服务器查询请求 - 服务器: {}, 应用: {}, 日期: {}, 关键词: {}, 开始时间: {}, 结束时间: {}",
+                    serverIds, appIds, date, keyword, startTime, endTime);
+
+            FederatedQueryResult result = remoteLogService.federatedQuery(serverIds, appIds, date, keyword,
+                    startTime, endTime, type, filter, Math.min(limit, properties.getMaxPageSize()));
+
+            log.debug("跨服务器查询结果: 找到 {} 条日志", result.getLines().size());
+
+            return ApiResponse.success(result.getLines())
+                    .meta("sources", result.getSources())
+                    .meta("complete", result.isComplete())
+                    .meta("truncated", result.isTruncated());
+        } catch (Exception e) {
+            log.error("跨服务器查询失败", e);
+            return ApiResponse.error("跨服务器查询失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 按 traceId 查询一次调用在本服务器所有应用中的日志，按时间排列成一条时间线，每行标注所属应用
+     *
+     * 只覆盖最近几天（log.platform.trace-index-days）的 info 日志。
+     * @param serverId 只查询该服务器的应用（可选）
+     * @param limit 最多返回的行数
+     */
+    @GetMapping("/trace/{traceId}")
+    public ApiResponse<List<FederatedLogLine>> traceLogs(
+            @PathVariable String traceId,
+            @RequestParam(required = false) String serverId,
+            @RequestParam(required = false, defaultValue = "1500") int limit) {
+        try {
+            long start = System.currentTimeMillis();
+            FederatedQueryResult result = traceService.trace(traceId, serverId, limit);
+            log.debug("traceId查询: {}, 找到 {} 行, 耗时 {}ms", traceId, result.getLines().size(),
+                    System.currentTimeMillis() - start);
+            return ApiResponse.success(result.getLines())
+                    .meta("sources", result.getSources())
+                    .meta("complete", result.isComplete())
+                    .meta("truncated", result.isTruncated());
+        } catch (Exception e) {
+            log.error("traceId查询失败", e);
+            return ApiResponse.error("traceId查询失败: " + e.getMessage());
         }
     }
 
@@ -101,6 +457,29 @@ public class LogController {
 //        }
 //    }
 
+    /**
+     * 查询结果缓存的命中、未命中、淘汰次数及占用大小
+     */
+    @GetMapping("/cache/stats")
+    public ApiResponse<Map<String, Object>> getCacheStats() {
+        return ApiResponse.success(queryResultCache.getStats());
+    }
+
+    /**
+     * 后台建立索引的进度：各应用的历史文件数、已建立、排队中的文件数和字节数，trace 为 traceId 索引的规模
+     */
+    @GetMapping("/index/status")
+    public ApiResponse<Map<String, Object>> getIndexStatus() {
+        try {
+            Map<String, Object> status = new LinkedHashMap<>(logIndexService.getStatus());
+            status.put("trace", traceService.getStatus());
+            return ApiResponse.success(status);
+        } catch (Exception e) {
+            log.error("获取索引进度失败", e);
+            return ApiResponse.error("获取索引进度失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 获取可用的日期列表（本地）
      */
@@ -110,7 +489,7 @@ public class LogController {
             Set<String> dates = logService.getAvailableDates(appId);
             return ApiResponse.success(dates);
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("获取日期列表失败", e);
             return ApiResponse.error("获取日期列表失败: " + e.getMessage());
         }
     }
@@ -143,21 +522,15 @@ public class LogController {
             @RequestParam(required = false) String appId,
             @RequestParam(required = false, defaultValue = "all") String type) {
         try {
-            System.out.println("收到文件列表查询请求 - 日期: " + date + ", 应用ID: " + appId + ", 类型: " + type);
+            log.debug("收到文件列表查询请求 - 日期: {}, 应用ID: {}, 类型: {}", date, appId, type);
             
             List<LogService.LogFileWithTimeRange> files = logService.getDateLogFilesWithTimeRange(date, appId, type);
             
-            System.out.println("文件列表查询结果: 找到 " + files.size() + " 个文件");
-            for (LogService.LogFileWithTimeRange file : files) {
-                System.out.println("  - 文件: " + file.getFileName() + 
-                                 ", 最早时间: " + file.getEarliestTime() + 
-                                 ", 最晚时间: " + file.getLatestTime());
-            }
+            log.debug("文件列表查询结果: 找到 {} 个文件", files.size());
             
             return ApiResponse.success(files);
         } catch (Exception e) {
-            e.printStackTrace();
-            System.err.println("获取文件列表失败: " + e.getMessage());
+            log.error("获取文件列表失败", e);
             return ApiResponse.error("获取日期下的文件列表失败: " + e.getMessage());
         }
     }
@@ -191,6 +564,9 @@ public class LogController {
         private boolean success;
         private String message;
         private T data;
+        // 附加信息（如跳过的文件数），为空时不输出
+        @JsonInclude(JsonInclude.Include.NON_EMPTY)
+        private Map<String, Object> meta;
 
         public static <T> ApiResponse<T> success(T data) {
             ApiResponse<T> response = new ApiResponse<>();
@@ -207,6 +583,14 @@ public class LogController {
             return response;
         }
 
+        public ApiResponse<T> meta(String key, Object value) {
+            if (meta == null) {
+                meta = new LinkedHashMap<>();
+            }
+            meta.put(key, value);
+            return this;
+        }
+
         // getters and setters
         public boolean isSuccess() {
             return success;
@@ -231,5 +615,13 @@ public class LogController {
         public void setData(T data) {
             this.data = data;
         }
+
+        public Map<String, Object> getMeta() {
+            return meta;
+        }
+
+        public void setMeta(Map<String, Object> meta) {
+            this.meta = meta;
+        }
     }
 }
\ No newline at end of file
@@ -2,8 +2,33 @@ package log.tsuperman.com.logplatform;
 
 import log.tsuperman.com.logplatform.config.LogPlatformProperties;
 import log.tsuperman.com.logplatform.entity.AppConfig;
+import log.tsuperman.com.logplatform.entity.ServerConfig;
+import log.tsuperman.com.logplatform.search.CancellationToken;
+import log.tsuperman.com.logplatform.search.FieldFilter;
+import log.tsuperman.com.logplatform.search.FileBloomFilterRegistry;
+import log.tsuperman.com.logplatform.search.FileScanResult;
+import log.tsuperman.com.logplatform.search.FileSearchExecutor;
+import log.tsuperman.com.logplatform.search.FileTimeRange;
+import log.tsuperman.com.logplatform.search.FileTimeRangeCache;
+import log.tsuperman.com.logplatform.search.IncrementalFileScanner;
+import log.tsuperman.com.logplatform.search.LineSink;
+import log.tsuperman.com.logplatform.search.LogFileCatalog;
+import log.tsuperman.com.logplatform.search.LogFileEntry;
+import log.tsuperman.com.logplatform.search.LogFileScanner;
+import log.tsuperman.com.logplatform.search.LogQuery;
+import log.tsuperman.com.logplatform.search.LogQueryResult;
+import log.tsuperman.com.logplatform.search.QueryCursor;
+import log.tsuperman.com.logplatform.search.QueryMetrics;
+import log.tsuperman.com.logplatform.search.QueryProfile;
+import log.tsuperman.com.logplatform.search.QueryResultCache;
+import log.tsuperman.com.logplatform.search.SparseTimeIndex;
+import log.tsuperman.com.logplatform.search.TimeIndexRegistry;
+import log.tsuperman.com.logplatform.search.TimestampParser;
+import log.tsuperman.com.logplatform.search.TrigramIndexRegistry;
 import log.tsuperman.com.logplatform.service.ConfigService;
 import org.apache.logging.log4j.util.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -12,8 +37,9 @@ import java.nio.file.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.*;
 
 /**
@@ -25,15 +51,47 @@ import java.util.stream.*;
 @Service
 public class LogService {
 
+    private static final Logger log = LoggerFactory.getLogger(LogService.class);
+
     @Autowired
     private LogPlatformProperties properties;
     
     @Autowired
     private ConfigService configService;
-    
-    // 定义日志时间戳的正则表达式
-    private static final Pattern TIMESTAMP_PATTERN = Pattern.compile("(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2})");
 
+    @Autowired
+    private TimeIndexRegistry timeIndexRegistry;
+
+    @Autowired
+    private FileTimeRangeCache fileTimeRangeCache;
+
+    @Autowired
+    private IncrementalFileScanner incrementalFileScanner;
+
+    @Autowired
+    private FileSearchExecutor fileSearchExecutor;
+
+    @Autowired
+    private QueryResultCache queryResultCache;
+
+    @Autowired
+    private LogFileCatalog logFileCatalog;
+
+    @Autowired
+    private FileBloomFilterRegistry fileBloomFilterRegistry;
+
+    @Autowired
+    private TrigramIndexRegistry trigramIndexRegistry;
+
+    @Autowired
+    private QueryMetrics queryMetrics;
+
+    // 每页默认行数，防止前端卡死
+    private static final int DEFAULT_PAGE_SIZE = 1500;
+
+    // 每个应用的日志格式固定，各自缓存时间戳所在的列
+    private final ConcurrentHashMap<String, TimestampParser> timestampParsers = new ConcurrentHashMap<>();
+    
     /**
      * 根据应用ID获取应用配置
      */
@@ -57,149 +115,476 @@ public class LogService {
      * 日志格式为：[task-center:172.28.243.190:30736] [,] 2026-01-08 14:06:00.714 INFO 6762 [xxl-job, JobThread-11-1767852360014] com.***.***.TroubleSubmitJob 具体日志信息
      */
     public List<String> queryLogs(String date, String keyword, String startTime, String endTime, String fileName, String appId, String logType) throws IOException {
-        List<String> results = new ArrayList<>();
+        return search(new LogQuery(date, keyword, startTime, endTime, fileName, appId, logType)).getLines();
+    }
+
+    /**
+     * 按查询条件检索一页日志，返回匹配行、下一页游标及文件统计（匹配、跳过、读取的文件数）
+     * @param query 查询条件，参数含义同 {@link #queryLogs(String, String, String, String, String, String, String)}；
+     *              带上一页的游标时从上一页停止的位置继续。要求返回执行情况时结果中带 {@link QueryProfile}，
+     *              explain 时只生成执行计划，不读取文件内容。没有带取消标记时按配置的查询超时时间截止，
+     *              超时或被取消时返回已找到的行，{@link LogQueryResult#getTruncated()} 为原因，游标指向停止的位置
+     */
+    public LogQueryResult search(LogQuery query) throws IOException {
+        long start = System.nanoTime();
+        CancellationToken cancellation = query.getCancellation() != null ? query.getCancellation()
+                : new CancellationToken(properties.getQueryTimeoutMillis());
+        QueryPlan plan = planQuery(query);
+        if (plan == null) {
+            return new LogQueryResult();
+        }
+        plan.scanner.setCancellation(cancellation);
+        QueryProfile profile = query.isProfile() || query.isExplain() ? newProfile(plan, start) : null;
+        if (query.isExplain()) {
+            return explain(plan, profile);
+        }
+        // 历史日期的文件不会再变化，结果可以缓存；当天的活跃文件由增量扫描处理
+        String cacheKey = null;
+        if (!query.getDate().equals(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")))) {
+            cacheKey = QueryResultCache.key(query, plan.files);
+            LogQueryResult cached = queryResultCache.get(cacheKey);
+            if (profile != null) {
+                profile.setResultCache(cached != null ? QueryProfile.CACHE_HIT : QueryProfile.CACHE_MISS);
+            }
+            if (cached != null) {
+                log.debug("命中查询结果缓存，共 {} 条日志", cached.getLines().size());
+                queryMetrics.record(metricsApp(query), QueryMetrics.MODE_PAGE, cached, System.nanoTime() - start);
+                cached.setProfile(profile);
+                return cached;
+            }
+        }
+
+        LogQueryResult result = new LogQueryResult();
+        List<String> results = result.getLines();
+        result.setFilesMatched(plan.files.length);
+        LogFileScanner scanner = plan.scanner;
+        // 一页的结果全部保存在内存中（还可能进入结果缓存），不超过配置的上限
+        int pageSize = Math.min(query.getPageSize() > 0 ? query.getPageSize() : DEFAULT_PAGE_SIZE,
+                properties.getMaxPageSize());
+        int parallelism = getSearchParallelism(plan.serverId);
+        long scanStart = System.nanoTime();
+        // 回调按文件顺序执行，据此找到结果对应的文件
+        int[] position = {plan.firstFile};
+
+        // 多个文件并发流式读取，按文件顺序合并（使用增强的日志处理逻辑，保留堆栈跟踪等信息）
+        List<File> pending = Arrays.asList(plan.files).subList(plan.firstFile, plan.files.length);
+        List<Callable<FileSearchOutcome>> tasks = new ArrayList<>();
+        AtomicBoolean readFailed = new AtomicBoolean();
+        for (int i = 0; i < pending.size(); i++) {
+            File file = pending.get(i);
+            boolean sealed = plan.sealed[plan.firstFile + i];
+            long fromOffset = i == 0 ? plan.firstOffset : 0;
+            int fromEvent = i == 0 ? plan.firstEvent : 0;
+            tasks.add(() -> searchFile(scanner, file, sealed, pageSize, fromOffset, fromEvent));
+        }
+        try {
+            fileSearchExecutor.forEachInOrder(plan.serverId, parallelism, tasks, outcome -> {
+                QueryProfile.FileProfile fileProfile = profile != null ? profile.getFiles().get(position[0]) : null;
+                position[0]++;
+                if (outcome == FileSearchOutcome.KEYWORD_PRUNED) {
+                    result.setFilesKeywordPruned(result.getFilesKeywordPruned() + 1);
+                    if (fileProfile != null) {
+                        fileProfile.setAction(QueryProfile.FileProfile.KEYWORD_PRUNED);
+                    }
+                    return true;
+                }
+                if (outcome.pruned) {
+                    result.setFilesPruned(result.getFilesPruned() + 1);
+                    if (fileProfile != null) {
+                        fileProfile.setAction(QueryProfile.FileProfile.TIME_PRUNED);
+                    }
+                    return true;
+                }
+                if (!outcome.cancelled) {
+                    result.setFilesScanned(result.getFilesScanned() + 1);
+                }
+                result.setLinesScanned(result.getLinesScanned() + outcome.scan.getLinesScanned());
+                result.setBytesScanned(result.getBytesScanned() + outcome.scan.getBytesScanned());
+                if (outcome.failed) {
+                    readFailed.set(true);
+                }
+                // 按日志单元取到本页剩余的行数，停下的位置作为下一页的游标，其余文件的检索会被取消
+                FileScanResult taken = outcome.scan.truncate(pageSize - results.size());
+                results.addAll(taken.getLines());
+                if (fileProfile != null) {
+                    profile.addScan(fileProfile, outcome.scan, taken.getLineCount());
+                    fileProfile.setTimeIndexUsed(outcome.timeIndexUsed);
+                    fileProfile.setTrigramIndexUsed(outcome.trigramIndexUsed);
+                    if (outcome.failed) {
+                        fileProfile.setAction(QueryProfile.FileProfile.FAILED);
+                    }
+                }
+                boolean pageFull = taken.isLimitReached();
+                // 超时或被取消时在停止的位置结束本页，其余文件不再读取
+                boolean stopped = !pageFull && (outcome.cancelled || taken.isCancelled());
+                if (pageFull || stopped) {
+                    result.setNextCursor(new QueryCursor(outcome.file.getName(), taken.getEndOffset(),
+                            outcome.fromEvent + taken.getUnitCount(), outcome.fileId, plan.queryId).encode());
+                }
+                if (stopped) {
+                    result.setTruncated(cancellation.getReason());
+                }
+                return !pageFull && !stopped;
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return result;
+        }
+        
+        log.debug("总共找到 {} 条匹配的日志，跳过 {} 个不在时间段内的文件、{} 个不包含关键字的文件",
+                results.size(), result.getFilesPruned(), result.getFilesKeywordPruned());
+        queryMetrics.record(metricsApp(query), QueryMetrics.MODE_PAGE, result, System.nanoTime() - start);
+        if (profile != null) {
+            profile.setParallelism(parallelism);
+            profile.setScanMillis(QueryProfile.nanosToMillis(System.nanoTime() - scanStart));
+            result.setProfile(profile);
+        }
+        if (result.getTruncated() != null) {
+            log.debug("查询提前停止（{}），已读取 {} 个文件", result.getTruncated(), result.getFilesScanned());
+        }
+        if (cacheKey != null && !readFailed.get() && result.getTruncated() == null) {
+            queryResultCache.put(cacheKey, result);
+        }
+        return result;
+    }
+    
+    /**
+     * 流式检索：逐个文件顺序扫描，匹配行一找到就交给 sink，不在内存中保存结果
+     *
+     * 大文件不切分并行（各段结果需要先缓存再按顺序合并），输出端写满时扫描随之阻塞。
+     * @param query 查询条件，pageSize 为0时不限制行数；没有带取消标记时按配置的流式查询超时时间截止
+     * @return 文件统计及下一页游标，lines 为空
+     */
+    public LogQueryResult stream(LogQuery query, LineSink sink) throws IOException {
+        long start = System.nanoTime();
+        LogQueryResult result = new LogQueryResult();
+        CancellationToken cancellation = query.getCancellation() != null ? query.getCancellation()
+                : new CancellationToken(properties.getStreamTimeoutMillis());
+        QueryPlan plan = planQuery(query);
+        if (plan == null) {
+            return result;
+        }
+        plan.scanner.setCancellation(cancellation);
+        result.setFilesMatched(plan.files.length);
+        int remaining = query.getPageSize() > 0 ? query.getPageSize() : Integer.MAX_VALUE;
+        int total = 0;
+
+        for (int i = plan.firstFile; i < plan.files.length; i++) {
+            File file = plan.files[i];
+            long fromOffset = i == plan.firstFile ? plan.firstOffset : 0;
+            int fromEvent = i == plan.firstFile ? plan.firstEvent : 0;
+            // 文件时间范围与查询时间段不重叠的，不读取内容
+            if (!plan.scanner.isWholeDay() && !mayContainTimeRange(plan.scanner, file)) {
+                result.setFilesPruned(result.getFilesPruned() + 1);
+                continue;
+            }
+            // 布隆过滤器判断一定不包含关键字的，不读取内容
+            if (!mayContainKeyword(plan.scanner, file, plan.sealed[i])) {
+                result.setFilesKeywordPruned(result.getFilesKeywordPruned() + 1);
+                continue;
+            }
+            log.debug("正在处理日志文件: {}", file.getName());
+            try {
+                int fileId = QueryCursor.fileId(file.toPath());
+                if (cancellation.isCancelled()) {
+                    result.setTruncated(cancellation.getReason());
+                    result.setNextCursor(new QueryCursor(file.getName(), fromOffset, fromEvent, fileId, plan.queryId).encode());
+                    break;
+                }
+                result.setFilesScanned(result.getFilesScanned() + 1);
+                FileScanResult scan = plan.scanner.scanFile(file.toPath(), remaining,
+                        timeIndexRegistry.get(file.toPath()), fromOffset, sink);
+                sink.flush();
+                remaining -= scan.getLineCount();
+                total += scan.getLineCount();
+                result.setLinesScanned(result.getLinesScanned() + scan.getLinesScanned());
+                result.setBytesScanned(result.getBytesScanned() + scan.getBytesScanned());
+                if (scan.isLimitReached() || scan.isCancelled()) {
+                    result.setNextCursor(new QueryCursor(file.getName(), scan.getEndOffset(),
+                            fromEvent + scan.getUnitCount(), fileId, plan.queryId).encode());
+                    if (!scan.isLimitReached()) {
+                        result.setTruncated(cancellation.getReason());
+                    }
+                    break;
+                }
+            } catch (IOException e) {
+                log.warn("读取文件失败: {}, 错误: {}", file.getAbsolutePath(), e.getMessage());
+            }
+        }
+
+        log.debug("流式输出 {} 条匹配的日志，跳过 {} 个不在时间段内的文件、{} 个不包含关键字的文件",
+                total, result.getFilesPruned(), result.getFilesKeywordPruned());
+        queryMetrics.record(metricsApp(query), QueryMetrics.MODE_STREAM, result, System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * 执行情况：列出文件的用时，每个文件先记为不需要读取
+     */
+    private QueryProfile newProfile(QueryPlan plan, long start) {
+        QueryProfile profile = new QueryProfile();
+        profile.setListingMillis(QueryProfile.nanosToMillis(System.nanoTime() - start));
+        for (int i = 0; i < plan.files.length; i++) {
+            profile.getFiles().add(new QueryProfile.FileProfile(plan.files[i].getName(), plan.files[i].length(), plan.sealed[i]));
+        }
+        return profile;
+    }
+
+    /**
+     * 只生成执行计划：按文件时间范围、布隆过滤器判断每个文件是否会被跳过，按时间索引、三元组索引估算要读取的字节数
+     *
+     * 只读取文件时间范围和索引（都有缓存），不读取文件内容；索引还没有建立的历史文件会被安排在后台建立。
+     */
+    private LogQueryResult explain(QueryPlan plan, QueryProfile profile) throws IOException {
+        long start = System.nanoTime();
+        LogQueryResult result = new LogQueryResult();
+        result.setFilesMatched(plan.files.length);
+        profile.setExplain(true);
+        long estimated = 0;
+        for (int i = plan.firstFile; i < plan.files.length; i++) {
+            File file = plan.files[i];
+            QueryProfile.FileProfile fileProfile = profile.getFiles().get(i);
+            if (!plan.scanner.isWholeDay() && !mayContainTimeRange(plan.scanner, file)) {
+                result.setFilesPruned(result.getFilesPruned() + 1);
+                fileProfile.setAction(QueryProfile.FileProfile.TIME_PRUNED);
+                continue;
+            }
+            if (!mayContainKeyword(plan.scanner, file, plan.sealed[i])) {
+                result.setFilesKeywordPruned(result.getFilesKeywordPruned() + 1);
+                fileProfile.setAction(QueryProfile.FileProfile.KEYWORD_PRUNED);
+                continue;
+            }
+            fileProfile.setAction(QueryProfile.FileProfile.WILL_SCAN);
+            long fromOffset = i == plan.firstFile ? plan.firstOffset : 0;
+            long startOffset = plan.scanner.startOffset(timeIndexRegistry.get(file.toPath()), fromOffset);
+            fileProfile.setTimeIndexUsed(startOffset > fromOffset);
+            long bytes = Math.max(0, file.length() - startOffset);
+            long[] ranges = plan.sealed[i] ? candidateRanges(plan.scanner, file) : null;
+            if (ranges != null) {
+                fileProfile.setTrigramIndexUsed(true);
+                bytes = 0;
+                for (int r = 0; r + 1 < ranges.length; r += 2) {
+                    bytes += Math.max(0, ranges[r + 1] - Math.max(ranges[r], startOffset));
+                }
+            }
+            fileProfile.setBytesScanned(bytes);
+            estimated += bytes;
+        }
+        profile.setBytesScanned(estimated);
+        profile.setParallelism(getSearchParallelism(plan.serverId));
+        profile.setScanMillis(QueryProfile.nanosToMillis(System.nanoTime() - start));
+        result.setProfile(profile);
+        return result;
+    }
+
+    /**
+     * 指标的 app 标签：已找到配置的应用ID，未指定应用时为默认值
+     */
+    private static String metricsApp(LogQuery query) {
+        return Strings.isEmpty(query.getAppId()) ? QueryMetrics.DEFAULT_APP : query.getAppId();
+    }
+
+    /**
+     * 按查询条件找到要读取的文件并排好序，解析游标
+     * @return 找不到应用配置、日志目录或匹配的文件时返回null
+     * @throws IllegalArgumentException 游标无效或已失效
+     */
+    private QueryPlan planQuery(LogQuery query) throws IOException {
+        String date = query.getDate();
+        String keyword = query.getKeyword();
+        String startTime = query.getStartTime();
+        String endTime = query.getEndTime();
+        String fileName = query.getFileName();
+        String appId = query.getAppId();
+        String logType = query.getLogType();
 
         String logPath;
         String logPrefix;
+        String serverId = null;
         
         // 根据应用ID获取相应配置，如果没有提供应用ID则使用默认配置
         if (!Strings.isEmpty(appId)) {
             AppConfig appConfig = getAppConfigById(appId);
             if (appConfig == null) {
-                System.out.println("找不到应用配置: " + appId);
-                return results;
+                log.warn("找不到应用配置: {}", appId);
+                return null;
             }
             logPath = appConfig.getLogPath();
             logPrefix = appConfig.getLogPrefix();
+            serverId = appConfig.getServerId();
         } else {
             logPath = properties.getFullLogPath();
             logPrefix = properties.getLogPrefix();
         }
 
-        // 获取当前日期
-        String currentDate = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-        
-        // 1. 寻找匹配的文件：task-center-info.log (仅当天) 或 task-center-info.2026-01-14.*.log (历史日期)
-        File logDir = new File(logPath);
-        
-        // 检查日志目录是否存在
-        if (!logDir.exists() || !logDir.isDirectory()) {
-            System.out.println("日志目录不存在或不是一个目录: " + logPath);
-            return results;
+        // 1. 寻找匹配的文件：task-center-info.log (仅当天) 或 task-center-info.2026-01-14.*.log (历史日期)，
+        // 按类型、日期、序号排好序，确保日志顺序连贯
+        List<LogFileEntry> entries = findLogFiles(logPath, logPrefix, date, logType, fileName);
+        if (entries == null) {
+            log.warn("日志目录不存在或不是一个目录: {}", logPath);
+            return null;
         }
-        
-        File[] files = logDir.listFiles((dir, name) -> {
-            // 如果指定了文件名，只查找该文件
-            if (!Strings.isEmpty(fileName)) {
-                return name.equals(fileName);
+        if (entries.isEmpty()) {
+            log.debug("未找到匹配的日志文件，路径：{}，日期：{}，文件名：{}，应用ID：{}，期望前缀：{}",
+                    logPath, date, fileName, appId, logPrefix);
+            return null;
+        }
+
+        LogFileScanner scanner = new LogFileScanner(keyword, startTime, endTime,
+                timestampParsers.computeIfAbsent(Strings.isEmpty(appId) ? "" : appId, k -> new TimestampParser()),
+                FieldFilter.parseAll(query.getFilters()));
+
+        // 2. 有游标时从上一页停止的文件和位置继续
+        File[] files = entries.stream().map(LogFileEntry::getFile).toArray(File[]::new);
+        QueryPlan plan = new QueryPlan(files, serverId, scanner, QueryCursor.queryId(query));
+        for (int i = 0; i < files.length; i++) {
+            plan.sealed[i] = !entries.get(i).isActive();
+        }
+        if (!Strings.isEmpty(query.getCursor())) {
+            QueryCursor cursor = QueryCursor.decode(query.getCursor());
+            if (cursor.getQueryId() != plan.queryId) {
+                throw new IllegalArgumentException("游标与查询条件不一致，请重新查询");
             }
-            
-            // 获取基本文件名（去除扩展名）
-            String baseName = name.substring(0, name.lastIndexOf('.'));
-            // 检查是否是当前前缀的变体（如XXX_任意内容.log 应等价于 XXX.log）
-            boolean isVariantOfPrefix = isNameVariantOfPrefix(baseName, logPrefix);
-            
-            // 根据logType动态调整前缀匹配逻辑
-            boolean isCurrentDayFile = false;
-            boolean isHistoryFile = false;
-            
-            if (logType == null || logType.equalsIgnoreCase("all")) {
-                // 查找所有类型：既包含原前缀，也包含对应的error前缀
-                String basePrefix = logPrefix.replace("-info", ""); // 去掉-info后缀，得到基础前缀
-                // 检查基础前缀的变体
-                boolean isVariantOfBasePrefix = isNameVariantOfPrefix(baseName, basePrefix + "-error");
-                
-                // 当天文件检查
-                isCurrentDayFile = date.equals(currentDate) && 
-                                 (name.equals(logPrefix + ".log") || 
-                                  name.equals(basePrefix + "-error.log") ||
-                                  isVariantOfPrefix || isVariantOfBasePrefix); // 添加前缀变体文件
-                
-                // 历史文件检查
-                isHistoryFile = name.contains(date) && 
-                              (name.startsWith(logPrefix) || name.startsWith(basePrefix + "-error")) && 
-                              name.endsWith(".log");
-                              
-            } else if (logType.equalsIgnoreCase("info")) {
-                // 只查找info类型
-                isCurrentDayFile = date.equals(currentDate) && (name.equals(logPrefix + ".log") || isVariantOfPrefix);
-                isHistoryFile = name.contains(date) && name.startsWith(logPrefix) && name.endsWith(".log");
-                
-            } else if (logType.equalsIgnoreCase("error")) {
-                // 查找error类型：将-info替换为-error
-                String errorPrefix = logPrefix.replace("-info", "-error");
-                boolean isVariantOfErrorPrefix = isNameVariantOfPrefix(baseName, errorPrefix);
-                isCurrentDayFile = date.equals(currentDate) && (name.equals(errorPrefix + ".log") || isVariantOfErrorPrefix);
-                isHistoryFile = name.contains(date) && name.startsWith(errorPrefix) && name.endsWith(".log");
+            plan.firstFile = indexOfFile(files, cursor.getFileName());
+            if (plan.firstFile < 0 || QueryCursor.fileId(files[plan.firstFile].toPath()) != cursor.getFileId()) {
+                throw new IllegalArgumentException("游标对应的日志文件已轮转或删除，请重新查询");
             }
-            
-            return isCurrentDayFile || isHistoryFile;
-        });
-
-        if (files == null || files.length == 0) {
-            System.out.println("未找到匹配的日志文件，路径：" + logPath + "，日期：" + date + 
-                              (!Strings.isEmpty(fileName) ? "，文件名：" + fileName : "") + 
-                              (!Strings.isEmpty(appId) ? "，应用ID：" + appId : ""));
-            // 尝试列出目录中的所有文件以帮助调试
-            File[] allFiles = logDir.listFiles();
-            if (allFiles != null) {
-                System.out.println("目录中所有文件：" + Arrays.toString(allFiles) + 
-                                  "，期望前缀：" + logPrefix);
+            if (cursor.getOffset() > files[plan.firstFile].length()) {
+                throw new IllegalArgumentException("游标位置超出日志文件大小，请重新查询");
             }
-            return results;
-        }
-
-        // 2. 按文件名排序，确保日志顺序连贯
-        Arrays.sort(files, (f1, f2) -> compareLogFileNames(f1, f2, logPrefix));
-
-        // 3. 逐个文件读取（使用增强的日志处理逻辑，保留堆栈跟踪等信息）
-        for (File file : files) {
-            System.out.println("正在处理日志文件: " + file.getName());
-            try (Stream<String> lines = Files.lines(file.toPath())) {
-                List<String> allLines = lines.collect(Collectors.toList());
-                List<String> matched = new ArrayList<>();
-                
-                for (int i = 0; i < allLines.size(); i++) {
-                    String line = allLines.get(i);
-                    
-                    // 时间段过滤
-                    boolean timeMatch = isWithinTimeRange(line, startTime, endTime);
-                    
-                    // 关键字过滤
-                    boolean kwMatch = keyword == null || keyword.isEmpty() || line.toLowerCase().contains(keyword.toLowerCase());
-                    
-                    if (timeMatch && kwMatch) {
-                        matched.add(line);
-                        
-                        // 如果这是一个有时间戳的日志行，检查后续的非时间戳行
-                        if (hasTimestamp(line)) {
-                            // 收集后续的非时间戳行（堆栈跟踪、详细信息等）
-                            int j = i + 1;
-                            while (j < allLines.size() && !hasTimestamp(allLines.get(j))) {
-                                String additionalLine = allLines.get(j);
-                                // 对于非时间戳行，只进行关键字过滤
-                                if (keyword == null || keyword.isEmpty() || additionalLine.toLowerCase().contains(keyword.toLowerCase())) {
-                                    matched.add(additionalLine);
-                                }
-                                j++;
-                            }
-                            i = j - 1; // 跳过已处理的行
-                        }
-                    }
-                    
-                    // 限制返回行数，防止前端卡死
-                    if (matched.size() >= 1000) break;
-                }
+            plan.firstOffset = cursor.getOffset();
+            plan.firstEvent = cursor.getEvent();
+        }
+        return plan;
 
-                results.addAll(matched);
-                if (results.size() >= 1500) break; // 总数限制
-            } catch (IOException e) {
-                System.err.println("读取文件失败: " + file.getAbsolutePath() + ", 错误: " + e.getMessage());
+    }
+
+    /**
+     * 从文件目录中取出指定日期、类型的日志文件（已排序）；指定了文件名时只取该文件
+     * @return 日志目录不存在时返回null
+     */
+    private List<LogFileEntry> findLogFiles(String logPath, String logPrefix, String date, String logType, String fileName) {
+        if (!Strings.isEmpty(fileName)) {
+            File dir = new File(logPath);
+            if (!dir.isDirectory()) {
+                return null;
+            }
+            // 只接受日志目录中的文件名，不能借助 ../ 读取目录以外的文件
+            File file = LogFileCatalog.resolveFile(logPath, fileName);
+            if (file == null) {
+                return Collections.emptyList();
             }
+            LogFileEntry entry = LogFileCatalog.classify(file, logPrefix);
+            return Collections.singletonList(entry != null ? entry : new LogFileEntry(file, null, LogFileEntry.INFO, 0));
+        }
+        return logFileCatalog.getFiles(logPath, logPrefix, date, logType);
+    }
+
+    /**
+     * 检索单个文件，在检索线程池中执行
+     * @param sealed 是否为不再变化的轮转文件
+     * @param fromOffset 开始位置，游标所在文件以外的文件为0
+     * @param fromEvent 该文件此前已经返回的匹配日志条数
+     */
+    private FileSearchOutcome searchFile(LogFileScanner scanner, File file, boolean sealed, int pageSize, long fromOffset, int fromEvent) {
+        // 文件时间范围与查询时间段不重叠的，不读取内容
+        if (!scanner.isWholeDay() && !mayContainTimeRange(scanner, file)) {
+            return FileSearchOutcome.PRUNED;
+        }
+        // 布隆过滤器判断一定不包含关键字的，不读取内容
+        if (!mayContainKeyword(scanner, file, sealed)) {
+            return FileSearchOutcome.KEYWORD_PRUNED;
+        }
+        log.debug("正在处理日志文件: {}", file.getName());
+        try {
+            // 一个文件最多取一页；借助时间索引跳到开始时间附近
+            int fileId = QueryCursor.fileId(file.toPath());
+            // 已经超时或被取消，不再读取，本页在这个文件的开始位置结束
+            if (scanner.isCancelled()) {
+                FileSearchOutcome outcome = new FileSearchOutcome(file, fileId, fromEvent, new FileScanResult(fromOffset));
+                outcome.cancelled = true;
+                return outcome;
+            }
+            FileScanResult scan;
+            SparseTimeIndex index = timeIndexRegistry.get(file.toPath());
+            boolean timeIndexUsed = scanner.startOffset(index, fromOffset) > fromOffset;
+            long[] ranges = sealed ? candidateRanges(scanner, file) : null;
+            if (ranges != null) {
+                // 历史文件有三元组索引时只读可能包含关键字的块
+                scan = scanner.scanRanges(file.toPath(), ranges, pageSize, index, fromOffset);
+            } else {
+                // 重复查询活跃文件时只读新追加的部分
+                scan = incrementalFileScanner.scan(scanner, file.toPath(), pageSize, index, fromOffset);
+            }
+            FileSearchOutcome outcome = new FileSearchOutcome(file, fileId, fromEvent, scan);
+            outcome.timeIndexUsed = timeIndexUsed;
+            outcome.trigramIndexUsed = ranges != null;
+            return outcome;
+        } catch (IOException e) {
+            // 本页已满而被取消的任务不算失败
+            if (!Thread.currentThread().isInterrupted()) {
+                log.warn("读取文件失败: {}, 错误: {}", file.getAbsolutePath(), e.getMessage());
+            }
+            FileSearchOutcome outcome = new FileSearchOutcome(file, 0, fromEvent, new FileScanResult(fromOffset));
+            outcome.failed = true;
+            return outcome;
+        }
+    }
+
+    /**
+     * 在排好序的文件中查找指定文件名，找不到时返回-1
+     */
+    private int indexOfFile(File[] files, String name) {
+        for (int i = 0; i < files.length; i++) {
+            if (files[i].getName().equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 服务器单独配置的并发文件数，未配置时使用全局配置
+     */
+    private int getSearchParallelism(String serverId) {
+        ServerConfig server = Strings.isEmpty(serverId) ? null : configService.getServerById(serverId);
+        if (server != null && server.getSearchParallelism() > 0) {
+            return server.getSearchParallelism();
+        }
+        return properties.getFileSearchParallelism();
+    }
+
+    /**
+     * 根据文件的布隆过滤器判断文件是否可能包含关键字，没有过滤器或读取失败时不跳过
+     */
+    private boolean mayContainKeyword(LogFileScanner scanner, File file, boolean sealed) {
+        try {
+            return fileBloomFilterRegistry.mayContain(file.toPath(), sealed, scanner.getKeyword());
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * 历史文件的三元组索引给出的可能包含关键字的区间，没有索引、不能使用索引或读取失败时返回null
+     */
+    private long[] candidateRanges(LogFileScanner scanner, File file) {
+        try {
+            return trigramIndexRegistry.candidateRanges(file.toPath(), scanner.getKeyword());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 根据缓存的文件时间范围判断文件是否可能包含查询时间段内的日志，读取失败时不跳过
+     */
+    private boolean mayContainTimeRange(LogFileScanner scanner, File file) {
+        try {
+            return scanner.mayMatch(fileTimeRangeCache.get(file.toPath()));
+        } catch (IOException e) {
+            return true;
         }
-        
-        System.out.println("总共找到 " + results.size() + " 条匹配的日志");
-        return results;
     }
     
     /**
@@ -241,108 +626,39 @@ public class LogService {
         if (!Strings.isEmpty(appId)) {
             AppConfig appConfig = getAppConfigById(appId);
             if (appConfig == null) {
-                System.out.println("找不到应用配置: " + appId);
+                log.warn("找不到应用配置: {}", appId);
                 return result;
             }
             logPath = appConfig.getLogPath();
             logPrefix = appConfig.getLogPrefix();
-            System.out.println("使用应用配置 - 应用ID: " + appId + ", 日志路径: " + logPath + ", 日志前缀: " + logPrefix);
+            log.debug("使用应用配置 - 应用ID: {}, 日志路径: {}, 日志前缀: {}", appId, logPath, logPrefix);
         } else {
             logPath = properties.getFullLogPath();
             logPrefix = properties.getLogPrefix();
-            System.out.println("使用默认配置 - 日志路径: " + logPath + ", 日志前缀: " + logPrefix);
+            log.debug("使用默认配置 - 日志路径: {}, 日志前缀: {}", logPath, logPrefix);
         }
 
-        File logDir = new File(logPath);
-        
-        // 检查日志目录是否存在
-        if (!logDir.exists() || !logDir.isDirectory()) {
-            System.out.println("日志目录不存在或不是一个目录: " + logPath);
+        log.debug("查找日期 {} 的日志文件，当前日期: {}，日志类型: {}", date, currentDate, logType);
+
+        List<LogFileEntry> files = findLogFiles(logPath, logPrefix, date, logType, null);
+        if (files == null) {
+            log.warn("日志目录不存在或不是一个目录: {}", logPath);
             return result;
         }
-
-        System.out.println("查找日期 " + date + " 的日志文件，当前日期: " + currentDate + "，日志类型: " + logType);
-
-        File[] files = logDir.listFiles((dir, name) -> {
-            // 获取基本文件名（去除扩展名）
-            String baseName = name.substring(0, name.lastIndexOf('.'));
-            // 检查是否是当前前缀的变体（如XXX_任意内容.log 应等价于 XXX.log）
-            boolean isVariantOfPrefix = isNameVariantOfPrefix(baseName, logPrefix);
-            
-            // 根据logType动态调整前缀匹配逻辑
-            boolean matchesPrefix = false;
-            boolean isCurrentDayFile = false;
-            boolean isHistoryFile = false;
-            
-            if (logType == null || logType.equalsIgnoreCase("all")) {
-                // 查找所有类型：既包含原前缀，也包含对应的error前缀
-                String basePrefix = logPrefix.replace("-info", ""); // 去掉-info后缀，得到基础前缀
-                // 检查基础前缀的变体
-                boolean isVariantOfBasePrefix = isNameVariantOfPrefix(baseName, basePrefix + "-error");
-                
-                // 当天文件检查
-                isCurrentDayFile = date.equals(currentDate) && 
-                                 (name.equals(logPrefix + ".log") || 
-                                  name.equals(basePrefix + "-error.log") ||
-                                  isVariantOfPrefix || isVariantOfBasePrefix); // 添加前缀变体文件
-                
-                // 历史文件检查
-                isHistoryFile = name.contains(date) && 
-                              (name.startsWith(logPrefix) || name.startsWith(basePrefix + "-error")) && 
-                              name.endsWith(".log");
-                              
-            } else if (logType.equalsIgnoreCase("info")) {
-                // 只查找info类型
-                isCurrentDayFile = date.equals(currentDate) && (name.equals(logPrefix + ".log") || isVariantOfPrefix);
-                isHistoryFile = name.contains(date) && name.startsWith(logPrefix) && name.endsWith(".log");
-                
-            } else if (logType.equalsIgnoreCase("error")) {
-                // 查找error类型：将-info替换为-error
-                String errorPrefix = logPrefix.replace("-info", "-error");
-                boolean isVariantOfErrorPrefix = isNameVariantOfPrefix(baseName, errorPrefix);
-                isCurrentDayFile = date.equals(currentDate) && (name.equals(errorPrefix + ".log") || isVariantOfErrorPrefix);
-                isHistoryFile = name.contains(date) && name.startsWith(errorPrefix) && name.endsWith(".log");
-            }
-            
-            boolean matches = isCurrentDayFile || isHistoryFile;
-            
-            System.out.println("检查文件: " + name + 
-                             " - 日志类型: " + logType +
-                             " - 是当天文件: " + isCurrentDayFile + 
-                             " - 是历史文件: " + isHistoryFile +
-                             " - 是前缀变体: " + isVariantOfPrefix +
-                             " - 最终匹配: " + matches);
-            
-            return matches;
-        });
-
-        if (files == null || files.length == 0) {
-            System.out.println("未找到匹配的日志文件，路径：" + logPath + "，日期：" + date);
-            // 列出目录中的所有文件以帮助调试
-            File[] allFiles = logDir.listFiles();
-            if (allFiles != null) {
-                System.out.println("目录中所有文件：");
-                for (File f : allFiles) {
-                    System.out.println("  - " + f.getName());
-                }
-                System.out.println("期望前缀：" + logPrefix);
-            }
+        if (files.isEmpty()) {
+            log.debug("未找到匹配的日志文件，路径：{}，日期：{}，期望前缀：{}", logPath, date, logPrefix);
             return result;
         }
 
-        System.out.println("找到 " + files.length + " 个匹配的文件");
+        log.debug("找到 {} 个匹配的文件", files.size());
 
-        // 按文件名排序
-        Arrays.sort(files, (f1, f2) -> compareLogFileNames(f1, f2, logPrefix));
-
-        for (File file : files) {
-            System.out.println("分析文件: " + file.getName());
+        for (LogFileEntry entry : files) {
+            File file = entry.getFile();
+            // 每个文件一行，只在 DEBUG 级别输出
+            log.debug("分析文件: {}", file.getName());
             LogFileWithTimeRange fileInfo = analyzeFileTimeRange(file);
             if (fileInfo != null) {
                 result.add(fileInfo);
-                System.out.println("  - 添加文件信息: " + fileInfo.getFileName());
-            } else {
-                System.out.println("  - 文件分析失败");
             }
         }
 
@@ -364,41 +680,79 @@ public class LogService {
     }
     
     /**
-     * 分析单个文件的时间范围
+     * 分析单个文件的时间范围（只读取文件头尾，结果按文件大小和修改时间缓存）
      */
     private LogFileWithTimeRange analyzeFileTimeRange(File file) {
         LogFileWithTimeRange fileInfo = new LogFileWithTimeRange();
         fileInfo.setFileName(file.getName());
         
-        String earliestTime = null;
-        String latestTime = null;
-        
-        try (Stream<String> lines = Files.lines(file.toPath())) {
-            for (String line : (Iterable<String>) lines::iterator) {
-                Matcher matcher = TIMESTAMP_PATTERN.matcher(line);
-                if (matcher.find()) {
-                    String timestamp = matcher.group(1); // 格式：yyyy-MM-dd HH:mm:ss
-                    
-                    if (earliestTime == null || timestamp.compareTo(earliestTime) < 0) {
-                        earliestTime = timestamp;
-                    }
-                    
-                    if (latestTime == null || timestamp.compareTo(latestTime) > 0) {
-                        latestTime = timestamp;
-                    }
-                }
-            }
+        FileTimeRange range;
+        try {
+            range = fileTimeRangeCache.get(file.toPath());
         } catch (IOException e) {
-            System.err.println("读取文件失败: " + file.getAbsolutePath() + ", 错误: " + e.getMessage());
+            log.warn("读取文件失败: {}, 错误: {}", file.getAbsolutePath(), e.getMessage());
             return null;
         }
         
-        fileInfo.setEarliestTime(earliestTime != null ? earliestTime : "未知");
-        fileInfo.setLatestTime(latestTime != null ? latestTime : "未知");
+        fileInfo.setEarliestTime(range.getEarliestTime() != null ? range.getEarliestTime() : "未知");
+        fileInfo.setLatestTime(range.getLatestTime() != null ? range.getLatestTime() : "未知");
         
         return fileInfo;
     }
     
+    /**
+     * 一次查询要读取的文件及起点
+     */
+    private static class QueryPlan {
+        private final File[] files;
+        private final String serverId;
+        private final LogFileScanner scanner;
+        private final int queryId;
+        /** 各文件是否为不再变化的轮转文件 */
+        private final boolean[] sealed;
+        /** 游标所在的文件及位置，没有游标时从第一个文件的开头读 */
+        private int firstFile;
+        private long firstOffset;
+        private int firstEvent;
+
+        QueryPlan(File[] files, String serverId, LogFileScanner scanner, int queryId) {
+            this.files = files;
+            this.serverId = serverId;
+            this.scanner = scanner;
+            this.queryId = queryId;
+            this.sealed = new boolean[files.length];
+        }
+    }
+
+    /**
+     * 单个文件的检索结果
+     */
+    private static class FileSearchOutcome {
+        private static final FileSearchOutcome PRUNED = new FileSearchOutcome(null, 0, 0, null);
+        private static final FileSearchOutcome KEYWORD_PRUNED = new FileSearchOutcome(null, 0, 0, null);
+
+        private final boolean pruned;
+        private final File file;
+        private final int fileId;
+        private final int fromEvent;
+        private final FileScanResult scan;
+        /** 读取失败，结果不完整 */
+        private boolean failed;
+        /** 开始读取前查询已经超时或被取消 */
+        private boolean cancelled;
+        /** 借助时间索引跳到了开始时间附近、只读了三元组索引给出的区间 */
+        private boolean timeIndexUsed;
+        private boolean trigramIndexUsed;
+
+        FileSearchOutcome(File file, int fileId, int fromEvent, FileScanResult scan) {
+            this.pruned = scan == null;
+            this.file = file;
+            this.fileId = fileId;
+            this.fromEvent = fromEvent;
+            this.scan = scan;
+        }
+    }
+
     /**
      * 内部类，用于存储文件信息及其时间范围
      */
@@ -433,112 +787,6 @@ public class LogService {
         }
     }
     
-    /**
-     * 比较日志文件名称，按数字序号排序
-     */
-    private int compareLogFileNames(File f1, File f2, String logPrefix) {
-        String name1 = f1.getName();
-        String name2 = f2.getName();
-        
-        // 如果是当前活跃日志文件，排在最后
-        if (name1.equals(logPrefix + ".log")) return 1;
-        if (name2.equals(logPrefix + ".log")) return -1;
-        
-        // 提取日期和序号进行比较
-        String[] parts1 = extractDateAndNumber(name1, logPrefix);
-        String[] parts2 = extractDateAndNumber(name2, logPrefix);
-        
-        // 先比较日期
-        int dateCompare = parts1[0].compareTo(parts2[0]);
-        if (dateCompare != 0) return dateCompare;
-        
-        // 再比较序号
-        try {
-            int num1 = Integer.parseInt(parts1[1]);
-            int num2 = Integer.parseInt(parts2[1]);
-            return Integer.compare(num1, num2);
-        } catch (NumberFormatException e) {
-            return name1.compareTo(name2);
-        }
-    }
-    
-    /**
-     * 重载方法，保留向后兼容性
-     */
-    private int compareLogFileNames(File f1, File f2) {
-        return compareLogFileNames(f1, f2, properties.getLogPrefix());
-    }
-    
-    /**
-     * 从日志文件名中提取日期和序号
-     */
-    private String[] extractDateAndNumber(String fileName, String logPrefix) {
-        // 匹配 task-center-info.2026-01-08.1.log 这种格式
-        String regex = logPrefix + "\\.(\\d{4}-\\d{2}-\\d{2})\\.(\\d+)\\.log";
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(regex);
-        java.util.regex.Matcher matcher = pattern.matcher(fileName);
-        
-        if (matcher.matches()) {
-            return new String[]{matcher.group(1), matcher.group(2)}; // [date, number]
-        }
-        
-        // 尝试匹配变体格式，如 task-center-info_suffix.2026-01-08.1.log
-        String variantRegex = logPrefix + "_.*\\.(\\d{4}-\\d{2}-\\d{2})\\.(\\d+)\\.log";
-        java.util.regex.Pattern variantPattern = java.util.regex.Pattern.compile(variantRegex);
-        java.util.regex.Matcher variantMatcher = variantPattern.matcher(fileName);
-        
-        if (variantMatcher.matches()) {
-            return new String[]{variantMatcher.group(1), variantMatcher.group(2)}; // [date, number]
-        }
-        
-        return new String[]{"", "0"};
-    }
-    
-    /**
-     * 重载方法，保留向后兼容性
-     */
-    private String[] extractDateAndNumber(String fileName) {
-        return extractDateAndNumber(fileName, properties.getLogPrefix());
-    }
-    
-    /**
-     * 检查日志行是否包含时间戳
-     */
-    private boolean hasTimestamp(String line) {
-        Matcher matcher = TIMESTAMP_PATTERN.matcher(line);
-        return matcher.find();
-    }
-    
-    /**
-     * 检查日志行是否在指定时间范围内
-     */
-    private boolean isWithinTimeRange(String line, String startTime, String endTime) {
-        Matcher matcher = TIMESTAMP_PATTERN.matcher(line);
-        if (matcher.find()) {
-            String timestamp = matcher.group(1); // 格式：yyyy-MM-dd HH:mm:ss
-            String logTime = timestamp.split(" ")[1]; // 取出 HH:mm:ss 部分
-            
-            // 比较时间
-            return logTime.compareTo(startTime) >= 0 && logTime.compareTo(endTime) <= 0;
-        }
-        
-        // 如果没有找到时间戳，根据参数判断是否包含
-        return startTime.compareTo("00:00:00") <= 0 && endTime.compareTo("23:59:59") >= 0;
-    }
-    
-    /**
-     * 检查文件名是否是给定前缀的变体（如XXX_任意内容.log 应等价于 XXX.log）
-     */
-    private boolean isNameVariantOfPrefix(String fileName, String prefix) {
-        // 如果文件名等于前缀，返回true
-        if (fileName.equals(prefix)) {
-            return true;
-        }
-        
-        // 如果文件名以prefix_开头，说明是变体
-        return fileName.startsWith(prefix + "_");
-    }
-    
     /**
      * 获取可用的日期列表
      * @param appId 应用ID（可选，如果不提供则使用默认配置）
@@ -553,7 +801,7 @@ public class LogService {
         if (!Strings.isEmpty(appId)) {
             AppConfig appConfig = getAppConfigById(appId);
             if (appConfig == null) {
-                System.out.println("找不到应用配置: " + appId);
+                log.warn("找不到应用配置: {}", appId);
                 return dates;
             }
             logPath = appConfig.getLogPath();
@@ -563,40 +811,11 @@ public class LogService {
             logPrefix = properties.getLogPrefix();
         }
         
-        File logDir = new File(logPath);
-        
-        if (!logDir.exists() || !logDir.isDirectory()) {
-            System.out.println("日志目录不存在: " + logPath);
+        if (!new File(logPath).isDirectory()) {
+            log.warn("日志目录不存在: {}", logPath);
             return dates;
         }
-        
-        File[] files = logDir.listFiles((dir, name) -> 
-            name.endsWith(".log")
-        );
-        
-        if (files == null) return dates;
-        
-        // 使用更灵活的模式匹配，支持前缀变体
-        String escapedLogPrefix = java.util.regex.Pattern.quote(logPrefix);
-        Pattern datePattern = Pattern.compile(escapedLogPrefix + "\\.(\\d{4}-\\d{2}-\\d{2})(\\.\\d+)?\\.log");
-        // 同时考虑前缀变体的模式
-        Pattern variantDatePattern = Pattern.compile(escapedLogPrefix + "_.*\\.(\\d{4}-\\d{2}-\\d{2})(\\.\\d+)?\\.log");
-        
-        for (File file : files) {
-            String fileName = file.getName();
-            String baseName = fileName.substring(0, fileName.lastIndexOf('.')); // 获取不带扩展名的文件名
-            java.util.regex.Matcher matcher = datePattern.matcher(fileName);
-            java.util.regex.Matcher variantMatcher = variantDatePattern.matcher(fileName);
-            
-            if (matcher.matches()) {
-                dates.add(matcher.group(1)); // 提取日期部分
-            } else if (variantMatcher.matches()) {
-                dates.add(variantMatcher.group(1)); // 提取变体文件的日期部分
-            } else if (fileName.equals(logPrefix + ".log") || isNameVariantOfPrefix(baseName, logPrefix)) {
-                // 当前日志文件或其变体，添加今天日期
-                dates.add(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")));
-            }
-        }
+        dates.addAll(logFileCatalog.getDates(logPath, logPrefix));
         
         return dates;
     }
@@ -0,0 +1,124 @@
+package log.tsuperman.com.logplatform;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import log.tsuperman.com.logplatform.search.LineSink;
+import log.tsuperman.com.logplatform.search.LogQueryResult;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 把匹配行逐条写到 HTTP 响应中（NDJSON 或 Server-Sent Events）
+ *
+ * 每行一条记录：NDJSON 为 {"line":"..."}，SSE 为 "event: line"；最后写一条汇总记录（done 事件），
+ * 包含文件统计、下一页游标或错误信息。
+ *
+ * 第一行立即发送，之后攒够一批或距上次发送超过一定时间才 flush，每个文件扫描结束时也 flush。
+ * 写入是阻塞的，客户端读得慢时扫描线程随之等待，不会在内存中堆积结果。
+ */
+public class LogStreamWriter implements LineSink {
+
+    private static final int BATCH_LINES = 200;
+    private static final long BATCH_MILLIS = 100;
+
+    private final Writer writer;
+    private final ObjectMapper objectMapper;
+    private final boolean sse;
+
+    private int pending;
+    /** 0 表示还没发送过，第一行立即发送 */
+    private long lastFlush;
+    private int total;
+
+    /**
+     * @param sse true 输出 text/event-stream，false 输出 application/x-ndjson
+     */
+    public LogStreamWriter(OutputStream out, ObjectMapper objectMapper, boolean sse) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        this.objectMapper = objectMapper;
+        this.sse = sse;
+    }
+
+    @Override
+    public void accept(String line) {
+        try {
+            Map<String, Object> record = new LinkedHashMap<>();
+            record.put("line", line);
+            write("line", record);
+            total++;
+            pending++;
+            long now = System.currentTimeMillis();
+            if (lastFlush == 0 || pending >= BATCH_LINES || now - lastFlush >= BATCH_MILLIS) {
+                flushNow(now);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (pending > 0) {
+            try {
+                flushNow(System.currentTimeMillis());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * 写汇总记录并结束输出
+     * @param result 查询结果，出错时为null
+     * @param error 错误信息，成功时为null
+     */
+    public void finish(LogQueryResult result, String error) throws IOException {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("done", true);
+        record.put("success", error == null);
+        record.put("lines", total);
+        if (result != null) {
+            record.put("filesMatched", result.getFilesMatched());
+            record.put("filesPruned", result.getFilesPruned());
+            record.put("filesKeywordPruned", result.getFilesKeywordPruned());
+            record.put("filesScanned", result.getFilesScanned());
+            record.put("hasMore", result.getNextCursor() != null);
+            record.put("nextCursor", result.getNextCursor());
+            if (result.getTruncated() != null) {
+                record.put("truncated", result.getTruncated());
+            }
+        }
+        if (error != null) {
+            record.put("message", error);
+        }
+        write("done", record);
+        flushNow(System.currentTimeMillis());
+    }
+
+    private void write(String event, Map<String, Object> record) throws IOException {
+        String json = objectMapper.writeValueAsString(record);
+        if (sse) {
+            writer.write("event: ");
+            writer.write(event);
+            writer.write("\ndata: ");
+            writer.write(json);
+            writer.write("\n\n");
+        } else {
+            writer.write(json);
+            writer.write('\n');
+        }
+    }
+
+    private void flushNow(long now) throws IOException {
+        writer.flush();
+        pending = 0;
+        lastFlush = now;
+    }
+}
@@ -36,6 +36,158 @@ public class LogPlatformProperties {
      */
     private List<AppConfig> apps;
 
+    /**
+     * 单个文件待扫描部分超过该大小（字节）时，切分为多段并行扫描
+     */
+    private long parallelScanThreshold = 64L * 1024 * 1024;
+
+    /**
+     * 并行扫描线程数，0表示使用CPU核数
+     */
+    private int scanThreads = 0;
+
+    /**
+     * 多文件并发检索的线程数（所有服务器共用）
+     */
+    private int fileSearchThreads = 8;
+
+    /**
+     * 同一服务器上同时检索的文件数，服务器未单独配置 searchParallelism 时使用
+     */
+    private int fileSearchParallelism = 4;
+
+    /**
+     * 分页查询每页的最大行数，请求的 pageSize 超过时按该值截断
+     */
+    private int maxPageSize = 10000;
+
+    /**
+     * 实时跟踪检查文件变化的间隔（毫秒）
+     */
+    private long tailPollMillis = 500;
+
+    /**
+     * 实时跟踪没有新内容时发送心跳的间隔（毫秒），防止代理断开空闲连接
+     */
+    private long tailHeartbeatMillis = 15000;
+
+    /**
+     * 实时跟踪每个客户端最多积压的批数（每轮读取一批），超过时断开该客户端
+     */
+    private int tailSendQueueSize = 64;
+
+    /**
+     * 增量查询缓存的条目数（每个文件、查询条件一条）
+     */
+    private int incrementalCacheEntries = 256;
+
+    /**
+     * 增量查询缓存的大小上限（字节，按内存占用估算），0表示不缓存
+     */
+    private long incrementalCacheBytes = 64L * 1024 * 1024;
+
+    /**
+     * 历史日期查询结果缓存的大小上限（字节，按内存占用估算），0表示不缓存
+     */
+    private long resultCacheBytes = 64L * 1024 * 1024;
+
+    /**
+     * 索引文件（布隆过滤器等）的保存目录
+     */
+    private String indexPath = "data/index";
+
+    /**
+     * 是否用布隆过滤器跳过一定不包含关键字的历史文件
+     */
+    private boolean bloomFilterEnabled = true;
+
+    /**
+     * 内存中保留的布隆过滤器的总字节数
+     */
+    private long bloomCacheBytes = 64L * 1024 * 1024;
+
+    /**
+     * 是否为历史文件建立三元组倒排索引，按关键字只读取可能匹配的块
+     */
+    private boolean trigramIndexEnabled = true;
+
+    /**
+     * 三元组索引的块大小（字节），块越小定位越精确，索引越大
+     */
+    private int trigramBlockSize = 8 * 1024;
+
+    /**
+     * 三元组索引最多占原始日志大小的比例，超过时不建立索引
+     */
+    private double trigramIndexMaxRatio = 0.25;
+
+    /**
+     * 内存中保留的三元组索引的总字节数
+     */
+    private long trigramCacheBytes = 256L * 1024 * 1024;
+
+    /**
+     * 是否在后台为各应用新轮转的历史文件建立索引（时间索引、布隆过滤器、三元组索引）
+     */
+    private boolean indexerEnabled = true;
+
+    /**
+     * 后台建立索引的线程数
+     */
+    private int indexerThreads = 1;
+
+    /**
+     * 后台检查新轮转文件的间隔（毫秒）
+     */
+    private long indexerScanIntervalMillis = 60000;
+
+    /**
+     * 后台建立索引每秒最多读取的字节数，0表示不限速；有查询正在读文件时另外暂停
+     */
+    private long indexerReadBytesPerSecond = 32L * 1024 * 1024;
+
+    /**
+     * traceId 索引覆盖的天数（含当天）
+     */
+    private int traceIndexDays = 3;
+
+    /**
+     * 后台更新 traceId 索引的间隔（毫秒），0表示不定期更新，查询遇到没有索引的文件时才在后台建立
+     */
+    private long traceIndexRefreshMillis = 5000;
+
+    /**
+     * traceId 索引在内存中的总字节数（每行约20字节），超过时优先保留最近的文件，较早的文件不建立索引
+     */
+    private long traceIndexMaxBytes = 256L * 1024 * 1024;
+
+    /**
+     * 查询一页日志的超时时间（毫秒），超时后返回已找到的行并标记为被截断，0表示不限制
+     */
+    private long queryTimeoutMillis = 30000;
+
+    /**
+     * 流式查询的超时时间（毫秒），与 spring.mvc.async.request-timeout 一致，0表示不限制
+     */
+    private long streamTimeoutMillis = 600000;
+
+    /**
+     * 调用其他服务器的超时时间（毫秒），服务器未单独配置 timeoutMillis 时使用
+     */
+    private int remoteTimeoutMillis = 10000;
+
+    /**
+     * 跨服务器查询的并发线程数
+     */
+    private int remoteQueryThreads = 16;
+
+    /**
+     * 服务器之间调用的连接池：总连接数、每个服务器的连接数、空闲连接保留时间（毫秒）
+     */
+    private int remoteMaxConnections = 64;
+    private int remoteMaxConnectionsPerServer = 16;
+    private int remoteIdleMillis = 60000;
+
     public String getLogPath() {
         return logPath;
     }
@@ -76,6 +228,262 @@ public class LogPlatformProperties {
         this.apps = apps;
     }
 
+    public long getParallelScanThreshold() {
+        return parallelScanThreshold;
+    }
+
+    public void setParallelScanThreshold(long parallelScanThreshold) {
+        this.parallelScanThreshold = parallelScanThreshold;
+    }
+
+    public int getScanThreads() {
+        return scanThreads;
+    }
+
+    public void setScanThreads(int scanThreads) {
+        this.scanThreads = scanThreads;
+    }
+
+    public int getFileSearchThreads() {
+        return fileSearchThreads;
+    }
+
+    public void setFileSearchThreads(int fileSearchThreads) {
+        this.fileSearchThreads = fileSearchThreads;
+    }
+
+    public int getFileSearchParallelism() {
+        return fileSearchParallelism;
+    }
+
+    public void setFileSearchParallelism(int fileSearchParallelism) {
+        this.fileSearchParallelism = fileSearchParallelism;
+    }
+
+    public int getMaxPageSize() {
+        return maxPageSize;
+    }
+
+    public void setMaxPageSize(int maxPageSize) {
+        this.maxPageSize = maxPageSize;
+    }
+
+    public long getTailPollMillis() {
+        return tailPollMillis;
+    }
+
+    public void setTailPollMillis(long tailPollMillis) {
+        this.tailPollMillis = tailPollMillis;
+    }
+
+    public long getTailHeartbeatMillis() {
+        return tailHeartbeatMillis;
+    }
+
+    public void setTailHeartbeatMillis(long tailHeartbeatMillis) {
+        this.tailHeartbeatMillis = tailHeartbeatMillis;
+    }
+
+    public int getTailSendQueueSize() {
+        return tailSendQueueSize;
+    }
+
+    public void setTailSendQueueSize(int tailSendQueueSize) {
+        this.tailSendQueueSize = tailSendQueueSize;
+    }
+
+    public int getIncrementalCacheEntries() {
+        return incrementalCacheEntries;
+    }
+
+    public void setIncrementalCacheEntries(int incrementalCacheEntries) {
+        this.incrementalCacheEntries = incrementalCacheEntries;
+    }
+
+    public long getIncrementalCacheBytes() {
+        return incrementalCacheBytes;
+    }
+
+    public void setIncrementalCacheBytes(long incrementalCacheBytes) {
+        this.incrementalCacheBytes = incrementalCacheBytes;
+    }
+
+    public String getIndexPath() {
+        return indexPath;
+    }
+
+    public void setIndexPath(String indexPath) {
+        this.indexPath = indexPath;
+    }
+
+    public boolean isBloomFilterEnabled() {
+        return bloomFilterEnabled;
+    }
+
+    public void setBloomFilterEnabled(boolean bloomFilterEnabled) {
+        this.bloomFilterEnabled = bloomFilterEnabled;
+    }
+
+    public long getBloomCacheBytes() {
+        return bloomCacheBytes;
+    }
+
+    public void setBloomCacheBytes(long bloomCacheBytes) {
+        this.bloomCacheBytes = bloomCacheBytes;
+    }
+
+    public boolean isTrigramIndexEnabled() {
+        return trigramIndexEnabled;
+    }
+
+    public void setTrigramIndexEnabled(boolean trigramIndexEnabled) {
+        this.trigramIndexEnabled = trigramIndexEnabled;
+    }
+
+    public int getTrigramBlockSize() {
+        return trigramBlockSize;
+    }
+
+    public void setTrigramBlockSize(int trigramBlockSize) {
+        this.trigramBlockSize = trigramBlockSize;
+    }
+
+    public double getTrigramIndexMaxRatio() {
+        return trigramIndexMaxRatio;
+    }
+
+    public void setTrigramIndexMaxRatio(double trigramIndexMaxRatio) {
+        this.trigramIndexMaxRatio = trigramIndexMaxRatio;
+    }
+
+    public long getTrigramCacheBytes() {
+        return trigramCacheBytes;
+    }
+
+    public void setTrigramCacheBytes(long trigramCacheBytes) {
+        this.trigramCacheBytes = trigramCacheBytes;
+    }
+
+    public boolean isIndexerEnabled() {
+        return indexerEnabled;
+    }
+
+    public void setIndexerEnabled(boolean indexerEnabled) {
+        this.indexerEnabled = indexerEnabled;
+    }
+
+    public int getIndexerThreads() {
+        return indexerThreads;
+    }
+
+    public void setIndexerThreads(int indexerThreads) {
+        this.indexerThreads = indexerThreads;
+    }
+
+    public long getIndexerScanIntervalMillis() {
+        return indexerScanIntervalMillis;
+    }
+
+    public void setIndexerScanIntervalMillis(long indexerScanIntervalMillis) {
+        this.indexerScanIntervalMillis = indexerScanIntervalMillis;
+    }
+
+    public long getIndexerReadBytesPerSecond() {
+        return indexerReadBytesPerSecond;
+    }
+
+    public void setIndexerReadBytesPerSecond(long indexerReadBytesPerSecond) {
+        this.indexerReadBytesPerSecond = indexerReadBytesPerSecond;
+    }
+
+    public int getTraceIndexDays() {
+        return traceIndexDays;
+    }
+
+    public void setTraceIndexDays(int traceIndexDays) {
+        this.traceIndexDays = traceIndexDays;
+    }
+
+    public long getTraceIndexRefreshMillis() {
+        return traceIndexRefreshMillis;
+    }
+
+    public void setTraceIndexRefreshMillis(long traceIndexRefreshMillis) {
+        this.traceIndexRefreshMillis = traceIndexRefreshMillis;
+    }
+
+    public long getTraceIndexMaxBytes() {
+        return traceIndexMaxBytes;
+    }
+
+    public void setTraceIndexMaxBytes(long traceIndexMaxBytes) {
+        this.traceIndexMaxBytes = traceIndexMaxBytes;
+    }
+
+    public long getResultCacheBytes() {
+        return resultCacheBytes;
+    }
+
+    public void setResultCacheBytes(long resultCacheBytes) {
+        this.resultCacheBytes = resultCacheBytes;
+    }
+
+    public long getQueryTimeoutMillis() {
+        return queryTimeoutMillis;
+    }
+
+    public void setQueryTimeoutMillis(long queryTimeoutMillis) {
+        this.queryTimeoutMillis = queryTimeoutMillis;
+    }
+
+    public long getStreamTimeoutMillis() {
+        return streamTimeoutMillis;
+    }
+
+    public void setStreamTimeoutMillis(long streamTimeoutMillis) {
+        this.streamTimeoutMillis = streamTimeoutMillis;
+    }
+
+    public int getRemoteTimeoutMillis() {
+        return remoteTimeoutMillis;
+    }
+
+    public void setRemoteTimeoutMillis(int remoteTimeoutMillis) {
+        this.remoteTimeoutMillis = remoteTimeoutMillis;
+    }
+
+    public int getRemoteQueryThreads() {
+        return remoteQueryThreads;
+    }
+
+    public void setRemoteQueryThreads(int remoteQueryThreads) {
+        this.remoteQueryThreads = remoteQueryThreads;
+    }
+
+    public int getRemoteMaxConnections() {
+        return remoteMaxConnections;
+    }
+
+    public void setRemoteMaxConnections(int remoteMaxConnections) {
+        this.remoteMaxConnections = remoteMaxConnections;
+    }
+
+    public int getRemoteMaxConnectionsPerServer() {
+        return remoteMaxConnectionsPerServer;
+    }
+
+    public void setRemoteMaxConnectionsPerServer(int remoteMaxConnectionsPerServer) {
+        this.remoteMaxConnectionsPerServer = remoteMaxConnectionsPerServer;
+    }
+
+    public int getRemoteIdleMillis() {
+        return remoteIdleMillis;
+    }
+
+    public void setRemoteIdleMillis(int remoteIdleMillis) {
+        this.remoteIdleMillis = remoteIdleMillis;
+    }
+
     /**
      * 获取完整的日志目录路径
      */
@@ -0,0 +1,42 @@
+package log.tsuperman.com.logplatform.config;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import log.tsuperman.com.logplatform.search.QueryMetrics;
+import log.tsuperman.com.logplatform.service.ConfigService;
+import org.apache.logging.log4j.util.Strings;
+import org.springframework.boot.actuate.metrics.web.servlet.WebMvcTagsContributor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * 各接口的耗时（http.server.requests）加上 app 标签，按应用区分查询耗时
+     *
+     * 标签值取请求参数 appId：未指定时为 default，不是已配置的应用时为 unknown，避免任意参数值产生大量时间序列。
+     */
+    @Bean
+    public WebMvcTagsContributor appTagContributor(ConfigService configService) {
+        return new WebMvcTagsContributor() {
+            @Override
+            public Iterable<Tag> getTags(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                         Throwable exception) {
+                String appId = request.getParameter("appId");
+                if (Strings.isEmpty(appId)) {
+                    return Tags.of("app", QueryMetrics.DEFAULT_APP);
+                }
+                return Tags.of("app", configService.getAppById(appId) != null ? appId : "unknown");
+            }
+
+            @Override
+            public Iterable<Tag> getLongRequestTags(HttpServletRequest request, Object handler) {
+                return Tags.empty();
+            }
+        };
+    }
+}
@@ -7,6 +7,9 @@ public class ServerConfig {
     private int port;
     private String description;
     private String virtual;
+    private int searchParallelism; // 同时检索的文件数，0表示使用全局配置
+    private int timeoutMillis; // 跨服务器查询时调用该服务器的超时时间，0表示使用全局配置
+    private boolean batchTransport; // 查询结果使用紧凑二进制格式传输（对方需支持 /api/logs/query/batch）
 
     public ServerConfig() {}
 
@@ -66,4 +69,28 @@ public class ServerConfig {
     public void setVirtual(String virtual) {
         this.virtual = virtual;
     }
-}
\ No newline at end of file
+
+    public int getSearchParallelism() {
+        return searchParallelism;
+    }
+
+    public void setSearchParallelism(int searchParallelism) {
+        this.searchParallelism = searchParallelism;
+    }
+
+    public int getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public void setTimeoutMillis(int timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public boolean isBatchTransport() {
+        return batchTransport;
+    }
+
+    public void setBatchTransport(boolean batchTransport) {
+        this.batchTransport = batchTransport;
+    }
+}
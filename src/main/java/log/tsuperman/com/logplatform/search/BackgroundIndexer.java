@@ -0,0 +1,267 @@
+package log.tsuperman.com.logplatform.search;
+
+import log.tsuperman.com.logplatform.config.LogPlatformProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 后台建立索引
+ *
+ * 检查应用的历史文件，缺少布隆过滤器或三元组索引的排队，由固定数量的低优先级线程逐个建立（同时补全内存中的时间索引和
+ * 时间范围），第一次查询不必再等待建立索引。读取按 {@link ReadThrottle} 限速，有查询正在读文件时暂停。
+ * 新的日期优先。按应用记录进度（文件总数、已建立、排队中、失败）。
+ *
+ * 时间索引只保存在内存中，重启后不会因为它重新读取已有持久化索引的文件，由之后的查询顺带建立。
+ */
+@Component
+public class BackgroundIndexer {
+
+    private static final Logger log = LoggerFactory.getLogger(BackgroundIndexer.class);
+
+    @Autowired
+    private LogPlatformProperties properties;
+
+    @Autowired
+    private LogFileCatalog logFileCatalog;
+
+    @Autowired
+    private FileBloomFilterRegistry fileBloomFilterRegistry;
+
+    @Autowired
+    private TrigramIndexRegistry trigramIndexRegistry;
+
+    @Autowired
+    private TimeIndexRegistry timeIndexRegistry;
+
+    @Autowired
+    private FileTimeRangeCache fileTimeRangeCache;
+
+    @Autowired
+    private FileSearchExecutor fileSearchExecutor;
+
+    private ThreadPoolExecutor workers;
+    private ReadThrottle throttle;
+
+    /** 各应用的进度，按检查的先后顺序 */
+    private final Map<String, AppProgress> apps = new ConcurrentHashMap<>();
+
+    /** 已排队或正在建立的文件 */
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+
+    public BackgroundIndexer() {
+    }
+
+    BackgroundIndexer(LogPlatformProperties properties, LogFileCatalog logFileCatalog,
+                      FileBloomFilterRegistry fileBloomFilterRegistry, TrigramIndexRegistry trigramIndexRegistry,
+                      TimeIndexRegistry timeIndexRegistry, FileTimeRangeCache fileTimeRangeCache,
+                      FileSearchExecutor fileSearchExecutor) {
+        this.properties = properties;
+        this.logFileCatalog = logFileCatalog;
+        this.fileBloomFilterRegistry = fileBloomFilterRegistry;
+        this.trigramIndexRegistry = trigramIndexRegistry;
+        this.timeIndexRegistry = timeIndexRegistry;
+        this.fileTimeRangeCache = fileTimeRangeCache;
+        this.fileSearchExecutor = fileSearchExecutor;
+        init();
+    }
+
+    @PostConstruct
+    public void init() {
+        int threads = Math.max(1, properties.getIndexerThreads());
+        AtomicInteger counter = new AtomicInteger();
+        workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "log-indexer-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        throttle = fileSearchExecutor.getBackgroundThrottle();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * 检查一个应用的历史文件，缺少索引的排队建立
+     * @param appId 应用ID，默认配置为空字符串
+     * @return 本次新排队的文件数
+     */
+    public int scanApp(String appId, String appName, String logPath, String logPrefix) {
+        AppProgress progress = apps.computeIfAbsent(appId, id -> new AppProgress(id, appName));
+        progress.lastScanTime = LocalDateTime.now().toString();
+        List<LogFileEntry> files = logFileCatalog.getSealedFiles(logPath, logPrefix);
+        if (files == null) {
+            progress.lastError = "日志目录不存在: " + logPath;
+            progress.totalFiles = 0;
+            progress.indexedFiles.set(0);
+            return 0;
+        }
+        pruneOrphans(logPath);
+        // 新的日期优先，最近的日志查询得最多
+        files = new ArrayList<>(files);
+        files.sort(Comparator.comparing(LogFileEntry::getDate).reversed());
+
+        int indexed = 0;
+        int added = 0;
+        for (LogFileEntry entry : files) {
+            Path file = entry.getFile().toPath();
+            String key = file.toAbsolutePath().normalize().toString();
+            if (queued.contains(key)) {
+                continue;
+            }
+            if (isIndexed(file)) {
+                indexed++;
+                continue;
+            }
+            if (!queued.add(key)) {
+                continue;
+            }
+            long size = entry.getFile().length();
+            progress.pendingFiles.incrementAndGet();
+            progress.pendingBytes.addAndGet(size);
+            try {
+                workers.execute(() -> index(progress, file, key, size));
+                added++;
+            } catch (RejectedExecutionException e) {
+                // 已关闭
+                queued.remove(key);
+                progress.pendingFiles.decrementAndGet();
+                progress.pendingBytes.addAndGet(-size);
+            }
+        }
+        progress.totalFiles = files.size();
+        progress.indexedFiles.set(indexed);
+        return added;
+    }
+
+    /**
+     * 各应用的进度及读取统计（读取统计包括共用同一限速器的查询触发的索引建立和 traceId 索引）
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("queuedFiles", queued.size());
+        status.put("bytesRead", throttle.getBytesRead());
+        status.put("throttledMillis", throttle.getWaitedMillis());
+        status.put("readBytesPerSecond", properties.getIndexerReadBytesPerSecond());
+        List<Map<String, Object>> appStatus = new ArrayList<>();
+        for (AppProgress progress : apps.values()) {
+            appStatus.add(progress.toMap());
+        }
+        appStatus.sort(Comparator.comparing(m -> (String) m.get("appId")));
+        status.put("apps", appStatus);
+        return status;
+    }
+
+    /**
+     * 删除按保留期清理掉的日志文件留下的布隆过滤器和三元组索引
+     */
+    private void pruneOrphans(String logPath) {
+        Path logDir = Paths.get(logPath);
+        try {
+            int pruned = fileBloomFilterRegistry.pruneOrphans(logDir) + trigramIndexRegistry.pruneOrphans(logDir);
+            if (pruned > 0) {
+                log.info("删除已清理日志的索引: {}, 个数: {}", logPath, pruned);
+            }
+        } catch (IOException e) {
+            log.warn("删除已清理日志的索引失败: {}, 错误: {}", logPath, e.getMessage());
+        }
+    }
+
+    /**
+     * 文件的持久化索引都已建立（未启用的不检查）
+     */
+    private boolean isIndexed(Path file) {
+        try {
+            return (!properties.isBloomFilterEnabled() || fileBloomFilterRegistry.isStored(file))
+                    && (!properties.isTrigramIndexEnabled() || trigramIndexRegistry.isStored(file));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void index(AppProgress progress, Path file, String key, long size) {
+        progress.currentFile = file.getFileName().toString();
+        try {
+            fileTimeRangeCache.get(file);
+            timeIndexRegistry.build(file, throttle);
+            if (properties.isBloomFilterEnabled()) {
+                fileBloomFilterRegistry.build(file, throttle);
+            }
+            if (properties.isTrigramIndexEnabled()) {
+                trigramIndexRegistry.build(file, throttle);
+            }
+            progress.indexedFiles.incrementAndGet();
+        } catch (IOException e) {
+            if (!Thread.currentThread().isInterrupted()) {
+                log.warn("后台建立索引失败: {}, 错误: {}", file, e.getMessage());
+                progress.failedFiles.incrementAndGet();
+                progress.lastError = file.getFileName() + ": " + e.getMessage();
+            }
+        } finally {
+            progress.currentFile = null;
+            progress.pendingFiles.decrementAndGet();
+            progress.pendingBytes.addAndGet(-size);
+            queued.remove(key);
+        }
+    }
+
+    /**
+     * 单个应用的进度
+     */
+    private static class AppProgress {
+        private final String appId;
+        private final String appName;
+        private volatile int totalFiles;
+        private final AtomicInteger indexedFiles = new AtomicInteger();
+        private final AtomicInteger pendingFiles = new AtomicInteger();
+        private final AtomicLong pendingBytes = new AtomicLong();
+        private final AtomicInteger failedFiles = new AtomicInteger();
+        private volatile String currentFile;
+        private volatile String lastScanTime;
+        private volatile String lastError;
+
+        AppProgress(String appId, String appName) {
+            this.appId = appId;
+            this.appName = appName;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("appId", appId);
+            map.put("appName", appName);
+            map.put("totalFiles", totalFiles);
+            map.put("indexedFiles", indexedFiles.get());
+            map.put("pendingFiles", pendingFiles.get());
+            map.put("pendingBytes", pendingBytes.get());
+            map.put("failedFiles", failedFiles.get());
+            map.put("currentFile", currentFile);
+            map.put("lastScanTime", lastScanTime);
+            map.put("lastError", lastError);
+            return map;
+        }
+    }
+}
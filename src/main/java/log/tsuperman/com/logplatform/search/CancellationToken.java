@@ -0,0 +1,58 @@
+package log.tsuperman.com.logplatform.search;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 查询的截止时间和取消标记
+ *
+ * 扫描循环每处理一批日志检查一次，超过截止时间或被取消（页面放弃了查询）后停止读取，
+ * 已找到的行连同停止位置的游标一起返回，结果标记为被截断，原因见 {@link #getReason()}。
+ */
+public class CancellationToken {
+
+    /** 超过截止时间 */
+    public static final String TIMEOUT = "timeout";
+    /** 页面放弃了查询，或请求已经结束 */
+    public static final String CANCELLED = "cancelled";
+
+    /** 截止时间（System.nanoTime），没有截止时间时不检查 */
+    private final long deadlineNanos;
+    private final boolean hasDeadline;
+    private final AtomicReference<String> reason = new AtomicReference<>();
+
+    /**
+     * @param timeoutMillis 从现在起的超时时间（毫秒），0表示没有截止时间
+     */
+    public CancellationToken(long timeoutMillis) {
+        this.hasDeadline = timeoutMillis > 0;
+        this.deadlineNanos = System.nanoTime() + Math.max(0, timeoutMillis) * 1_000_000;
+    }
+
+    /**
+     * 取消查询，已经超时的保持超时
+     */
+    public void cancel() {
+        reason.compareAndSet(null, CANCELLED);
+    }
+
+    /**
+     * 已被取消或已超过截止时间
+     */
+    public boolean isCancelled() {
+        if (reason.get() != null) {
+            return true;
+        }
+        if (hasDeadline && System.nanoTime() - deadlineNanos >= 0) {
+            reason.compareAndSet(null, TIMEOUT);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 停止的原因：{@link #TIMEOUT} 或 {@link #CANCELLED}，没有停止时为null
+     */
+    public String getReason() {
+        return reason.get();
+    }
+}
@@ -0,0 +1,43 @@
+package log.tsuperman.com.logplatform.search;
+
+/**
+ * 跨服务器查询结果中的一行，带来源标记
+ */
+public class FederatedLogLine {
+    private String serverId;
+    private String appId;
+    private String line;
+
+    public FederatedLogLine() {}
+
+    public FederatedLogLine(String serverId, String appId, String line) {
+        this.serverId = serverId;
+        this.appId = appId;
+        this.line = line;
+    }
+
+    // getter和setter方法
+    public String getServerId() {
+        return serverId;
+    }
+
+    public void setServerId(String serverId) {
+        this.serverId = serverId;
+    }
+
+    public String getAppId() {
+        return appId;
+    }
+
+    public void setAppId(String appId) {
+        this.appId = appId;
+    }
+
+    public String getLine() {
+        return line;
+    }
+
+    public void setLine(String line) {
+        this.line = line;
+    }
+}
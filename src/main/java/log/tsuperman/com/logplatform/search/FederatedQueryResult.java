@@ -0,0 +1,37 @@
+package log.tsuperman.com.logplatform.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 跨服务器查询结果：按时间归并后的行，以及每个来源的执行情况
+ */
+public class FederatedQueryResult {
+    private final List<FederatedLogLine> lines = new ArrayList<>();
+    private final List<SourceQueryStatus> sources = new ArrayList<>();
+    /** 归并结果超过上限被截断 */
+    private boolean truncated;
+
+    public List<FederatedLogLine> getLines() {
+        return lines;
+    }
+
+    public List<SourceQueryStatus> getSources() {
+        return sources;
+    }
+
+    /**
+     * 所有来源都成功返回
+     */
+    public boolean isComplete() {
+        return sources.stream().allMatch(s -> SourceQueryStatus.OK.equals(s.getStatus()));
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+}
@@ -0,0 +1,145 @@
+package log.tsuperman.com.logplatform.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 字段过滤条件，如 {@code level=ERROR}、{@code logger=com.x.*}、{@code level=WARN,ERROR}
+ *
+ * 值中的 * 匹配任意字符（可以为空），逗号分隔的多个值满足其一即可；比较时忽略 ASCII 字母的大小写。
+ * 直接在 {@link LogFields} 解析出的字节区间上比较，不创建字符串。
+ */
+public class FieldFilter {
+
+    private final LogFields.Field field;
+    private final String spec;
+    /** 每个候选值按 * 切开的各段（ASCII 字母已转小写的 UTF-8 字节） */
+    private final List<byte[][]> patterns = new ArrayList<>();
+
+    private FieldFilter(LogFields.Field field, String spec) {
+        this.field = field;
+        this.spec = spec;
+    }
+
+    /**
+     * 解析 字段=值
+     * @throws IllegalArgumentException 格式不正确或没有该字段
+     */
+    public static FieldFilter parse(String spec) {
+        int eq = spec == null ? -1 : spec.indexOf('=');
+        if (eq <= 0) {
+            throw new IllegalArgumentException("无效的字段过滤条件: " + spec + "，格式为 字段=值，如 level=ERROR");
+        }
+        String name = spec.substring(0, eq).trim();
+        LogFields.Field field = LogFields.Field.of(name);
+        if (field == null) {
+            throw new IllegalArgumentException("不支持的过滤字段: " + name + "，可用字段: app、traceId、spanId、level、pid、thread、logger、message");
+        }
+        FieldFilter filter = new FieldFilter(field, field.getParamName() + "=" + spec.substring(eq + 1).trim());
+        for (String value : spec.substring(eq + 1).split(",")) {
+            String[] parts = value.trim().split("\\*", -1);
+            byte[][] segments = new byte[parts.length][];
+            for (int i = 0; i < parts.length; i++) {
+                segments[i] = parts[i].getBytes(StandardCharsets.UTF_8);
+                for (int k = 0; k < segments[i].length; k++) {
+                    segments[i][k] = fold(segments[i][k]);
+                }
+            }
+            filter.patterns.add(segments);
+        }
+        return filter;
+    }
+
+    /**
+     * 解析多个条件，为null或空时返回空列表
+     * @throws IllegalArgumentException 有条件格式不正确
+     */
+    public static List<FieldFilter> parseAll(List<String> specs) {
+        if (specs == null || specs.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<FieldFilter> filters = new ArrayList<>();
+        for (String spec : specs) {
+            if (spec != null && !spec.trim().isEmpty()) {
+                filters.add(parse(spec.trim()));
+            }
+        }
+        return filters;
+    }
+
+    /**
+     * 已解析的行是否满足条件，行中没有该字段时不满足
+     */
+    public boolean matches(byte[] line, LogFields fields) {
+        if (!fields.has(field)) {
+            return false;
+        }
+        int start = fields.start(field);
+        int end = fields.end(field);
+        for (byte[][] segments : patterns) {
+            if (glob(segments, line, start, end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public LogFields.Field getField() {
+        return field;
+    }
+
+    /**
+     * 规范化后的条件文本，用于缓存键
+     */
+    @Override
+    public String toString() {
+        return spec;
+    }
+
+    /**
+     * 第一段必须在开头、最后一段必须在结尾，中间各段依次向后查找
+     */
+    private static boolean glob(byte[][] segments, byte[] text, int start, int end) {
+        byte[] first = segments[0];
+        if (segments.length == 1) {
+            return end - start == first.length && regionMatches(text, start, first);
+        }
+        byte[] last = segments[segments.length - 1];
+        if (end - start < first.length + last.length
+                || !regionMatches(text, start, first) || !regionMatches(text, end - last.length, last)) {
+            return false;
+        }
+        int i = start + first.length;
+        int limit = end - last.length;
+        for (int s = 1; s < segments.length - 1; s++) {
+            byte[] segment = segments[s];
+            int found = -1;
+            for (int j = i; j + segment.length <= limit; j++) {
+                if (regionMatches(text, j, segment)) {
+                    found = j;
+                    break;
+                }
+            }
+            if (found < 0) {
+                return false;
+            }
+            i = found + segment.length;
+        }
+        return true;
+    }
+
+    private static boolean regionMatches(byte[] text, int at, byte[] lowerPattern) {
+        for (int k = 0; k < lowerPattern.length; k++) {
+            if (fold(text[at + k]) != lowerPattern[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte fold(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + 32) : b;
+    }
+}
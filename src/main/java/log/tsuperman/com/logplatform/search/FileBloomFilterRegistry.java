@@ -0,0 +1,143 @@
+package log.tsuperman.com.logplatform.search;
+
+import log.tsuperman.com.logplatform.config.LogPlatformProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 轮转后历史文件的关键字布隆过滤器
+ *
+ * 查询第一次遇到没有过滤器的历史文件时，在后台线程中读取整个文件建立过滤器，并保存到 indexPath/bloom 目录，重启后直接加载；
+ * 之后的查询据此跳过一定不包含关键字的文件。存取和内存中的 LRU 见 {@link SidecarIndexStore}。
+ */
+@Component
+public class FileBloomFilterRegistry {
+
+    @Autowired
+    private LogPlatformProperties properties;
+
+    @Autowired
+    private FileSearchExecutor fileSearchExecutor;
+
+    private SidecarIndexStore<TokenBloomFilter> store;
+
+    public FileBloomFilterRegistry() {
+    }
+
+    FileBloomFilterRegistry(LogPlatformProperties properties) {
+        this(properties, null);
+    }
+
+    /**
+     * @param fileSearchExecutor 提供后台建立时的限速器，为null时不限速
+     */
+    FileBloomFilterRegistry(LogPlatformProperties properties, FileSearchExecutor fileSearchExecutor) {
+        this.properties = properties;
+        this.fileSearchExecutor = fileSearchExecutor;
+        init();
+    }
+
+    @PostConstruct
+    public void init() {
+        store = new SidecarIndexStore<>("布隆过滤器", "bloom-filter-builder", Paths.get(properties.getIndexPath(), "bloom"),
+                ".bloom", properties.getBloomCacheBytes(), new SidecarIndexStore.Codec<TokenBloomFilter>() {
+            @Override
+            public TokenBloomFilter build(Path file, long size, long modified, ReadThrottle throttle) throws IOException {
+                return TokenBloomFilter.build(file, size, modified, throttle);
+            }
+
+            @Override
+            public TokenBloomFilter read(DataInputStream in) throws IOException {
+                return TokenBloomFilter.readFrom(in);
+            }
+
+            @Override
+            public boolean headerMatches(DataInputStream in, long size, long modified) throws IOException {
+                return TokenBloomFilter.headerMatches(in, size, modified);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        store.shutdown();
+    }
+
+    /**
+     * 文件是否可能包含关键字
+     *
+     * 关键字为空、含有无法按字节折叠大小写的字符，或者文件还没有有效的过滤器时返回true；
+     * 历史文件（sealed）没有过滤器时安排在后台建立。
+     */
+    public boolean mayContain(Path file, boolean sealed, String keyword) throws IOException {
+        if (!properties.isBloomFilterEnabled() || keyword == null || keyword.isEmpty()
+                || KeywordMatcher.compile(keyword).isFallback()) {
+            return true;
+        }
+        TokenBloomFilter filter = store.find(file);
+        if (filter == null) {
+            if (sealed) {
+                store.scheduleBuild(file, backgroundThrottle());
+            }
+            return true;
+        }
+        return filter.mayContain(keyword);
+    }
+
+    /**
+     * 文件是否已有有效的过滤器（内存或磁盘）
+     */
+    public boolean hasFilter(Path file) throws IOException {
+        return store.find(file) != null;
+    }
+
+    /**
+     * 磁盘上是否已有有效的过滤器，只读取文件头而不加载（后台建立索引时检查是否需要建立）
+     */
+    public boolean isStored(Path file) throws IOException {
+        return store.isStored(file);
+    }
+
+    /**
+     * 建立过滤器并保存，已有有效的过滤器时跳过
+     */
+    public void build(Path file) throws IOException {
+        build(file, null);
+    }
+
+    /**
+     * 建立过滤器并保存，读取文件时按 throttle 限速（后台建立索引）
+     */
+    public void build(Path file, ReadThrottle throttle) throws IOException {
+        store.build(file, throttle);
+    }
+
+    /**
+     * 删除 logDir 中已被清理的日志文件的过滤器
+     * @return 删除的个数
+     */
+    public int pruneOrphans(Path logDir) throws IOException {
+        return store.pruneOrphans(logDir);
+    }
+
+    /**
+     * 查询触发的建立与后台建立索引共用同一个限速器，有查询时让路
+     */
+    private ReadThrottle backgroundThrottle() {
+        return fileSearchExecutor == null ? null : fileSearchExecutor.getBackgroundThrottle();
+    }
+
+    /**
+     * 内存中的过滤器占用的字节数
+     */
+    public long getCachedBytes() {
+        return store.cachedBytes();
+    }
+}
@@ -0,0 +1,200 @@
+package log.tsuperman.com.logplatform.search;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 跟踪一个活跃日志文件，把新追加的行分发给所有订阅者
+ *
+ * 每个文件只有一个跟踪器，按记住的偏移定期检查文件大小，只读取新增的完整行（正在写的半行留到下一轮）。
+ * 通道一直保持打开，所以文件被轮转重命名为 prefix.yyyy-MM-dd.N.log 后仍能读完旧文件剩余的内容，
+ * 发现路径指向了新文件（fileKey 变化）时再切换过去从头读；文件被截断时从头读。
+ */
+public class FileFollower {
+
+    private static final int TAIL_PROBE = 64 * 1024;
+
+    private final Path path;
+    private final List<TailSubscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    private FileChannel channel;
+    private Object fileKey;
+    private long offset;
+    /** 已停止跟踪，之后的 poll 不再打开文件 */
+    private boolean closed;
+
+    public FileFollower(Path path) {
+        this.path = path;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public void subscribe(TailSubscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * @return 是否已经没有订阅者
+     */
+    public boolean unsubscribe(TailSubscriber subscriber) {
+        subscribers.remove(subscriber);
+        return subscribers.isEmpty();
+    }
+
+    public boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    /**
+     * 检查一次文件变化并分发新增的行，由调度线程定期调用
+     * @param heartbeatMillis 订阅者超过该时间没有收到内容时也 flush 一次，用于保持连接、发现已断开的客户端
+     */
+    public synchronized void poll(long heartbeatMillis) throws IOException {
+        if (closed) {
+            return;
+        }
+        if (channel == null) {
+            // 第一次（或文件曾经不存在）：从当前末尾开始跟踪
+            if (!open(true)) {
+                heartbeat(heartbeatMillis);
+                return;
+            }
+        }
+        readAppended(false);
+
+        Object currentKey = currentFileKey();
+        if (currentKey != null && !currentKey.equals(fileKey)) {
+            // 已轮转：读完旧文件剩余部分（包括最后不完整的一行），切换到新文件从头读
+            readAppended(true);
+            closeChannel();
+            if (open(false)) {
+                readAppended(false);
+            }
+        } else if (channel.size() < offset) {
+            // 被截断（copytruncate 方式轮转）
+            offset = 0;
+            readAppended(false);
+        }
+        heartbeat(heartbeatMillis);
+    }
+
+    /**
+     * 停止跟踪，释放文件句柄
+     */
+    public synchronized void close() {
+        closed = true;
+        closeChannel();
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // 只是释放句柄
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * @param atEnd true 从文件末尾（最后一个完整行之后）开始，false 从头开始
+     * @return 文件不存在时返回false
+     */
+    private boolean open(boolean atEnd) throws IOException {
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        fileKey = currentFileKey();
+        offset = atEnd ? lastLineEnd(channel.size()) : 0;
+        return true;
+    }
+
+    private Object currentFileKey() throws IOException {
+        try {
+            return TimeIndexRegistry.fileKey(Files.readAttributes(path, BasicFileAttributes.class));
+        } catch (NoSuchFileException e) {
+            // 轮转过程中新文件可能还没创建
+            return null;
+        }
+    }
+
+    /**
+     * 文件末尾附近最后一个换行符之后的位置，避免从半行开始
+     */
+    private long lastLineEnd(long size) throws IOException {
+        long start = Math.max(0, size - TAIL_PROBE);
+        ByteBuffer buffer = ByteBuffer.allocate((int) (size - start));
+        channel.read(buffer, start);
+        for (int i = buffer.position() - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') {
+                return start + i + 1;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 读取 offset 之后新增的行
+     * @param includePartial 是否包括最后没有换行符的行（文件已不会再写入时）
+     */
+    private void readAppended(boolean includePartial) throws IOException {
+        long size = channel.size();
+        if (size <= offset) {
+            return;
+        }
+        LogLineReader reader = new LogLineReader(channel, offset, size);
+        boolean any = false;
+        while (reader.next()) {
+            if (!reader.lineTerminated() && !includePartial) {
+                break;
+            }
+            for (TailSubscriber subscriber : subscribers) {
+                deliver(subscriber, reader);
+            }
+            offset = reader.nextOffset();
+            any = true;
+        }
+        if (any) {
+            for (TailSubscriber subscriber : subscribers) {
+                try {
+                    subscriber.flush();
+                } catch (RuntimeException e) {
+                    subscribers.remove(subscriber);
+                }
+            }
+        }
+    }
+
+    private void deliver(TailSubscriber subscriber, LogLineReader reader) {
+        try {
+            subscriber.offer(reader.array(), reader.lineStart(), reader.lineEnd());
+        } catch (RuntimeException e) {
+            // 客户端已断开
+            subscribers.remove(subscriber);
+        }
+    }
+
+    private void heartbeat(long heartbeatMillis) {
+        long now = System.currentTimeMillis();
+        for (TailSubscriber subscriber : subscribers) {
+            try {
+                subscriber.heartbeat(now, heartbeatMillis);
+            } catch (RuntimeException e) {
+                subscribers.remove(subscriber);
+            }
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package log.tsuperman.com.logplatform.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 单个文件（或文件中一段区间）的扫描结果
+ *
+ * 除了匹配行，还按“单元”记录匹配行的边界：一条带时间戳的日志连同它的后续行是一个单元，单独匹配的一行也是一个单元。
+ * 顺序扫描只在单元结束时检查行数上限，并行扫描合并各段结果时按单元截断，才能和顺序扫描结果一致。
+ */
+public class FileScanResult {
+
+    private final List<String> lines = new ArrayList<>();
+    /** 流式查询时匹配行直接交给它，不保存在 lines 中 */
+    private final LineSink sink;
+    private int lineCount;
+    /** 每个单元结束时 lines 的大小 */
+    private int[] unitEnds = new int[16];
+    /** 每个单元结束时的文件偏移 */
+    private long[] unitOffsets = new long[16];
+    private int unitCount;
+
+    private final long startOffset;
+    /** 已处理到的位置，下一次扫描从这里继续 */
+    private long endOffset;
+    /** 因达到行数上限而停止 */
+    private boolean limitReached;
+    /** 因日志时间超过查询结束时间而停止 */
+    private boolean passedEndTime;
+    /** 因查询被取消或超时而停止，结束位置之后的内容没有读取 */
+    private boolean cancelled;
+    /** 最后一条带时间戳日志的行首偏移，没有时为-1 */
+    private long lastEventOffset = -1;
+    /** 本次实际读取的行数和字节数，复用缓存的部分不计 */
+    private long linesScanned;
+    private long bytesScanned;
+    /** 扫描用时及其中读取文件的用时，并行扫描时为各段之和 */
+    private long scanNanos;
+    private long readNanos;
+
+    public FileScanResult(long startOffset) {
+        this(startOffset, null);
+    }
+
+    /**
+     * @param sink 不为null时匹配行直接输出，{@link #getLines()} 始终为空
+     */
+    public FileScanResult(long startOffset, LineSink sink) {
+        this.startOffset = startOffset;
+        this.endOffset = startOffset;
+        this.sink = sink;
+    }
+
+    void add(String line) {
+        if (sink != null) {
+            sink.accept(line);
+        } else {
+            lines.add(line);
+        }
+        lineCount++;
+    }
+
+    /**
+     * 读到一条带时间戳的日志
+     */
+    void markEvent(long offset) {
+        lastEventOffset = offset;
+    }
+
+    /**
+     * 累计实际读取的行数、字节数及用时
+     */
+    void addScanned(long lines, long bytes, long scanNanos, long readNanos) {
+        linesScanned += lines;
+        bytesScanned += bytes;
+        this.scanNanos += scanNanos;
+        this.readNanos += readNanos;
+    }
+
+    /**
+     * 结束一个单元，单元内没有匹配行时不记录
+     */
+    void endUnit(long offset) {
+        endOffset = offset;
+        int size = lineCount;
+        if (size > 0 && (unitCount == 0 || unitEnds[unitCount - 1] != size)) {
+            if (unitCount == unitEnds.length) {
+                unitEnds = Arrays.copyOf(unitEnds, unitCount * 2);
+                unitOffsets = Arrays.copyOf(unitOffsets, unitCount * 2);
+            }
+            unitEnds[unitCount] = size;
+            unitOffsets[unitCount] = offset;
+            unitCount++;
+        }
+    }
+
+    /**
+     * 按单元追加另一段（紧接在本段之后）的结果，总行数达到上限的单元之后不再追加
+     * @return 是否已经达到上限，或追加的一段因取消而没有读完（其后的段不能再接上）
+     */
+    boolean append(FileScanResult next, int maxMatches) {
+        addScanned(next.linesScanned, next.bytesScanned, next.scanNanos, next.readNanos);
+        int from = 0;
+        for (int u = 0; u < next.unitCount; u++) {
+            int to = next.unitEnds[u];
+            lines.addAll(next.lines.subList(from, to));
+            lineCount += to - from;
+            from = to;
+            endUnit(next.unitOffsets[u]);
+            if (lineCount >= maxMatches) {
+                limitReached = true;
+                return true;
+            }
+        }
+        endOffset = next.endOffset;
+        if (next.lastEventOffset >= 0) {
+            lastEventOffset = next.lastEventOffset;
+        }
+        if (next.cancelled) {
+            cancelled = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 按单元截取前面的结果，行数达到 maxMatches 的单元之后的内容不要（用于凑满一页）
+     * @return 截取后的结果，被截断时 {@link #isLimitReached()} 为true，{@link #getEndOffset()} 为截断位置
+     */
+    public FileScanResult truncate(int maxMatches) {
+        FileScanResult taken = new FileScanResult(startOffset);
+        if (!taken.append(this, maxMatches)) {
+            taken.passedEndTime = passedEndTime;
+        }
+        return taken;
+    }
+
+    /**
+     * 只保留结束位置不超过 offset 的单元，结束位置设为 offset（用于从 offset 处续扫后拼接）
+     */
+    FileScanResult prefixBefore(long offset) {
+        FileScanResult prefix = new FileScanResult(startOffset);
+        int from = 0;
+        for (int u = 0; u < unitCount && unitOffsets[u] <= offset; u++) {
+            prefix.lines.addAll(lines.subList(from, unitEnds[u]));
+            prefix.lineCount += unitEnds[u] - from;
+            from = unitEnds[u];
+            prefix.endUnit(unitOffsets[u]);
+        }
+        prefix.endOffset = offset;
+        return prefix;
+    }
+
+    /**
+     * 复制一份，缓存的结果不直接交给调用方
+     */
+    FileScanResult copy() {
+        FileScanResult copy = prefixBefore(endOffset);
+        copy.limitReached = limitReached;
+        copy.passedEndTime = passedEndTime;
+        copy.cancelled = cancelled;
+        copy.lastEventOffset = lastEventOffset;
+        return copy;
+    }
+
+    /**
+     * 接在 offset 之后的续扫结果，按单元追加，行数达到 maxMatches 时停止
+     */
+    FileScanResult concat(FileScanResult next, int maxMatches) {
+        if (!append(next, maxMatches)) {
+            limitReached = next.limitReached;
+            passedEndTime = next.passedEndTime;
+        }
+        return this;
+    }
+
+    public List<String> getLines() {
+        return lines;
+    }
+
+    /**
+     * 匹配行数（流式输出时也会计数）
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * 包含匹配行的日志单元数
+     */
+    public int getUnitCount() {
+        return unitCount;
+    }
+
+    public long getStartOffset() {
+        return startOffset;
+    }
+
+    public long getEndOffset() {
+        return endOffset;
+    }
+
+    public long getLastEventOffset() {
+        return lastEventOffset;
+    }
+
+    public long getLinesScanned() {
+        return linesScanned;
+    }
+
+    public long getBytesScanned() {
+        return bytesScanned;
+    }
+
+    public long getScanNanos() {
+        return scanNanos;
+    }
+
+    public long getReadNanos() {
+        return readNanos;
+    }
+
+    public boolean isLimitReached() {
+        return limitReached;
+    }
+
+    void setLimitReached(boolean limitReached) {
+        this.limitReached = limitReached;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    public boolean isPassedEndTime() {
+        return passedEndTime;
+    }
+
+    void setPassedEndTime(boolean passedEndTime) {
+        this.passedEndTime = passedEndTime;
+    }
+}
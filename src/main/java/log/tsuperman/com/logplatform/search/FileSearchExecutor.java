@@ -0,0 +1,172 @@
+package log.tsuperman.com.logplatform.search;
+
+import log.tsuperman.com.logplatform.config.LogPlatformProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * 多文件并发检索
+ *
+ * 一次查询涉及的文件在共用的固定大小线程池上同时读取，结果仍按传入的文件顺序逐个交给调用方；
+ * 调用方表示不再需要时（如达到总行数上限），取消其余尚未完成的文件任务。
+ *
+ * 同一服务器上同时读取的文件数由服务器各自的许可数限制（多个查询共享），避免慢磁盘被大量随机读拖垮。
+ * 许可只在提交任务的线程中获取：窗口内已有任务时用 tryAcquire，取不到就先等最早的任务完成，不会互相等待。
+ */
+@Component
+public class FileSearchExecutor {
+
+    @Autowired
+    private LogPlatformProperties properties;
+
+    private ExecutorService executor;
+
+    private final ConcurrentHashMap<String, Permits> serverPermits = new ConcurrentHashMap<>();
+
+    /** 正在执行的查询数 */
+    private final AtomicInteger activeQueries = new AtomicInteger();
+
+    /** 后台读取文件（建立索引）共用的限速器，有查询时让路 */
+    private ReadThrottle backgroundThrottle;
+
+    public FileSearchExecutor() {
+    }
+
+    FileSearchExecutor(LogPlatformProperties properties) {
+        this.properties = properties;
+        init();
+    }
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, properties.getFileSearchThreads()), r -> {
+            Thread thread = new Thread(r, "file-search-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        backgroundThrottle = new ReadThrottle(properties.getIndexerReadBytesPerSecond(), this::isBusy);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 并发执行任务，按任务顺序把结果交给 consumer
+     * @param serverId 文件所在服务器，用于限制同时读取的文件数
+     * @param parallelism 该服务器允许同时读取的文件数
+     * @param consumer 返回false时停止，并取消其余任务
+     */
+    public <T> void forEachInOrder(String serverId, int parallelism, List<Callable<T>> tasks, Predicate<T> consumer)
+            throws InterruptedException {
+        int limit = Math.max(1, parallelism);
+        Semaphore semaphore = permitsFor(serverId, limit);
+        Deque<FutureTask<T>> window = new ArrayDeque<>();
+        int next = 0;
+        activeQueries.incrementAndGet();
+        try {
+            while (next < tasks.size() || !window.isEmpty()) {
+                // 窗口为空时必须等到许可，否则只取当前可用的许可
+                while (next < tasks.size() && window.size() < limit
+                        && (window.isEmpty() ? acquire(semaphore) : semaphore.tryAcquire())) {
+                    FutureTask<T> task = new PermitTask<>(tasks.get(next++), semaphore);
+                    window.addLast(task);
+                    executor.execute(task);
+                }
+                FutureTask<T> head = window.pollFirst();
+                T value;
+                try {
+                    value = head.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("文件检索失败", e.getCause());
+                }
+                if (!consumer.test(value)) {
+                    return;
+                }
+            }
+        } finally {
+            activeQueries.decrementAndGet();
+            for (FutureTask<T> task : window) {
+                task.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * 有查询正在读取文件，后台建立索引时据此让路
+     */
+    public boolean isBusy() {
+        return activeQueries.get() > 0;
+    }
+
+    /**
+     * 后台读取文件共用的限速器：后台建立索引、查询触发的索引建立、traceId 索引都从同一份额度中读取
+     */
+    public ReadThrottle getBackgroundThrottle() {
+        return backgroundThrottle;
+    }
+
+    private static boolean acquire(Semaphore semaphore) throws InterruptedException {
+        semaphore.acquire();
+        return true;
+    }
+
+    /**
+     * 服务器的许可数随配置变化时换用新的信号量，旧查询继续使用原来的
+     */
+    private Semaphore permitsFor(String serverId, int limit) {
+        return serverPermits.compute(serverId == null ? "" : serverId,
+                (id, permits) -> permits != null && permits.limit == limit ? permits : new Permits(limit)).semaphore;
+    }
+
+    private static class Permits {
+        private final int limit;
+        private final Semaphore semaphore;
+
+        Permits(int limit) {
+            this.limit = limit;
+            this.semaphore = new Semaphore(limit);
+        }
+    }
+
+    /**
+     * 任务在线程池中执行结束时归还许可
+     *
+     * 不在 done() 中归还：cancel(true) 只是中断，任务可能还在读文件，此时归还会让同一服务器同时读取的文件数超过限制。
+     * 没有运行就被取消的任务仍会被线程池执行，{@link FutureTask#run()} 直接返回，同样在这里归还。
+     */
+    private static class PermitTask<T> extends FutureTask<T> {
+        private final Semaphore semaphore;
+
+        PermitTask(Callable<T> callable, Semaphore semaphore) {
+            super(callable);
+            this.semaphore = semaphore;
+        }
+
+        @Override
+        public void run() {
+            try {
+                super.run();
+            } finally {
+                semaphore.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package log.tsuperman.com.logplatform.search;
+
+/**
+ * 日志文件的最早/最晚时间
+ */
+public class FileTimeRange {
+
+    /** 格式：yyyy-MM-dd HH:mm:ss，文件中没有时间戳时为null */
+    private final String earliestTime;
+    private final String latestTime;
+
+    public FileTimeRange(String earliestTime, String latestTime) {
+        this.earliestTime = earliestTime;
+        this.latestTime = latestTime;
+    }
+
+    public String getEarliestTime() {
+        return earliestTime;
+    }
+
+    public String getLatestTime() {
+        return latestTime;
+    }
+
+    public boolean isEmpty() {
+        return earliestTime == null;
+    }
+}
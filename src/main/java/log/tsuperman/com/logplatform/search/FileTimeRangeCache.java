@@ -0,0 +1,187 @@
+package log.tsuperman.com.logplatform.search;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 日志文件时间范围计算及缓存
+ *
+ * 日志按时间顺序写入，所以只读文件开头的几KB取最早时间，再从文件末尾向前读取最晚时间。
+ * 结果按 (路径, 大小, 修改时间) 缓存；活跃文件只是追加时沿用之前的最早时间，只重新读尾部。
+ * 采样到的行出现明显乱序，或者时间索引已经发现乱序时，退回到完整扫描。
+ */
+@Component
+public class FileTimeRangeCache {
+
+    private static final int SAMPLE_SIZE = 64 * 1024;
+
+    @Autowired
+    private TimeIndexRegistry timeIndexRegistry;
+
+    private final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<>();
+
+    private final TimestampParser timestampParser = new TimestampParser();
+
+    public FileTimeRangeCache() {
+    }
+
+    FileTimeRangeCache(TimeIndexRegistry timeIndexRegistry) {
+        this.timeIndexRegistry = timeIndexRegistry;
+    }
+
+    /**
+     * 获取文件的时间范围
+     */
+    public FileTimeRange get(Path file) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        Object fileKey = TimeIndexRegistry.fileKey(attrs);
+        long size = attrs.size();
+        long modified = attrs.lastModifiedTime().toMillis();
+        String path = file.toAbsolutePath().toString();
+
+        Entry cached = cache.get(path);
+        if (cached != null && cached.size == size && cached.modified == modified && cached.fileKey.equals(fileKey)) {
+            return cached.range;
+        }
+
+        FileTimeRange range;
+        SparseTimeIndex index = timeIndexRegistry.peek(file);
+        if (index != null && !index.isOrdered()) {
+            range = fullScan(file);
+        } else if (cached != null && cached.fileKey.equals(fileKey) && size > cached.size && !cached.range.isEmpty()) {
+            // 同一个文件只是追加了内容，最早时间不会变
+            range = sample(file, size, cached.range.getEarliestTime());
+        } else {
+            range = sample(file, size, null);
+        }
+        cache.put(path, new Entry(fileKey, size, modified, range));
+        return range;
+    }
+
+    /**
+     * 读取头部和尾部估算时间范围，无法确定时完整扫描
+     * @param knownEarliest 已知的最早时间，不为null时跳过头部
+     */
+    private FileTimeRange sample(Path file, long size, String knownEarliest) throws IOException {
+        if (size <= SAMPLE_SIZE * 2L) {
+            return fullScan(file);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            String earliest = knownEarliest;
+            if (earliest == null) {
+                Sample head = sampleBlock(channel, 0, SAMPLE_SIZE);
+                if (head == null || head.unordered) {
+                    return fullScan(file);
+                }
+                earliest = TimestampParser.format(head.min);
+            }
+
+            // 从末尾向前读，直到找到带时间戳的行（末尾可能是很长的堆栈），每次读取的长度翻倍
+            for (long window = SAMPLE_SIZE; ; window *= 2) {
+                long start = Math.max(size - window, 0);
+                Sample tail = sampleBlock(channel, start, size);
+                if (tail != null) {
+                    String latest = TimestampParser.format(tail.max);
+                    if (tail.unordered || latest.compareTo(earliest) < 0) {
+                        return fullScan(file);
+                    }
+                    return new FileTimeRange(earliest, latest);
+                }
+                if (start == 0) {
+                    return fullScan(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取 [start, end) 内的完整行，统计最小、最大时间戳
+     * @return 区间内没有时间戳时返回null
+     */
+    private Sample sampleBlock(FileChannel channel, long start, long end) throws IOException {
+        Sample sample = null;
+        long previous = Long.MIN_VALUE;
+        LogLineReader reader = new LogLineReader(channel, start, end);
+        boolean first = true;
+        while (reader.next()) {
+            // 从文件中间开始读时第一行不完整
+            if (first && start > 0) {
+                first = false;
+                continue;
+            }
+            first = false;
+            long timestamp = timestampParser.parse(reader.array(), reader.lineStart(), reader.lineEnd());
+            if (timestamp == TimestampParser.NONE) {
+                continue;
+            }
+            long epochSecond = TimestampParser.toEpochSecond(timestamp);
+            if (sample == null) {
+                sample = new Sample(timestamp);
+            } else {
+                sample.min = Math.min(sample.min, timestamp);
+                sample.max = Math.max(sample.max, timestamp);
+                if (epochSecond < previous - SparseTimeIndex.TOLERANCE_SECONDS) sample.unordered = true;
+            }
+            previous = Math.max(previous, epochSecond);
+        }
+        return sample;
+    }
+
+    /**
+     * 完整扫描文件，逐行比较最早、最晚时间
+     */
+    private FileTimeRange fullScan(Path file) throws IOException {
+        long earliestTime = TimestampParser.NONE;
+        long latestTime = TimestampParser.NONE;
+        try (LogLineReader reader = LogLineReader.open(file, 0)) {
+            while (reader.next()) {
+                long timestamp = timestampParser.parse(reader.array(), reader.lineStart(), reader.lineEnd());
+                if (timestamp != TimestampParser.NONE) {
+                    if (earliestTime == TimestampParser.NONE || timestamp < earliestTime) {
+                        earliestTime = timestamp;
+                    }
+                    if (timestamp > latestTime) {
+                        latestTime = timestamp;
+                    }
+                }
+            }
+        }
+        if (earliestTime == TimestampParser.NONE) {
+            return new FileTimeRange(null, null);
+        }
+        return new FileTimeRange(TimestampParser.format(earliestTime), TimestampParser.format(latestTime));
+    }
+
+    private static class Sample {
+        private long min;
+        private long max;
+        private boolean unordered;
+
+        Sample(long timestamp) {
+            this.min = timestamp;
+            this.max = timestamp;
+        }
+    }
+
+    private static class Entry {
+        private final Object fileKey;
+        private final long size;
+        private final long modified;
+        private final FileTimeRange range;
+
+        Entry(Object fileKey, long size, long modified, FileTimeRange range) {
+            this.fileKey = fileKey;
+            this.size = size;
+            this.modified = modified;
+            this.range = range;
+        }
+    }
+}
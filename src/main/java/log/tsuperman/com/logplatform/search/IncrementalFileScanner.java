@@ -0,0 +1,179 @@
+package log.tsuperman.com.logplatform.search;
+
+import log.tsuperman.com.logplatform.config.LogPlatformProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * 增量扫描：重复查询同一个文件时只读新追加的部分
+ *
+ * 按 (fileKey, 过滤条件, 行数上限) 记住上次扫描到的位置和结果。日志文件只会追加，已经扫描过的内容结果不变：
+ * <ul>
+ *     <li>上次因行数上限或超过结束时间而停止的，结果就是最终结果，直接返回；</li>
+ *     <li>上次读到了文件末尾的，从最后一条带时间戳日志的行首续扫（它的堆栈可能还在继续写），
+ *     与之前的结果拼接。</li>
+ * </ul>
+ * 以 fileKey 标识文件，活跃文件轮转改名后缓存仍然有效；文件变小或续扫位置的内容变了（被截断后重新写入）时丢弃。
+ * 只用于从文件开头开始的扫描，按游标翻页不经过缓存。
+ * 按条目数和估算的内存字节数（同 {@link QueryResultCache}）限制总大小，超过时淘汰最久未使用的；单个结果超过上限的1/4时不缓存。
+ */
+@Component
+public class IncrementalFileScanner {
+
+    /** 校验续扫位置时比对的字节数 */
+    private static final int PROBE_SIZE = 64;
+
+    /** 每个条目、每行的额外开销估算 */
+    private static final int ENTRY_OVERHEAD = 256;
+    private static final int LINE_OVERHEAD = 56;
+
+    @Autowired
+    private ParallelFileScanner parallelFileScanner;
+
+    @Autowired
+    private LogPlatformProperties properties;
+
+    private LinkedHashMap<String, Entry> cache;
+    private long totalBytes;
+
+    public IncrementalFileScanner() {
+    }
+
+    IncrementalFileScanner(ParallelFileScanner parallelFileScanner, LogPlatformProperties properties) {
+        this.parallelFileScanner = parallelFileScanner;
+        this.properties = properties;
+        init();
+    }
+
+    @PostConstruct
+    public void init() {
+        cache = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * 扫描单个文件，参数同 {@link ParallelFileScanner#scan(LogFileScanner, Path, int, SparseTimeIndex, long)}
+     */
+    public FileScanResult scan(LogFileScanner scanner, Path file, int maxMatches, SparseTimeIndex index, long fromOffset)
+            throws IOException {
+        if (fromOffset != 0 || properties.getIncrementalCacheEntries() <= 0 || properties.getIncrementalCacheBytes() <= 0) {
+            return parallelFileScanner.scan(scanner, file, maxMatches, index, fromOffset);
+        }
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        Object fileKey = TimeIndexRegistry.fileKey(attrs);
+        long size = attrs.size();
+        String key = fileKey + "\u0000" + scanner.fingerprint() + "\u0000" + maxMatches;
+
+        Entry cached;
+        synchronized (this) {
+            cached = cache.get(key);
+        }
+        FileScanResult result;
+        if (cached != null && cached.fileKey.equals(fileKey) && size >= cached.result.getEndOffset()
+                && Arrays.equals(cached.probe, probe(file, cached.probeOffset, cached.result.getEndOffset()))) {
+            if (!cached.isResumable() || size == cached.result.getEndOffset()) {
+                return cached.result.copy();
+            }
+            long resumeOffset = cached.result.getLastEventOffset();
+            FileScanResult prefix = cached.result.prefixBefore(resumeOffset);
+            FileScanResult appended = parallelFileScanner.scan(scanner, file, maxMatches - prefix.getLineCount(), index, resumeOffset);
+            result = prefix.concat(appended, maxMatches);
+        } else {
+            result = parallelFileScanner.scan(scanner, file, maxMatches, index, 0);
+        }
+        // 被取消的扫描没有读完，不作为续扫的起点
+        if (result.isCancelled()) {
+            return result;
+        }
+
+        Entry entry = new Entry(fileKey, result.copy());
+        entry.probe = probe(file, entry.probeOffset, result.getEndOffset());
+        put(key, entry);
+        return result;
+    }
+
+    /**
+     * 当前条目数和占用字节数
+     */
+    synchronized int cachedCount() {
+        return cache.size();
+    }
+
+    synchronized long cachedBytes() {
+        return totalBytes;
+    }
+
+    private void put(String key, Entry entry) {
+        long maxBytes = properties.getIncrementalCacheBytes();
+        long bytes = ENTRY_OVERHEAD + key.length() * 2L + PROBE_SIZE;
+        for (String line : entry.result.getLines()) {
+            bytes += LINE_OVERHEAD + line.length() * 2L;
+        }
+        entry.bytes = bytes;
+        synchronized (this) {
+            Entry previous = cache.remove(key);
+            if (previous != null) {
+                totalBytes -= previous.bytes;
+            }
+            if (bytes > maxBytes / 4) {
+                return;
+            }
+            cache.put(key, entry);
+            totalBytes += bytes;
+            int maxEntries = properties.getIncrementalCacheEntries();
+            Iterator<Entry> it = cache.values().iterator();
+            while ((totalBytes > maxBytes || cache.size() > maxEntries) && it.hasNext()) {
+                totalBytes -= it.next().bytes;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 读取 [offset, min(offset + PROBE_SIZE, limit)) 的内容
+     */
+    private static byte[] probe(Path file, long offset, long limit) throws IOException {
+        int length = (int) Math.max(0, Math.min(PROBE_SIZE, limit - offset));
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining() && channel.read(buffer, offset + buffer.position()) > 0) {
+                // 读满为止
+            }
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    private static class Entry {
+        private final Object fileKey;
+        private final FileScanResult result;
+        /** 续扫位置（没有时为扫描起点），用其后的几个字节确认文件没有被截断重写 */
+        private final long probeOffset;
+        private byte[] probe;
+        /** 估算的内存占用 */
+        private long bytes;
+
+        Entry(Object fileKey, FileScanResult result) {
+            this.fileKey = fileKey;
+            this.result = result;
+            this.probeOffset = result.getLastEventOffset() >= 0 ? result.getLastEventOffset() : result.getStartOffset();
+        }
+
+        /**
+         * 读到了文件末尾，追加的内容可能还有匹配
+         */
+        boolean isResumable() {
+            return !result.isLimitReached() && !result.isPassedEndTime() && result.getLastEventOffset() >= 0;
+        }
+    }
+}
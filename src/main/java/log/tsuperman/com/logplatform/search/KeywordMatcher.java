@@ -0,0 +1,166 @@
+package log.tsuperman.com.logplatform.search;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 忽略大小写的关键字匹配器
+ *
+ * 每次查询编译一次，之后对每一行的匹配都不再创建对象。采用 Boyer-Moore-Horspool 跳跃查找，
+ * 只对 ASCII 字母做大小写折叠，既可以直接匹配 UTF-8 字节，也可以匹配字符序列。
+ *
+ * 结果与 {@code line.toLowerCase().contains(keyword.toLowerCase())} 一致（文本中转小写后会变成 ASCII 字母的
+ * U+0130、U+212A 两个字符除外）：中文等没有大小写的字符原样比较；
+ * 关键字中含有 Ä、Σ 这类有大小写的非 ASCII 字母时，逐字符折叠与 {@link String#toLowerCase()} 的规则不完全相同，
+ * 此时退回到原来的转小写再查找的方式。
+ */
+public class KeywordMatcher {
+
+    private static final KeywordMatcher MATCH_ALL = new KeywordMatcher("");
+
+    private final String lowerKeyword;
+    /** 关键字中有大小写的非 ASCII 字母，只能退回 toLowerCase */
+    private final boolean fallback;
+
+    private final byte[] bytePattern;
+    private final int[] byteShift = new int[256];
+
+    private final char[] charPattern;
+    private final int[] charShift = new int[256];
+
+    /**
+     * @param keyword 关键字，为空时匹配所有行
+     */
+    public static KeywordMatcher compile(String keyword) {
+        return keyword == null || keyword.isEmpty() ? MATCH_ALL : new KeywordMatcher(keyword);
+    }
+
+    private KeywordMatcher(String keyword) {
+        this.lowerKeyword = keyword.toLowerCase();
+        this.fallback = hasCasedNonAscii(keyword) || hasCasedNonAscii(lowerKeyword);
+
+        this.charPattern = lowerKeyword.toCharArray();
+        this.bytePattern = lowerKeyword.getBytes(StandardCharsets.UTF_8);
+
+        int m = bytePattern.length;
+        for (int i = 0; i < 256; i++) {
+            byteShift[i] = m;
+        }
+        for (int i = 0; i < m - 1; i++) {
+            byteShift[bytePattern[i] & 0xFF] = m - 1 - i;
+            // 模式中的小写字母同样要能在文本中的大写字母处对齐
+            if (bytePattern[i] >= 'a' && bytePattern[i] <= 'z') {
+                byteShift[bytePattern[i] - 32] = m - 1 - i;
+            }
+        }
+
+        int n = charPattern.length;
+        for (int i = 0; i < 256; i++) {
+            charShift[i] = n;
+        }
+        for (int i = 0; i < n - 1; i++) {
+            // 按低8位分桶，同一个桶取最小的跳跃距离
+            char c = charPattern[i];
+            charShift[c & 0xFF] = Math.min(charShift[c & 0xFF], n - 1 - i);
+            if (c >= 'a' && c <= 'z') {
+                charShift[(c - 32) & 0xFF] = Math.min(charShift[(c - 32) & 0xFF], n - 1 - i);
+            }
+        }
+    }
+
+    /**
+     * 没有关键字，所有行都匹配
+     */
+    public boolean matchesAll() {
+        return charPattern.length == 0;
+    }
+
+    /**
+     * 关键字中有大小写的非 ASCII 字母，匹配时退回 toLowerCase，不能按字节比较
+     */
+    public boolean isFallback() {
+        return fallback;
+    }
+
+    /**
+     * 在 UTF-8 字节 [from, to) 中查找关键字
+     */
+    public boolean matches(byte[] text, int from, int to) {
+        if (matchesAll()) {
+            return true;
+        }
+        if (fallback) {
+            return new String(text, from, to - from, StandardCharsets.UTF_8).toLowerCase().contains(lowerKeyword);
+        }
+        byte[] p = bytePattern;
+        int m = p.length;
+        int last = m - 1;
+        for (int i = from; i <= to - m; ) {
+            byte b = fold(text[i + last]);
+            if (b == p[last]) {
+                int j = last - 1;
+                while (j >= 0 && fold(text[i + j]) == p[j]) {
+                    j--;
+                }
+                if (j < 0) {
+                    return true;
+                }
+            }
+            i += byteShift[text[i + last] & 0xFF];
+        }
+        return false;
+    }
+
+    /**
+     * 在字符序列中查找关键字
+     */
+    public boolean matches(CharSequence text) {
+        if (matchesAll()) {
+            return true;
+        }
+        if (fallback) {
+            return text.toString().toLowerCase().contains(lowerKeyword);
+        }
+        char[] p = charPattern;
+        int m = p.length;
+        int last = m - 1;
+        int length = text.length();
+        for (int i = 0; i <= length - m; ) {
+            char c = text.charAt(i + last);
+            if (fold(c) == p[last]) {
+                int j = last - 1;
+                while (j >= 0 && fold(text.charAt(i + j)) == p[j]) {
+                    j--;
+                }
+                if (j < 0) {
+                    return true;
+                }
+            }
+            i += charShift[c & 0xFF];
+        }
+        return false;
+    }
+
+    private static byte fold(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + 32) : b;
+    }
+
+    private static char fold(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+    }
+
+    /**
+     * 是否含有存在大小写变化的非 ASCII 字符
+     */
+    private static boolean hasCasedNonAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (Character.toUpperCase(c) != c || Character.toTitleCase(c) != c || Character.toLowerCase(c) != c) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,24 @@
+package log.tsuperman.com.logplatform.search;
+
+/**
+ * 接收匹配行的输出端，流式查询时扫描到一行就交给它，不在内存中保存结果
+ *
+ * 输出失败（如客户端断开）时抛出 {@link java.io.UncheckedIOException}，与读取日志文件的 IOException 区分开，
+ * 扫描随之中止。
+ */
+public interface LineSink {
+
+    void accept(String line);
+
+    /**
+     * 一个文件扫描结束时调用，实现可以在此把缓冲的内容发送出去
+     */
+    default void flush() {
+    }
+
+    /**
+     * 输出端因接收过慢被放弃时调用，实现可以在此关闭连接
+     */
+    default void close() {
+    }
+}
@@ -0,0 +1,160 @@
+package log.tsuperman.com.logplatform.search;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 服务器之间传输查询结果的紧凑二进制格式（application/x-log-batch）
+ *
+ * 相邻日志行的开头（日期、时间、级别、线程名）大多相同，每行只记录与上一行相同的前缀字节数和剩余的字节，
+ * 不需要 JSON 的引号和转义；HTTP 层再做 gzip 压缩。结构为：
+ * <pre>
+ * 'L' 'B' 版本(1)
+ * varint 游标长度, 游标 UTF-8（没有下一页时长度为0）
+ * varint 行数
+ * 每行: varint 相同前缀字节数, varint 剩余字节数, 剩余字节
+ * </pre>
+ */
+public class LogBatchCodec {
+
+    public static final String MEDIA_TYPE = "application/x-log-batch";
+
+    private static final int VERSION = 1;
+
+    private LogBatchCodec() {
+    }
+
+    public static byte[] encode(List<String> lines, String nextCursor) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, lines.size() * 48));
+        out.write('L');
+        out.write('B');
+        out.write(VERSION);
+        byte[] cursor = nextCursor != null ? nextCursor.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        writeVarint(out, cursor.length);
+        out.write(cursor, 0, cursor.length);
+        writeVarint(out, lines.size());
+
+        byte[] previous = new byte[0];
+        for (String line : lines) {
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            int shared = 0;
+            int max = Math.min(previous.length, bytes.length);
+            while (shared < max && previous[shared] == bytes[shared]) {
+                shared++;
+            }
+            writeVarint(out, shared);
+            writeVarint(out, bytes.length - shared);
+            out.write(bytes, shared, bytes.length - shared);
+            previous = bytes;
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException 数据格式不正确
+     */
+    public static Batch decode(byte[] data) {
+        Reader in = new Reader(data);
+        if (in.readByte() != 'L' || in.readByte() != 'B' || in.readByte() != VERSION) {
+            throw new IllegalArgumentException("无效的批量数据");
+        }
+        int cursorLength = in.readVarint();
+        String nextCursor = cursorLength > 0 ? new String(in.readBytes(cursorLength), StandardCharsets.UTF_8) : null;
+        int count = in.readVarint();
+
+        List<String> lines = new ArrayList<>(Math.min(count, 1 << 16));
+        byte[] previous = new byte[0];
+        for (int i = 0; i < count; i++) {
+            int shared = in.readVarint();
+            int rest = in.readVarint();
+            if (shared > previous.length) {
+                throw new IllegalArgumentException("无效的批量数据");
+            }
+            byte[] bytes = new byte[shared + rest];
+            System.arraycopy(previous, 0, bytes, 0, shared);
+            in.readInto(bytes, shared, rest);
+            lines.add(new String(bytes, StandardCharsets.UTF_8));
+            previous = bytes;
+        }
+        return new Batch(lines, nextCursor);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * 解码后的一批结果
+     */
+    public static class Batch {
+        private final List<String> lines;
+        private final String nextCursor;
+
+        public Batch(List<String> lines, String nextCursor) {
+            this.lines = lines;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<String> getLines() {
+            return lines;
+        }
+
+        /**
+         * 下一页游标，没有更多结果时为null
+         */
+        public String getNextCursor() {
+            return nextCursor;
+        }
+    }
+
+    private static class Reader {
+        private final byte[] data;
+        private int pos;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        int readByte() {
+            if (pos >= data.length) {
+                throw new IllegalArgumentException("批量数据不完整");
+            }
+            return data[pos++] & 0xFF;
+        }
+
+        int readVarint() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    if (value < 0) {
+                        break;
+                    }
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("无效的批量数据");
+        }
+
+        byte[] readBytes(int length) {
+            byte[] bytes = new byte[length];
+            readInto(bytes, 0, length);
+            return bytes;
+        }
+
+        void readInto(byte[] target, int offset, int length) {
+            if (length < 0 || pos + length > data.length) {
+                throw new IllegalArgumentException("批量数据不完整");
+            }
+            System.arraycopy(data, pos, target, offset, length);
+            pos += length;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package log.tsuperman.com.logplatform.search;
+
+import java.util.Arrays;
+
+/**
+ * 按固定格式解析一行日志中各字段的位置，不创建任何字符串
+ *
+ * 日志格式为：{@code [应用:IP:端口] [traceId,spanId] yyyy-MM-dd HH:mm:ss.SSS LEVEL pid [线程] logger 消息}，
+ * 时间戳之前的两个方括号都可以省略；pid 之后可以有 Spring Boot 默认格式的 {@code ---}，logger 之后可以有 {@code :}。
+ * 解析结果是各字段在行字节数组中的 [start, end)，同一个对象可以对每一行重复使用（不能在线程之间共享）。
+ */
+public class LogFields {
+
+    /** 字段，名称用于查询参数（忽略大小写） */
+    public enum Field {
+        APP("app"),
+        TRACE_ID("traceId"),
+        SPAN_ID("spanId"),
+        LEVEL("level"),
+        PID("pid"),
+        THREAD("thread"),
+        LOGGER("logger"),
+        MESSAGE("message");
+
+        private final String paramName;
+
+        Field(String paramName) {
+            this.paramName = paramName;
+        }
+
+        public String getParamName() {
+            return paramName;
+        }
+
+        /**
+         * @return 没有该字段时返回null
+         */
+        public static Field of(String name) {
+            for (Field field : values()) {
+                if (field.paramName.equalsIgnoreCase(name)) {
+                    return field;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final int TIMESTAMP_LENGTH = 19;
+
+    private final int[] starts = new int[Field.values().length];
+    private final int[] ends = new int[Field.values().length];
+    private int timestampStart;
+
+    /**
+     * 解析 line 的 [from, to)
+     * @return 找到了时间戳和级别时为true；为false时各字段的位置没有意义
+     */
+    public boolean parse(byte[] line, int from, int to) {
+        Arrays.fill(starts, -1);
+        Arrays.fill(ends, -1);
+
+        int ts = findTimestamp(line, from, to);
+        timestampStart = ts;
+        if (ts < 0) {
+            return false;
+        }
+        parsePrefix(line, from, ts);
+
+        // 时间戳后可以有 .SSS 或 ,SSS
+        int i = ts + TIMESTAMP_LENGTH;
+        if (i < to && (line[i] == '.' || line[i] == ',')) {
+            i++;
+            while (i < to && isDigit(line[i])) {
+                i++;
+            }
+        }
+        i = skipSpaces(line, i, to);
+        int levelEnd = tokenEnd(line, i, to);
+        if (levelEnd == i) {
+            return false;
+        }
+        set(Field.LEVEL, i, levelEnd);
+        i = skipSpaces(line, levelEnd, to);
+
+        int pidEnd = i;
+        while (pidEnd < to && isDigit(line[pidEnd])) {
+            pidEnd++;
+        }
+        if (pidEnd > i && (pidEnd == to || line[pidEnd] == ' ')) {
+            set(Field.PID, i, pidEnd);
+            i = skipSpaces(line, pidEnd, to);
+        }
+        if (i + 3 <= to && line[i] == '-' && line[i + 1] == '-' && line[i + 2] == '-') {
+            i = skipSpaces(line, i + 3, to);
+        }
+
+        if (i < to && line[i] == '[') {
+            int close = closingBracket(line, i, to);
+            if (close < 0) {
+                return true;
+            }
+            set(Field.THREAD, i + 1, close);
+            i = skipSpaces(line, close + 1, to);
+        }
+
+        int loggerEnd = tokenEnd(line, i, to);
+        if (loggerEnd > i) {
+            int e = loggerEnd;
+            if (line[e - 1] == ':') {
+                e--;
+            }
+            set(Field.LOGGER, i, e);
+            i = skipSpaces(line, loggerEnd, to);
+            // Spring Boot 格式的 logger 与消息之间是 " : "
+            if (i < to && line[i] == ':' && (i + 1 == to || line[i + 1] == ' ')) {
+                i = skipSpaces(line, i + 1, to);
+            }
+        }
+        set(Field.MESSAGE, i, to);
+        return true;
+    }
+
+    /**
+     * 字段起点，行中没有该字段时为-1
+     */
+    public int start(Field field) {
+        return starts[field.ordinal()];
+    }
+
+    public int end(Field field) {
+        return ends[field.ordinal()];
+    }
+
+    public boolean has(Field field) {
+        return starts[field.ordinal()] >= 0;
+    }
+
+    /**
+     * 时间戳 yyyy-MM-dd HH:mm:ss 的起点，没有时间戳时为-1
+     */
+    public int timestampStart() {
+        return timestampStart;
+    }
+
+    /**
+     * 时间戳后的毫秒数（.SSS 或 ,SSS），没有时为0
+     */
+    public int millis(byte[] line, int to) {
+        int i = timestampStart + TIMESTAMP_LENGTH;
+        if (timestampStart < 0 || i >= to || (line[i] != '.' && line[i] != ',')) {
+            return 0;
+        }
+        int millis = 0;
+        int digits = 0;
+        for (i++; i < to && digits < 3 && isDigit(line[i]); i++, digits++) {
+            millis = millis * 10 + (line[i] - '0');
+        }
+        for (; digits < 3; digits++) {
+            millis *= 10;
+        }
+        return millis;
+    }
+
+    /**
+     * 时间戳之前的 [应用:IP:端口] 和 [traceId,spanId]
+     */
+    private void parsePrefix(byte[] line, int from, int to) {
+        int i = skipSpaces(line, from, to);
+        int bracket = 0;
+        while (i < to && line[i] == '[' && bracket < 2) {
+            int close = closingBracket(line, i, to);
+            if (close < 0) {
+                return;
+            }
+            int comma = indexOf(line, i + 1, close, (byte) ',');
+            if (bracket == 0 && comma < 0) {
+                int colon = indexOf(line, i + 1, close, (byte) ':');
+                set(Field.APP, i + 1, colon >= 0 ? colon : close);
+            } else {
+                if (comma < 0) {
+                    comma = close;
+                }
+                set(Field.TRACE_ID, i + 1, comma);
+                set(Field.SPAN_ID, Math.min(comma + 1, close), close);
+                bracket = 2;
+            }
+            bracket++;
+            i = skipSpaces(line, close + 1, to);
+        }
+    }
+
+    private void set(Field field, int start, int end) {
+        starts[field.ordinal()] = start;
+        ends[field.ordinal()] = end;
+    }
+
+    private static int findTimestamp(byte[] line, int from, int to) {
+        for (int i = from; i + TIMESTAMP_LENGTH <= to; i++) {
+            if (TimestampParser.isTimestampAt(line, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 与 line[open] 处的 '[' 配对的 ']'，线程名中可以嵌套方括号
+     */
+    private static int closingBracket(byte[] line, int open, int to) {
+        int depth = 0;
+        for (int i = open; i < to; i++) {
+            if (line[i] == '[') {
+                depth++;
+            } else if (line[i] == ']' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(byte[] line, int from, int to, byte b) {
+        for (int i = from; i < to; i++) {
+            if (line[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipSpaces(byte[] line, int i, int to) {
+        while (i < to && (line[i] == ' ' || line[i] == '\t')) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int tokenEnd(byte[] line, int i, int to) {
+        while (i < to && line[i] != ' ' && line[i] != '\t') {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+}
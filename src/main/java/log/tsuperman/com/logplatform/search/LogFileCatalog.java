@@ -0,0 +1,342 @@
+package log.tsuperman.com.logplatform.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 日志文件目录：每个应用（日志目录 + 前缀）一份 日期 → 文件列表 的映射
+ *
+ * 第一次使用时列一次目录，按文件名解析出类型（info/error）、日期和序号，之后查询只是查表。
+ * 目录注册到 WatchService，有文件创建、删除（轮转改名也表现为删除加创建）时标记为过期，下次使用时重新列目录。
+ * 目录无法监听时（不存在、文件系统不支持）每次都重新列目录。
+ */
+@Component
+public class LogFileCatalog {
+
+    private static final Logger log = LoggerFactory.getLogger(LogFileCatalog.class);
+
+    private final ConcurrentHashMap<String, Catalog> catalogs = new ConcurrentHashMap<>();
+
+    /** 已注册监听的目录 */
+    private final ConcurrentHashMap<Path, WatchKey> watchedDirs = new ConcurrentHashMap<>();
+
+    private volatile WatchService watchService;
+    private Thread watchThread;
+
+    /**
+     * 指定日期的日志文件，按查询顺序排列（info 在前、error 在后，同类型内按日期、序号，活跃文件在最后）
+     * @param logType info/error/all，null 等同于 all
+     * @return 日志目录不存在时返回null
+     */
+    public List<LogFileEntry> getFiles(String logPath, String logPrefix, String date, String logType) {
+        Snapshot snapshot = snapshot(logPath, logPrefix);
+        if (snapshot == null) {
+            return null;
+        }
+        List<LogFileEntry> files = new ArrayList<>();
+        for (LogFileEntry entry : snapshot.byDate.getOrDefault(date, Collections.emptyList())) {
+            if (entry.matchesType(logType)) {
+                files.add(entry);
+            }
+        }
+        // 活跃文件只属于当天
+        if (date.equals(LocalDate.now().toString())) {
+            for (LogFileEntry entry : snapshot.active) {
+                if (entry.matchesType(logType)) {
+                    files.add(entry);
+                }
+            }
+        }
+        files.sort(LogFileEntry.ORDER);
+        return files;
+    }
+
+    /**
+     * 有 info 日志的日期，存在活跃文件时包含当天
+     * @return 日志目录不存在时返回空集合
+     */
+    public Set<String> getDates(String logPath, String logPrefix) {
+        Set<String> dates = new TreeSet<>();
+        Snapshot snapshot = snapshot(logPath, logPrefix);
+        if (snapshot == null) {
+            return dates;
+        }
+        snapshot.byDate.forEach((date, entries) -> {
+            if (entries.stream().anyMatch(e -> LogFileEntry.INFO.equals(e.getType()))) {
+                dates.add(date);
+            }
+        });
+        if (snapshot.active.stream().anyMatch(e -> LogFileEntry.INFO.equals(e.getType()))) {
+            dates.add(LocalDate.now().toString());
+        }
+        return dates;
+    }
+
+    /**
+     * 所有轮转后的历史文件（不含活跃文件），按日期、类型、序号排列
+     * @return 日志目录不存在时返回null
+     */
+    public List<LogFileEntry> getSealedFiles(String logPath, String logPrefix) {
+        Snapshot snapshot = snapshot(logPath, logPrefix);
+        if (snapshot == null) {
+            return null;
+        }
+        List<LogFileEntry> files = new ArrayList<>();
+        snapshot.byDate.values().forEach(files::addAll);
+        files.sort(Comparator.comparing(LogFileEntry::getDate).thenComparing(LogFileEntry.ORDER));
+        return files;
+    }
+
+    /**
+     * 日志目录下指定名称的文件，只接受目录中直接存在的文件名
+     * @return 文件不存在时返回null
+     * @throws IllegalArgumentException 文件名含有路径分隔符或 ..，指向日志目录以外
+     */
+    public static File resolveFile(String logPath, String fileName) {
+        if (fileName.contains("/") || fileName.contains("\\") || fileName.contains("..")
+                || fileName.indexOf('\0') >= 0) {
+            throw new IllegalArgumentException("无效的文件名: " + fileName);
+        }
+        Path dir = Paths.get(logPath).toAbsolutePath().normalize();
+        Path file = dir.resolve(fileName).normalize();
+        if (!dir.equals(file.getParent())) {
+            throw new IllegalArgumentException("无效的文件名: " + fileName);
+        }
+        return Files.isRegularFile(file) ? file.toFile() : null;
+    }
+
+    /**
+     * 按文件名判断文件是否属于前缀为 logPrefix 的应用，并解析类型、日期和序号
+     *
+     * error 日志的前缀为 logPrefix 中的 -info 换成 -error（没有 -info 时为 logPrefix-error）；
+     * 前缀之后必须是 '.' 或 '_'（变体后缀），避免 task 匹配到 task-center 的文件。
+     * @return 不属于该应用时返回null
+     */
+    public static LogFileEntry classify(File file, String logPrefix) {
+        String name = file.getName();
+        if (!name.endsWith(".log")) {
+            return null;
+        }
+        String errorPrefix = logPrefix.replace("-info", "-error");
+        String baseErrorPrefix = logPrefix.replace("-info", "") + "-error";
+
+        String type;
+        int restStart;
+        if (!errorPrefix.equals(logPrefix) && hasPrefix(name, errorPrefix)) {
+            type = LogFileEntry.ERROR;
+            restStart = errorPrefix.length();
+        } else if (hasPrefix(name, baseErrorPrefix)) {
+            type = LogFileEntry.ERROR;
+            restStart = baseErrorPrefix.length();
+        } else if (hasPrefix(name, logPrefix)) {
+            type = LogFileEntry.INFO;
+            restStart = logPrefix.length();
+        } else {
+            return null;
+        }
+
+        int dateAt = findDate(name, restStart);
+        if (dateAt < 0) {
+            // task-center-info.log 或变体 task-center-info_xxx.log
+            boolean active = name.length() - restStart == ".log".length() || name.charAt(restStart) == '_';
+            return active ? new LogFileEntry(file, null, type, 0) : null;
+        }
+        String date = name.substring(dateAt, dateAt + 10);
+        int sequence = 0;
+        int i = dateAt + 10;
+        if (i < name.length() && name.charAt(i) == '.') {
+            int j = i + 1;
+            while (j < name.length() && Character.isDigit(name.charAt(j)) && j - i <= 9) {
+                j++;
+            }
+            if (j > i + 1 && name.startsWith(".", j)) {
+                sequence = Integer.parseInt(name.substring(i + 1, j));
+            }
+        }
+        return new LogFileEntry(file, date, type, sequence);
+    }
+
+    private static boolean hasPrefix(String name, String prefix) {
+        return name.startsWith(prefix) && name.length() > prefix.length()
+                && (name.charAt(prefix.length()) == '.' || name.charAt(prefix.length()) == '_');
+    }
+
+    /**
+     * 从 from 开始查找第一个 yyyy-MM-dd，找不到返回-1
+     */
+    private static int findDate(String s, int from) {
+        for (int i = from; i + 10 <= s.length(); i++) {
+            if (s.charAt(i + 4) == '-' && s.charAt(i + 7) == '-'
+                    && isDigits(s, i, 4) && isDigits(s, i + 5, 2) && isDigits(s, i + 8, 2)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isDigits(String s, int from, int count) {
+        for (int i = from; i < from + count; i++) {
+            if (s.charAt(i) < '0' || s.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Snapshot snapshot(String logPath, String logPrefix) {
+        Path dir = Paths.get(logPath).toAbsolutePath().normalize();
+        Catalog catalog = catalogs.computeIfAbsent(dir + "\u0000" + logPrefix, k -> new Catalog(dir, logPrefix));
+        return catalog.current();
+    }
+
+    /**
+     * 注册目录监听，失败时返回false
+     */
+    private boolean watch(Path dir) {
+        if (watchedDirs.containsKey(dir)) {
+            return true;
+        }
+        try {
+            WatchService service = watchService();
+            WatchKey key = dir.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+            watchedDirs.put(dir, key);
+            return true;
+        } catch (IOException | UnsupportedOperationException | ClosedWatchServiceException e) {
+            log.warn("无法监听日志目录: {}, 错误: {}", dir, e.getMessage());
+            return false;
+        }
+    }
+
+    private synchronized WatchService watchService() throws IOException {
+        if (watchService == null) {
+            watchService = FileSystems.getDefault().newWatchService();
+            watchThread = new Thread(this::watchLoop, "log-file-catalog");
+            watchThread.setDaemon(true);
+            watchThread.start();
+        }
+        return watchService;
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                // 事件内容不重要，只要目录有变化就整体重新列目录
+                key.pollEvents();
+                Path dir = (Path) key.watchable();
+                for (Catalog catalog : catalogs.values()) {
+                    if (catalog.dir.equals(dir)) {
+                        catalog.stale = true;
+                    }
+                }
+                if (!key.reset()) {
+                    // 目录被删除
+                    watchedDirs.remove(dir, key);
+                    for (Catalog catalog : catalogs.values()) {
+                        if (catalog.dir.equals(dir)) {
+                            catalog.watched = false;
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // 关闭
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.warn("关闭目录监听失败: {}", e.getMessage());
+            }
+            watchThread.interrupt();
+        }
+    }
+
+    private class Catalog {
+        private final Path dir;
+        private final String logPrefix;
+        private volatile Snapshot snapshot;
+        private volatile boolean stale = true;
+        private volatile boolean watched;
+
+        Catalog(Path dir, String logPrefix) {
+            this.dir = dir;
+            this.logPrefix = logPrefix;
+        }
+
+        Snapshot current() {
+            Snapshot current = snapshot;
+            if (current != null && !stale && watched) {
+                return current;
+            }
+            synchronized (this) {
+                if (snapshot != null && !stale && watched) {
+                    return snapshot;
+                }
+                if (!Files.isDirectory(dir)) {
+                    snapshot = null;
+                    return null;
+                }
+                // 先注册监听再列目录，列目录期间的变化不会丢失
+                watched = watch(dir);
+                stale = false;
+                snapshot = build();
+                return snapshot;
+            }
+        }
+
+        private Snapshot build() {
+            Snapshot built = new Snapshot();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.log")) {
+                for (Path path : stream) {
+                    LogFileEntry entry = classify(path.toFile(), logPrefix);
+                    if (entry == null) {
+                        continue;
+                    }
+                    if (entry.isActive()) {
+                        built.active.add(entry);
+                    } else {
+                        built.byDate.computeIfAbsent(entry.getDate(), d -> new ArrayList<>()).add(entry);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("读取日志目录失败: {}, 错误: {}", dir, e.getMessage());
+                stale = true;
+            }
+            return built;
+        }
+    }
+
+    private static class Snapshot {
+        private final Map<String, List<LogFileEntry>> byDate = new HashMap<>();
+        private final List<LogFileEntry> active = new ArrayList<>();
+    }
+}
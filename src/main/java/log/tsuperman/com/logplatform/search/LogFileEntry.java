@@ -0,0 +1,71 @@
+package log.tsuperman.com.logplatform.search;
+
+import java.io.File;
+import java.util.Comparator;
+
+/**
+ * 日志目录中属于某个应用的一个日志文件
+ *
+ * 文件名形如 task-center-info.2026-01-08.3.log（轮转后的历史文件）或 task-center-info.log（当天的活跃文件），
+ * 前缀后可以带 _xxx 变体后缀。
+ */
+public class LogFileEntry {
+
+    public static final String INFO = "info";
+    public static final String ERROR = "error";
+
+    /**
+     * 查询时的文件顺序：info 在前、error 在后，同类型内按日期、序号，活跃文件排在最后
+     */
+    public static final Comparator<LogFileEntry> ORDER = Comparator
+            .comparing((LogFileEntry e) -> ERROR.equals(e.type))
+            .thenComparing(e -> e.date == null)
+            .thenComparing(e -> e.date == null ? "" : e.date)
+            .thenComparingInt(e -> e.sequence)
+            .thenComparing(e -> e.file.getName());
+
+    private final File file;
+    /** 轮转文件的日期 yyyy-MM-dd，活跃文件为null */
+    private final String date;
+    /** info/error */
+    private final String type;
+    /** 同一天内的轮转序号，没有序号时为0 */
+    private final int sequence;
+
+    public LogFileEntry(File file, String date, String type, int sequence) {
+        this.file = file;
+        this.date = date;
+        this.type = type;
+        this.sequence = sequence;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * 当天仍在写入的活跃文件
+     */
+    public boolean isActive() {
+        return date == null;
+    }
+
+    /**
+     * 是否属于指定的日志类型，all 或 null 表示所有类型
+     */
+    public boolean matchesType(String logType) {
+        return logType == null || logType.equalsIgnoreCase("all") || logType.equalsIgnoreCase(type);
+    }
+}
@@ -0,0 +1,370 @@
+package log.tsuperman.com.logplatform.search;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 日志文件流式扫描器
+ *
+ * 逐行读取文件并按时间段、关键字过滤。匹配到带时间戳的日志行后，会继续收集其后的非时间戳行
+ * （堆栈跟踪、详细信息等），遇到下一条带时间戳的行时把它退回给读取器，只需要一行的预读，
+ * 内存占用与文件大小无关。
+ *
+ * 传入 {@link SparseTimeIndex} 时，扫描会顺带建立/追加索引；索引可用时直接跳到 startTime 附近开始读，
+ * 并在日志时间超过 endTime 后停止。
+ */
+public class LogFileScanner {
+
+    /** 每处理这么多条日志检查一次是否被取消 */
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+
+    private final String keyword;
+    private final KeywordMatcher keywordMatcher;
+    private final TimestampParser timestampParser;
+    private final String startTime;
+    private final String endTime;
+    /** HHmmss，格式不符时为-1，退回字符串比较 */
+    private final int startTimeOfDay;
+    private final int endTimeOfDay;
+    /** 查询时间段覆盖全天，没有时间戳的行也算在时间段内 */
+    private final boolean wholeDay;
+    /** 字段过滤条件，只作用于带时间戳的日志行 */
+    private final List<FieldFilter> fieldFilters;
+    /** 查询的截止时间和取消标记（可选），被取消后扫描在当前日志结束处停止 */
+    private CancellationToken cancellation;
+
+    /**
+     * @param keyword 搜索词（可选）
+     * @param startTime 格式 HH:mm:ss
+     * @param endTime 格式 HH:mm:ss
+     */
+    public LogFileScanner(String keyword, String startTime, String endTime) {
+        this(keyword, startTime, endTime, new TimestampParser());
+    }
+
+    /**
+     * @param timestampParser 应用对应的时间戳解析器（记住了时间戳所在的列）
+     */
+    public LogFileScanner(String keyword, String startTime, String endTime, TimestampParser timestampParser) {
+        this(keyword, startTime, endTime, timestampParser, Collections.emptyList());
+    }
+
+    /**
+     * @param fieldFilters 字段过滤条件（如 level=ERROR），都满足的日志才匹配；堆栈等后续行随日志一起返回
+     */
+    public LogFileScanner(String keyword, String startTime, String endTime, TimestampParser timestampParser,
+                          List<FieldFilter> fieldFilters) {
+        this.fieldFilters = fieldFilters;
+        this.keyword = keyword == null ? "" : keyword;
+        this.keywordMatcher = KeywordMatcher.compile(keyword);
+        this.timestampParser = timestampParser;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.startTimeOfDay = TimestampParser.parseTimeOfDay(startTime);
+        this.endTimeOfDay = TimestampParser.parseTimeOfDay(endTime);
+        this.wholeDay = startTime.compareTo("00:00:00") <= 0 && endTime.compareTo("23:59:59") >= 0;
+    }
+
+    /**
+     * 扫描单个文件
+     * @param file 日志文件
+     * @param maxMatches 匹配行数达到该值后停止（一条日志的后续行会完整收集后再停止）
+     * @return 匹配的日志行
+     */
+    public List<String> scan(Path file, int maxMatches) throws IOException {
+        return scan(file, maxMatches, null);
+    }
+
+    /**
+     * 借助稀疏时间索引扫描单个文件
+     * @param index 文件的时间索引（可选）
+     */
+    public List<String> scan(Path file, int maxMatches, SparseTimeIndex index) throws IOException {
+        return scanFile(file, maxMatches, index).getLines();
+    }
+
+    /**
+     * 借助稀疏时间索引扫描单个文件，返回包含结束位置等信息的扫描结果
+     * @param index 文件的时间索引（可选）
+     */
+    public FileScanResult scanFile(Path file, int maxMatches, SparseTimeIndex index) throws IOException {
+        return scanFile(file, maxMatches, index, 0);
+    }
+
+    /**
+     * 从指定位置继续扫描单个文件（分页查询时从游标处继续）
+     * @param fromOffset 开始位置，必须是一条日志的行首
+     */
+    public FileScanResult scanFile(Path file, int maxMatches, SparseTimeIndex index, long fromOffset) throws IOException {
+        return scanFile(file, maxMatches, index, fromOffset, null);
+    }
+
+    /**
+     * 从指定位置继续扫描单个文件，匹配行直接交给 sink 输出（流式查询）
+     * @param sink 为null时匹配行保存在返回结果中
+     */
+    public FileScanResult scanFile(Path file, int maxMatches, SparseTimeIndex index, long fromOffset, LineSink sink)
+            throws IOException {
+        long startOffset = startOffset(index, fromOffset);
+        FileScanResult result = new FileScanResult(startOffset, sink);
+        try (LogLineReader reader = LogLineReader.open(file, startOffset)) {
+            scanRange(reader, maxMatches, stopAfter(index), index, index == null ? 0 : index.coveredUpTo(), result);
+        }
+        if (index != null) {
+            index.markCovered(startOffset, result.getEndOffset());
+        }
+        return result;
+    }
+
+    /**
+     * 只扫描文件中的候选区间（三元组索引给出的可能包含关键字的块），区间以外的内容一定没有匹配行
+     * @param ranges 按文件顺序排列、互不重叠的 [start, end) 区间，依次存放起点和终点，起点必须是一条日志的行首
+     * @param index 文件的时间索引（可选），只用于跳到开始时间附近和提前停止，不会被更新
+     * @param fromOffset 开始位置，必须是一条日志的行首
+     */
+    public FileScanResult scanRanges(Path file, long[] ranges, int maxMatches, SparseTimeIndex index, long fromOffset)
+            throws IOException {
+        long startOffset = startOffset(index, fromOffset);
+        long stopAfter = stopAfter(index);
+        FileScanResult result = new FileScanResult(startOffset);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int i = 0; i + 1 < ranges.length; i += 2) {
+                long start = Math.max(ranges[i], startOffset);
+                if (start >= ranges[i + 1]) {
+                    continue;
+                }
+                FileScanResult part = new FileScanResult(start);
+                scanRange(new LogLineReader(channel, start, ranges[i + 1]), maxMatches - result.getLineCount(),
+                        stopAfter, null, 0, part);
+                if (result.append(part, maxMatches)) {
+                    return result;
+                }
+                if (part.isPassedEndTime()) {
+                    result.setPassedEndTime(true);
+                    return result;
+                }
+            }
+            // 其余部分没有匹配行，相当于读到了文件末尾
+            result.append(new FileScanResult(Math.max(channel.size(), startOffset)), maxMatches);
+        }
+        return result;
+    }
+
+    /**
+     * 索引可用时从 startTime 附近开始读，否则从 fromOffset 开始读
+     */
+    public long startOffset(SparseTimeIndex index, long fromOffset) {
+        if (index != null && index.isUsable() && startTimeOfDay > 0) {
+            return Math.max(fromOffset, index.seekOffset(TimestampParser.secondOfDay(startTimeOfDay)));
+        }
+        return fromOffset;
+    }
+
+    /**
+     * 日志时间（秒）超过该值后停止扫描，索引不可用时不提前停止
+     */
+    long stopAfter(SparseTimeIndex index) {
+        if (index != null && index.isUsable() && endTimeOfDay >= 0) {
+            return index.dayStart() + TimestampParser.secondOfDay(endTimeOfDay) + SparseTimeIndex.TOLERANCE_SECONDS;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * 扫描读取器中的所有行，读取器的起点必须是一行的开头
+     * @param stopAfter 日志时间（秒）超过该值后停止
+     * @param index 需要记录的时间索引（可选），只记录偏移不小于 observeFrom 的行
+     */
+    void scanRange(LogLineReader reader, int maxMatches, long stopAfter, SparseTimeIndex index, long observeFrom,
+                   FileScanResult result) throws IOException {
+        // 已经超时或被取消时不再开始读取
+        if (isCancelled()) {
+            result.setCancelled(true);
+            return;
+        }
+        LogFields fields = fieldFilters.isEmpty() ? null : new LogFields();
+        long from = result.getEndOffset();
+        long lines = 0;
+        int units = 0;
+        long scanStart = System.nanoTime();
+        while (reader.next()) {
+            lines++;
+            // 每行只解析一次时间戳，匹配之前不解码为字符串
+            long timestamp = timestampParser.parse(reader.array(), reader.lineStart(), reader.lineEnd());
+            boolean hasTimestamp = timestamp != TimestampParser.NONE;
+
+            if (hasTimestamp) {
+                result.markEvent(reader.lineOffset());
+                long epochSecond = TimestampParser.toEpochSecond(timestamp);
+                if (index != null && reader.lineOffset() >= observeFrom) {
+                    index.observe(reader.lineOffset(), epochSecond);
+                }
+                // 已经超过结束时间，后面不会再有匹配
+                if (epochSecond > stopAfter) {
+                    result.setPassedEndTime(true);
+                    break;
+                }
+            }
+
+            if (isWithinTimeRange(timestamp) && matchesFields(reader, hasTimestamp, fields) && matchesKeyword(reader)) {
+                result.add(reader.lineAsString());
+
+                // 如果这是一个有时间戳的日志行，收集后续的非时间戳行（堆栈跟踪、详细信息等）
+                if (hasTimestamp) {
+                    while (reader.next()) {
+                        if (timestampParser.parse(reader.array(), reader.lineStart(), reader.lineEnd()) != TimestampParser.NONE) {
+                            reader.pushBack();
+                            break;
+                        }
+                        lines++;
+                        // 对于非时间戳行，只进行关键字过滤
+                        if (matchesKeyword(reader)) {
+                            result.add(reader.lineAsString());
+                        }
+                    }
+                }
+            }
+            result.endUnit(reader.nextOffset());
+
+            // 限制返回行数，防止前端卡死
+            if (result.getLineCount() >= maxMatches) {
+                result.setLimitReached(true);
+                break;
+            }
+            if (cancellation != null && ++units % CANCEL_CHECK_INTERVAL == 0 && cancellation.isCancelled()) {
+                result.setCancelled(true);
+                break;
+            }
+        }
+        result.addScanned(lines, Math.max(0, reader.nextOffset() - from), System.nanoTime() - scanStart,
+                reader.getReadNanos());
+    }
+
+    /**
+     * 从 offset 开始找到下一条带时间戳日志的行首，用于切分文件而不拆开一条日志的堆栈
+     * @return 行首偏移，[offset, limit) 内没有时返回 limit
+     */
+    long nextEventStart(FileChannel channel, long offset, long limit) throws IOException {
+        // 从前一个字节开始读，第一行要么是被切开的半行，要么是空行，都跳过
+        LogLineReader reader = new LogLineReader(channel, offset - 1, limit);
+        boolean first = true;
+        while (reader.next()) {
+            if (first) {
+                first = false;
+                continue;
+            }
+            if (timestampParser.parse(reader.array(), reader.lineStart(), reader.lineEnd()) != TimestampParser.NONE) {
+                return reader.lineOffset();
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * 根据文件的最早/最晚时间判断文件中是否可能有匹配，不可能时整个文件可以跳过
+     */
+    public boolean mayMatch(FileTimeRange range) {
+        if (range.isEmpty()) {
+            // 没有时间戳的行只有查询全天时才会匹配
+            return wholeDay;
+        }
+        if (startTimeOfDay < 0 || endTimeOfDay < 0) {
+            return true;
+        }
+        long earliest = TimestampParser.parse(range.getEarliestTime());
+        long latest = TimestampParser.parse(range.getLatestTime());
+        // 跨天的文件按一天中的时间无法比较
+        if (earliest == TimestampParser.NONE || TimestampParser.date(earliest) != TimestampParser.date(latest)) {
+            return true;
+        }
+        int earliestSecond = TimestampParser.secondOfDay(TimestampParser.timeOfDay(earliest));
+        int latestSecond = TimestampParser.secondOfDay(TimestampParser.timeOfDay(latest));
+        return latestSecond + SparseTimeIndex.TOLERANCE_SECONDS >= TimestampParser.secondOfDay(startTimeOfDay)
+                && earliestSecond - SparseTimeIndex.TOLERANCE_SECONDS <= TimestampParser.secondOfDay(endTimeOfDay);
+    }
+
+    /**
+     * 关键字，没有时为空字符串
+     */
+    public String getKeyword() {
+        return keyword;
+    }
+
+    /**
+     * 过滤条件摘要（关键字和时间段），条件相同的扫描结果相同
+     */
+    String fingerprint() {
+        return keyword + '\u0000' + startTime + '\u0000' + endTime + '\u0000' + fieldFilters;
+    }
+
+    public CancellationToken getCancellation() {
+        return cancellation;
+    }
+
+    /**
+     * 设置查询的截止时间和取消标记，不影响 {@link #fingerprint()}
+     */
+    public void setCancellation(CancellationToken cancellation) {
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * 已被取消或已超过截止时间
+     */
+    public boolean isCancelled() {
+        return cancellation != null && cancellation.isCancelled();
+    }
+
+    /**
+     * 查询时间段覆盖全天，此时按时间无法排除任何文件
+     */
+    public boolean isWholeDay() {
+        return wholeDay;
+    }
+
+    /**
+     * 按字段过滤条件检查日志行；有条件时没有时间戳或不符合日志格式的行不匹配
+     * @param fields 复用的解析结果，没有条件时为null
+     */
+    private boolean matchesFields(LogLineReader reader, boolean hasTimestamp, LogFields fields) {
+        if (fields == null) {
+            return true;
+        }
+        if (!hasTimestamp || !fields.parse(reader.array(), reader.lineStart(), reader.lineEnd())) {
+            return false;
+        }
+        for (FieldFilter filter : fieldFilters) {
+            if (!filter.matches(reader.array(), fields)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matchesKeyword(LogLineReader reader) {
+        return keywordMatcher.matches(reader.array(), reader.lineStart(), reader.lineEnd());
+    }
+
+    /**
+     * 检查日志时间是否在指定时间范围内
+     * @param timestamp 打包的 yyyyMMddHHmmss，没有时间戳时为 {@link TimestampParser#NONE}
+     */
+    private boolean isWithinTimeRange(long timestamp) {
+        if (timestamp != TimestampParser.NONE) {
+            if (startTimeOfDay >= 0 && endTimeOfDay >= 0) {
+                int logTime = TimestampParser.timeOfDay(timestamp);
+                return logTime >= startTimeOfDay && logTime <= endTimeOfDay;
+            }
+            // 参数不是 HH:mm:ss 格式时按原来的字符串比较
+            String logTime = TimestampParser.format(timestamp).substring(11);
+            return logTime.compareTo(startTime) >= 0 && logTime.compareTo(endTime) <= 0;
+        }
+
+        // 如果没有找到时间戳，根据参数判断是否包含
+        return wholeDay;
+    }
+}
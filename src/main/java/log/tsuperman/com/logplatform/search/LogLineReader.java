@@ -0,0 +1,250 @@
+package log.tsuperman.com.logplatform.search;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 日志行读取器 - 基于固定大小的字节缓冲区逐行读取文件
+ *
+ * 不会把整个文件读入内存，只有超长的单行才会让缓冲区扩容。
+ * 每一行都记录了它在文件中的字节偏移，当前行以 [lineStart, lineEnd) 的形式暴露在 {@link #array()} 中，
+ * 需要字符串时再调用 {@link #lineAsString()} 解码（UTF-8）。
+ *
+ * 数据既可以来自文件通道的定位读取，也可以来自内存映射的 {@link ByteBuffer}。
+ */
+public class LogLineReader implements Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer source;
+    private final boolean ownsChannel;
+    private final long end;
+    /** 限速器（可选） */
+    private ReadThrottle throttle;
+
+    private byte[] buf;
+    private int pos;
+    private int len;
+    /** buf[0] 对应的文件偏移 */
+    private long bufOffset;
+    /** 下一次从文件读取的位置 */
+    private long readOffset;
+    private boolean eof;
+    /** 从文件（或映射区间）读取数据累计用时，不含限速等待 */
+    private long readNanos;
+
+    private int lineStart;
+    private int lineEnd;
+    private boolean hasLine;
+    private boolean terminated;
+    private boolean pushedBack;
+
+    /**
+     * 打开文件，从指定偏移读到文件末尾
+     */
+    public static LogLineReader open(Path file, long start) throws IOException {
+        return open(file, start, null);
+    }
+
+    /**
+     * 打开文件，从指定偏移读到文件末尾，每次从文件读取后按 throttle 限速（后台建立索引）
+     */
+    public static LogLineReader open(Path file, long start, ReadThrottle throttle) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        LogLineReader reader = new LogLineReader(channel, start, Long.MAX_VALUE, true);
+        reader.throttle = throttle;
+        return reader;
+    }
+
+    /**
+     * 在已打开的通道上读取 [start, end) 区间，关闭读取器时不会关闭通道
+     */
+    public LogLineReader(FileChannel channel, long start, long end) {
+        this(channel, start, end, false);
+    }
+
+    private LogLineReader(FileChannel channel, long start, long end, boolean ownsChannel) {
+        this.channel = channel;
+        this.source = null;
+        this.ownsChannel = ownsChannel;
+        this.end = end;
+        this.buf = new byte[DEFAULT_BUFFER_SIZE];
+        this.bufOffset = start;
+        this.readOffset = start;
+    }
+
+    /**
+     * 读取内存映射的文件区间
+     * @param mapped 映射的区间，从当前 position 读到 limit
+     * @param start 区间起点在文件中的偏移
+     */
+    public LogLineReader(ByteBuffer mapped, long start) {
+        this.channel = null;
+        this.source = mapped;
+        this.ownsChannel = false;
+        this.end = start + mapped.remaining();
+        this.buf = new byte[DEFAULT_BUFFER_SIZE];
+        this.bufOffset = start;
+        this.readOffset = start;
+    }
+
+    /**
+     * 前进到下一行
+     * @return 没有更多行时返回false
+     */
+    public boolean next() throws IOException {
+        if (pushedBack) {
+            pushedBack = false;
+            return hasLine;
+        }
+        hasLine = false;
+        int i = pos;
+        while (true) {
+            for (; i < len; i++) {
+                if (buf[i] == '\n') {
+                    setLine(pos, i);
+                    terminated = true;
+                    pos = i + 1;
+                    return true;
+                }
+            }
+            if (eof) {
+                if (pos < len) {
+                    // 文件末尾没有换行符的最后一行
+                    setLine(pos, len);
+                    terminated = false;
+                    pos = len;
+                    return true;
+                }
+                return false;
+            }
+            i -= fill();
+        }
+    }
+
+    /**
+     * 退回当前行，下一次 {@link #next()} 会再次返回它
+     */
+    public void pushBack() {
+        pushedBack = true;
+    }
+
+    public byte[] array() {
+        return buf;
+    }
+
+    public int lineStart() {
+        return lineStart;
+    }
+
+    /**
+     * 当前行结束位置（不含换行符）
+     */
+    public int lineEnd() {
+        return lineEnd;
+    }
+
+    /**
+     * 当前行在文件中的起始偏移
+     */
+    public long lineOffset() {
+        return bufOffset + lineStart;
+    }
+
+    /**
+     * 下一次 {@link #next()} 将返回的行的起始偏移：通常是当前行之后（含换行符），当前行被退回时就是当前行
+     */
+    public long nextOffset() {
+        return pushedBack ? lineOffset() : bufOffset + pos;
+    }
+
+    /**
+     * 当前行以换行符结束；为false时是读到区间末尾的不完整行（跟踪活跃文件时可能还没写完）
+     */
+    public boolean lineTerminated() {
+        return terminated;
+    }
+
+    /**
+     * 从文件读取数据累计用时（纳秒），映射的区间中包含缺页的用时
+     */
+    public long getReadNanos() {
+        return readNanos;
+    }
+
+    public String lineAsString() {
+        return new String(buf, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+    }
+
+    private void setLine(int start, int newline) {
+        int e = newline;
+        if (e > start && buf[e - 1] == '\r') {
+            e--;
+        }
+        lineStart = start;
+        lineEnd = e;
+        hasLine = true;
+    }
+
+    /**
+     * 把未处理的数据移到缓冲区头部，再从文件读入更多数据；缓冲区被一整行占满时扩容
+     * @return 已有数据向前移动的字节数
+     */
+    private int fill() throws IOException {
+        int shift = pos;
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, len - pos);
+            bufOffset += pos;
+            len -= pos;
+            pos = 0;
+        }
+        if (len == buf.length) {
+            byte[] larger = new byte[buf.length * 2];
+            System.arraycopy(buf, 0, larger, 0, len);
+            buf = larger;
+        }
+        int want = (int) Math.min(buf.length - len, end - readOffset);
+        if (want <= 0) {
+            eof = true;
+            return shift;
+        }
+        int n;
+        long readStart = System.nanoTime();
+        if (source != null) {
+            n = Math.min(want, source.remaining());
+            source.get(buf, len, n);
+        } else {
+            n = channel.read(ByteBuffer.wrap(buf, len, want), readOffset);
+        }
+        readNanos += System.nanoTime() - readStart;
+        if (n <= 0) {
+            eof = true;
+            return shift;
+        }
+        len += n;
+        readOffset += n;
+        if (throttle != null) {
+            try {
+                throttle.acquire(n);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("读取被中断");
+            }
+        }
+        return shift;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
+}
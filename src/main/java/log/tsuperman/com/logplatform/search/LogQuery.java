@@ -0,0 +1,149 @@
+package log.tsuperman.com.logplatform.search;
+
+import java.util.List;
+
+/**
+ * 日志查询条件
+ */
+public class LogQuery {
+    /** 格式 yyyy-MM-dd */
+    private String date;
+    private String keyword;
+    /** 格式 HH:mm:ss */
+    private String startTime;
+    /** 格式 HH:mm:ss */
+    private String endTime;
+    private String fileName;
+    private String appId;
+    /** info/error/all */
+    private String logType;
+    /** 上一页返回的续查游标，为空时从头查询 */
+    private String cursor;
+    /** 每页行数，0表示使用默认值 */
+    private int pageSize;
+    /** 字段过滤条件，如 level=ERROR、logger=com.x.*，见 {@link FieldFilter} */
+    private List<String> filters;
+    /** 返回执行情况（{@link QueryProfile}） */
+    private boolean profile;
+    /** 只返回执行计划，不读取文件内容 */
+    private boolean explain;
+    /** 截止时间和取消标记，为null时使用配置的查询超时时间 */
+    private CancellationToken cancellation;
+
+    public LogQuery() {}
+
+    public LogQuery(String date, String keyword, String startTime, String endTime, String fileName, String appId, String logType) {
+        this.date = date;
+        this.keyword = keyword;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.fileName = fileName;
+        this.appId = appId;
+        this.logType = logType;
+    }
+
+    // getter和setter方法
+    public String getDate() {
+        return date;
+    }
+
+    public void setDate(String date) {
+        this.date = date;
+    }
+
+    public String getKeyword() {
+        return keyword;
+    }
+
+    public void setKeyword(String keyword) {
+        this.keyword = keyword;
+    }
+
+    public String getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(String startTime) {
+        this.startTime = startTime;
+    }
+
+    public String getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(String endTime) {
+        this.endTime = endTime;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getAppId() {
+        return appId;
+    }
+
+    public void setAppId(String appId) {
+        this.appId = appId;
+    }
+
+    public String getLogType() {
+        return logType;
+    }
+
+    public void setLogType(String logType) {
+        this.logType = logType;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public List<String> getFilters() {
+        return filters;
+    }
+
+    public void setFilters(List<String> filters) {
+        this.filters = filters;
+    }
+
+    public boolean isProfile() {
+        return profile;
+    }
+
+    public void setProfile(boolean profile) {
+        this.profile = profile;
+    }
+
+    public boolean isExplain() {
+        return explain;
+    }
+
+    public void setExplain(boolean explain) {
+        this.explain = explain;
+    }
+
+    public CancellationToken getCancellation() {
+        return cancellation;
+    }
+
+    public void setCancellation(CancellationToken cancellation) {
+        this.cancellation = cancellation;
+    }
+}
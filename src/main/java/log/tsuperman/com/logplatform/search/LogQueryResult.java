@@ -0,0 +1,114 @@
+package log.tsuperman.com.logplatform.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 日志查询结果
+ */
+public class LogQueryResult {
+    private final List<String> lines = new ArrayList<>();
+    /** 按日期、前缀匹配到的文件数 */
+    private int filesMatched;
+    /** 时间范围与查询时间段不重叠而跳过的文件数 */
+    private int filesPruned;
+    /** 布隆过滤器判断一定不包含关键字而跳过的文件数 */
+    private int filesKeywordPruned;
+    /** 实际读取内容的文件数 */
+    private int filesScanned;
+    /** 实际读取的行数和字节数，结果来自缓存时为0 */
+    private long linesScanned;
+    private long bytesScanned;
+    /** 下一页的续查游标，没有更多结果时为null */
+    private String nextCursor;
+    /** 结果来自缓存 */
+    private boolean cached;
+    /** 查询超时（timeout）或被取消（cancelled）而提前停止，结果不完整，可以用 nextCursor 继续；完整时为null */
+    private String truncated;
+    /** 执行情况，查询时要求返回才有 */
+    private QueryProfile profile;
+
+    public List<String> getLines() {
+        return lines;
+    }
+
+    public int getFilesMatched() {
+        return filesMatched;
+    }
+
+    public void setFilesMatched(int filesMatched) {
+        this.filesMatched = filesMatched;
+    }
+
+    public int getFilesPruned() {
+        return filesPruned;
+    }
+
+    public void setFilesPruned(int filesPruned) {
+        this.filesPruned = filesPruned;
+    }
+
+    public int getFilesKeywordPruned() {
+        return filesKeywordPruned;
+    }
+
+    public void setFilesKeywordPruned(int filesKeywordPruned) {
+        this.filesKeywordPruned = filesKeywordPruned;
+    }
+
+    public int getFilesScanned() {
+        return filesScanned;
+    }
+
+    public void setFilesScanned(int filesScanned) {
+        this.filesScanned = filesScanned;
+    }
+
+    public long getLinesScanned() {
+        return linesScanned;
+    }
+
+    public void setLinesScanned(long linesScanned) {
+        this.linesScanned = linesScanned;
+    }
+
+    public long getBytesScanned() {
+        return bytesScanned;
+    }
+
+    public void setBytesScanned(long bytesScanned) {
+        this.bytesScanned = bytesScanned;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isCached() {
+        return cached;
+    }
+
+    public void setCached(boolean cached) {
+        this.cached = cached;
+    }
+
+    public String getTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(String truncated) {
+        this.truncated = truncated;
+    }
+
+    public QueryProfile getProfile() {
+        return profile;
+    }
+
+    public void setProfile(QueryProfile profile) {
+        this.profile = profile;
+    }
+}
@@ -0,0 +1,183 @@
+package log.tsuperman.com.logplatform.search;
+
+import log.tsuperman.com.logplatform.config.LogPlatformProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 大文件并行扫描
+ *
+ * 待扫描部分超过 {@link LogPlatformProperties#getParallelScanThreshold()} 时，按带时间戳的行首把文件切成多段
+ * （不会把一条日志和它的堆栈拆到两段里），每段内存映射后在 ForkJoinPool 上各自扫描，再按文件顺序、按日志单元合并，
+ * 结果与顺序扫描相同。较小的文件直接顺序扫描。
+ *
+ * Windows 下被映射的文件在映射释放前不能重命名，会妨碍日志轮转，所以 Windows 上各段改用普通的定位读取。
+ */
+@Component
+public class ParallelFileScanner {
+
+    private static final long MIN_SEGMENT_SIZE = 16L * 1024 * 1024;
+
+    /** 单次映射不能超过 2GB */
+    private static final long MAX_MAPPED_SIZE = Integer.MAX_VALUE;
+
+    private static final boolean USE_MMAP = !System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+
+    @Autowired
+    private LogPlatformProperties properties;
+
+    private ForkJoinPool pool;
+
+    private long minSegmentSize = MIN_SEGMENT_SIZE;
+
+    public ParallelFileScanner() {
+    }
+
+    ParallelFileScanner(LogPlatformProperties properties, long minSegmentSize) {
+        this.properties = properties;
+        this.minSegmentSize = minSegmentSize;
+        init();
+    }
+
+    @PostConstruct
+    public void init() {
+        int threads = properties.getScanThreads() > 0 ? properties.getScanThreads() : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * 扫描单个文件，足够大时并行
+     * @param scanner 本次查询的扫描器
+     * @param index 文件的时间索引（可选）
+     */
+    public FileScanResult scan(LogFileScanner scanner, Path file, int maxMatches, SparseTimeIndex index) throws IOException {
+        return scan(scanner, file, maxMatches, index, 0);
+    }
+
+    /**
+     * 从指定位置继续扫描单个文件
+     * @param fromOffset 开始位置，必须是一条日志的行首
+     */
+    public FileScanResult scan(LogFileScanner scanner, Path file, int maxMatches, SparseTimeIndex index, long fromOffset)
+            throws IOException {
+        long size = Files.size(file);
+        long start = scanner.startOffset(index, fromOffset);
+        if (pool.getParallelism() <= 1 || size - start < properties.getParallelScanThreshold()) {
+            return scanner.scanFile(file, maxMatches, index, fromOffset);
+        }
+
+        long stopAfter = scanner.stopAfter(index);
+        long segmentSize = Math.max(minSegmentSize, (size - start) / (pool.getParallelism() * 4L));
+        List<Segment> segments;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            segments = pool.invoke(new SegmentTask(scanner, channel, start, size, segmentSize, maxMatches, stopAfter, index != null));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        // 按文件顺序合并，遇到行数上限或超过结束时间的段即停止，与顺序扫描一致
+        FileScanResult merged = new FileScanResult(start);
+        for (Segment segment : segments) {
+            if (index != null) {
+                index.absorb(segment.index);
+            }
+            if (merged.append(segment.result, maxMatches)) {
+                break;
+            }
+            if (segment.result.isPassedEndTime()) {
+                merged.setPassedEndTime(true);
+                break;
+            }
+        }
+        if (index != null) {
+            index.markCovered(start, merged.getEndOffset());
+        }
+        return merged;
+    }
+
+    private static class Segment {
+        private final FileScanResult result;
+        private final SparseTimeIndex index;
+
+        Segment(FileScanResult result, SparseTimeIndex index) {
+            this.result = result;
+            this.index = index;
+        }
+    }
+
+    /**
+     * 二分切分 [start, end)，切分点对齐到带时间戳的行首
+     */
+    private static class SegmentTask extends RecursiveTask<List<Segment>> {
+        private final LogFileScanner scanner;
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final long segmentSize;
+        private final int maxMatches;
+        private final long stopAfter;
+        private final boolean buildIndex;
+
+        SegmentTask(LogFileScanner scanner, FileChannel channel, long start, long end, long segmentSize,
+                    int maxMatches, long stopAfter, boolean buildIndex) {
+            this.scanner = scanner;
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.segmentSize = segmentSize;
+            this.maxMatches = maxMatches;
+            this.stopAfter = stopAfter;
+            this.buildIndex = buildIndex;
+        }
+
+        @Override
+        protected List<Segment> compute() {
+            try {
+                if (end - start > segmentSize) {
+                    long mid = scanner.nextEventStart(channel, start + (end - start) / 2, end);
+                    if (mid > start && mid < end) {
+                        SegmentTask left = new SegmentTask(scanner, channel, start, mid, segmentSize, maxMatches, stopAfter, buildIndex);
+                        SegmentTask right = new SegmentTask(scanner, channel, mid, end, segmentSize, maxMatches, stopAfter, buildIndex);
+                        left.fork();
+                        List<Segment> rightSegments = right.compute();
+                        List<Segment> segments = new ArrayList<>(left.join());
+                        segments.addAll(rightSegments);
+                        return segments;
+                    }
+                }
+                return Collections.singletonList(scanSegment());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private Segment scanSegment() throws IOException {
+            SparseTimeIndex segmentIndex = buildIndex ? new SparseTimeIndex(null) : null;
+            FileScanResult result = new FileScanResult(start);
+            LogLineReader reader = USE_MMAP && end - start <= MAX_MAPPED_SIZE
+                    ? new LogLineReader(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start), start)
+                    : new LogLineReader(channel, start, end);
+            scanner.scanRange(reader, maxMatches, stopAfter, segmentIndex, 0, result);
+            return new Segment(result, segmentIndex);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package log.tsuperman.com.logplatform.search;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * 分页查询的续查游标
+ *
+ * 记录上一页停在哪个文件的哪个位置：字节偏移总是一条日志的行首（页只在日志单元之间截断），
+ * 事件序号是该文件中已经返回过的匹配日志条数。另外带上查询条件和文件标识的摘要，
+ * 换了查询条件或文件已被轮转替换时拒绝续查，而不是从错误的位置读。
+ *
+ * 对外是不透明的 URL 安全 Base64 字符串。
+ */
+public class QueryCursor {
+
+    private static final String SEPARATOR = "\n";
+
+    private final String fileName;
+    private final long offset;
+    private final int event;
+    private final int fileId;
+    private final int queryId;
+
+    public QueryCursor(String fileName, long offset, int event, int fileId, int queryId) {
+        this.fileName = fileName;
+        this.offset = offset;
+        this.event = event;
+        this.fileId = fileId;
+        this.queryId = queryId;
+    }
+
+    /**
+     * 解析游标字符串
+     * @throws IllegalArgumentException 游标格式不正确，或偏移、事件序号为负数
+     */
+    public static QueryCursor decode(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(SEPARATOR, -1);
+            if (parts.length != 5) {
+                throw new IllegalArgumentException("无效的游标");
+            }
+            QueryCursor decoded = new QueryCursor(parts[0], Long.parseLong(parts[1]), Integer.parseInt(parts[2]),
+                    Integer.parseInt(parts[3]), Integer.parseInt(parts[4]));
+            if (decoded.offset < 0 || decoded.event < 0) {
+                throw new IllegalArgumentException("无效的游标");
+            }
+            return decoded;
+        } catch (IllegalArgumentException e) {
+            // 包括 Base64 和数字格式错误
+            throw new IllegalArgumentException("无效的游标", e);
+        }
+    }
+
+    public String encode() {
+        String raw = fileName + SEPARATOR + offset + SEPARATOR + event + SEPARATOR + fileId + SEPARATOR + queryId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 查询条件摘要（不含游标本身）
+     */
+    public static int queryId(LogQuery query) {
+        return Objects.hash(query.getDate(), query.getKeyword(), query.getStartTime(), query.getEndTime(),
+                query.getFileName(), query.getAppId(), query.getLogType(), query.getFilters());
+    }
+
+    /**
+     * 文件标识摘要，文件被轮转替换后会变化
+     */
+    public static int fileId(Path file) throws IOException {
+        return TimeIndexRegistry.fileKey(Files.readAttributes(file, BasicFileAttributes.class)).hashCode();
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public int getEvent() {
+        return event;
+    }
+
+    public int getFileId() {
+        return fileId;
+    }
+
+    public int getQueryId() {
+        return queryId;
+    }
+}
@@ -0,0 +1,91 @@
+package log.tsuperman.com.logplatform.search;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 日志查询的指标：按应用统计查询耗时、读取的行数和字节数、读取和跳过的文件数，以及结果缓存的命中次数
+ *
+ * 接口本身的耗时由 Actuator 的 http.server.requests 统计（带 app 标签，见 MetricsConfig），
+ * 这里记录的是 {@code LogService} 中检索一次的耗时和工作量，用于区分慢在读文件还是慢在网络。
+ * app 标签只取已配置的应用ID，未指定应用时为 {@link #DEFAULT_APP}，标签值的个数不会超过应用数。
+ */
+@Component
+public class QueryMetrics {
+
+    /** 未指定应用（使用默认日志目录）时的 app 标签值 */
+    public static final String DEFAULT_APP = "default";
+
+    /** 分页查询 */
+    public static final String MODE_PAGE = "page";
+    /** 流式查询 */
+    public static final String MODE_STREAM = "stream";
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private QueryResultCache queryResultCache;
+
+    public QueryMetrics() {
+    }
+
+    QueryMetrics(MeterRegistry registry, QueryResultCache queryResultCache) {
+        this.registry = registry;
+        this.queryResultCache = queryResultCache;
+        init();
+    }
+
+    @PostConstruct
+    public void init() {
+        FunctionCounter.builder("logplatform.query.cache.requests", queryResultCache, QueryResultCache::getHits)
+                .description("历史日期查询结果缓存的查找次数")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("logplatform.query.cache.requests", queryResultCache, QueryResultCache::getMisses)
+                .description("历史日期查询结果缓存的查找次数")
+                .tag("result", "miss")
+                .register(registry);
+    }
+
+    /**
+     * 记录一次检索
+     * @param app 应用ID，未指定应用时为 {@link #DEFAULT_APP}
+     * @param mode {@link #MODE_PAGE} 或 {@link #MODE_STREAM}
+     * @param elapsedNanos 检索耗时
+     */
+    public void record(String app, String mode, LogQueryResult result, long elapsedNanos) {
+        Timer.builder("logplatform.query.duration")
+                .description("检索一次日志的耗时")
+                .tag("app", app)
+                .tag("mode", mode)
+                .register(registry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        counter("logplatform.query.bytes.scanned", "bytes", app).increment(result.getBytesScanned());
+        counter("logplatform.query.lines.scanned", "lines", app).increment(result.getLinesScanned());
+        counter("logplatform.query.files.opened", "files", app).increment(result.getFilesScanned());
+        Counter.builder("logplatform.query.files.pruned")
+                .baseUnit("files")
+                .tag("app", app)
+                .tag("reason", "time")
+                .register(registry)
+                .increment(result.getFilesPruned());
+        Counter.builder("logplatform.query.files.pruned")
+                .baseUnit("files")
+                .tag("app", app)
+                .tag("reason", "keyword")
+                .register(registry)
+                .increment(result.getFilesKeywordPruned());
+    }
+
+    private Counter counter(String name, String baseUnit, String app) {
+        return Counter.builder(name).baseUnit(baseUnit).tag("app", app).register(registry);
+    }
+}
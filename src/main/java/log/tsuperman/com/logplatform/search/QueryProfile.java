@@ -0,0 +1,247 @@
+package log.tsuperman.com.logplatform.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一次查询的执行情况，用于分析查询为什么慢
+ *
+ * 记录列出文件、读取文件、匹配各用了多少时间，每个文件是被跳过还是被读取、用没用索引、读了多少、匹配了多少行。
+ * explain 模式只生成计划：判断每个文件会不会被跳过、估算要读取的字节数，不读取文件内容。
+ * 读取和匹配的用时是各文件（并行扫描时各段）用时之和，并发时会大于 {@link #getScanMillis()}。
+ */
+public class QueryProfile {
+
+    /** 结果缓存：命中 */
+    public static final String CACHE_HIT = "hit";
+    /** 结果缓存：未命中 */
+    public static final String CACHE_MISS = "miss";
+    /** 结果缓存：当天的查询或 explain，不查缓存 */
+    public static final String CACHE_BYPASS = "bypass";
+
+    /** 只生成计划，没有读取文件内容 */
+    private boolean explain;
+    /** 历史日期查询结果缓存的使用情况：hit/miss/bypass */
+    private String resultCache = CACHE_BYPASS;
+    /** 同时检索的文件数 */
+    private int parallelism;
+    /** 查找并排序匹配文件、解析游标的用时 */
+    private long listingMillis;
+    /** 检索所有文件的总用时 */
+    private long scanMillis;
+    /** 从文件读取数据的累计用时 */
+    private long ioNanos;
+    /** 解析时间戳、匹配关键字和字段的累计用时 */
+    private long matchNanos;
+    /** 实际读取的字节数和行数；explain 模式下为估算的字节数，行数为0 */
+    private long bytesScanned;
+    private long linesScanned;
+    private final List<FileProfile> files = new ArrayList<>();
+
+    /**
+     * 记录一个文件的扫描结果，累加读取量和用时
+     */
+    public void addScan(FileProfile file, FileScanResult scan, int matches) {
+        file.setAction(FileProfile.SCANNED);
+        file.setMatches(matches);
+        file.setLinesScanned(scan.getLinesScanned());
+        file.setBytesScanned(scan.getBytesScanned());
+        file.setIoMillis(nanosToMillis(scan.getReadNanos()));
+        file.setMatchMillis(nanosToMillis(scan.getScanNanos() - scan.getReadNanos()));
+        linesScanned += scan.getLinesScanned();
+        bytesScanned += scan.getBytesScanned();
+        ioNanos += scan.getReadNanos();
+        matchNanos += scan.getScanNanos() - scan.getReadNanos();
+    }
+
+    public static long nanosToMillis(long nanos) {
+        return Math.max(0, nanos) / 1_000_000;
+    }
+
+    // getter和setter方法
+    public boolean isExplain() {
+        return explain;
+    }
+
+    public void setExplain(boolean explain) {
+        this.explain = explain;
+    }
+
+    public String getResultCache() {
+        return resultCache;
+    }
+
+    public void setResultCache(String resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public long getListingMillis() {
+        return listingMillis;
+    }
+
+    public void setListingMillis(long listingMillis) {
+        this.listingMillis = listingMillis;
+    }
+
+    public long getScanMillis() {
+        return scanMillis;
+    }
+
+    public void setScanMillis(long scanMillis) {
+        this.scanMillis = scanMillis;
+    }
+
+    public long getIoMillis() {
+        return nanosToMillis(ioNanos);
+    }
+
+    public long getMatchMillis() {
+        return nanosToMillis(matchNanos);
+    }
+
+    public long getBytesScanned() {
+        return bytesScanned;
+    }
+
+    public void setBytesScanned(long bytesScanned) {
+        this.bytesScanned = bytesScanned;
+    }
+
+    public long getLinesScanned() {
+        return linesScanned;
+    }
+
+    /**
+     * 匹配到的所有文件，按读取顺序
+     */
+    public List<FileProfile> getFiles() {
+        return files;
+    }
+
+    /**
+     * 单个文件的执行情况
+     */
+    public static class FileProfile {
+        /** 不需要读取：在游标之前，或本页已满 */
+        public static final String SKIPPED = "skipped";
+        /** 文件时间范围与查询时间段不重叠 */
+        public static final String TIME_PRUNED = "time-pruned";
+        /** 布隆过滤器判断一定不包含关键字 */
+        public static final String KEYWORD_PRUNED = "keyword-pruned";
+        /** 读取了内容 */
+        public static final String SCANNED = "scanned";
+        /** explain 模式：将会读取 */
+        public static final String WILL_SCAN = "will-scan";
+        /** 读取失败 */
+        public static final String FAILED = "failed";
+
+        private String name;
+        private long size;
+        /** 不再变化的轮转文件 */
+        private boolean sealed;
+        private String action = SKIPPED;
+        /** 借助时间索引跳到了开始时间附近 */
+        private boolean timeIndexUsed;
+        /** 只读取了三元组索引给出的候选区间 */
+        private boolean trigramIndexUsed;
+        /** 从这个文件返回的行数 */
+        private int matches;
+        private long linesScanned;
+        /** 实际读取的字节数；explain 模式下为估算值 */
+        private long bytesScanned;
+        private long ioMillis;
+        private long matchMillis;
+
+        public FileProfile() {}
+
+        public FileProfile(String name, long size, boolean sealed) {
+            this.name = name;
+            this.size = size;
+            this.sealed = sealed;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public boolean isSealed() {
+            return sealed;
+        }
+
+        public String getAction() {
+            return action;
+        }
+
+        public void setAction(String action) {
+            this.action = action;
+        }
+
+        public boolean isTimeIndexUsed() {
+            return timeIndexUsed;
+        }
+
+        public void setTimeIndexUsed(boolean timeIndexUsed) {
+            this.timeIndexUsed = timeIndexUsed;
+        }
+
+        public boolean isTrigramIndexUsed() {
+            return trigramIndexUsed;
+        }
+
+        public void setTrigramIndexUsed(boolean trigramIndexUsed) {
+            this.trigramIndexUsed = trigramIndexUsed;
+        }
+
+        public int getMatches() {
+            return matches;
+        }
+
+        public void setMatches(int matches) {
+            this.matches = matches;
+        }
+
+        public long getLinesScanned() {
+            return linesScanned;
+        }
+
+        public void setLinesScanned(long linesScanned) {
+            this.linesScanned = linesScanned;
+        }
+
+        public long getBytesScanned() {
+            return bytesScanned;
+        }
+
+        public void setBytesScanned(long bytesScanned) {
+            this.bytesScanned = bytesScanned;
+        }
+
+        public long getIoMillis() {
+            return ioMillis;
+        }
+
+        public void setIoMillis(long ioMillis) {
+            this.ioMillis = ioMillis;
+        }
+
+        public long getMatchMillis() {
+            return matchMillis;
+        }
+
+        public void setMatchMillis(long matchMillis) {
+            this.matchMillis = matchMillis;
+        }
+    }
+}
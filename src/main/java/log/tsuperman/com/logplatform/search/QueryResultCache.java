@@ -0,0 +1,184 @@
+package log.tsuperman.com.logplatform.search;
+
+import log.tsuperman.com.logplatform.config.LogPlatformProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 历史日期查询结果缓存
+ *
+ * 轮转后的历史文件不会再变化，复盘时同一个查询会反复执行。以查询条件加上所有匹配文件的 (文件名, 大小, 修改时间)
+ * 作为键缓存整页结果，文件被替换或删除时键随之变化，旧条目按 LRU 被淘汰。
+ * 按估算的内存字节数限制总大小，超过上限时淘汰最久未使用的条目；单个结果超过上限的1/4时不缓存。
+ * 当天的查询包含仍在写入的活跃文件，不经过这里（增量扫描只读新追加的部分）。
+ */
+@Component
+public class QueryResultCache {
+
+    /** 每个条目、每行的额外开销估算 */
+    private static final int ENTRY_OVERHEAD = 256;
+    private static final int LINE_OVERHEAD = 56;
+
+    @Autowired
+    private LogPlatformProperties properties;
+
+    private LinkedHashMap<String, Entry> entries;
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public QueryResultCache() {
+    }
+
+    QueryResultCache(LogPlatformProperties properties) {
+        this.properties = properties;
+        init();
+    }
+
+    @PostConstruct
+    public void init() {
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * 缓存键：查询条件及所有匹配文件的指纹
+     */
+    public static String key(LogQuery query, File[] files) {
+        StringBuilder key = new StringBuilder(128 + files.length * 48);
+        key.append(query.getDate()).append('\u0000')
+                .append(query.getKeyword()).append('\u0000')
+                .append(query.getStartTime()).append('\u0000')
+                .append(query.getEndTime()).append('\u0000')
+                .append(query.getFileName()).append('\u0000')
+                .append(query.getAppId()).append('\u0000')
+                .append(query.getLogType()).append('\u0000')
+                .append(query.getCursor()).append('\u0000')
+                .append(query.getPageSize()).append('\u0000')
+                .append(query.getFilters());
+        for (File file : files) {
+            key.append('\u0000').append(file.getAbsolutePath())
+                    .append(':').append(file.length())
+                    .append(':').append(file.lastModified());
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return 缓存结果的副本，未命中时返回null
+     */
+    public LogQueryResult get(String key) {
+        if (properties.getResultCacheBytes() <= 0) {
+            return null;
+        }
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.copy();
+    }
+
+    public void put(String key, LogQueryResult result) {
+        long maxBytes = properties.getResultCacheBytes();
+        if (maxBytes <= 0) {
+            return;
+        }
+        Entry entry = new Entry(result, key);
+        if (entry.bytes > maxBytes / 4) {
+            return;
+        }
+        synchronized (this) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                totalBytes -= previous.bytes;
+            }
+            totalBytes += entry.bytes;
+            Iterator<Entry> it = entries.values().iterator();
+            while (totalBytes > maxBytes && it.hasNext()) {
+                totalBytes -= it.next().bytes;
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    /**
+     * 命中、未命中、淘汰次数及当前条目数和占用字节数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        synchronized (this) {
+            stats.put("entries", entries.size());
+            stats.put("bytes", totalBytes);
+        }
+        stats.put("maxBytes", properties.getResultCacheBytes());
+        return stats;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private static class Entry {
+        private final List<String> lines;
+        private final int filesMatched;
+        private final int filesPruned;
+        private final int filesKeywordPruned;
+        private final int filesScanned;
+        private final String nextCursor;
+        private final long bytes;
+
+        Entry(LogQueryResult result, String key) {
+            this.lines = new ArrayList<>(result.getLines());
+            this.filesMatched = result.getFilesMatched();
+            this.filesPruned = result.getFilesPruned();
+            this.filesKeywordPruned = result.getFilesKeywordPruned();
+            this.filesScanned = result.getFilesScanned();
+            this.nextCursor = result.getNextCursor();
+            long size = ENTRY_OVERHEAD + key.length() * 2L + (nextCursor != null ? nextCursor.length() * 2L : 0);
+            for (String line : lines) {
+                size += LINE_OVERHEAD + line.length() * 2L;
+            }
+            this.bytes = size;
+        }
+
+        LogQueryResult copy() {
+            LogQueryResult result = new LogQueryResult();
+            result.getLines().addAll(lines);
+            result.setFilesMatched(filesMatched);
+            result.setFilesPruned(filesPruned);
+            result.setFilesKeywordPruned(filesKeywordPruned);
+            result.setFilesScanned(filesScanned);
+            result.setNextCursor(nextCursor);
+            result.setCached(true);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package log.tsuperman.com.logplatform.search;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 把输出交给另一个线程发送的输出端，实时跟踪的读取线程不会因为某个客户端发送缓慢而阻塞
+ *
+ * 每次 flush 把本轮的行作为一批放入有界队列（空的一批即心跳），由 executor 中的线程依次交给被包装的输出端。
+ * 队列满时说明客户端跟不上，关闭该输出端：之后的 accept/flush 抛出 {@link UncheckedIOException}，订阅随之取消，
+ * 被包装的输出端的 {@link LineSink#close()} 在发送线程中调用。发送失败同样关闭。
+ */
+public class QueuedLineSink implements LineSink {
+
+    private final LineSink target;
+    private final Executor executor;
+    private final int capacity;
+    private final BlockingQueue<List<String>> queue;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    /** 只在读取线程中访问 */
+    private List<String> batch = new ArrayList<>();
+
+    /**
+     * @param target 被包装的输出端，只在发送线程中调用
+     * @param capacity 最多积压的批数
+     */
+    public QueuedLineSink(LineSink target, Executor executor, int capacity) {
+        this.target = target;
+        this.executor = executor;
+        this.capacity = capacity;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public void accept(String line) {
+        ensureOpen();
+        batch.add(line);
+    }
+
+    @Override
+    public void flush() {
+        ensureOpen();
+        if (!queue.offer(batch)) {
+            close();
+            throw new UncheckedIOException(new IOException("客户端接收过慢，积压超过 " + capacity + " 批"));
+        }
+        batch = new ArrayList<>();
+        if (draining.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * 停止发送，丢弃积压的内容，在发送线程中关闭被包装的输出端
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            queue.clear();
+            if (draining.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    private void ensureOpen() {
+        if (closed.get()) {
+            throw new UncheckedIOException(new IOException("输出端已关闭"));
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            List<String> lines;
+            while (!closed.get() && (lines = queue.poll()) != null) {
+                try {
+                    for (String line : lines) {
+                        target.accept(line);
+                    }
+                    target.flush();
+                } catch (RuntimeException e) {
+                    closed.set(true);
+                    queue.clear();
+                }
+            }
+            if (closed.get()) {
+                // 关闭由 close() 或发送失败触发，draining 不再复位，被包装的输出端只关闭一次
+                target.close();
+                return;
+            }
+            draining.set(false);
+            // 复位之前放入的一批可能没有被取到，或者期间被关闭了
+            if ((queue.isEmpty() && !closed.get()) || !draining.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+}
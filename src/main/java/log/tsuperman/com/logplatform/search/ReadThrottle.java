@@ -0,0 +1,70 @@
+package log.tsuperman.com.logplatform.search;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * 后台读取的限速器
+ *
+ * 按令牌桶限制每秒读取的字节数（最多积攒1秒的额度），另外在 yieldWhile 为true（有查询正在读文件）时暂停，
+ * 让后台建立索引不与实时查询争抢磁盘和 CPU。多个后台线程共用一个限速器时共享同一份额度。
+ */
+public class ReadThrottle {
+
+    /** 有查询时每次暂停的时长 */
+    private static final long YIELD_MILLIS = 50;
+
+    private final long bytesPerSecond;
+    private final BooleanSupplier yieldWhile;
+
+    private double available;
+    private long lastRefill = System.nanoTime();
+
+    /** 因限速或让路而等待的总时长 */
+    private volatile long waitedNanos;
+    private volatile long bytesRead;
+
+    /**
+     * @param bytesPerSecond 每秒最多读取的字节数，不大于0时不限速
+     * @param yieldWhile 为true时暂停读取（可以为null）
+     */
+    public ReadThrottle(long bytesPerSecond, BooleanSupplier yieldWhile) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.yieldWhile = yieldWhile;
+        this.available = bytesPerSecond;
+    }
+
+    /**
+     * 读取了 bytes 字节，必要时阻塞到额度足够
+     */
+    public void acquire(int bytes) throws InterruptedException {
+        long start = System.nanoTime();
+        while (yieldWhile != null && yieldWhile.getAsBoolean()) {
+            Thread.sleep(YIELD_MILLIS);
+        }
+        if (bytesPerSecond > 0) {
+            long sleepNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                available = Math.min(bytesPerSecond, available + (now - lastRefill) * bytesPerSecond / 1e9);
+                lastRefill = now;
+                available -= bytes;
+                sleepNanos = available < 0 ? (long) (-available * 1e9 / bytesPerSecond) : 0;
+            }
+            if (sleepNanos > 0) {
+                Thread.sleep(sleepNanos / 1000000, (int) (sleepNanos % 1000000));
+            }
+        }
+        synchronized (this) {
+            bytesRead += bytes;
+            waitedNanos += System.nanoTime() - start;
+        }
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getWaitedMillis() {
+        return waitedNanos / 1000000;
+    }
+}
@@ -0,0 +1,49 @@
+package log.tsuperman.com.logplatform.search;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 正在执行的查询，按页面给出的请求标识登记
+ *
+ * 客户端关闭连接时 Servlet 容器在写响应之前感知不到，查询会一直读到结束。页面为每次查询带上请求标识，
+ * 发起新的查询时同一标识下还在执行的查询被取消，关闭页面时调用取消接口（navigator.sendBeacon）。
+ */
+@Component
+public class RunningQueries {
+
+    private final ConcurrentHashMap<String, CancellationToken> queries = new ConcurrentHashMap<>();
+
+    /**
+     * 登记查询，同一标识下还在执行的查询被取消
+     * @return 查询结束时调用，注销登记
+     */
+    public Runnable register(String requestId, CancellationToken cancellation) {
+        CancellationToken previous = queries.put(requestId, cancellation);
+        if (previous != null) {
+            previous.cancel();
+        }
+        return () -> queries.remove(requestId, cancellation);
+    }
+
+    /**
+     * 取消查询
+     * @return 该标识下有正在执行的查询
+     */
+    public boolean cancel(String requestId) {
+        CancellationToken cancellation = queries.remove(requestId);
+        if (cancellation == null) {
+            return false;
+        }
+        cancellation.cancel();
+        return true;
+    }
+
+    /**
+     * 正在执行的已登记查询数
+     */
+    public int size() {
+        return queries.size();
+    }
+}
@@ -0,0 +1,314 @@
+package log.tsuperman.com.logplatform.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 历史文件的持久化索引（布隆过滤器、三元组索引）的存取，供各索引的 Registry 共用
+ *
+ * 索引保存在 dir/文件名-完整路径的哈希.扩展名，重启后直接加载；索引记录了建立时文件的大小和修改时间，不一致时视为没有索引。
+ * 查询第一次遇到没有索引的文件时安排在单独的低优先级线程中建立。
+ * 内存中按各索引估算的字节数做 LRU，超过上限时淘汰最久未使用的；单个索引超过上限时不留在内存中。
+ * 磁盘上没有或已过期的索引记住当时文件的大小和修改时间，文件不变时不再重复读取。
+ * 日志文件被清理后留下的索引由 {@link #pruneOrphans(Path)} 删除。
+ */
+class SidecarIndexStore<T extends SidecarIndexStore.Index> {
+
+    private static final Logger log = LoggerFactory.getLogger(SidecarIndexStore.class);
+
+    /**
+     * 可以持久化的索引
+     */
+    interface Index {
+        /** 是否对应指定大小和修改时间的文件 */
+        boolean isValidFor(long size, long modified);
+
+        /** 在内存中占用的字节数 */
+        long sizeInBytes();
+
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * 索引的建立和读取
+     */
+    interface Codec<T> {
+        T build(Path file, long size, long modified, ReadThrottle throttle) throws IOException;
+
+        /**
+         * @throws IOException 格式不正确
+         */
+        T read(DataInputStream in) throws IOException;
+
+        /** 保存的索引是否对应指定大小和修改时间的文件，只读取文件头 */
+        boolean headerMatches(DataInputStream in, long size, long modified) throws IOException;
+    }
+
+    /** 日志中的名称，如“布隆过滤器” */
+    private final String name;
+    private final Path dir;
+    private final String extension;
+    private final long maxBytes;
+    private final Codec<T> codec;
+
+    private final LinkedHashMap<String, T> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    /** 磁盘上没有有效索引的文件，值为检查时文件的大小和修改时间 */
+    private final Map<String, long[]> missing = new ConcurrentHashMap<>();
+
+    /** 正在后台建立的文件 */
+    private final Set<String> building = ConcurrentHashMap.newKeySet();
+    private final ExecutorService builder;
+
+    /**
+     * @param dir 保存索引的目录
+     * @param extension 索引文件的扩展名
+     * @param maxBytes 内存中保留的索引的总字节数
+     */
+    SidecarIndexStore(String name, String threadName, Path dir, String extension, long maxBytes, Codec<T> codec) {
+        this.name = name;
+        this.dir = dir;
+        this.extension = extension;
+        this.maxBytes = maxBytes;
+        this.codec = codec;
+        this.builder = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, threadName);
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    void shutdown() {
+        builder.shutdownNow();
+    }
+
+    /**
+     * 文件的有效索引（内存或磁盘），没有时返回null
+     */
+    T find(Path file) throws IOException {
+        return find(file, Files.readAttributes(file, BasicFileAttributes.class));
+    }
+
+    /**
+     * 磁盘上是否已有有效的索引，只读取文件头而不加载（后台建立索引时检查是否需要建立）
+     */
+    boolean isStored(Path file) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        Path stored = storedPath(file);
+        if (!Files.isRegularFile(stored)) {
+            return false;
+        }
+        try (InputStream in = Files.newInputStream(stored)) {
+            return codec.headerMatches(new DataInputStream(new BufferedInputStream(in, 64)),
+                    attrs.size(), attrs.lastModifiedTime().toMillis());
+        }
+    }
+
+    /**
+     * 建立索引并保存，已有有效的索引时跳过
+     * @param throttle 读取文件的限速器（可以为null）
+     */
+    void build(Path file, ReadThrottle throttle) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        if (find(file, attrs) != null) {
+            return;
+        }
+        T index = codec.build(file, attrs.size(), attrs.lastModifiedTime().toMillis(), throttle);
+        // 先保存再放入内存，isStored 为true时磁盘上已经有了
+        save(file, index);
+        cache(key(file), index);
+    }
+
+    /**
+     * 在后台线程中建立索引，同一文件已在排队时跳过
+     */
+    void scheduleBuild(Path file, ReadThrottle throttle) {
+        String key = key(file);
+        if (!building.add(key)) {
+            return;
+        }
+        try {
+            builder.execute(() -> {
+                try {
+                    build(file, throttle);
+                } catch (IOException e) {
+                    log.warn("建立{}失败: {}, 错误: {}", name, file, e.getMessage());
+                } finally {
+                    building.remove(key);
+                }
+            });
+        } catch (RuntimeException e) {
+            // 已关闭
+            building.remove(key);
+        }
+    }
+
+    /**
+     * 删除 logDir 中已不存在的日志文件的索引（日志按保留期清理后留下的）
+     *
+     * 索引文件名中的哈希与 logDir 下同名文件的路径一致时才认为属于该目录，其他目录的同名日志不受影响。
+     * @return 删除的索引个数
+     */
+    int pruneOrphans(Path logDir) throws IOException {
+        Path parent = logDir.toAbsolutePath().normalize();
+        missing.keySet().removeIf(key -> {
+            Path file = Paths.get(key);
+            return parent.equals(file.getParent()) && !Files.exists(file);
+        });
+        if (!Files.isDirectory(dir)) {
+            return 0;
+        }
+        List<Path> orphans = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + extension)) {
+            for (Path stored : stream) {
+                String name = stored.getFileName().toString();
+                int dash = name.lastIndexOf('-');
+                if (dash <= 0) {
+                    continue;
+                }
+                Path file = logDir.resolve(name.substring(0, dash));
+                if (storedPath(file).getFileName().toString().equals(name) && !Files.exists(file)) {
+                    orphans.add(file);
+                }
+            }
+        }
+        for (Path file : orphans) {
+            String key = key(file);
+            missing.remove(key);
+            synchronized (this) {
+                T index = cache.remove(key);
+                if (index != null) {
+                    cachedBytes -= index.sizeInBytes();
+                }
+            }
+            Files.deleteIfExists(storedPath(file));
+        }
+        return orphans.size();
+    }
+
+    /**
+     * 内存中的索引个数和占用的字节数
+     */
+    synchronized int cachedCount() {
+        return cache.size();
+    }
+
+    synchronized long cachedBytes() {
+        return cachedBytes;
+    }
+
+    private T find(Path file, BasicFileAttributes attrs) {
+        long size = attrs.size();
+        long modified = attrs.lastModifiedTime().toMillis();
+        String key = key(file);
+        T index;
+        synchronized (this) {
+            index = cache.get(key);
+            if (index != null && !index.isValidFor(size, modified)) {
+                // 文件已变化，不再占用内存
+                cache.remove(key);
+                cachedBytes -= index.sizeInBytes();
+                index = null;
+            }
+        }
+        if (index != null) {
+            return index;
+        }
+        long[] checked = missing.get(key);
+        if (checked != null && checked[0] == size && checked[1] == modified) {
+            return null;
+        }
+        index = load(file);
+        if (index != null && index.isValidFor(size, modified)) {
+            cache(key, index);
+            return index;
+        }
+        missing.put(key, new long[]{size, modified});
+        return null;
+    }
+
+    private synchronized void cache(String key, T index) {
+        missing.remove(key);
+        long bytes = index.sizeInBytes();
+        T previous = cache.remove(key);
+        if (previous != null) {
+            cachedBytes -= previous.sizeInBytes();
+        }
+        if (bytes > maxBytes) {
+            return;
+        }
+        cache.put(key, index);
+        cachedBytes += bytes;
+        Iterator<T> it = cache.values().iterator();
+        while (cachedBytes > maxBytes && it.hasNext()) {
+            cachedBytes -= it.next().sizeInBytes();
+            it.remove();
+        }
+    }
+
+    private T load(Path file) {
+        Path stored = storedPath(file);
+        if (!Files.isRegularFile(stored)) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(stored)) {
+            return codec.read(new DataInputStream(new BufferedInputStream(in)));
+        } catch (IOException e) {
+            log.warn("读取{}失败: {}, 错误: {}", name, stored, e.getMessage());
+            return null;
+        }
+    }
+
+    private void save(Path file, T index) {
+        Path stored = storedPath(file);
+        try {
+            Files.createDirectories(stored.getParent());
+            // 先写临时文件再改名，读取时不会读到写了一半的文件
+            Path temp = stored.resolveSibling(stored.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+                index.writeTo(data);
+                data.flush();
+            }
+            Files.move(temp, stored, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("保存{}失败: {}, 错误: {}", name, stored, e.getMessage());
+        }
+    }
+
+    /**
+     * 保存位置：dir/文件名-完整路径的哈希.扩展名
+     */
+    private Path storedPath(Path file) {
+        return dir.resolve(file.getFileName() + "-" + Integer.toHexString(key(file).hashCode()) + extension);
+    }
+
+    private static String key(Path file) {
+        return file.toAbsolutePath().normalize().toString();
+    }
+}
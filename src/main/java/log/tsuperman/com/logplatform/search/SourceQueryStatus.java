@@ -0,0 +1,78 @@
+package log.tsuperman.com.logplatform.search;
+
+/**
+ * 跨服务器查询中单个来源（服务器上的一个应用）的执行情况
+ */
+public class SourceQueryStatus {
+    public static final String OK = "ok";
+    /** 成功，但只返回了部分结果：远程一页没有取完（还有下一页），或 traceId 索引还没有覆盖所有文件 */
+    public static final String PARTIAL = "partial";
+    public static final String TIMEOUT = "timeout";
+    public static final String ERROR = "error";
+
+    private String serverId;
+    private String appId;
+    /** ok/partial/timeout/error */
+    private String status;
+    /** 返回的行数 */
+    private int lines;
+    private long elapsedMillis;
+    /** 失败原因 */
+    private String message;
+
+    public SourceQueryStatus() {}
+
+    public SourceQueryStatus(String serverId, String appId) {
+        this.serverId = serverId;
+        this.appId = appId;
+    }
+
+    // getter和setter方法
+    public String getServerId() {
+        return serverId;
+    }
+
+    public void setServerId(String serverId) {
+        this.serverId = serverId;
+    }
+
+    public String getAppId() {
+        return appId;
+    }
+
+    public void setAppId(String appId) {
+        this.appId = appId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getLines() {
+        return lines;
+    }
+
+    public void setLines(int lines) {
+        this.lines = lines;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
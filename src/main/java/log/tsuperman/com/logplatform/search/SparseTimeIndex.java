@@ -0,0 +1,155 @@
+package log.tsuperman.com.logplatform.search;
+
+import java.util.Arrays;
+
+/**
+ * 单个日志文件的稀疏时间索引
+ *
+ * 每隔 {@link #BLOCK_SIZE} 字节或者每换一分钟记录一条 (时间戳, 字节偏移)，偏移总是指向一条带时间戳日志的行首，
+ * 所以从索引位置开始读不会把堆栈跟踪拆开。索引在扫描文件时顺带建立，文件增长后由后续扫描继续追加。
+ *
+ * 只有当已记录的时间戳单调递增（允许 {@link #TOLERANCE_SECONDS} 的乱序）且都在同一天时，
+ * 才允许按 startTime 跳转以及在超过 endTime 后提前结束扫描。
+ */
+public class SparseTimeIndex {
+
+    public static final int BLOCK_SIZE = 1024 * 1024;
+
+    /**
+     * 多线程写日志时时间戳可能轻微乱序，跳转和提前结束都留出这段余量
+     */
+    public static final int TOLERANCE_SECONDS = 60;
+
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final Object fileKey;
+
+    private long[] offsets = new long[16];
+    private long[] times = new long[16];
+    private int size;
+    /** 已经完整扫描过的区间 [0, coveredUpTo) */
+    private long coveredUpTo;
+    /** 已经检查过时间顺序的最大行首偏移 */
+    private long observedUpTo = -1;
+    private long maxTime = Long.MIN_VALUE;
+    private boolean ordered = true;
+
+    public SparseTimeIndex(Object fileKey) {
+        this.fileKey = fileKey;
+    }
+
+    /**
+     * 文件没有被截断或替换（轮转后同名新建）时索引仍然有效
+     */
+    public synchronized boolean isValidFor(Object currentKey, long currentSize) {
+        return (fileKey == null ? currentKey == null : fileKey.equals(currentKey)) && currentSize >= coveredUpTo;
+    }
+
+    /**
+     * 索引可以用于跳转和提前结束
+     */
+    public synchronized boolean isUsable() {
+        return ordered && size > 0 && times[0] / SECONDS_PER_DAY == times[size - 1] / SECONDS_PER_DAY;
+    }
+
+    /**
+     * 已检查过的行时间顺序正常（允许少量乱序）
+     */
+    public synchronized boolean isOrdered() {
+        return ordered;
+    }
+
+    /**
+     * 索引所在那一天 00:00:00 对应的秒数
+     */
+    public synchronized long dayStart() {
+        return size == 0 ? 0 : times[0] - Math.floorMod(times[0], SECONDS_PER_DAY);
+    }
+
+    public synchronized long coveredUpTo() {
+        return coveredUpTo;
+    }
+
+    /**
+     * 找到开始扫描的位置：最后一个时间早于 startSecondOfDay（减去余量）的索引点
+     * @param startSecondOfDay 一天中的秒数
+     * @return 字节偏移，没有合适的索引点时返回0
+     */
+    public synchronized long seekOffset(int startSecondOfDay) {
+        if (!isUsable()) {
+            return 0;
+        }
+        long target = dayStart() + startSecondOfDay - TOLERANCE_SECONDS;
+        int lo = 0, hi = size - 1, found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] < target) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found < 0 ? 0 : offsets[found];
+    }
+
+    /**
+     * 扫描过程中对每一条带时间戳的行调用，按块或按分钟追加索引点并检查时间顺序
+     * @param offset 行首偏移
+     * @param epochSecond 日志时间（按本地时间换算的秒数）
+     */
+    public synchronized void observe(long offset, long epochSecond) {
+        // 并发扫描同一文件时，落后的一方看到的行已经检查过
+        if (offset <= observedUpTo) {
+            return;
+        }
+        observedUpTo = offset;
+        if (maxTime != Long.MIN_VALUE && epochSecond < maxTime - TOLERANCE_SECONDS) {
+            ordered = false;
+        }
+        maxTime = Math.max(maxTime, epochSecond);
+
+        if (size > 0) {
+            long lastOffset = offsets[size - 1];
+            if (offset - lastOffset < BLOCK_SIZE && epochSecond / 60 == times[size - 1] / 60) {
+                return;
+            }
+        }
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+            times = Arrays.copyOf(times, size * 2);
+        }
+        offsets[size] = offset;
+        times[size] = epochSecond;
+        size++;
+    }
+
+    /**
+     * 并行扫描时每一段先记录到自己的临时索引，结束后按文件顺序合并进来
+     */
+    public synchronized void absorb(SparseTimeIndex segment) {
+        synchronized (segment) {
+            if (!segment.ordered) {
+                ordered = false;
+            }
+            for (int i = 0; i < segment.size; i++) {
+                observe(segment.offsets[i], segment.times[i]);
+            }
+        }
+    }
+
+    /**
+     * 一次连续扫描结束后调用，只有和已覆盖区间相连时才扩展覆盖范围
+     * @param scannedFrom 扫描开始的位置
+     * @param scannedUpTo 扫描停止的位置
+     */
+    public synchronized void markCovered(long scannedFrom, long scannedUpTo) {
+        if (scannedFrom <= coveredUpTo) {
+            coveredUpTo = Math.max(coveredUpTo, scannedUpTo);
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,57 @@
+package log.tsuperman.com.logplatform.search;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 实时跟踪的订阅者，各自带关键字过滤
+ *
+ * 跟踪没有时间段，相当于查询全天：每一行（包括堆栈等后续行）只按关键字过滤，与 /query 的结果一致。
+ */
+public class TailSubscriber {
+
+    private final KeywordMatcher keywordMatcher;
+    private final LineSink sink;
+    /** 本轮匹配、尚未发送的行数 */
+    private int pending;
+    private volatile long lastSent = System.currentTimeMillis();
+
+    /**
+     * @param keyword 搜索词（可选）
+     * @param sink 匹配行的输出端，每轮读取结束时 flush；输出失败时抛出异常，订阅随之取消
+     */
+    public TailSubscriber(String keyword, LineSink sink) {
+        this.keywordMatcher = KeywordMatcher.compile(keyword);
+        this.sink = sink;
+    }
+
+    /**
+     * 新追加的一行，UTF-8 字节 [from, to)
+     */
+    void offer(byte[] line, int from, int to) {
+        if (keywordMatcher.matches(line, from, to)) {
+            sink.accept(new String(line, from, to - from, StandardCharsets.UTF_8));
+            pending++;
+        }
+    }
+
+    /**
+     * 一轮读取结束，把本轮匹配的行发送出去
+     */
+    void flush() {
+        if (pending > 0) {
+            sink.flush();
+            pending = 0;
+            lastSent = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 超过 heartbeatMillis 没有发送过内容时空 flush 一次，输出端借此发送心跳并发现已断开的连接
+     */
+    void heartbeat(long now, long heartbeatMillis) {
+        if (now - lastSent >= heartbeatMillis) {
+            sink.flush();
+            lastSent = now;
+        }
+    }
+}
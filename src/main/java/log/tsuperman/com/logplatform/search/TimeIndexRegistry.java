@@ -0,0 +1,77 @@
+package log.tsuperman.com.logplatform.search;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 稀疏时间索引注册表
+ *
+ * 轮转后的历史文件（如 task-center-info.2026-01-08.3.log）不会再变化，它们的索引一直保留；
+ * 当天活跃文件的索引随文件增长继续追加，文件被截断或轮转替换时（按 fileKey 和大小判断）重新建立。
+ */
+@Component
+public class TimeIndexRegistry {
+
+    private final ConcurrentHashMap<String, SparseTimeIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * 获取文件对应的索引，不存在或已失效时返回一个新的空索引
+     */
+    public SparseTimeIndex get(Path file) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        Object key = fileKey(attrs);
+        long size = attrs.size();
+        return indexes.compute(file.toAbsolutePath().toString(),
+                (path, index) -> index != null && index.isValidFor(key, size) ? index : new SparseTimeIndex(key));
+    }
+
+    /**
+     * 获取文件已有的有效索引，不会新建
+     */
+    public SparseTimeIndex peek(Path file) throws IOException {
+        SparseTimeIndex index = indexes.get(file.toAbsolutePath().toString());
+        if (index == null) {
+            return null;
+        }
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        return index.isValidFor(fileKey(attrs), attrs.size()) ? index : null;
+    }
+
+    /**
+     * 读取整个文件补全索引（后台建立索引时使用），已经覆盖整个文件时跳过
+     * @param throttle 读取限速（可选）
+     * @return 补全后的索引
+     */
+    public SparseTimeIndex build(Path file, ReadThrottle throttle) throws IOException {
+        SparseTimeIndex index = get(file);
+        long from = index.coveredUpTo();
+        if (from >= Files.size(file)) {
+            return index;
+        }
+        TimestampParser timestampParser = new TimestampParser();
+        long end = from;
+        try (LogLineReader reader = LogLineReader.open(file, from, throttle)) {
+            while (reader.next()) {
+                long timestamp = timestampParser.parse(reader.array(), reader.lineStart(), reader.lineEnd());
+                if (timestamp != TimestampParser.NONE) {
+                    index.observe(reader.lineOffset(), TimestampParser.toEpochSecond(timestamp));
+                }
+                end = reader.nextOffset();
+            }
+        }
+        index.markCovered(from, end);
+        return index;
+    }
+
+    /**
+     * Linux 下为 (dev, inode)，不支持 fileKey 的文件系统退化为创建时间
+     */
+    static Object fileKey(BasicFileAttributes attrs) {
+        return attrs.fileKey() != null ? attrs.fileKey() : attrs.creationTime();
+    }
+}
@@ -0,0 +1,141 @@
+package log.tsuperman.com.logplatform.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 多个来源的日志按时间戳 k 路归并
+ *
+ * 每个来源的行先按日志事件分组（带时间戳的行连同其后的堆栈等行），以事件为单位归并，不会把堆栈拆开；
+ * 来源开头没有时间戳的行视为最早。时间相同时按来源顺序，同一来源内保持原有顺序。
+ * 远程 /query 先返回 info 文件的行再返回 error 文件的行，来源内部并不按时间有序，归并前先按事件时间稳定排序。
+ */
+public class TimestampMerge {
+
+    private TimestampMerge() {
+    }
+
+    /**
+     * 一个来源的查询结果
+     */
+    public static class Source {
+        private final String serverId;
+        private final String appId;
+        private final List<String> lines;
+
+        public Source(String serverId, String appId, List<String> lines) {
+            this.serverId = serverId;
+            this.appId = appId;
+            this.lines = lines;
+        }
+    }
+
+    /**
+     * @param limit 输出行数达到该值后，在当前事件结束时停止
+     * @return 是否因达到上限而截断
+     */
+    public static boolean merge(List<Source> sources, int limit, List<FederatedLogLine> output) {
+        PriorityQueue<Cursor> queue = new PriorityQueue<>();
+        for (int i = 0; i < sources.size(); i++) {
+            Source source = sources.get(i);
+            Cursor cursor = new Cursor(new Source(source.serverId, source.appId, sortEvents(source.lines)), i);
+            if (cursor.hasEvent()) {
+                queue.add(cursor);
+            }
+        }
+        while (!queue.isEmpty()) {
+            if (output.size() >= limit) {
+                return true;
+            }
+            Cursor cursor = queue.poll();
+            cursor.emitEvent(output);
+            if (cursor.hasEvent()) {
+                queue.add(cursor);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按事件时间稳定排序，事件内的行（堆栈等）保持在一起；已经有序时原样返回
+     */
+    static List<String> sortEvents(List<String> lines) {
+        List<long[]> events = new ArrayList<>();
+        long previous = Long.MIN_VALUE;
+        boolean sorted = true;
+        for (int i = 0; i < lines.size(); i++) {
+            long timestamp = TimestampParser.parse(lines.get(i));
+            if (timestamp == TimestampParser.NONE) {
+                if (i == 0) {
+                    // 开头没有时间戳的行视为最早
+                    events.add(new long[]{Long.MIN_VALUE, 0});
+                }
+                continue;
+            }
+            sorted &= timestamp >= previous;
+            previous = timestamp;
+            events.add(new long[]{timestamp, i});
+        }
+        if (sorted) {
+            return lines;
+        }
+        // List.sort 是稳定排序，时间相同的事件保持原有顺序
+        List<long[]> byTime = new ArrayList<>(events);
+        byTime.sort(Comparator.comparingLong(e -> e[0]));
+        List<String> result = new ArrayList<>(lines.size());
+        for (long[] event : byTime) {
+            int start = (int) event[1];
+            result.add(lines.get(start));
+            for (int i = start + 1; i < lines.size() && TimestampParser.parse(lines.get(i)) == TimestampParser.NONE; i++) {
+                result.add(lines.get(i));
+            }
+        }
+        return result;
+    }
+
+    private static class Cursor implements Comparable<Cursor> {
+        private final Source source;
+        private final int order;
+        /** 当前事件第一行的位置 */
+        private int position;
+        /** 当前事件的时间戳（打包值），开头没有时间戳的行为 Long.MIN_VALUE */
+        private long timestamp;
+
+        Cursor(Source source, int order) {
+            this.source = source;
+            this.order = order;
+            long first = source.lines.isEmpty() ? TimestampParser.NONE : TimestampParser.parse(source.lines.get(0));
+            this.timestamp = first == TimestampParser.NONE ? Long.MIN_VALUE : first;
+        }
+
+        boolean hasEvent() {
+            return position < source.lines.size();
+        }
+
+        /**
+         * 输出当前事件的所有行，并定位到下一个事件
+         */
+        void emitEvent(List<FederatedLogLine> output) {
+            List<String> lines = source.lines;
+            output.add(new FederatedLogLine(source.serverId, source.appId, lines.get(position)));
+            int i = position + 1;
+            for (; i < lines.size(); i++) {
+                long next = TimestampParser.parse(lines.get(i));
+                if (next != TimestampParser.NONE) {
+                    timestamp = next;
+                    break;
+                }
+                output.add(new FederatedLogLine(source.serverId, source.appId, lines.get(i)));
+            }
+            position = i;
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            int c = Long.compare(timestamp, other.timestamp);
+            return c != 0 ? c : Integer.compare(order, other.order);
+        }
+    }
+}
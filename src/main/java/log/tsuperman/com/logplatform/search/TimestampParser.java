@@ -0,0 +1,172 @@
+package log.tsuperman.com.logplatform.search;
+
+/**
+ * 不使用正则的日志时间戳解析器
+ *
+ * 逐字符查找第一个 {@code yyyy-MM-dd HH:mm:ss}（与原来的 TIMESTAMP_PATTERN.find() 相同），
+ * 结果打包成十进制的 {@code yyyyMMddHHmmss} long 返回，不创建任何对象；打包值的大小顺序与时间字符串的字典序一致，
+ * 所以时间过滤直接比较整数即可。
+ *
+ * 同一个应用的日志格式固定，时间戳几乎总在同一列，解析器会记住上次找到的列并先在该列尝试，
+ * 因此每个应用使用各自的实例。该列只是提示，并发读写不需要同步。
+ */
+public class TimestampParser {
+
+    /** 没有时间戳 */
+    public static final long NONE = -1;
+
+    private static final int LENGTH = 19;
+
+    private int hintColumn = -1;
+
+    /**
+     * 解析 UTF-8 字节 [from, to) 中的时间戳
+     * @return 打包的 yyyyMMddHHmmss，没有时间戳时返回 {@link #NONE}
+     */
+    public long parse(byte[] line, int from, int to) {
+        int hint = hintColumn;
+        if (hint >= 0 && from + hint + LENGTH <= to && isTimestampAt(line, from + hint)) {
+            return pack(line, from + hint);
+        }
+        for (int i = from; i + LENGTH <= to; i++) {
+            if (isTimestampAt(line, i)) {
+                hintColumn = i - from;
+                return pack(line, i);
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * 解析字符序列中的时间戳
+     * @return 打包的 yyyyMMddHHmmss，没有时间戳时返回 {@link #NONE}
+     */
+    public static long parse(CharSequence line) {
+        for (int i = 0; i + LENGTH <= line.length(); i++) {
+            if (isTimestampAt(line, i)) {
+                long value = 0;
+                for (int j = i; j < i + LENGTH; j++) {
+                    char c = line.charAt(j);
+                    if (c >= '0' && c <= '9') {
+                        value = value * 10 + (c - '0');
+                    }
+                }
+                return value;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * 取出 HHmmss 部分，如 14:02:00 为 140200
+     */
+    public static int timeOfDay(long packed) {
+        return (int) (packed % 1000000);
+    }
+
+    /**
+     * 取出 yyyyMMdd 部分
+     */
+    public static int date(long packed) {
+        return (int) (packed / 1000000);
+    }
+
+    /**
+     * 解析 HH:mm:ss 为 HHmmss，格式不符时返回-1
+     */
+    public static int parseTimeOfDay(String time) {
+        if (time == null || time.length() != 8 || time.charAt(2) != ':' || time.charAt(5) != ':') {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < 8; i++) {
+            char c = time.charAt(i);
+            if (i == 2 || i == 5) {
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * HHmmss 换算为一天中的秒数
+     */
+    public static int secondOfDay(int timeOfDay) {
+        return timeOfDay / 10000 * 3600 + timeOfDay / 100 % 100 * 60 + timeOfDay % 100;
+    }
+
+    /**
+     * 打包值换算为秒数（不考虑时区，只用于比较先后和计算间隔）
+     */
+    public static long toEpochSecond(long packed) {
+        int date = date(packed);
+        return daysFromCivil(date / 10000, date / 100 % 100, date % 100) * 86400L + secondOfDay(timeOfDay(packed));
+    }
+
+    /**
+     * 打包值格式化为 yyyy-MM-dd HH:mm:ss
+     */
+    public static String format(long packed) {
+        char[] chars = "0000-00-00 00:00:00".toCharArray();
+        long v = packed;
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            if (chars[i] == '0') {
+                chars[i] = (char) ('0' + v % 10);
+                v /= 10;
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 公历日期到 1970-01-01 的天数，月份、日期越界时结果仍然单调，不抛异常
+     */
+    static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yoe = y - era * 400;
+        int doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097L + doe - 719468;
+    }
+
+    /**
+     * b[i] 开始是否为 yyyy-MM-dd HH:mm:ss，调用方保证 i + 19 不越界
+     */
+    static boolean isTimestampAt(byte[] b, int i) {
+        return b[i + 4] == '-' && b[i + 7] == '-' && b[i + 10] == ' ' && b[i + 13] == ':' && b[i + 16] == ':'
+                && isDigit(b[i]) && isDigit(b[i + 1]) && isDigit(b[i + 2]) && isDigit(b[i + 3])
+                && isDigit(b[i + 5]) && isDigit(b[i + 6]) && isDigit(b[i + 8]) && isDigit(b[i + 9])
+                && isDigit(b[i + 11]) && isDigit(b[i + 12]) && isDigit(b[i + 14]) && isDigit(b[i + 15])
+                && isDigit(b[i + 17]) && isDigit(b[i + 18]);
+    }
+
+    private static boolean isTimestampAt(CharSequence s, int i) {
+        for (int j = 0; j < LENGTH; j++) {
+            char c = s.charAt(i + j);
+            char expected = j == 4 || j == 7 ? '-' : j == 10 ? ' ' : j == 13 || j == 16 ? ':' : 0;
+            if (expected != 0 ? c != expected : c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static long pack(byte[] b, int i) {
+        long value = 0;
+        for (int j = i; j < i + LENGTH; j++) {
+            if (isDigit(b[j])) {
+                value = value * 10 + (b[j] - '0');
+            }
+        }
+        return value;
+    }
+}
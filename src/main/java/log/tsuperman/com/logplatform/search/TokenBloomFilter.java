@@ -0,0 +1,247 @@
+package log.tsuperman.com.logplatform.search;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * 单个日志文件的词元布隆过滤器，用于判断文件“一定不包含”某个关键字
+ *
+ * 关键字按子串匹配，只记录完整的词无法判断关键字是词的一部分的情况，所以按下面的规则记录（字母、数字和非 ASCII 字节为词元字符，
+ * ASCII 字母折叠为小写）：
+ * <ul>
+ *     <li>长度小于 {@value #GRAM} 的词记录整个词；</li>
+ *     <li>更长的词记录它的每一个 {@value #GRAM} 字节片段。</li>
+ * </ul>
+ * 关键字中长度不小于 {@value #GRAM} 的每一段，它的所有片段都必须出现；两侧都被分隔符隔开的较短的段是文本中的完整的词，必须出现。
+ * 位于关键字两端的短段可能只是词的一部分，不作判断。因此不会误判“不包含”，只会误判“可能包含”。
+ *
+ * 位数组的长度为2的幂，建好后对折（两半按位或）直到填充率合适，以减小体积。
+ */
+public class TokenBloomFilter implements SidecarIndexStore.Index {
+
+    /** 长词按该长度切片 */
+    static final int GRAM = 8;
+
+    private static final int MAGIC = 0x4c424631; // "LBF1"
+    private static final int HASHES = 4;
+    private static final int MIN_BITS = 1 << 13;
+    private static final int MAX_BITS = 1 << 27;
+
+    private long[] words;
+    private int mask;
+    /** 建立时文件的大小和修改时间，文件变化后过滤器失效 */
+    private final long fileSize;
+    private final long fileModified;
+
+    private TokenBloomFilter(int bits, long fileSize, long fileModified) {
+        this.words = new long[bits >>> 6];
+        this.mask = bits - 1;
+        this.fileSize = fileSize;
+        this.fileModified = fileModified;
+    }
+
+    /**
+     * 读取整个文件建立过滤器
+     */
+    public static TokenBloomFilter build(Path file, long fileSize, long fileModified) throws IOException {
+        return build(file, fileSize, fileModified, null);
+    }
+
+    /**
+     * 读取整个文件建立过滤器，按 throttle 限速
+     */
+    public static TokenBloomFilter build(Path file, long fileSize, long fileModified, ReadThrottle throttle) throws IOException {
+        int bits = MIN_BITS;
+        while (bits < MAX_BITS && bits < fileSize * 2) {
+            bits <<= 1;
+        }
+        TokenBloomFilter filter = new TokenBloomFilter(bits, fileSize, fileModified);
+        try (LogLineReader reader = LogLineReader.open(file, 0, throttle)) {
+            while (reader.next()) {
+                filter.addTokens(reader.array(), reader.lineStart(), reader.lineEnd());
+            }
+        }
+        filter.compact();
+        return filter;
+    }
+
+    /**
+     * 文件中可能包含关键字；为false时一定不包含
+     *
+     * 关键字与建立时一样只折叠 ASCII 字母；含有有大小写的非 ASCII 字母时匹配按 toLowerCase 进行，
+     * 文本中的另一种大小写形式没有被记录，不作判断。
+     */
+    public boolean mayContain(String keyword) {
+        if (KeywordMatcher.compile(keyword).isFallback()) {
+            return true;
+        }
+        byte[] k = keyword.getBytes(StandardCharsets.UTF_8);
+        int i = 0;
+        while (i < k.length) {
+            if (!isTokenByte(k[i])) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < k.length && isTokenByte(k[i])) {
+                i++;
+            }
+            int length = i - start;
+            if (length >= GRAM) {
+                long gram = 0;
+                for (int j = start; j < i; j++) {
+                    gram = gram << 8 | fold(k[j]);
+                    if (j - start >= GRAM - 1 && !test(gram)) {
+                        return false;
+                    }
+                }
+            } else if (start > 0 && i < k.length && !test(shortToken(k, start, i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isValidFor(long size, long modified) {
+        return fileSize == size && fileModified == modified;
+    }
+
+    /**
+     * 占用的字节数
+     */
+    public long sizeInBytes() {
+        return words.length * 8;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeLong(fileSize);
+        out.writeLong(fileModified);
+        out.writeInt(words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+    }
+
+    /**
+     * 保存的过滤器是否对应指定大小和修改时间的文件，只读取文件头
+     */
+    static boolean headerMatches(DataInputStream in, long size, long modified) throws IOException {
+        return in.readInt() == MAGIC && in.readLong() == size && in.readLong() == modified;
+    }
+
+    /**
+     * @throws IOException 格式不正确
+     */
+    public static TokenBloomFilter readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("无效的过滤器文件");
+        }
+        long fileSize = in.readLong();
+        long fileModified = in.readLong();
+        int length = in.readInt();
+        if (length <= 0 || Integer.bitCount(length) != 1 || length > MAX_BITS >>> 6) {
+            throw new IOException("无效的过滤器文件");
+        }
+        TokenBloomFilter filter = new TokenBloomFilter(length << 6, fileSize, fileModified);
+        for (int i = 0; i < length; i++) {
+            filter.words[i] = in.readLong();
+        }
+        return filter;
+    }
+
+    private void addTokens(byte[] line, int from, int to) {
+        int i = from;
+        while (i < to) {
+            if (!isTokenByte(line[i])) {
+                i++;
+                continue;
+            }
+            int start = i;
+            long gram = 0;
+            while (i < to && isTokenByte(line[i])) {
+                gram = gram << 8 | fold(line[i]);
+                if (i - start >= GRAM - 1) {
+                    add(gram);
+                }
+                i++;
+            }
+            if (i - start < GRAM) {
+                add(shortToken(line, start, i));
+            }
+        }
+    }
+
+    /**
+     * 短词打包为 long，最高字节为长度（1-7，不是词元字符，不会与片段冲突）
+     */
+    private static long shortToken(byte[] b, int from, int to) {
+        long value = to - from;
+        for (int i = from; i < to; i++) {
+            value = value << 8 | fold(b[i]);
+        }
+        return value << (8 * (GRAM - 1 - (to - from)));
+    }
+
+    private void add(long value) {
+        long h = mix(value);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (h1 + i * h2) & mask;
+            words[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private boolean test(long value) {
+        long h = mix(value);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (h1 + i * h2) & mask;
+            if ((words[bit >>> 6] & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 填充率低于1/4时对折，对折后下标为原下标的低位，已有的位仍然命中
+     */
+    private void compact() {
+        while (words.length > MIN_BITS >>> 6) {
+            long set = 0;
+            for (long word : words) {
+                set += Long.bitCount(word);
+            }
+            if (set * 4 > (long) words.length * 64) {
+                break;
+            }
+            int half = words.length / 2;
+            long[] folded = new long[half];
+            for (int i = 0; i < half; i++) {
+                folded[i] = words[i] | words[i + half];
+            }
+            words = folded;
+            mask = (half << 6) - 1;
+        }
+    }
+
+    private static boolean isTokenByte(byte b) {
+        return b < 0 || b >= '0' && b <= '9' || b >= 'a' && b <= 'z' || b >= 'A' && b <= 'Z';
+    }
+
+    private static long fold(byte b) {
+        return (b >= 'A' && b <= 'Z' ? b + 32 : b) & 0xFF;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+}
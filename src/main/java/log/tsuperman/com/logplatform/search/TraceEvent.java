@@ -0,0 +1,32 @@
+package log.tsuperman.com.logplatform.search;
+
+import java.util.List;
+
+/**
+ * 按 traceId 找到的一条日志事件：带 traceId 的日志行连同其后的堆栈等行
+ */
+public class TraceEvent {
+
+    private final long offset;
+    /** 打包的 yyyyMMddHHmmss 乘以1000再加毫秒，用于排序 */
+    private final long time;
+    private final List<String> lines;
+
+    public TraceEvent(long offset, long time, List<String> lines) {
+        this.offset = offset;
+        this.time = time;
+        this.lines = lines;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public List<String> getLines() {
+        return lines;
+    }
+}
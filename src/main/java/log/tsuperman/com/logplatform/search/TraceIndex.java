@@ -0,0 +1,130 @@
+package log.tsuperman.com.logplatform.search;
+
+import java.util.Arrays;
+
+/**
+ * 单个日志文件的 traceId → 日志事件起点偏移 索引
+ *
+ * 只记录带 traceId 的日志行：每行一个 (traceId 的32位哈希, 偏移) 条目，按哈希串成链表，不保存 traceId 字符串，
+ * 连同哈希桶每行约20字节（见 {@link #sizeInBytes()}）。哈希可能冲突，读取时需要核对行中的 traceId。
+ * 索引随文件增长向后追加（{@link #coveredUpTo()} 之后的内容），文件被截断或替换时由注册表丢弃重建。
+ */
+public class TraceIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Object fileKey;
+    private long coveredUpTo;
+
+    /** 哈希桶，元素为链表头条目的下标，-1表示空 */
+    private int[] heads = newHeads(INITIAL_CAPACITY);
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private long[] offsets = new long[INITIAL_CAPACITY];
+    /** 同一个桶中前一个条目的下标 */
+    private int[] next = new int[INITIAL_CAPACITY];
+    private int size;
+
+    public TraceIndex(Object fileKey) {
+        this.fileKey = fileKey;
+    }
+
+    /**
+     * 索引仍然对应该文件：同一个文件且没有被截断
+     */
+    public synchronized boolean isValidFor(Object key, long fileSize) {
+        return fileKey.equals(key) && fileSize >= coveredUpTo;
+    }
+
+    /**
+     * 已经建立索引的字节数，之后的内容还未读取
+     */
+    public synchronized long coveredUpTo() {
+        return coveredUpTo;
+    }
+
+    public synchronized void markCovered(long offset) {
+        coveredUpTo = Math.max(coveredUpTo, offset);
+    }
+
+    /**
+     * 记录一行，偏移需要递增
+     */
+    public synchronized void add(int hash, long offset) {
+        if (size == hashes.length) {
+            grow();
+        }
+        int bucket = hash & (heads.length - 1);
+        hashes[size] = hash;
+        offsets[size] = offset;
+        next[size] = heads[bucket];
+        heads[bucket] = size;
+        size++;
+    }
+
+    /**
+     * 哈希相同的所有行的偏移，从小到大
+     */
+    public synchronized long[] find(int hash) {
+        long[] found = new long[4];
+        int count = 0;
+        for (int i = heads[hash & (heads.length - 1)]; i >= 0; i = next[i]) {
+            if (hashes[i] == hash) {
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, count * 2);
+                }
+                found[count++] = offsets[i];
+            }
+        }
+        // 链表从最近添加的条目开始
+        long[] result = new long[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = found[count - 1 - i];
+        }
+        return result;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 在内存中占用的字节数（按已分配的容量计算）
+     */
+    public synchronized long sizeInBytes() {
+        return (long) hashes.length * (4 + 8 + 4) + (long) heads.length * 4;
+    }
+
+    /**
+     * traceId 的哈希（FNV-1a），对 UTF-8 字节 [from, to) 计算
+     */
+    public static int hash(byte[] bytes, int from, int to) {
+        int hash = 0x811c9dc5;
+        for (int i = from; i < to; i++) {
+            hash ^= bytes[i] & 0xff;
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+
+    /**
+     * 条目数组扩容一倍，桶数与条目数保持一致后重新串链
+     */
+    private void grow() {
+        int capacity = hashes.length * 2;
+        hashes = Arrays.copyOf(hashes, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+        next = Arrays.copyOf(next, capacity);
+        heads = newHeads(capacity);
+        for (int i = 0; i < size; i++) {
+            int bucket = hashes[i] & (capacity - 1);
+            next[i] = heads[bucket];
+            heads[bucket] = i;
+        }
+    }
+
+    private static int[] newHeads(int capacity) {
+        int[] heads = new int[capacity];
+        Arrays.fill(heads, -1);
+        return heads;
+    }
+}
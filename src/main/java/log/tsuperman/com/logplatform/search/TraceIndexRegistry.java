@@ -0,0 +1,242 @@
+package log.tsuperman.com.logplatform.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * traceId 索引注册表
+ *
+ * 按 fileKey（Linux 下为 dev + inode）保存每个文件的 {@link TraceIndex}，活跃文件轮转改名后索引仍然可用，
+ * 不必重新读取。每次更新只读取上次之后新增的内容；文件被截断时重新建立。
+ *
+ * 查询只使用已有的索引，最多在请求线程中补读 {@link #MAX_QUERY_READ_BYTES} 新增的内容；
+ * 没有索引或落后太多的文件交给后台线程按限速读取，本次查询不包含这些文件。
+ */
+@Component
+public class TraceIndexRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(TraceIndexRegistry.class);
+
+    /** 查询时在请求线程中最多补读的字节数，更多时交给后台 */
+    static final long MAX_QUERY_READ_BYTES = 4 * 1024 * 1024;
+
+    private final ConcurrentHashMap<Object, TraceIndex> indexes = new ConcurrentHashMap<>();
+
+    /** 正在后台更新的文件 */
+    private final Set<String> building = ConcurrentHashMap.newKeySet();
+    private final ExecutorService builder = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "trace-index-builder");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    @PreDestroy
+    public void shutdown() {
+        builder.shutdownNow();
+    }
+
+    /**
+     * 读取文件新增的内容补全索引，最后一行没有写完时留到下次
+     * @param throttle 读取限速（可选）
+     * @return 更新后的索引
+     */
+    public TraceIndex update(Path file, ReadThrottle throttle) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        Object key = TimeIndexRegistry.fileKey(attrs);
+        long size = attrs.size();
+        TraceIndex index = indexes.compute(key,
+                (k, existing) -> existing != null && existing.isValidFor(key, size) ? existing : new TraceIndex(key));
+        // 同一个文件同时只有一个线程读取，查询会等到本次更新完成
+        synchronized (index) {
+            long from = index.coveredUpTo();
+            if (from >= size) {
+                return index;
+            }
+            LogFields fields = new LogFields();
+            long end = from;
+            try (LogLineReader reader = LogLineReader.open(file, from, throttle)) {
+                while (reader.next() && reader.lineTerminated()) {
+                    byte[] line = reader.array();
+                    if (fields.parse(line, reader.lineStart(), reader.lineEnd()) && hasTraceId(fields)) {
+                        index.add(TraceIndex.hash(line, fields.start(LogFields.Field.TRACE_ID),
+                                fields.end(LogFields.Field.TRACE_ID)), reader.lineOffset());
+                    }
+                    end = reader.nextOffset();
+                }
+            }
+            index.markCovered(end);
+        }
+        return index;
+    }
+
+    /**
+     * 在后台线程中更新索引，同一文件已在排队时跳过
+     * @param throttle 读取限速（可选）
+     */
+    public void scheduleUpdate(Path file, ReadThrottle throttle) {
+        String path = file.toAbsolutePath().normalize().toString();
+        if (!building.add(path)) {
+            return;
+        }
+        try {
+            builder.execute(() -> {
+                try {
+                    update(file, throttle);
+                } catch (IOException e) {
+                    log.warn("更新traceId索引失败: {}, 错误: {}", file, e.getMessage());
+                } finally {
+                    building.remove(path);
+                }
+            });
+        } catch (RuntimeException e) {
+            // 已关闭
+            building.remove(path);
+        }
+    }
+
+    /**
+     * 读取文件中 traceId 的所有日志事件，按文件中的顺序
+     *
+     * 文件还没有有效的索引，或新增的内容超过 {@link #MAX_QUERY_READ_BYTES} 时返回null，由调用方安排在后台更新。
+     */
+    public List<TraceEvent> find(Path file, String traceId) throws IOException {
+        byte[] expected = traceId.getBytes(StandardCharsets.UTF_8);
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        Object key = TimeIndexRegistry.fileKey(attrs);
+        TraceIndex index = indexes.get(key);
+        if (index == null || !index.isValidFor(key, attrs.size())
+                || attrs.size() - index.coveredUpTo() > MAX_QUERY_READ_BYTES) {
+            return null;
+        }
+        index = update(file, null);
+        long[] offsets = index.find(TraceIndex.hash(expected, 0, expected.length));
+        List<TraceEvent> events = new ArrayList<>();
+        if (offsets.length == 0) {
+            return events;
+        }
+        LogFields fields = new LogFields();
+        TimestampParser timestampParser = new TimestampParser();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long offset : offsets) {
+                TraceEvent event = readEvent(channel, offset, size, expected, fields, timestampParser);
+                if (event != null) {
+                    events.add(event);
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * 只保留这些文件的索引（超出保留天数或已删除的文件的索引被丢弃）
+     */
+    public void retain(Collection<Path> files) {
+        Set<Object> keys = new HashSet<>();
+        for (Path file : files) {
+            try {
+                keys.add(TimeIndexRegistry.fileKey(Files.readAttributes(file, BasicFileAttributes.class)));
+            } catch (NoSuchFileException e) {
+                // 已删除
+            } catch (IOException e) {
+                log.warn("读取文件属性失败: {}, 错误: {}", file, e.getMessage());
+            }
+        }
+        indexes.keySet().retainAll(keys);
+    }
+
+    /**
+     * 所有文件的索引在内存中占用的字节数
+     */
+    public long getSizeInBytes() {
+        long bytes = 0;
+        for (TraceIndex index : indexes.values()) {
+            bytes += index.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * 所有文件的索引条目总数
+     */
+    public long getEntryCount() {
+        long count = 0;
+        for (TraceIndex index : indexes.values()) {
+            count += index.size();
+        }
+        return count;
+    }
+
+    public int getFileCount() {
+        return indexes.size();
+    }
+
+    /**
+     * 读取 offset 处的日志行及其后没有时间戳的行，行中的 traceId 不一致（哈希冲突）时返回null
+     */
+    private static TraceEvent readEvent(FileChannel channel, long offset, long size, byte[] expected,
+                                        LogFields fields, TimestampParser timestampParser) throws IOException {
+        try (LogLineReader reader = new LogLineReader(channel, offset, size)) {
+            if (!reader.next()) {
+                return null;
+            }
+            byte[] line = reader.array();
+            int lineEnd = reader.lineEnd();
+            if (!fields.parse(line, reader.lineStart(), lineEnd) || !traceIdEquals(line, fields, expected)) {
+                return null;
+            }
+            long time = timestampParser.parse(line, reader.lineStart(), lineEnd) * 1000 + fields.millis(line, lineEnd);
+            List<String> lines = new ArrayList<>();
+            lines.add(reader.lineAsString());
+            while (reader.next() && reader.lineTerminated()) {
+                if (timestampParser.parse(reader.array(), reader.lineStart(), reader.lineEnd()) != TimestampParser.NONE) {
+                    break;
+                }
+                lines.add(reader.lineAsString());
+            }
+            return new TraceEvent(offset, time, lines);
+        }
+    }
+
+    private static boolean hasTraceId(LogFields fields) {
+        return fields.has(LogFields.Field.TRACE_ID)
+                && fields.end(LogFields.Field.TRACE_ID) > fields.start(LogFields.Field.TRACE_ID);
+    }
+
+    private static boolean traceIdEquals(byte[] line, LogFields fields, byte[] expected) {
+        if (!fields.has(LogFields.Field.TRACE_ID)) {
+            return false;
+        }
+        int start = fields.start(LogFields.Field.TRACE_ID);
+        if (fields.end(LogFields.Field.TRACE_ID) - start != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (line[start + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,421 @@
+package log.tsuperman.com.logplatform.search;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * 单个历史日志文件的三元组倒排索引
+ *
+ * 文件按大约 blockSize 字节切成块，块的起点总是一条带时间戳日志的行首（不会把一条日志和它的堆栈拆到两个块里，
+ * 从块起点开始扫描与顺序扫描到这里的结果相同）。每行中连续的3个字节（ASCII 字母折叠为小写）是一个三元组，
+ * 每个三元组记录出现过它的块号，块号差值按变长整数编码。
+ *
+ * 查询时取关键字的所有三元组，求它们块号列表的交集，只有交集中的块可能包含关键字，相邻的块合并为一个区间读取。
+ * 中文等非 ASCII 字符按 UTF-8 字节参与切分，同样适用。
+ *
+ * 索引大小超过原始文件的 maxRatio 时放弃建立，只记录“过大”，查询时退回顺序扫描。
+ */
+public class TrigramIndex implements SidecarIndexStore.Index {
+
+    private static final int MAGIC = 0x4c544731; // "LTG1"
+
+    /** 每个三元组、每个块在估算大小时的额外开销 */
+    private static final int TRIGRAM_OVERHEAD = 8;
+    private static final int BLOCK_OVERHEAD = 8;
+
+    /** 建立时文件的大小和修改时间，文件变化后索引失效 */
+    private final long fileSize;
+    private final long fileModified;
+    /** 索引过大而没有建立 */
+    private final boolean oversized;
+
+    /** 各块的起始偏移，最后一块到文件末尾 */
+    private final long[] blockStarts;
+    /** 排好序的三元组 */
+    private final int[] trigrams;
+    /** 第 i 个三元组的块号列表为 postings[postingStarts[i], postingStarts[i + 1]) */
+    private final int[] postingStarts;
+    private final byte[] postings;
+
+    private TrigramIndex(long fileSize, long fileModified, boolean oversized, long[] blockStarts, int[] trigrams,
+                         int[] postingStarts, byte[] postings) {
+        this.fileSize = fileSize;
+        this.fileModified = fileModified;
+        this.oversized = oversized;
+        this.blockStarts = blockStarts;
+        this.trigrams = trigrams;
+        this.postingStarts = postingStarts;
+        this.postings = postings;
+    }
+
+    private static TrigramIndex oversized(long fileSize, long fileModified) {
+        return new TrigramIndex(fileSize, fileModified, true, new long[0], new int[0], new int[1], new byte[0]);
+    }
+
+    /**
+     * 读取整个文件建立索引
+     * @param blockSize 块的大致大小（字节）
+     * @param maxRatio 索引最多占文件大小的比例，超过时返回一个“过大”的索引
+     */
+    public static TrigramIndex build(Path file, long fileSize, long fileModified, int blockSize, double maxRatio)
+            throws IOException {
+        return build(file, fileSize, fileModified, blockSize, maxRatio, null);
+    }
+
+    /**
+     * 读取整个文件建立索引，按 throttle 限速
+     */
+    public static TrigramIndex build(Path file, long fileSize, long fileModified, int blockSize, double maxRatio,
+                                     ReadThrottle throttle) throws IOException {
+        long maxBytes = (long) (fileSize * maxRatio);
+        TimestampParser timestampParser = new TimestampParser();
+        Builder builder = new Builder();
+        long[] blockStarts = new long[16];
+        int blockCount = 1;
+        long estimated = BLOCK_OVERHEAD;
+
+        try (LogLineReader reader = LogLineReader.open(file, 0, throttle)) {
+            while (reader.next()) {
+                byte[] line = reader.array();
+                int from = reader.lineStart();
+                int to = reader.lineEnd();
+                // 超过块大小后，在下一条带时间戳的日志处开始新的块
+                if (reader.lineOffset() - blockStarts[blockCount - 1] >= blockSize
+                        && timestampParser.parse(line, from, to) != TimestampParser.NONE) {
+                    if (blockCount == blockStarts.length) {
+                        blockStarts = Arrays.copyOf(blockStarts, blockCount * 2);
+                    }
+                    blockStarts[blockCount++] = reader.lineOffset();
+                    estimated += BLOCK_OVERHEAD;
+                }
+                int block = blockCount - 1;
+                for (int i = from; i + 2 < to; i++) {
+                    estimated += builder.add(trigram(line, i), block);
+                }
+                if (estimated > maxBytes) {
+                    return oversized(fileSize, fileModified);
+                }
+            }
+        }
+        return builder.finish(fileSize, fileModified, Arrays.copyOf(blockStarts, blockCount));
+    }
+
+    /**
+     * 可能包含关键字的区间
+     * @return 按文件顺序排列、互不重叠的 [start, end) 区间，依次存放起点和终点；没有可能匹配的块时为空数组；
+     *         索引过大、关键字不足3个字节或含有无法按字节折叠大小写的字符时返回null，需要顺序扫描
+     */
+    public long[] candidateRanges(String keyword) {
+        if (oversized || keyword == null || KeywordMatcher.compile(keyword).isFallback()) {
+            return null;
+        }
+        byte[] k = keyword.toLowerCase().getBytes(StandardCharsets.UTF_8);
+        if (k.length < 3) {
+            return null;
+        }
+        int[] wanted = new int[k.length - 2];
+        for (int i = 0; i < wanted.length; i++) {
+            wanted[i] = trigram(k, i);
+        }
+        wanted = Arrays.stream(wanted).distinct().toArray();
+
+        // 先取最短的列表，再依次与其他列表求交集
+        int[] found = new int[wanted.length];
+        for (int i = 0; i < wanted.length; i++) {
+            found[i] = Arrays.binarySearch(trigrams, wanted[i]);
+            if (found[i] < 0) {
+                return new long[0];
+            }
+        }
+        Integer[] order = new Integer[found.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = found[i];
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(postingLength(a), postingLength(b)));
+        int[] blocks = decode(order[0]);
+        for (int i = 1; i < order.length && blocks.length > 0; i++) {
+            blocks = intersect(blocks, decode(order[i]));
+        }
+        return toRanges(blocks);
+    }
+
+    public boolean isValidFor(long size, long modified) {
+        return fileSize == size && fileModified == modified;
+    }
+
+    /**
+     * 索引过大而没有建立
+     */
+    public boolean isOversized() {
+        return oversized;
+    }
+
+    public int getBlockCount() {
+        return blockStarts.length;
+    }
+
+    /**
+     * 占用的字节数
+     */
+    public long sizeInBytes() {
+        return blockStarts.length * 8L + trigrams.length * 4L + postingStarts.length * 4L + postings.length;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeLong(fileSize);
+        out.writeLong(fileModified);
+        out.writeBoolean(oversized);
+        out.writeInt(blockStarts.length);
+        for (long start : blockStarts) {
+            out.writeLong(start);
+        }
+        out.writeInt(trigrams.length);
+        for (int i = 0; i < trigrams.length; i++) {
+            out.writeInt(trigrams[i]);
+            out.writeInt(postingStarts[i + 1]);
+        }
+        out.write(postings);
+    }
+
+    /**
+     * 保存的索引是否对应指定大小和修改时间的文件，只读取文件头
+     */
+    static boolean headerMatches(DataInputStream in, long size, long modified) throws IOException {
+        return in.readInt() == MAGIC && in.readLong() == size && in.readLong() == modified;
+    }
+
+    /**
+     * @throws IOException 格式不正确
+     */
+    public static TrigramIndex readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("无效的三元组索引文件");
+        }
+        long fileSize = in.readLong();
+        long fileModified = in.readLong();
+        boolean oversized = in.readBoolean();
+        int blockCount = in.readInt();
+        if (blockCount < 0 || blockCount > fileSize + 1) {
+            throw new IOException("无效的三元组索引文件");
+        }
+        long[] blockStarts = new long[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            blockStarts[i] = in.readLong();
+        }
+        int trigramCount = in.readInt();
+        if (trigramCount < 0 || trigramCount > 1 << 24) {
+            throw new IOException("无效的三元组索引文件");
+        }
+        int[] trigrams = new int[trigramCount];
+        int[] postingStarts = new int[trigramCount + 1];
+        for (int i = 0; i < trigramCount; i++) {
+            trigrams[i] = in.readInt();
+            postingStarts[i + 1] = in.readInt();
+            if (postingStarts[i + 1] < postingStarts[i]) {
+                throw new IOException("无效的三元组索引文件");
+            }
+        }
+        byte[] postings = new byte[postingStarts[trigramCount]];
+        in.readFully(postings);
+        return new TrigramIndex(fileSize, fileModified, oversized, blockStarts, trigrams, postingStarts, postings);
+    }
+
+    private int postingLength(int i) {
+        return postingStarts[i + 1] - postingStarts[i];
+    }
+
+    private int[] decode(int i) {
+        int[] blocks = new int[postingLength(i)];
+        int count = 0;
+        int block = -1;
+        int p = postingStarts[i];
+        int end = postingStarts[i + 1];
+        while (p < end) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = postings[p++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            block += delta;
+            blocks[count++] = block;
+        }
+        return Arrays.copyOf(blocks, count);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, count);
+    }
+
+    /**
+     * 块号转为区间，相邻的块合并
+     */
+    private long[] toRanges(int[] blocks) {
+        long[] ranges = new long[blocks.length * 2];
+        int count = 0;
+        for (int i = 0; i < blocks.length; i++) {
+            long start = blockStarts[blocks[i]];
+            long end = blocks[i] + 1 < blockStarts.length ? blockStarts[blocks[i] + 1] : fileSize;
+            if (count > 0 && ranges[count - 1] == start) {
+                ranges[count - 1] = end;
+            } else {
+                ranges[count++] = start;
+                ranges[count++] = end;
+            }
+        }
+        return Arrays.copyOf(ranges, count);
+    }
+
+    private static int trigram(byte[] b, int i) {
+        return fold(b[i]) << 16 | fold(b[i + 1]) << 8 | fold(b[i + 2]);
+    }
+
+    private static int fold(byte b) {
+        return (b >= 'A' && b <= 'Z' ? b + 32 : b) & 0xFF;
+    }
+
+    /**
+     * 建立索引时的三元组表：开放寻址的 三元组 → 编号，编号对应各自的块号列表
+     */
+    private static class Builder {
+        /** 三元组加1，0表示空位 */
+        private int[] keys = new int[1 << 12];
+        private int[] ids = new int[1 << 12];
+        private int count;
+
+        private int[] trigramOf = new int[1 << 10];
+        private int[] lastBlock = new int[1 << 10];
+        private byte[][] lists = new byte[1 << 10][];
+        private int[] listLengths = new int[1 << 10];
+
+        /**
+         * 记录三元组出现在块中
+         * @return 索引增加的估算字节数
+         */
+        int add(int trigram, int block) {
+            int mask = keys.length - 1;
+            int slot = mix(trigram) & mask;
+            while (keys[slot] != 0 && keys[slot] != trigram + 1) {
+                slot = (slot + 1) & mask;
+            }
+            int added = 0;
+            int id;
+            if (keys[slot] == 0) {
+                id = newId(trigram);
+                keys[slot] = trigram + 1;
+                ids[slot] = id;
+                added += TRIGRAM_OVERHEAD;
+                if (count * 2 > keys.length) {
+                    rehash();
+                }
+            } else {
+                id = ids[slot];
+                if (lastBlock[id] == block) {
+                    return 0;
+                }
+            }
+            added += writeVarint(id, block - lastBlock[id]);
+            lastBlock[id] = block;
+            return added;
+        }
+
+        private int newId(int trigram) {
+            if (count == trigramOf.length) {
+                int size = count * 2;
+                trigramOf = Arrays.copyOf(trigramOf, size);
+                lastBlock = Arrays.copyOf(lastBlock, size);
+                lists = Arrays.copyOf(lists, size);
+                listLengths = Arrays.copyOf(listLengths, size);
+            }
+            trigramOf[count] = trigram;
+            lastBlock[count] = -1;
+            lists[count] = new byte[4];
+            return count++;
+        }
+
+        private int writeVarint(int id, int value) {
+            byte[] list = lists[id];
+            int length = listLengths[id];
+            if (length + 5 > list.length) {
+                list = lists[id] = Arrays.copyOf(list, Math.max(list.length * 2, length + 5));
+            }
+            int start = length;
+            while ((value & ~0x7F) != 0) {
+                list[length++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            list[length++] = (byte) value;
+            listLengths[id] = length;
+            return length - start;
+        }
+
+        private void rehash() {
+            int[] oldKeys = keys;
+            int[] oldIds = ids;
+            keys = new int[oldKeys.length * 2];
+            ids = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == 0) {
+                    continue;
+                }
+                int slot = mix(oldKeys[i] - 1) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                ids[slot] = oldIds[i];
+            }
+        }
+
+        TrigramIndex finish(long fileSize, long fileModified, long[] blockStarts) {
+            // 三元组只有24位，与编号打包后排序
+            long[] sorted = new long[count];
+            int total = 0;
+            for (int id = 0; id < count; id++) {
+                sorted[id] = (long) trigramOf[id] << 32 | id;
+                total += listLengths[id];
+            }
+            Arrays.sort(sorted);
+            int[] trigrams = new int[count];
+            int[] postingStarts = new int[count + 1];
+            byte[] postings = new byte[total];
+            int p = 0;
+            for (int i = 0; i < count; i++) {
+                int id = (int) sorted[i];
+                trigrams[i] = (int) (sorted[i] >>> 32);
+                System.arraycopy(lists[id], 0, postings, p, listLengths[id]);
+                p += listLengths[id];
+                postingStarts[i + 1] = p;
+            }
+            return new TrigramIndex(fileSize, fileModified, false, blockStarts, trigrams, postingStarts, postings);
+        }
+
+        private static int mix(int h) {
+            h *= 0x9E3779B9;
+            return h ^ (h >>> 15);
+        }
+    }
+}
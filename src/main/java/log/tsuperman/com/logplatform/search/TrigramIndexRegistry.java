@@ -0,0 +1,141 @@
+package log.tsuperman.com.logplatform.search;
+
+import log.tsuperman.com.logplatform.config.LogPlatformProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 轮转后历史文件的三元组倒排索引
+ *
+ * 与 {@link FileBloomFilterRegistry} 相同：查询第一次遇到没有索引的历史文件时在后台线程中建立，保存到 indexPath/trigram 目录，
+ * 重启后直接加载；文件的大小或修改时间变化后视为没有索引并重新建立。存取和内存中的 LRU 见 {@link SidecarIndexStore}，
+ * 索引约为文件大小的五分之一，内存中按字节数而不是个数限制。
+ */
+@Component
+public class TrigramIndexRegistry {
+
+    @Autowired
+    private LogPlatformProperties properties;
+
+    @Autowired
+    private FileSearchExecutor fileSearchExecutor;
+
+    private SidecarIndexStore<TrigramIndex> store;
+
+    public TrigramIndexRegistry() {
+    }
+
+    TrigramIndexRegistry(LogPlatformProperties properties) {
+        this(properties, null);
+    }
+
+    /**
+     * @param fileSearchExecutor 提供后台建立时的限速器，为null时不限速
+     */
+    TrigramIndexRegistry(LogPlatformProperties properties, FileSearchExecutor fileSearchExecutor) {
+        this.properties = properties;
+        this.fileSearchExecutor = fileSearchExecutor;
+        init();
+    }
+
+    @PostConstruct
+    public void init() {
+        store = new SidecarIndexStore<>("三元组索引", "trigram-index-builder", Paths.get(properties.getIndexPath(), "trigram"),
+                ".tri", properties.getTrigramCacheBytes(), new SidecarIndexStore.Codec<TrigramIndex>() {
+            @Override
+            public TrigramIndex build(Path file, long size, long modified, ReadThrottle throttle) throws IOException {
+                return TrigramIndex.build(file, size, modified, properties.getTrigramBlockSize(),
+                        properties.getTrigramIndexMaxRatio(), throttle);
+            }
+
+            @Override
+            public TrigramIndex read(DataInputStream in) throws IOException {
+                return TrigramIndex.readFrom(in);
+            }
+
+            @Override
+            public boolean headerMatches(DataInputStream in, long size, long modified) throws IOException {
+                return TrigramIndex.headerMatches(in, size, modified);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        store.shutdown();
+    }
+
+    /**
+     * 历史文件中可能包含关键字的区间，见 {@link TrigramIndex#candidateRanges(String)}
+     *
+     * 文件还没有有效的索引时安排在后台建立，本次返回null（顺序扫描）。只用于不再变化的轮转文件。
+     */
+    public long[] candidateRanges(Path file, String keyword) throws IOException {
+        if (!properties.isTrigramIndexEnabled() || keyword == null || keyword.isEmpty()) {
+            return null;
+        }
+        TrigramIndex index = store.find(file);
+        if (index == null) {
+            store.scheduleBuild(file, backgroundThrottle());
+            return null;
+        }
+        return index.candidateRanges(keyword);
+    }
+
+    /**
+     * 文件是否已有有效的索引（内存或磁盘），过大而没有建立的也算
+     */
+    public boolean hasIndex(Path file) throws IOException {
+        return store.find(file) != null;
+    }
+
+    /**
+     * 磁盘上是否已有有效的索引，只读取文件头而不加载（后台建立索引时检查是否需要建立）
+     */
+    public boolean isStored(Path file) throws IOException {
+        return store.isStored(file);
+    }
+
+    /**
+     * 建立索引并保存，已有有效的索引时跳过
+     */
+    public void build(Path file) throws IOException {
+        build(file, null);
+    }
+
+    /**
+     * 建立索引并保存，读取文件时按 throttle 限速（后台建立索引）
+     */
+    public void build(Path file, ReadThrottle throttle) throws IOException {
+        store.build(file, throttle);
+    }
+
+    /**
+     * 删除 logDir 中已被清理的日志文件的索引
+     * @return 删除的个数
+     */
+    public int pruneOrphans(Path logDir) throws IOException {
+        return store.pruneOrphans(logDir);
+    }
+
+    /**
+     * 查询触发的建立与后台建立索引共用同一个限速器，有查询时让路
+     */
+    private ReadThrottle backgroundThrottle() {
+        return fileSearchExecutor == null ? null : fileSearchExecutor.getBackgroundThrottle();
+    }
+
+    /**
+     * 内存中的索引占用的字节数
+     */
+    public long getCachedBytes() {
+        return store.cachedBytes();
+    }
+}
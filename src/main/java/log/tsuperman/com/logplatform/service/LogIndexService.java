@@ -0,0 +1,105 @@
+package log.tsuperman.com.logplatform.service;
+
+import log.tsuperman.com.logplatform.config.LogPlatformProperties;
+import log.tsuperman.com.logplatform.entity.AppConfig;
+import log.tsuperman.com.logplatform.search.BackgroundIndexer;
+import org.apache.logging.log4j.util.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定期为所有已配置的应用检查新轮转的历史文件，交给 {@link BackgroundIndexer} 在后台建立索引
+ *
+ * 没有任何应用使用默认日志目录时，默认配置（不带 appId 的查询）也一并检查。
+ */
+@Service
+public class LogIndexService {
+
+    private static final Logger log = LoggerFactory.getLogger(LogIndexService.class);
+
+    @Autowired
+    private LogPlatformProperties properties;
+
+    @Autowired
+    private ConfigService configService;
+
+    @Autowired
+    private BackgroundIndexer backgroundIndexer;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        if (!properties.isIndexerEnabled()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "log-index-scan");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::scanAll, properties.getIndexerScanIntervalMillis(),
+                properties.getIndexerScanIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 检查所有应用，缺少索引的历史文件排队建立
+     * @return 新排队的文件数
+     */
+    public int scanAll() {
+        int added = 0;
+        Set<String> seen = new HashSet<>();
+        try {
+            List<AppConfig> apps = configService.getAllApps();
+            for (AppConfig app : apps) {
+                if (Strings.isEmpty(app.getLogPath()) || Strings.isEmpty(app.getLogPrefix())) {
+                    continue;
+                }
+                if (seen.add(directoryKey(app.getLogPath(), app.getLogPrefix()))) {
+                    added += backgroundIndexer.scanApp(app.getId(), app.getName(), app.getLogPath(), app.getLogPrefix());
+                }
+            }
+            if (seen.add(directoryKey(properties.getFullLogPath(), properties.getLogPrefix()))) {
+                added += backgroundIndexer.scanApp("", "默认配置", properties.getFullLogPath(), properties.getLogPrefix());
+            }
+        } catch (RuntimeException e) {
+            // 调度线程遇到异常会停止后续执行
+            log.warn("检查待建立索引的日志文件失败: {}", e.getMessage());
+        }
+        if (added > 0) {
+            log.info("后台建立索引：新增 {} 个待处理的历史日志文件", added);
+        }
+        return added;
+    }
+
+    /**
+     * 各应用的索引进度和积压
+     */
+    public Map<String, Object> getStatus() {
+        return backgroundIndexer.getStatus();
+    }
+
+    private static String directoryKey(String logPath, String logPrefix) {
+        return Paths.get(logPath).toAbsolutePath().normalize() + "\u0000" + logPrefix;
+    }
+}
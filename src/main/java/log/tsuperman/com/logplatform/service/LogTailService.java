@@ -0,0 +1,169 @@
+package log.tsuperman.com.logplatform.service;
+
+import log.tsuperman.com.logplatform.config.LogPlatformProperties;
+import log.tsuperman.com.logplatform.entity.AppConfig;
+import log.tsuperman.com.logplatform.search.FileFollower;
+import log.tsuperman.com.logplatform.search.LineSink;
+import log.tsuperman.com.logplatform.search.QueuedLineSink;
+import log.tsuperman.com.logplatform.search.TailSubscriber;
+import org.apache.logging.log4j.util.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 实时跟踪当天的活跃日志文件
+ *
+ * 每个文件一个 {@link FileFollower}，由一个调度线程定期检查文件大小并分发新增的行，同一文件的多个订阅者共用；
+ * 最后一个订阅者离开后停止跟踪并释放文件句柄。
+ * 调度线程只把行放入每个订阅者的有界队列（{@link QueuedLineSink}），由发送线程写给客户端，
+ * 某个客户端接收缓慢不会影响其他订阅者；积压超过 tailSendQueueSize 批时断开该客户端。
+ */
+@Service
+public class LogTailService {
+
+    private static final Logger log = LoggerFactory.getLogger(LogTailService.class);
+
+    @Autowired
+    private LogPlatformProperties properties;
+
+    @Autowired
+    private ConfigService configService;
+
+    private final ConcurrentHashMap<String, FileFollower> followers = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    /** 向客户端发送的线程，发送阻塞时只占用各自的线程 */
+    private ExecutorService sender;
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "log-tail");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sender = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "log-tail-send");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::pollAll, properties.getTailPollMillis(),
+                properties.getTailPollMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        sender.shutdownNow();
+        followers.values().forEach(FileFollower::close);
+    }
+
+    /**
+     * 订阅应用的活跃日志文件
+     * @param appId 应用ID（可选，如果不提供则使用默认配置）
+     * @param logType 日志类型（info/error/all）
+     * @param keyword 搜索词（可选）
+     * @param sink 匹配行的输出端，在发送线程中调用
+     * @return 取消订阅的回调
+     */
+    public Runnable subscribe(String appId, String logType, String keyword, LineSink sink) {
+        String logPath;
+        String logPrefix;
+        if (!Strings.isEmpty(appId)) {
+            AppConfig appConfig = configService.getAppById(appId);
+            if (appConfig == null) {
+                throw new IllegalArgumentException("找不到应用配置: " + appId);
+            }
+            logPath = appConfig.getLogPath();
+            logPrefix = appConfig.getLogPrefix();
+        } else {
+            logPath = properties.getFullLogPath();
+            logPrefix = properties.getLogPrefix();
+        }
+
+        TailSubscriber subscriber = new TailSubscriber(keyword,
+                new QueuedLineSink(sink, sender, properties.getTailSendQueueSize()));
+        List<String> keys = new ArrayList<>();
+        for (String name : activeFileNames(logPrefix, logType)) {
+            Path path = Paths.get(logPath, name).toAbsolutePath();
+            String key = path.toString();
+            // 在 compute 中订阅，保证不会加到一个正在被移除的跟踪器上
+            followers.compute(key, (k, follower) -> {
+                FileFollower target = follower != null ? follower : new FileFollower(path);
+                target.subscribe(subscriber);
+                return target;
+            });
+            keys.add(key);
+        }
+        log.info("开始实时跟踪: {}，关键词: {}", keys, keyword);
+        return () -> keys.forEach(key -> unsubscribe(key, subscriber));
+    }
+
+    /**
+     * 与查询时的文件名规则一致：info 为 prefix.log，error 为 -info 换成 -error，all 为两者
+     */
+    private Set<String> activeFileNames(String logPrefix, String logType) {
+        Set<String> names = new LinkedHashSet<>();
+        if (logType == null || logType.equalsIgnoreCase("all")) {
+            names.add(logPrefix + ".log");
+            names.add(logPrefix.replace("-info", "") + "-error.log");
+        } else if (logType.equalsIgnoreCase("error")) {
+            names.add(logPrefix.replace("-info", "-error") + ".log");
+        } else {
+            names.add(logPrefix + ".log");
+        }
+        return names;
+    }
+
+    private void unsubscribe(String key, TailSubscriber subscriber) {
+        followers.computeIfPresent(key, (k, follower) -> {
+            if (follower.unsubscribe(subscriber)) {
+                follower.close();
+                return null;
+            }
+            return follower;
+        });
+    }
+
+    private void pollAll() {
+        for (String key : followers.keySet()) {
+            FileFollower follower = followers.get(key);
+            if (follower == null) {
+                continue;
+            }
+            try {
+                follower.poll(properties.getTailHeartbeatMillis());
+            } catch (IOException e) {
+                log.warn("实时跟踪读取失败: {}, 错误: {}", key, e.getMessage());
+            } catch (RuntimeException e) {
+                log.error("实时跟踪失败: {}", key, e);
+            }
+            // 订阅者全部断开（发送失败被移除）后停止跟踪
+            followers.computeIfPresent(key, (k, f) -> {
+                if (f.hasSubscribers()) {
+                    return f;
+                }
+                f.close();
+                return null;
+            });
+        }
+    }
+}
@@ -1,36 +1,294 @@
 package log.tsuperman.com.logplatform.service;
 
 import log.tsuperman.com.logplatform.config.LogPlatformProperties;
+import log.tsuperman.com.logplatform.entity.AppConfig;
 import log.tsuperman.com.logplatform.entity.ServerConfig;
+import log.tsuperman.com.logplatform.search.FederatedQueryResult;
+import log.tsuperman.com.logplatform.search.LogBatchCodec;
+import log.tsuperman.com.logplatform.search.SourceQueryStatus;
+import log.tsuperman.com.logplatform.search.TimestampMerge;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URI;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * 调用其他服务器上的日志平台
+ *
+ * 所有调用共用一个带连接池的 HttpClient，连接保持复用；请求时声明 Accept-Encoding: gzip，响应自动解压。
+ * 服务器配置了 batchTransport 时，查询结果使用 {@link LogBatchCodec} 的紧凑二进制格式传输。
+ */
 @Service
 public class RemoteLogService {
-    private final RestTemplate restTemplate = new RestTemplate();
+
+    private static final Logger log = LoggerFactory.getLogger(RemoteLogService.class);
+
+    private RestTemplate restTemplate;
     
     @Autowired
     private LogPlatformProperties logPlatformProperties;
 
+    @Autowired
+    private ConfigService configService;
+
+    private CloseableHttpClient httpClient;
+
+    // 按超时时间区分的 RestTemplate，共用同一个连接池
+    private final ConcurrentHashMap<Integer, RestTemplate> timedTemplates = new ConcurrentHashMap<>();
+
+    private ExecutorService remoteExecutor;
+
+    public RemoteLogService() {
+    }
+
+    RemoteLogService(LogPlatformProperties logPlatformProperties, ConfigService configService) {
+        this.logPlatformProperties = logPlatformProperties;
+        this.configService = configService;
+        init();
+    }
+
+    @PostConstruct
+    public void init() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+                logPlatformProperties.getRemoteIdleMillis(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(logPlatformProperties.getRemoteMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(logPlatformProperties.getRemoteMaxConnectionsPerServer());
+        // 复用空闲较久的连接前先检查，避免对方已关闭
+        connectionManager.setValidateAfterInactivity(2000);
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictExpiredConnections()
+                .evictIdleConnections(logPlatformProperties.getRemoteIdleMillis(), TimeUnit.MILLISECONDS)
+                .build();
+        restTemplate = templateFor(logPlatformProperties.getRemoteTimeoutMillis());
+
+        AtomicInteger counter = new AtomicInteger();
+        remoteExecutor = Executors.newFixedThreadPool(Math.max(1, logPlatformProperties.getRemoteQueryThreads()), r -> {
+            Thread thread = new Thread(r, "remote-query-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        remoteExecutor.shutdownNow();
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            log.warn("关闭连接池失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 指定超时时间（连接、读取）的 RestTemplate
+     */
+    private RestTemplate templateFor(int timeoutMillis) {
+        return timedTemplates.computeIfAbsent(timeoutMillis, t -> {
+            HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(httpClient);
+            factory.setConnectTimeout(t);
+            factory.setReadTimeout(t);
+            factory.setConnectionRequestTimeout(t);
+            return new RestTemplate(factory);
+        });
+    }
+
+    /**
+     * 跨服务器查询：同时向所选服务器上的应用发出查询，按时间戳归并结果
+     *
+     * 每个服务器按各自的超时时间等待，超时或失败的来源不影响其他来源，结果中带每个来源的执行情况。
+     * @param serverIds 要查询的服务器
+     * @param appIds 只查询这些应用（可选，为空时查询服务器上的所有应用）
+     * @param startTime 格式 HH:mm
+     * @param endTime 格式 HH:mm
+     * @param filters 字段过滤条件（可选），原样转发给各服务器
+     * @param limit 归并后最多返回的行数
+     */
+    public FederatedQueryResult federatedQuery(List<String> serverIds, List<String> appIds, String date, String keyword,
+                                               String startTime, String endTime, String type, List<String> filters,
+                                               int limit) {
+        FederatedQueryResult result = new FederatedQueryResult();
+        List<SourceQueryStatus> statuses = new ArrayList<>();
+        List<Future<LogBatchCodec.Batch>> futures = new ArrayList<>();
+        List<Long> deadlines = new ArrayList<>();
+        long start = System.currentTimeMillis();
+
+        for (String serverId : serverIds) {
+            ServerConfig server = configService.getServerById(serverId);
+            if (server == null) {
+                SourceQueryStatus status = new SourceQueryStatus(serverId, null);
+                status.setStatus(SourceQueryStatus.ERROR);
+                status.setMessage("服务器不存在: " + serverId);
+                result.getSources().add(status);
+                continue;
+            }
+            int timeout = server.getTimeoutMillis() > 0 ? server.getTimeoutMillis() : logPlatformProperties.getRemoteTimeoutMillis();
+            for (String appId : targetApps(serverId, appIds)) {
+                statuses.add(new SourceQueryStatus(serverId, appId));
+                deadlines.add(start + timeout);
+                futures.add(remoteExecutor.submit(() -> queryRemoteApp(server, timeout, appId, date, keyword, startTime, endTime, type, filters, limit)));
+            }
+        }
+
+        List<TimestampMerge.Source> sources = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            SourceQueryStatus status = statuses.get(i);
+            Future<LogBatchCodec.Batch> future = futures.get(i);
+            try {
+                LogBatchCodec.Batch page = future.get(Math.max(0, deadlines.get(i) - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                List<String> lines = page.getLines();
+                if (page.getNextCursor() != null) {
+                    // 远程在 limit 行处截断了，后面的行没有取回
+                    status.setStatus(SourceQueryStatus.PARTIAL);
+                    status.setMessage("结果超过 " + limit + " 行，只返回了前 " + lines.size() + " 行");
+                } else {
+                    status.setStatus(SourceQueryStatus.OK);
+                }
+                status.setLines(lines.size());
+                sources.add(new TimestampMerge.Source(status.getServerId(), status.getAppId(), lines));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                status.setStatus(SourceQueryStatus.TIMEOUT);
+                status.setMessage("查询超时");
+            } catch (ExecutionException e) {
+                status.setStatus(SourceQueryStatus.ERROR);
+                status.setMessage(e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                status.setStatus(SourceQueryStatus.ERROR);
+                status.setMessage("查询被中断");
+            }
+            status.setElapsedMillis(System.currentTimeMillis() - start);
+            if (!SourceQueryStatus.OK.equals(status.getStatus()) && !SourceQueryStatus.PARTIAL.equals(status.getStatus())) {
+                log.warn("跨服务器查询失败: {}/{}, {}", status.getServerId(), status.getAppId(), status.getMessage());
+            }
+        }
+        result.getSources().addAll(statuses);
+        result.setTruncated(TimestampMerge.merge(sources, limit, result.getLines()));
+        return result;
+    }
+
+    /**
+     * 服务器上要查询的应用，没有配置应用时按服务器的默认配置查询（appId 为null）
+     */
+    private List<String> targetApps(String serverId, List<String> appIds) {
+        List<String> targets = new ArrayList<>();
+        for (AppConfig app : configService.getAppsByServerId(serverId)) {
+            if (appIds == null || appIds.isEmpty() || appIds.contains(app.getId())) {
+                targets.add(app.getId());
+            }
+        }
+        if (targets.isEmpty() && (appIds == null || appIds.isEmpty())) {
+            targets.add(null);
+        }
+        return targets;
+    }
+
+    /**
+     * 查询一个服务器上的一个应用，失败时抛出异常
+     * @return 一页结果，还有下一页时带游标
+     */
+    private LogBatchCodec.Batch queryRemoteApp(ServerConfig server, int timeoutMillis, String appId, String date, String keyword,
+                                        String startTime, String endTime, String type, List<String> filters,
+                                        int limit) {
+        // 参数值通过模板变量展开，encode() 会编码其中的全部保留字符（+、{、}、& 等）
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("date", date);
+        vars.put("startTime", startTime);
+        vars.put("endTime", endTime);
+        vars.put("pageSize", limit);
+        UriComponentsBuilder builder = UriComponentsBuilder
+                .fromHttpUrl(logPlatformProperties.getServerUrl(server))
+                .path(server.isBatchTransport() ? "/api/logs/query/batch" : "/api/logs/query")
+                .queryParam("date", "{date}")
+                .queryParam("startTime", "{startTime}")
+                .queryParam("endTime", "{endTime}")
+                .queryParam("pageSize", "{pageSize}");
+        if (keyword != null && !keyword.isEmpty()) {
+            builder.queryParam("keyword", "{keyword}");
+            vars.put("keyword", keyword);
+        }
+        if (appId != null) {
+            builder.queryParam("appId", "{appId}");
+            vars.put("appId", appId);
+        }
+        if (type != null) {
+            builder.queryParam("type", "{type}");
+            vars.put("type", type);
+        }
+        if (filters != null) {
+            for (int i = 0; i < filters.size(); i++) {
+                builder.queryParam("filter", "{filter" + i + "}");
+                vars.put("filter" + i, filters.get(i));
+            }
+        }
+        URI uri = builder.encode().buildAndExpand(vars).toUri();
+        RestTemplate template = templateFor(timeoutMillis);
+
+        if (server.isBatchTransport()) {
+            byte[] body = template.getForObject(uri, byte[].class);
+            return LogBatchCodec.decode(body != null ? body : new byte[0]);
+        }
+        ResponseEntity<Map> response = template.getForEntity(uri, Map.class);
+        Map<String, Object> responseBody = response.getBody();
+        if (responseBody == null || !Boolean.TRUE.equals(responseBody.get("success"))) {
+            throw new IllegalStateException(responseBody != null ? String.valueOf(responseBody.get("message")) : "未知错误");
+        }
+        List<String> lines = (List<String>) responseBody.get("data");
+        Map<String, Object> meta = (Map<String, Object>) responseBody.get("meta");
+        Object nextCursor = meta != null ? meta.get("nextCursor") : null;
+        return new LogBatchCodec.Batch(lines != null ? lines : new ArrayList<>(),
+                nextCursor != null ? nextCursor.toString() : null);
+    }
+
     /**
      * 查询远程服务器上的日志
      */
     public List<String> queryRemoteLogs(ServerConfig server, String date, String keyword, String startTime, String endTime, String file) {
-        String baseUrl = String.format("%s/api/logs/query", logPlatformProperties.getServerUrl(server));
-
-        String url = String.format("%s?date=%s&startTime=%s&endTime=%s", baseUrl, date, startTime, endTime);
+        // 关键字可能含有 &、#、+、{}、空格和中文，参数值通过模板变量展开，encode() 会编码其中的全部保留字符
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("date", date);
+        vars.put("startTime", startTime);
+        vars.put("endTime", endTime);
+        UriComponentsBuilder builder = UriComponentsBuilder
+                .fromHttpUrl(logPlatformProperties.getServerUrl(server))
+                .path("/api/logs/query")
+                .queryParam("date", "{date}")
+                .queryParam("startTime", "{startTime}")
+                .queryParam("endTime", "{endTime}");
         
         if (keyword != null && !keyword.isEmpty()) {
-            url += "&keyword=" + keyword;
+            builder.queryParam("keyword", "{keyword}");
+            vars.put("keyword", keyword);
         }
         
         if (file != null && !file.isEmpty()) {
-            url += "&file=" + file;
+            builder.queryParam("file", "{file}");
+            vars.put("file", file);
         }
+        URI url = builder.encode().buildAndExpand(vars).toUri();
 
         try {
             ResponseEntity<Map> response = restTemplate.getForEntity(url, Map.class);
@@ -39,11 +297,11 @@ public class RemoteLogService {
             if (responseBody != null && (Boolean)responseBody.get("success")) {
                 return (List<String>)responseBody.get("data");
             } else {
-                System.err.println("远程查询失败: " + (responseBody != null ? responseBody.get("message") : "未知错误"));
+                log.warn("远程查询失败: {}", responseBody != null ? responseBody.get("message") : "未知错误");
                 return new ArrayList<>(); // 返回空列表
             }
         } catch (Exception e) {
-            System.err.println("调用远程服务失败: " + e.getMessage());
+            log.warn("调用远程服务失败: {}", e.getMessage());
             return new ArrayList<>(); // 返回空列表
         }
     }
@@ -60,11 +318,11 @@ public class RemoteLogService {
             if (responseBody != null && (Boolean)responseBody.get("success")) {
                 return (Set<String>)responseBody.get("data");
             } else {
-                System.err.println("获取远程日期列表失败: " + (responseBody != null ? responseBody.get("message") : "未知错误"));
+                log.warn("获取远程日期列表失败: {}", responseBody != null ? responseBody.get("message") : "未知错误");
                 return new HashSet<>(); // 返回空集合
             }
         } catch (Exception e) {
-            System.err.println("调用远程服务失败: " + e.getMessage());
+            log.warn("调用远程服务失败: {}", e.getMessage());
             return new HashSet<>(); // 返回空集合
         }
     }
@@ -73,7 +331,9 @@ public class RemoteLogService {
      * 获取远程服务器上指定日期的日志文件列表
      */
     public List<Map<String, Object>> getRemoteDateLogFiles(ServerConfig server, String date) {
-        String url = String.format("%s/api/logs/files/%s", logPlatformProperties.getServerUrl(server), date);
+        URI url = UriComponentsBuilder.fromHttpUrl(logPlatformProperties.getServerUrl(server))
+                .path("/api/logs/files/{date}")
+                .buildAndExpand(date).encode().toUri();
 
         try {
             ResponseEntity<Map> response = restTemplate.getForEntity(url, Map.class);
@@ -82,11 +342,11 @@ public class RemoteLogService {
             if (responseBody != null && (Boolean)responseBody.get("success")) {
                 return (List<Map<String, Object>>)responseBody.get("data");
             } else {
-                System.err.println("获取远程日志文件列表失败: " + (responseBody != null ? responseBody.get("message") : "未知错误"));
+                log.warn("获取远程日志文件列表失败: {}", responseBody != null ? responseBody.get("message") : "未知错误");
                 return new ArrayList<>(); // 返回空列表
             }
         } catch (Exception e) {
-            System.err.println("调用远程服务失败: " + e.getMessage());
+            log.warn("调用远程服务失败: {}", e.getMessage());
             return new ArrayList<>(); // 返回空列表
         }
     }
@@ -0,0 +1,306 @@
+package log.tsuperman.com.logplatform.service;
+
+import log.tsuperman.com.logplatform.config.LogPlatformProperties;
+import log.tsuperman.com.logplatform.entity.AppConfig;
+import log.tsuperman.com.logplatform.search.FederatedLogLine;
+import log.tsuperman.com.logplatform.search.FederatedQueryResult;
+import log.tsuperman.com.logplatform.search.FileSearchExecutor;
+import log.tsuperman.com.logplatform.search.LogFileCatalog;
+import log.tsuperman.com.logplatform.search.LogFileEntry;
+import log.tsuperman.com.logplatform.search.ReadThrottle;
+import log.tsuperman.com.logplatform.search.SourceQueryStatus;
+import log.tsuperman.com.logplatform.search.TraceEvent;
+import log.tsuperman.com.logplatform.search.TraceIndexRegistry;
+import org.apache.logging.log4j.util.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按 traceId 查询一次调用在所有应用中的日志
+ *
+ * 后台定期为所有已配置应用最近几天（含当天）的 info 日志更新 traceId 索引（见 {@link TraceIndexRegistry}），
+ * 查询时只补读活跃文件新增的部分，再按索引直接读取命中的日志事件，不扫描整个文件。
+ * 索引的总大小超过 trace-index-max-bytes 时从最近的文件开始保留，较早的文件不建立索引；
+ * 查询遇到没有索引的文件时安排在后台按限速建立，该应用标记为部分结果。
+ * error 日志中的内容在 info 日志中都有，不建立索引，避免时间线中出现重复的行。
+ */
+@Service
+public class TraceService {
+
+    private static final Logger log = LoggerFactory.getLogger(TraceService.class);
+
+    @Autowired
+    private LogPlatformProperties properties;
+
+    @Autowired
+    private ConfigService configService;
+
+    @Autowired
+    private LogFileCatalog logFileCatalog;
+
+    @Autowired
+    private TraceIndexRegistry traceIndexRegistry;
+
+    @Autowired
+    private FileSearchExecutor fileSearchExecutor;
+
+    private ScheduledExecutorService scheduler;
+    private ReadThrottle throttle;
+
+    /** 上次更新时因超过内存上限而没有建立索引的文件数 */
+    private volatile int skippedFiles;
+
+    public TraceService() {
+    }
+
+    TraceService(LogPlatformProperties properties, ConfigService configService, LogFileCatalog logFileCatalog,
+                 TraceIndexRegistry traceIndexRegistry, FileSearchExecutor fileSearchExecutor) {
+        this.properties = properties;
+        this.configService = configService;
+        this.logFileCatalog = logFileCatalog;
+        this.traceIndexRegistry = traceIndexRegistry;
+        this.fileSearchExecutor = fileSearchExecutor;
+        init();
+    }
+
+    @PostConstruct
+    public void init() {
+        throttle = fileSearchExecutor.getBackgroundThrottle();
+        if (properties.getTraceIndexRefreshMillis() <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "trace-index-refresh");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refresh, 0, properties.getTraceIndexRefreshMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 从最近的文件开始更新所有应用最近几天的索引，丢弃超出天数或超出内存上限的文件的索引
+     * @return 已建立索引的文件数
+     */
+    public int refresh() {
+        List<Path> files = new ArrayList<>();
+        int skipped = 0;
+        try {
+            long bytes = 0;
+            for (Path file : recentFilesNewestFirst(sources(null))) {
+                if (bytes >= properties.getTraceIndexMaxBytes()) {
+                    skipped++;
+                    continue;
+                }
+                try {
+                    bytes += traceIndexRegistry.update(file, throttle).sizeInBytes();
+                    files.add(file);
+                } catch (IOException e) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return files.size();
+                    }
+                    log.warn("更新traceId索引失败: {}, 错误: {}", file, e.getMessage());
+                }
+            }
+            traceIndexRegistry.retain(files);
+            skippedFiles = skipped;
+        } catch (RuntimeException e) {
+            // 调度线程遇到异常会停止后续执行
+            log.warn("更新traceId索引失败: {}", e.getMessage());
+        }
+        return files.size();
+    }
+
+    /**
+     * 查询 traceId 在各应用中的日志，按时间（精确到毫秒）排列，同一时间按应用顺序；堆栈等行跟在所属日志之后
+     * @param serverId 只查询该服务器的应用（可选）
+     * @param limit 输出行数达到该值后，在当前事件结束时停止
+     * @throws IllegalArgumentException traceId 为空
+     */
+    public FederatedQueryResult trace(String traceId, String serverId, int limit) {
+        if (Strings.isBlank(traceId)) {
+            throw new IllegalArgumentException("traceId不能为空");
+        }
+        String id = traceId.trim();
+        FederatedQueryResult result = new FederatedQueryResult();
+        List<SourceEvent> events = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        for (TraceSource source : sources(serverId)) {
+            SourceQueryStatus status = new SourceQueryStatus(source.serverId, source.appId);
+            status.setStatus(SourceQueryStatus.OK);
+            int lines = 0;
+            int unindexed = 0;
+            for (Path file : recentFiles(source)) {
+                try {
+                    List<TraceEvent> found = traceIndexRegistry.find(file, id);
+                    if (found == null) {
+                        // 不在请求线程中读取整个文件
+                        unindexed++;
+                        if (traceIndexRegistry.getSizeInBytes() < properties.getTraceIndexMaxBytes()) {
+                            traceIndexRegistry.scheduleUpdate(file, throttle);
+                        }
+                        continue;
+                    }
+                    for (TraceEvent event : found) {
+                        events.add(new SourceEvent(source, event));
+                        lines += event.getLines().size();
+                    }
+                } catch (IOException e) {
+                    status.setStatus(SourceQueryStatus.ERROR);
+                    status.setMessage(file.getFileName() + ": " + e.getMessage());
+                }
+            }
+            if (unindexed > 0 && SourceQueryStatus.OK.equals(status.getStatus())) {
+                status.setStatus(SourceQueryStatus.PARTIAL);
+                status.setMessage(unindexed + " 个文件还没有traceId索引，没有查询");
+            }
+            status.setLines(lines);
+            status.setElapsedMillis(System.currentTimeMillis() - start);
+            result.getSources().add(status);
+        }
+
+        // 稳定排序，时间相同时保持应用、文件中的先后
+        events.sort(Comparator.comparingLong(e -> e.event.getTime()));
+        for (SourceEvent e : events) {
+            if (result.getLines().size() >= limit) {
+                result.setTruncated(true);
+                break;
+            }
+            for (String line : e.event.getLines()) {
+                result.getLines().add(new FederatedLogLine(e.source.serverId, e.source.appId, line));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 索引覆盖的文件数和条目数
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("days", properties.getTraceIndexDays());
+        status.put("files", traceIndexRegistry.getFileCount());
+        status.put("entries", traceIndexRegistry.getEntryCount());
+        status.put("bytes", traceIndexRegistry.getSizeInBytes());
+        status.put("maxBytes", properties.getTraceIndexMaxBytes());
+        status.put("skippedFiles", skippedFiles);
+        return status;
+    }
+
+    /**
+     * 要查询的应用，同一个日志目录和前缀只取一次；默认配置的目录没有被任何应用使用时也包含在内（appId 为空字符串）
+     */
+    private List<TraceSource> sources(String serverId) {
+        List<TraceSource> sources = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (AppConfig app : configService.getAllApps()) {
+            if (Strings.isEmpty(app.getLogPath()) || Strings.isEmpty(app.getLogPrefix())) {
+                continue;
+            }
+            if (!Strings.isEmpty(serverId) && !serverId.equals(app.getServerId())) {
+                continue;
+            }
+            if (seen.add(directoryKey(app.getLogPath(), app.getLogPrefix()))) {
+                sources.add(new TraceSource(app.getId(), app.getServerId(), app.getLogPath(), app.getLogPrefix()));
+            }
+        }
+        if (Strings.isEmpty(serverId) && seen.add(directoryKey(properties.getFullLogPath(), properties.getLogPrefix()))) {
+            sources.add(new TraceSource("", null, properties.getFullLogPath(), properties.getLogPrefix()));
+        }
+        return sources;
+    }
+
+    /**
+     * 应用最近几天的 info 日志文件，按日期、序号排列
+     */
+    private List<Path> recentFiles(TraceSource source) {
+        List<Path> files = new ArrayList<>();
+        LocalDate today = LocalDate.now();
+        for (int i = Math.max(1, properties.getTraceIndexDays()) - 1; i >= 0; i--) {
+            List<LogFileEntry> entries = logFileCatalog.getFiles(source.logPath, source.logPrefix,
+                    today.minusDays(i).toString(), LogFileEntry.INFO);
+            if (entries == null) {
+                return files;
+            }
+            for (LogFileEntry entry : entries) {
+                files.add(entry.getFile().toPath());
+            }
+        }
+        return files;
+    }
+
+    /**
+     * 所有应用最近几天的 info 日志文件，从最近的开始：先按日期倒序，同一天内各应用的文件按序号倒序
+     */
+    private List<Path> recentFilesNewestFirst(List<TraceSource> sources) {
+        List<Path> files = new ArrayList<>();
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < Math.max(1, properties.getTraceIndexDays()); i++) {
+            for (TraceSource source : sources) {
+                List<LogFileEntry> entries = logFileCatalog.getFiles(source.logPath, source.logPrefix,
+                        today.minusDays(i).toString(), LogFileEntry.INFO);
+                if (entries == null) {
+                    continue;
+                }
+                for (int j = entries.size() - 1; j >= 0; j--) {
+                    files.add(entries.get(j).getFile().toPath());
+                }
+            }
+        }
+        return files;
+    }
+
+    private static String directoryKey(String logPath, String logPrefix) {
+        return Paths.get(logPath).toAbsolutePath().normalize() + "\u0000" + logPrefix;
+    }
+
+    private static class TraceSource {
+        private final String appId;
+        private final String serverId;
+        private final String logPath;
+        private final String logPrefix;
+
+        TraceSource(String appId, String serverId, String logPath, String logPrefix) {
+            this.appId = appId;
+            this.serverId = serverId;
+            this.logPath = logPath;
+            this.logPrefix = logPrefix;
+        }
+    }
+
+    private static class SourceEvent {
+        private final TraceSource source;
+        private final TraceEvent event;
+
+        SourceEvent(TraceSource source, TraceEvent event) {
+            this.source = source;
+            this.event = event;
+        }
+    }
+}
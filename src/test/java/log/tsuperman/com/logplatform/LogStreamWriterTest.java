@@ -0,0 +1,55 @@
+package log.tsuperman.com.logplatform;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import log.tsuperman.com.logplatform.search.LogQueryResult;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogStreamWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testNdjsonRecordsAndFirstLineFlushedImmediately() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LogStreamWriter writer = new LogStreamWriter(out, objectMapper, false);
+
+        writer.accept("2026-01-08 10:00:00.000 ERROR \"引号\" 失败");
+        assertTrue(out.size() > 0, "第一行应立即发送");
+        writer.accept("\tat com.x.A.run(A.java:1)");
+        writer.flush();
+
+        LogQueryResult result = new LogQueryResult();
+        result.setFilesScanned(2);
+        result.setNextCursor("abc");
+        writer.finish(result, null);
+
+        String[] records = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, records.length);
+        assertEquals("2026-01-08 10:00:00.000 ERROR \"引号\" 失败", objectMapper.readTree(records[0]).get("line").asText());
+        assertEquals("\tat com.x.A.run(A.java:1)", objectMapper.readTree(records[1]).get("line").asText());
+        JsonNode done = objectMapper.readTree(records[2]);
+        assertTrue(done.get("done").asBoolean());
+        assertEquals(2, done.get("lines").asInt());
+        assertEquals(2, done.get("filesScanned").asInt());
+        assertEquals("abc", done.get("nextCursor").asText());
+    }
+
+    @Test
+    void testServerSentEvents() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LogStreamWriter writer = new LogStreamWriter(out, objectMapper, true);
+        writer.accept("line one");
+        writer.finish(null, "查询日志失败: x");
+
+        String text = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(text.startsWith("event: line\ndata: {\"line\":\"line one\"}\n\n"));
+        assertTrue(text.contains("event: done\ndata: {\"done\":true,\"success\":false,\"lines\":1,\"message\":\"查询日志失败: x\"}\n\n"));
+    }
+}
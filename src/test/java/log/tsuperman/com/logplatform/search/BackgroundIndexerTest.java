@@ -0,0 +1,124 @@
+package log.tsuperman.com.logplatform.search;
+
+import log.tsuperman.com.logplatform.config.LogPlatformProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackgroundIndexerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void indexesSealedFilesAndReportsProgress() throws Exception {
+        Path logs = Files.createDirectory(dir.resolve("logs"));
+        Path first = writeLog(logs.resolve("task-center-info.2026-01-07.0.log"), "2026-01-07");
+        Path second = writeLog(logs.resolve("task-center-info.2026-01-08.0.log"), "2026-01-08");
+        Path active = writeLog(logs.resolve("task-center-info.log"), "2026-01-09");
+
+        LogPlatformProperties properties = new LogPlatformProperties();
+        properties.setIndexPath(dir.resolve("index").toString());
+        properties.setIndexerReadBytesPerSecond(0);
+        LogFileCatalog catalog = new LogFileCatalog();
+        FileBloomFilterRegistry bloom = new FileBloomFilterRegistry(properties);
+        TrigramIndexRegistry trigram = new TrigramIndexRegistry(properties);
+        TimeIndexRegistry timeIndexes = new TimeIndexRegistry();
+        FileSearchExecutor executor = new FileSearchExecutor(properties);
+        BackgroundIndexer indexer = new BackgroundIndexer(properties, catalog, bloom, trigram, timeIndexes,
+                new FileTimeRangeCache(timeIndexes), executor);
+        try {
+            assertEquals(2, indexer.scanApp("app-1", "task-center", logs.toString(), "task-center-info"));
+            long deadline = System.currentTimeMillis() + 10000;
+            while (pendingFiles(indexer) > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            Map<String, Object> app = appStatus(indexer);
+            assertEquals(2, app.get("totalFiles"));
+            assertEquals(2, app.get("indexedFiles"));
+            assertEquals(0L, app.get("pendingBytes"));
+
+            assertTrue(bloom.isStored(first) && bloom.isStored(second));
+            assertTrue(trigram.isStored(first) && trigram.isStored(second));
+            assertFalse(bloom.isStored(active) || trigram.isStored(active));
+            assertEquals(Files.size(second), timeIndexes.get(second).coveredUpTo());
+
+            // 已建立的不再排队
+            assertEquals(0, indexer.scanApp("app-1", "task-center", logs.toString(), "task-center-info"));
+            assertEquals(2, appStatus(indexer).get("indexedFiles"));
+
+            // 日志按保留期清理后，下次检查时删除留下的索引
+            Files.delete(first);
+            indexer.scanApp("app-1", "task-center", logs.toString(), "task-center-info");
+            assertEquals(1, countFiles(dir.resolve("index").resolve("bloom")));
+            assertEquals(1, countFiles(dir.resolve("index").resolve("trigram")));
+            assertTrue(bloom.isStored(second) && trigram.isStored(second));
+        } finally {
+            indexer.shutdown();
+            bloom.shutdown();
+            trigram.shutdown();
+            executor.shutdown();
+            catalog.shutdown();
+        }
+    }
+
+    @Test
+    void throttleLimitsRateAndYieldsToQueries() throws Exception {
+        ReadThrottle throttle = new ReadThrottle(1024 * 1024, null);
+        long start = System.nanoTime();
+        // 先用掉1秒的额度，再读0.25秒的量
+        throttle.acquire(1024 * 1024);
+        throttle.acquire(256 * 1024);
+        assertTrue(System.nanoTime() - start >= 200_000_000L);
+        assertEquals(1280 * 1024, throttle.getBytesRead());
+
+        AtomicBoolean busy = new AtomicBoolean(true);
+        ReadThrottle yielding = new ReadThrottle(0, busy::get);
+        Thread release = new Thread(() -> {
+            try {
+                Thread.sleep(150);
+            } catch (InterruptedException ignored) {
+            }
+            busy.set(false);
+        });
+        release.start();
+        start = System.nanoTime();
+        yielding.acquire(1);
+        assertTrue(System.nanoTime() - start >= 100_000_000L);
+        release.join();
+    }
+
+    private static int pendingFiles(BackgroundIndexer indexer) {
+        return (Integer) appStatus(indexer).get("pendingFiles");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> appStatus(BackgroundIndexer indexer) {
+        return ((List<Map<String, Object>>) indexer.getStatus().get("apps")).get(0);
+    }
+
+    private static long countFiles(Path directory) throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private static Path writeLog(Path file, String date) throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            lines.add(date + " 10:00:" + String.format("%02d", i % 60) + ".000 INFO 6762 [main] com.x.Job order-" + i);
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+        return file;
+    }
+}
@@ -0,0 +1,75 @@
+package log.tsuperman.com.logplatform.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileFollowerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testFollowsAppendsAndRotation() throws IOException {
+        Path active = tempDir.resolve("task-center-info.log");
+        append(active, "2026-01-08 10:00:00.000 INFO old line\n");
+
+        FileFollower follower = new FileFollower(active);
+        List<String> all = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        follower.subscribe(new TailSubscriber(null, all::add));
+        follower.subscribe(new TailSubscriber("error", errors::add));
+
+        // 从末尾开始，已有内容不发送
+        follower.poll(Long.MAX_VALUE);
+        assertTrue(all.isEmpty());
+
+        append(active, "2026-01-08 10:00:01.000 INFO a\n2026-01-08 10:00:02.000 ERROR b\n2026-01-08 10:00:03.000 INFO hal");
+        follower.poll(Long.MAX_VALUE);
+        assertEquals(Arrays.asList("2026-01-08 10:00:01.000 INFO a", "2026-01-08 10:00:02.000 ERROR b"), all);
+        assertEquals(Collections.singletonList("2026-01-08 10:00:02.000 ERROR b"), errors);
+
+        // 半行写完后再发送；随后轮转：旧文件改名，同名新建
+        append(active, "f\n2026-01-08 10:00:04.000 INFO last of old");
+        Files.move(active, tempDir.resolve("task-center-info.2026-01-08.1.log"));
+        append(active, "2026-01-08 10:00:05.000 ERROR new file\n");
+        follower.poll(Long.MAX_VALUE);
+
+        assertEquals(Arrays.asList("2026-01-08 10:00:01.000 INFO a", "2026-01-08 10:00:02.000 ERROR b",
+                "2026-01-08 10:00:03.000 INFO half", "2026-01-08 10:00:04.000 INFO last of old",
+                "2026-01-08 10:00:05.000 ERROR new file"), all);
+        assertEquals(Arrays.asList("2026-01-08 10:00:02.000 ERROR b", "2026-01-08 10:00:05.000 ERROR new file"), errors);
+        follower.close();
+    }
+
+    @Test
+    void testFailingSubscriberIsRemoved() throws IOException {
+        Path active = tempDir.resolve("app.log");
+        append(active, "");
+        FileFollower follower = new FileFollower(active);
+        TailSubscriber broken = new TailSubscriber(null, line -> {
+            throw new IllegalStateException("closed");
+        });
+        follower.subscribe(broken);
+        follower.poll(Long.MAX_VALUE);
+        append(active, "2026-01-08 10:00:01.000 INFO a\n");
+        follower.poll(Long.MAX_VALUE);
+        assertFalse(follower.hasSubscribers());
+        follower.close();
+    }
+
+    private void append(Path file, String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
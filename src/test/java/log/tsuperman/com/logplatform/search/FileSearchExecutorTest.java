@@ -0,0 +1,134 @@
+package log.tsuperman.com.logplatform.search;
+
+import log.tsuperman.com.logplatform.config.LogPlatformProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileSearchExecutorTest {
+
+    private FileSearchExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        LogPlatformProperties properties = new LogPlatformProperties();
+        properties.setFileSearchThreads(8);
+        executor = new FileSearchExecutor(properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void testResultsInTaskOrderWithinServerLimit() throws InterruptedException {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            int n = i;
+            tasks.add(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                // 序号越小耗时越长，完成顺序与任务顺序相反
+                Thread.sleep((20 - n) * 2L);
+                running.decrementAndGet();
+                return n;
+            });
+        }
+        List<Integer> consumed = new ArrayList<>();
+        executor.forEachInOrder("server-1", 3, tasks, consumed::add);
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, consumed.get(i));
+        }
+        assertTrue(maxRunning.get() <= 3, "maxRunning=" + maxRunning.get());
+    }
+
+    @Test
+    void testStopCancelsRemainingTasks() throws InterruptedException {
+        AtomicInteger started = new AtomicInteger();
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            int n = i;
+            tasks.add(() -> {
+                started.incrementAndGet();
+                Thread.sleep(5);
+                return n;
+            });
+        }
+        List<Integer> consumed = new ArrayList<>();
+        executor.forEachInOrder("server-1", 2, tasks, n -> {
+            consumed.add(n);
+            return consumed.size() < 3;
+        });
+
+        assertEquals(3, consumed.size());
+        assertTrue(started.get() < 50);
+
+        // 取消的任务归还了许可，后续查询仍能使用全部并发数
+        List<Integer> again = new ArrayList<>();
+        executor.forEachInOrder("server-1", 2, tasks.subList(0, 4), again::add);
+        assertEquals(4, again.size());
+    }
+
+    @Test
+    void testCancelledTaskKeepsPermitUntilItStopsReading() throws InterruptedException {
+        AtomicInteger reading = new AtomicInteger();
+        AtomicInteger maxReading = new AtomicInteger();
+        CountDownLatch stuckStarted = new CountDownLatch(1);
+        CountDownLatch finishStuck = new CountDownLatch(1);
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        tasks.add(() -> 0);
+        tasks.add(() -> {
+            reading.incrementAndGet();
+            stuckStarted.countDown();
+            // 不响应中断的读取
+            while (finishStuck.getCount() > 0) {
+                try {
+                    finishStuck.await();
+                } catch (InterruptedException e) {
+                    // 继续读
+                }
+            }
+            reading.decrementAndGet();
+            return 1;
+        });
+        try {
+            executor.forEachInOrder("server-1", 2, tasks, n -> {
+                try {
+                    stuckStarted.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return false;
+            });
+
+            // 被取消但仍在读取的任务占着许可，后续查询只能再用一个
+            List<Callable<Integer>> next = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                int n = i;
+                next.add(() -> {
+                    maxReading.accumulateAndGet(reading.incrementAndGet(), Math::max);
+                    Thread.sleep(20);
+                    reading.decrementAndGet();
+                    return n;
+                });
+            }
+            List<Integer> consumed = new ArrayList<>();
+            executor.forEachInOrder("server-1", 2, next, consumed::add);
+            assertEquals(4, consumed.size());
+            assertEquals(2, maxReading.get());
+        } finally {
+            finishStuck.countDown();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package log.tsuperman.com.logplatform.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileTimeRangeCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final FileTimeRangeCache cache = new FileTimeRangeCache(new TimeIndexRegistry());
+
+    @Test
+    void testHeadAndTailOfLargeFile() throws IOException {
+        Path file = tempDir.resolve("task-center-info.2026-01-08.1.log");
+        Files.write(file, lines(0, 3000), StandardCharsets.UTF_8);
+
+        FileTimeRange range = cache.get(file);
+        assertEquals("2026-01-08 08:00:00", range.getEarliestTime());
+        assertEquals("2026-01-08 08:49:59", range.getLatestTime());
+        assertSame(range, cache.get(file));
+    }
+
+    @Test
+    void testTrailingStackTraceAndAppend() throws IOException {
+        Path file = tempDir.resolve("task-center-info.log");
+        List<String> content = lines(0, 2000);
+        for (int i = 0; i < 3000; i++) {
+            content.add("\tat com.central.apps.job.TroubleSubmitJob.run(TroubleSubmitJob.java:" + i + ")");
+        }
+        Files.write(file, content, StandardCharsets.UTF_8);
+        assertEquals("2026-01-08 08:33:19", cache.get(file).getLatestTime());
+
+        Files.write(file, lines(2000, 2100), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        FileTimeRange range = cache.get(file);
+        assertEquals("2026-01-08 08:00:00", range.getEarliestTime());
+        assertEquals("2026-01-08 08:34:59", range.getLatestTime());
+    }
+
+    @Test
+    void testOutOfOrderFileFallsBackToFullScan() throws IOException {
+        Path file = tempDir.resolve("task-center-info.2026-01-08.2.log");
+        List<String> content = lines(0, 3000);
+        Collections.swap(content, 10, 2990);
+        Files.write(file, content, StandardCharsets.UTF_8);
+
+        FileTimeRange range = cache.get(file);
+        assertEquals("2026-01-08 08:00:00", range.getEarliestTime());
+        assertEquals("2026-01-08 08:49:59", range.getLatestTime());
+    }
+
+    @Test
+    void testFileWithoutTimestamps() throws IOException {
+        Path file = tempDir.resolve("task-center-info.2026-01-08.3.log");
+        Files.write(file, Collections.singletonList("no timestamp here"), StandardCharsets.UTF_8);
+        assertTrue(cache.get(file).isEmpty());
+    }
+
+    private List<String> lines(int from, int to) {
+        List<String> lines = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            lines.add(String.format("[task-center:172.28.243.190:30736] [,] 2026-01-08 08:%02d:%02d.%03d INFO 6762 [main] "
+                    + "com.central.apps.job.TroubleSubmitJob 最终的结果是：%d,位置描述为：拉晶事业部/青海拉晶", i / 60, i % 60, i % 1000, i));
+        }
+        return lines;
+    }
+}
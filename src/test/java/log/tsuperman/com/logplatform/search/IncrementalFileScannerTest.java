@@ -0,0 +1,126 @@
+package log.tsuperman.com.logplatform.search;
+
+import log.tsuperman.com.logplatform.config.LogPlatformProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementalFileScannerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ParallelFileScanner parallelFileScanner;
+    private IncrementalFileScanner incrementalFileScanner;
+
+    @BeforeEach
+    void setUp() {
+        LogPlatformProperties properties = new LogPlatformProperties();
+        parallelFileScanner = new ParallelFileScanner(properties, 16L * 1024 * 1024);
+        incrementalFileScanner = new IncrementalFileScanner(parallelFileScanner, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        parallelFileScanner.shutdown();
+    }
+
+    @Test
+    void testRepeatReadsOnlyAppendedBytes() throws IOException {
+        Path file = tempDir.resolve("task-center-info.log");
+        append(file, event(1, "ERROR first failure") + "\tat com.x.A.run(A.java:1)\n" + event(2, "INFO ok"));
+        LogFileScanner scanner = new LogFileScanner("a", "00:00:00", "23:59:59");
+        assertEquals(scanner.scan(file, 1000), scan(scanner, file));
+
+        // 同长度改写已扫描过的内容：增量扫描不会再读它，说明只读了新增部分
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(event(1, "").length());
+            raf.write("EXXOR".getBytes(StandardCharsets.UTF_8));
+        }
+        // 上次最后一条日志的堆栈还在继续写
+        append(file, "\tat com.x.B.call(B.java:2)\n" + event(3, "WARN again"));
+        List<String> lines = scan(scanner, file);
+        assertTrue(lines.get(0).contains("ERROR first failure"));
+        assertEquals(5, lines.size());
+        assertEquals("\tat com.x.B.call(B.java:2)", lines.get(3));
+    }
+
+    @Test
+    void testTruncatedFileIsRescanned() throws IOException {
+        Path file = tempDir.resolve("task-center-info.log");
+        append(file, event(1, "ERROR old") + event(2, "ERROR old"));
+        LogFileScanner scanner = new LogFileScanner("error", "00:00:00", "23:59:59");
+        assertEquals(2, scan(scanner, file).size());
+
+        // copytruncate 后重新写入，长度超过原来的扫描位置
+        Files.write(file, (event(3, "ERROR new") + event(4, "INFO new") + event(5, "INFO new")).getBytes(StandardCharsets.UTF_8));
+        assertEquals(scanner.scan(file, 1000), scan(scanner, file));
+    }
+
+    @Test
+    void testLimitedResultReturnedFromCache() throws IOException {
+        Path file = tempDir.resolve("task-center-info.log");
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            text.append(event(i, "ERROR e" + i));
+        }
+        append(file, text.toString());
+        LogFileScanner scanner = new LogFileScanner("error", "00:00:00", "23:59:59");
+        FileScanResult first = incrementalFileScanner.scan(scanner, file, 5, null, 0);
+        append(file, event(30, "ERROR later"));
+        FileScanResult second = incrementalFileScanner.scan(scanner, file, 5, null, 0);
+        assertEquals(first.getLines(), second.getLines());
+        assertEquals(first.getEndOffset(), second.getEndOffset());
+        assertTrue(second.isLimitReached());
+    }
+
+    @Test
+    void testCacheBoundedByBytes() throws IOException {
+        LogPlatformProperties properties = new LogPlatformProperties();
+        properties.setIncrementalCacheBytes(8 * 1024);
+        IncrementalFileScanner bounded = new IncrementalFileScanner(parallelFileScanner, properties);
+        LogFileScanner scanner = new LogFileScanner("error", "00:00:00", "23:59:59");
+        for (int i = 0; i < 20; i++) {
+            Path file = tempDir.resolve("task-center-info." + i + ".log");
+            append(file, event(1, "ERROR e" + i) + event(2, "ERROR f" + i));
+            assertEquals(2, bounded.scan(scanner, file, 1000, null, 0).getLineCount());
+            assertTrue(bounded.cachedBytes() <= 8 * 1024);
+        }
+        int count = bounded.cachedCount();
+        assertTrue(count > 0 && count < 20);
+
+        // 超过上限1/4的结果不缓存
+        Path large = tempDir.resolve("task-center-info.large.log");
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            text.append(event(i, "ERROR e" + i));
+        }
+        append(large, text.toString());
+        assertEquals(50, bounded.scan(scanner, large, 1000, null, 0).getLineCount());
+        assertEquals(count, bounded.cachedCount());
+    }
+
+    private List<String> scan(LogFileScanner scanner, Path file) throws IOException {
+        return incrementalFileScanner.scan(scanner, file, 1000, null, 0).getLines();
+    }
+
+    private static String event(int second, String message) {
+        return String.format("[task-center:127.0.0.1:8080] [,] 2026-01-08 10:00:%02d.000 %s%n", second, message)
+                .replace(System.lineSeparator(), "\n");
+    }
+
+    private static void append(Path file, String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,103 @@
+package log.tsuperman.com.logplatform.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeywordMatcherTest {
+
+    private static final String[] LINES = {
+            "[task-center:172.28.243.190:30736] [,] 2026-01-08 14:02:00.894 INFO 6762 [xxl-job, JobThread-11-1767852120013] com.central.apps.job.TroubleSubmitJob 最终的结果是：null,位置描述为：拉晶事业部/青海拉晶/二期切方硅料车间/开方/14#高测开方机",
+            "[task-center:172.28.243.190:30736] [a1b2c3,d4e5] 2026-01-08 14:02:01.001 ERROR 6762 [http-nio-8080-exec-3] com.central.apps.service.OrderService 订单ORD20260108001处理失败",
+            "java.lang.NullPointerException: 设备编号为空",
+            "\tat com.central.apps.service.OrderService.process(OrderService.java:128)",
+            "",
+            "a",
+            "AAAAAAAAAAAAAAAAAAAAB",
+            "混合Mixed大小写CASE文本text",
+    };
+
+    private static final String[] KEYWORDS = {
+            "troublesubmitjob", "TroubleSubmitJob", "TROUBLESUBMITJOB", "error", "Error", "null", "NULL",
+            "拉晶", "青海拉晶/二期", "订单ord", "ORD20260108001", "处理失败", "设备编号为空", "14#高测", "at com",
+            "\tat", "a", "A", "aab", "AAB", "b", "混合mixed", "大小写case", "TEXT", "不存在的关键字", "zzz",
+            "[task-center:172.28.243.190:30736] [,] 2026-01-08 14:02:00.894 INFO 6762 [xxl-job, JobThread-11-1767852120013] com.central.apps.job.TroubleSubmitJob 最终的结果是：null,位置描述为：拉晶事业部/青海拉晶/二期切方硅料车间/开方/14#高测开方机 and longer",
+    };
+
+    @Test
+    void testSameResultsAsToLowerCaseContains() {
+        for (String keyword : KEYWORDS) {
+            KeywordMatcher matcher = KeywordMatcher.compile(keyword);
+            for (String line : LINES) {
+                assertMatchesLikeReference(matcher, keyword, line);
+            }
+        }
+    }
+
+    @Test
+    void testEmptyKeywordMatchesEverything() {
+        for (String keyword : new String[]{null, ""}) {
+            KeywordMatcher matcher = KeywordMatcher.compile(keyword);
+            assertTrue(matcher.matchesAll());
+            for (String line : LINES) {
+                assertTrue(matcher.matches(line));
+                byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+                assertTrue(matcher.matches(bytes, 0, bytes.length));
+            }
+        }
+    }
+
+    @Test
+    void testMatchesWithinByteRange() {
+        byte[] bytes = "xxERRORxx拉晶xx".getBytes(StandardCharsets.UTF_8);
+        KeywordMatcher matcher = KeywordMatcher.compile("error");
+        assertTrue(matcher.matches(bytes, 2, 7));
+        assertFalse(matcher.matches(bytes, 3, bytes.length));
+        assertTrue(KeywordMatcher.compile("拉晶").matches(bytes, 9, 15));
+        assertFalse(KeywordMatcher.compile("拉晶").matches(bytes, 10, 15));
+    }
+
+    @Test
+    void testCasedNonAsciiKeywordFallsBack() {
+        String[] lines = {"Größe ÄNDERUNG", "ΟΔΟΣ odos", "straße"};
+        String[] keywords = {"änderung", "ÄNDERUNG", "größe", "οδος", "ΟΔΟΣ", "STRASSE", "ß"};
+        for (String keyword : keywords) {
+            KeywordMatcher matcher = KeywordMatcher.compile(keyword);
+            for (String line : lines) {
+                assertMatchesLikeReference(matcher, keyword, line);
+            }
+        }
+    }
+
+    @Test
+    void testRandomAsciiAndChinese() {
+        Random random = new Random(20260108L);
+        String alphabet = "aAbBcC-_. :[]拉晶设备订单0123";
+        for (int round = 0; round < 20000; round++) {
+            String line = randomString(random, alphabet, random.nextInt(40));
+            String keyword = randomString(random, alphabet, 1 + random.nextInt(4));
+            assertMatchesLikeReference(KeywordMatcher.compile(keyword), keyword, line);
+        }
+    }
+
+    private void assertMatchesLikeReference(KeywordMatcher matcher, String keyword, String line) {
+        boolean expected = line.toLowerCase().contains(keyword.toLowerCase());
+        assertEquals(expected, matcher.matches(line), "chars: keyword=" + keyword + ", line=" + line);
+
+        byte[] bytes = ("前缀" + line + "后缀").getBytes(StandardCharsets.UTF_8);
+        int from = "前缀".getBytes(StandardCharsets.UTF_8).length;
+        int to = bytes.length - "后缀".getBytes(StandardCharsets.UTF_8).length;
+        assertEquals(expected, matcher.matches(bytes, from, to), "bytes: keyword=" + keyword + ", line=" + line);
+    }
+
+    private String randomString(Random random, String alphabet, int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,52 @@
+package log.tsuperman.com.logplatform.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogBatchCodecTest {
+
+    @Test
+    void roundTripKeepsLinesAndCursor() {
+        List<String> lines = Arrays.asList(
+                "2026-01-08 10:00:01.123 INFO [main] 启动完成",
+                "2026-01-08 10:00:01.456 INFO [main] 启动完成，耗时 3 秒",
+                "",
+                "\tat a.B(B.java:1)",
+                "2026-01-08 10:00:02.000 ERROR [main] 失败 \"quoted\" \\ é");
+        LogBatchCodec.Batch batch = LogBatchCodec.decode(LogBatchCodec.encode(lines, "abc-_123"));
+        assertEquals(lines, batch.getLines());
+        assertEquals("abc-_123", batch.getNextCursor());
+
+        LogBatchCodec.Batch empty = LogBatchCodec.decode(LogBatchCodec.encode(Collections.emptyList(), null));
+        assertTrue(empty.getLines().isEmpty());
+        assertNull(empty.getNextCursor());
+    }
+
+    @Test
+    void sharedPrefixesMakeBatchSmallerThanText() {
+        List<String> lines = new ArrayList<>();
+        int textBytes = 0;
+        for (int i = 0; i < 1000; i++) {
+            String line = String.format("2026-01-08 10:%02d:%02d.%03d INFO [http-nio-9876-exec-1] c.t.TaskService - 处理任务 %d",
+                    i / 60 % 60, i % 60, i, i);
+            lines.add(line);
+            textBytes += line.getBytes(java.nio.charset.StandardCharsets.UTF_8).length;
+        }
+        byte[] encoded = LogBatchCodec.encode(lines, null);
+        assertTrue(encoded.length < textBytes * 9 / 10, "encoded=" + encoded.length + ", text=" + textBytes);
+        assertEquals(lines, LogBatchCodec.decode(encoded).getLines());
+    }
+
+    @Test
+    void rejectsCorruptData() {
+        byte[] encoded = LogBatchCodec.encode(Arrays.asList("a", "b"), null);
+        assertThrows(IllegalArgumentException.class, () -> LogBatchCodec.decode(Arrays.copyOf(encoded, encoded.length - 1)));
+        assertThrows(IllegalArgumentException.class, () -> LogBatchCodec.decode(new byte[]{'{', '}'}));
+    }
+}
@@ -0,0 +1,78 @@
+package log.tsuperman.com.logplatform.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogFieldsTest {
+
+    @Test
+    void parsesPlatformLayout() {
+        String line = "[task-center:172.28.243.190:30736] [abc123,def456] 2026-01-08 14:06:00.714 INFO 6762 "
+                + "[xxl-job, JobThread-11-1767852360014] com.central.apps.job.TroubleSubmitJob 最终的结果是：1";
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        LogFields fields = new LogFields();
+        assertTrue(fields.parse(bytes, 0, bytes.length));
+
+        assertEquals("task-center", field(bytes, fields, LogFields.Field.APP));
+        assertEquals("abc123", field(bytes, fields, LogFields.Field.TRACE_ID));
+        assertEquals("def456", field(bytes, fields, LogFields.Field.SPAN_ID));
+        assertEquals("INFO", field(bytes, fields, LogFields.Field.LEVEL));
+        assertEquals("6762", field(bytes, fields, LogFields.Field.PID));
+        assertEquals("xxl-job, JobThread-11-1767852360014", field(bytes, fields, LogFields.Field.THREAD));
+        assertEquals("com.central.apps.job.TroubleSubmitJob", field(bytes, fields, LogFields.Field.LOGGER));
+        assertEquals("最终的结果是：1", field(bytes, fields, LogFields.Field.MESSAGE));
+    }
+
+    @Test
+    void parsesSpringBootLayoutWithOffset() {
+        String line = "xx2026-01-08 14:06:00.714  WARN 6762 --- [nio-8080-exec-1] o.s.web.Servlet : Completed 500";
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        LogFields fields = new LogFields();
+        assertTrue(fields.parse(bytes, 2, bytes.length));
+
+        assertFalse(fields.has(LogFields.Field.APP));
+        assertFalse(fields.has(LogFields.Field.TRACE_ID));
+        assertEquals("WARN", field(bytes, fields, LogFields.Field.LEVEL));
+        assertEquals("nio-8080-exec-1", field(bytes, fields, LogFields.Field.THREAD));
+        assertEquals("o.s.web.Servlet", field(bytes, fields, LogFields.Field.LOGGER));
+        assertEquals("Completed 500", field(bytes, fields, LogFields.Field.MESSAGE));
+
+        byte[] stack = "\tat com.x.A.run(A.java:1)".getBytes(StandardCharsets.UTF_8);
+        assertFalse(fields.parse(stack, 0, stack.length));
+    }
+
+    @Test
+    void fieldFilterMatchesGlobsAndAlternatives() {
+        byte[] bytes = "2026-01-08 14:06:00.714 ERROR 1 [main] com.x.job.TroubleSubmitJob 调用失败"
+                .getBytes(StandardCharsets.UTF_8);
+        LogFields fields = new LogFields();
+        assertTrue(fields.parse(bytes, 0, bytes.length));
+
+        assertTrue(FieldFilter.parse("level=error").matches(bytes, fields));
+        assertTrue(FieldFilter.parse("LEVEL=WARN,ERROR").matches(bytes, fields));
+        assertFalse(FieldFilter.parse("level=ERR").matches(bytes, fields));
+        assertTrue(FieldFilter.parse("logger=com.x.*").matches(bytes, fields));
+        assertTrue(FieldFilter.parse("logger=*.job.*Job").matches(bytes, fields));
+        assertFalse(FieldFilter.parse("logger=*.job.*Jobs").matches(bytes, fields));
+        assertTrue(FieldFilter.parse("message=*失败").matches(bytes, fields));
+        // 行中没有的字段不满足
+        assertFalse(FieldFilter.parse("traceId=*").matches(bytes, fields));
+        assertEquals("level=WARN,ERROR", FieldFilter.parse(" Level = WARN,ERROR").toString());
+    }
+
+    @Test
+    void rejectsInvalidFilters() {
+        assertThrows(IllegalArgumentException.class, () -> FieldFilter.parse("ERROR"));
+        assertThrows(IllegalArgumentException.class, () -> FieldFilter.parse("=ERROR"));
+        assertThrows(IllegalArgumentException.class, () -> FieldFilter.parse("severity=ERROR"));
+        assertTrue(FieldFilter.parseAll(null).isEmpty());
+    }
+
+    private static String field(byte[] bytes, LogFields fields, LogFields.Field field) {
+        assertTrue(fields.has(field), field.getParamName());
+        return new String(bytes, fields.start(field), fields.end(field) - fields.start(field), StandardCharsets.UTF_8);
+    }
+}
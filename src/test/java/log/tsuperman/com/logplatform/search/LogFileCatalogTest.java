@@ -0,0 +1,104 @@
+package log.tsuperman.com.logplatform.search;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogFileCatalogTest {
+
+    @TempDir
+    Path dir;
+
+    private final LogFileCatalog catalog = new LogFileCatalog();
+
+    @AfterEach
+    void shutdown() {
+        catalog.shutdown();
+    }
+
+    @Test
+    void classifiesTypeDateAndSequence() {
+        LogFileEntry rotated = LogFileCatalog.classify(new File("task-center-info.2026-01-08.12.log"), "task-center-info");
+        assertEquals(LogFileEntry.INFO, rotated.getType());
+        assertEquals("2026-01-08", rotated.getDate());
+        assertEquals(12, rotated.getSequence());
+
+        LogFileEntry error = LogFileCatalog.classify(new File("task-center-error.2026-01-08.log"), "task-center-info");
+        assertEquals(LogFileEntry.ERROR, error.getType());
+        assertEquals(0, error.getSequence());
+
+        assertTrue(LogFileCatalog.classify(new File("task-center-info.log"), "task-center-info").isActive());
+        assertTrue(LogFileCatalog.classify(new File("task-center-info_node1.log"), "task-center-info").isActive());
+        assertEquals("2026-01-08", LogFileCatalog.classify(
+                new File("task-center-info_node1.2026-01-08.1.log"), "task-center-info").getDate());
+
+        assertNull(LogFileCatalog.classify(new File("task-center-info.2026-01-08.1.log.gz"), "task-center-info"));
+        assertNull(LogFileCatalog.classify(new File("task-center-infox.log"), "task-center-info"));
+        assertNull(LogFileCatalog.classify(new File("flow-center-info.log"), "task-center-info"));
+
+        // 前缀中没有 -info 时 error 文件为 前缀-error
+        assertEquals(LogFileEntry.ERROR, LogFileCatalog.classify(new File("ragflow_server-error.log"), "ragflow_server").getType());
+        assertEquals(LogFileEntry.INFO, LogFileCatalog.classify(new File("ragflow_server.log"), "ragflow_server").getType());
+    }
+
+    @Test
+    void resolvesOnlyFilesDirectlyInLogDirectory() throws Exception {
+        Path logDir = Files.createDirectories(dir.resolve("logs/task-center"));
+        Path log = Files.createFile(logDir.resolve("task-center-info.2026-01-08.0.log"));
+        Files.createFile(dir.resolve("secret.txt"));
+
+        assertEquals(log.toFile().getAbsoluteFile(), LogFileCatalog.resolveFile(logDir.toString(), log.getFileName().toString()));
+        assertNull(LogFileCatalog.resolveFile(logDir.toString(), "task-center-info.2026-01-09.0.log"));
+        for (String name : new String[]{"../../secret.txt", "../task-center/task-center-info.2026-01-08.0.log",
+                "..", ".", "", "sub/x.log", "..\\secret.txt", dir.resolve("secret.txt").toString()}) {
+            assertThrows(IllegalArgumentException.class, () -> LogFileCatalog.resolveFile(logDir.toString(), name), name);
+        }
+    }
+
+    @Test
+    void listsFilesInQueryOrderAndFollowsDirectoryChanges() throws Exception {
+        String today = LocalDate.now().toString();
+        for (String name : Arrays.asList("app-info.2026-01-08.10.log", "app-info.2026-01-08.2.log",
+                "app-error.2026-01-08.1.log", "app-info.2026-01-09.1.log", "app-info.log", "app-error.log",
+                "app-info." + today + ".1.log", "other.log")) {
+            Files.createFile(dir.resolve(name));
+        }
+        String path = dir.toString();
+
+        assertEquals(Arrays.asList("app-info.2026-01-08.2.log", "app-info.2026-01-08.10.log", "app-error.2026-01-08.1.log"),
+                names(catalog.getFiles(path, "app-info", "2026-01-08", "all")));
+        assertEquals(Arrays.asList("app-error.2026-01-08.1.log"),
+                names(catalog.getFiles(path, "app-info", "2026-01-08", "error")));
+        assertEquals(Arrays.asList("app-info." + today + ".1.log", "app-info.log", "app-error.log"),
+                names(catalog.getFiles(path, "app-info", today, null)));
+        assertEquals(Arrays.asList("2026-01-08", "2026-01-09", today),
+                catalog.getDates(path, "app-info").stream().collect(Collectors.toList()));
+        assertNull(catalog.getFiles(dir.resolve("missing").toString(), "app-info", today, "all"));
+
+        // 轮转：活跃文件改名为带日期的文件，再创建新的活跃文件
+        Files.move(dir.resolve("app-info.2026-01-09.1.log"), dir.resolve("app-info.2026-01-09.2.log"));
+        Files.createFile(dir.resolve("app-info.2026-01-10.1.log"));
+        long deadline = System.currentTimeMillis() + 10000;
+        List<String> files;
+        do {
+            Thread.sleep(50);
+            files = names(catalog.getFiles(path, "app-info", "2026-01-09", "all"));
+        } while (!files.equals(Arrays.asList("app-info.2026-01-09.2.log")) && System.currentTimeMillis() < deadline);
+        assertEquals(Arrays.asList("app-info.2026-01-09.2.log"), files);
+        assertTrue(catalog.getDates(path, "app-info").contains("2026-01-10"));
+    }
+
+    private static List<String> names(List<LogFileEntry> entries) {
+        return entries.stream().map(e -> e.getFile().getName()).collect(Collectors.toList());
+    }
+}
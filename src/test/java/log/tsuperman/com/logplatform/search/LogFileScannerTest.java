@@ -0,0 +1,304 @@
+package log.tsuperman.com.logplatform.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogFileScannerTest {
+
+    private static final Pattern TIMESTAMP_PATTERN = Pattern.compile("(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2})");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSameResultsAsInMemoryScan() throws IOException {
+        Path file = writeSampleLog();
+
+        String[][] queries = {
+                {null, "00:00:00", "23:59:59"},
+                {"Exception", "00:00:00", "23:59:59"},
+                {"exception", "10:00:00", "10:59:59"},
+                {"拉晶", "00:00:00", "23:59:59"},
+                {"at com", "11:00:00", "12:59:59"},
+                {null, "12:00:00", "12:30:59"},
+        };
+        for (String[] q : queries) {
+            List<String> expected = referenceScan(file, q[0], q[1], q[2], 1000);
+            List<String> actual = new LogFileScanner(q[0], q[1], q[2]).scan(file, 1000);
+            assertEquals(expected, actual, "keyword=" + q[0] + ", " + q[1] + "-" + q[2]);
+        }
+    }
+
+    @Test
+    void testCountsLinesAndBytesScanned() throws IOException {
+        Path file = writeSampleLog();
+        long totalLines = Files.readAllLines(file, StandardCharsets.UTF_8).size();
+
+        FileScanResult whole = new LogFileScanner("拉晶", "00:00:00", "23:59:59")
+                .scanFile(file, Integer.MAX_VALUE, null, 0, null);
+        assertEquals(totalLines, whole.getLinesScanned());
+        assertEquals(Files.size(file), whole.getBytesScanned());
+
+        // 借助时间索引只读时间段附近的内容
+        SparseTimeIndex index = new SparseTimeIndex("key");
+        new LogFileScanner(null, "00:00:00", "23:59:59").scan(file, 100000, index);
+        FileScanResult window = new LogFileScanner(null, "10:00:00", "10:10:59")
+                .scanFile(file, Integer.MAX_VALUE, index, 0, null);
+        assertTrue(window.getBytesScanned() > 0);
+        assertTrue(window.getBytesScanned() < Files.size(file) / 2);
+        assertTrue(window.getLinesScanned() < totalLines / 2);
+    }
+
+    @Test
+    void testDeadlineStopsScanAtEventBoundary() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            lines.add(String.format("[task-center:172.28.243.190:30736] [,] 2026-01-08 10:%02d:%02d.000 ERROR 6762 [main] com.x.Job 第%d条",
+                    i / 60 % 60, i % 60, i));
+            lines.add("\tat com.x.Job.run(Job.java:" + i + ")");
+        }
+        Path file = tempDir.resolve("task-center-info.2026-01-08.2.log");
+        Files.write(file, lines, StandardCharsets.UTF_8);
+
+        LogFileScanner scanner = new LogFileScanner(null, "00:00:00", "23:59:59");
+        CancellationToken token = new CancellationToken(0);
+        scanner.setCancellation(token);
+        assertFalse(scanner.isCancelled());
+        token.cancel();
+        assertEquals(CancellationToken.CANCELLED, token.getReason());
+        FileScanResult cancelled = scanner.scanFile(file, Integer.MAX_VALUE, null, 0, null);
+        assertTrue(cancelled.isCancelled());
+        assertTrue(cancelled.getLines().isEmpty());
+        assertEquals(0, cancelled.getEndOffset());
+
+        // 每处理1024条日志检查一次，在一条日志（含堆栈）结束处停止，从结束位置可以接着读
+        LogFileScanner counted = new LogFileScanner(null, "00:00:00", "23:59:59");
+        AtomicInteger checks = new AtomicInteger();
+        counted.setCancellation(new CancellationToken(0) {
+            @Override
+            public boolean isCancelled() {
+                return checks.incrementAndGet() > 1;
+            }
+        });
+        FileScanResult first = counted.scanFile(file, Integer.MAX_VALUE, null, 0, null);
+        assertTrue(first.isCancelled());
+        assertEquals(2048, first.getLines().size());
+        List<String> combined = new ArrayList<>(first.getLines());
+        combined.addAll(new LogFileScanner(null, "00:00:00", "23:59:59")
+                .scanFile(file, Integer.MAX_VALUE, null, first.getEndOffset()).getLines());
+        assertEquals(lines, combined);
+
+        CancellationToken expired = new CancellationToken(1);
+        while (!expired.isCancelled()) {
+            Thread.yield();
+        }
+        assertEquals(CancellationToken.TIMEOUT, expired.getReason());
+        expired.cancel();
+        assertEquals(CancellationToken.TIMEOUT, expired.getReason());
+    }
+
+    @Test
+    void testLimitStopsAfterWholeEvent() throws IOException {
+        Path file = writeSampleLog();
+        List<String> expected = referenceScan(file, null, "00:00:00", "23:59:59", 5);
+        List<String> actual = new LogFileScanner(null, "00:00:00", "23:59:59").scan(file, 5);
+        assertEquals(expected, actual);
+        assertTrue(actual.size() >= 5);
+    }
+
+    @Test
+    void testTimeIndexSeekGivesSameResults() throws IOException {
+        Path file = writeSampleLog();
+        SparseTimeIndex index = new SparseTimeIndex("key");
+
+        // 第一次扫描建立索引
+        assertEquals(referenceScan(file, null, "00:00:00", "23:59:59", 100000),
+                new LogFileScanner(null, "00:00:00", "23:59:59").scan(file, 100000, index));
+        assertTrue(index.isUsable());
+        assertTrue(index.size() > 1);
+        assertEquals(Files.size(file), index.coveredUpTo());
+
+        String[][] windows = {{"10:30:00", "10:45:59"}, {"12:00:00", "12:00:59"}, {"13:59:00", "23:59:59"}, {"08:00:00", "09:10:59"}};
+        for (String[] w : windows) {
+            assertEquals(referenceScan(file, null, w[0], w[1], 100000),
+                    new LogFileScanner(null, w[0], w[1]).scan(file, 100000, index), w[0] + "-" + w[1]);
+            assertEquals(referenceScan(file, "exception", w[0], w[1], 100000),
+                    new LogFileScanner("exception", w[0], w[1]).scan(file, 100000, index), w[0] + "-" + w[1]);
+        }
+        assertTrue(index.seekOffset(12 * 3600) > 0);
+    }
+
+    @Test
+    void testPagingFromEndOffsetCoversWholeFile() throws IOException {
+        Path file = writeSampleLog();
+        for (String keyword : new String[]{"exception", null}) {
+            assertPagingCoversWholeFile(file, keyword);
+        }
+    }
+
+    private void assertPagingCoversWholeFile(Path file, String keyword) throws IOException {
+        LogFileScanner scanner = new LogFileScanner(keyword, "00:00:00", "23:59:59");
+        List<String> expected = referenceScan(file, keyword, "00:00:00", "23:59:59", 100000);
+
+        List<String> paged = new ArrayList<>();
+        long offset = 0;
+        int pages = 0;
+        while (true) {
+            FileScanResult page = scanner.scanFile(file, 7, null, offset).truncate(7);
+            paged.addAll(page.getLines());
+            pages++;
+            if (!page.isLimitReached()) {
+                break;
+            }
+            offset = page.getEndOffset();
+        }
+        assertEquals(expected, paged);
+        assertTrue(pages > 2);
+    }
+
+    @Test
+    void testStreamingSinkReceivesSameLines() throws IOException {
+        Path file = writeSampleLog();
+        LogFileScanner scanner = new LogFileScanner("exception", "00:00:00", "23:59:59");
+        List<String> streamed = new ArrayList<>();
+        FileScanResult result = scanner.scanFile(file, 10, null, 0, streamed::add);
+
+        assertEquals(scanner.scan(file, 10), streamed);
+        assertTrue(result.getLines().isEmpty());
+        assertEquals(streamed.size(), result.getLineCount());
+        assertTrue(result.isLimitReached());
+    }
+
+    @Test
+    void testMayMatchPrunesByFileTimeRange() {
+        FileTimeRange morning = new FileTimeRange("2026-01-08 00:00:01", "2026-01-08 06:00:00");
+        assertFalse(new LogFileScanner(null, "14:00:00", "14:05:59").mayMatch(morning));
+        assertTrue(new LogFileScanner(null, "06:00:30", "14:05:59").mayMatch(morning));
+        assertTrue(new LogFileScanner(null, "00:00:00", "23:59:59").mayMatch(morning));
+
+        FileTimeRange overnight = new FileTimeRange("2026-01-08 23:50:00", "2026-01-09 00:10:00");
+        assertTrue(new LogFileScanner(null, "14:00:00", "14:05:59").mayMatch(overnight));
+
+        FileTimeRange noTimestamps = new FileTimeRange(null, null);
+        assertFalse(new LogFileScanner(null, "14:00:00", "14:05:59").mayMatch(noTimestamps));
+        assertTrue(new LogFileScanner(null, "00:00:00", "23:59:59").mayMatch(noTimestamps));
+    }
+
+    @Test
+    void testLinesLongerThanBuffer() throws IOException {
+        StringBuilder longMessage = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            longMessage.append((char) ('a' + i % 26));
+        }
+        Path file = tempDir.resolve("long.log");
+        List<String> lines = new ArrayList<>();
+        lines.add("[task-center:127.0.0.1:8080] [,] 2026-01-08 10:00:00.000 INFO 1 [main] com.x.A " + longMessage + "needle");
+        lines.add("[task-center:127.0.0.1:8080] [,] 2026-01-08 10:00:01.000 INFO 1 [main] com.x.A short");
+        Files.write(file, lines, StandardCharsets.UTF_8);
+
+        List<String> actual = new LogFileScanner("NEEDLE", "00:00:00", "23:59:59").scan(file, 1000);
+        assertEquals(1, actual.size());
+        assertEquals(lines.get(0), actual.get(0));
+    }
+
+    @Test
+    void testFieldFiltersUseParsedFields() throws IOException {
+        Path file = tempDir.resolve("fields.log");
+        List<String> lines = new ArrayList<>();
+        lines.add("[task-center:127.0.0.1:8080] [,] 2026-01-08 10:00:00.000 INFO 1 [main] com.x.A 上游返回 ERROR 码");
+        lines.add("[task-center:127.0.0.1:8080] [t1,s1] 2026-01-08 10:00:01.000 ERROR 1 [main] com.x.job.B 调用失败");
+        lines.add("java.lang.IllegalStateException: boom");
+        lines.add("\tat com.x.job.B.run(B.java:1)");
+        lines.add("[task-center:127.0.0.1:8080] [,] 2026-01-08 10:00:02.000 ERROR 1 [main] org.y.C 连接断开");
+        lines.add("[task-center:127.0.0.1:8080] [,] 2026-01-08 10:00:03.000 WARN 1 [main] com.x.job.D 重试");
+        Files.write(file, lines, StandardCharsets.UTF_8);
+
+        assertEquals(Arrays.asList(lines.get(1), lines.get(2), lines.get(3), lines.get(4)),
+                scanWithFilters(file, null, "level=ERROR"));
+        assertEquals(Arrays.asList(lines.get(1), lines.get(2), lines.get(3), lines.get(5)),
+                scanWithFilters(file, null, "logger=com.x.job.*"));
+        assertEquals(Arrays.asList(lines.get(1), lines.get(2), lines.get(3)),
+                scanWithFilters(file, null, "level=error", "logger=com.x.*"));
+        assertEquals(Arrays.asList(lines.get(4), lines.get(5)),
+                scanWithFilters(file, null, "level=WARN,ERROR", "thread=main", "message=*断*,重试"));
+        // 关键词对后续行照常生效
+        assertEquals(Arrays.asList(lines.get(1), lines.get(3)), scanWithFilters(file, "job.B", "traceId=t1"));
+    }
+
+    private List<String> scanWithFilters(Path file, String keyword, String... filters) throws IOException {
+        return new LogFileScanner(keyword, "00:00:00", "23:59:59", new TimestampParser(),
+                FieldFilter.parseAll(Arrays.asList(filters))).scan(file, 1000);
+    }
+
+    private Path writeSampleLog() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            int hour = 9 + i / 100;
+            String time = String.format("2026-01-08 %02d:%02d:%02d.%03d", hour, (i % 100) * 60 / 100, i % 60, i);
+            if (i % 17 == 0) {
+                lines.add("[task-center:172.28.243.190:30736] [abc" + i + ",def] " + time
+                        + " ERROR 6762 [http-nio-1] com.central.apps.job.TroubleSubmitJob 调用失败");
+                lines.add("java.lang.IllegalStateException: 位置描述为：拉晶事业部/青海拉晶");
+                lines.add("\tat com.central.apps.job.TroubleSubmitJob.run(TroubleSubmitJob.java:" + i + ")");
+                lines.add("\tat java.lang.Thread.run(Thread.java:750)");
+            } else {
+                lines.add("[task-center:172.28.243.190:30736] [,] " + time
+                        + " INFO 6762 [xxl-job, JobThread-11] com.central.apps.job.TroubleSubmitJob 最终的结果是：" + i + "\r");
+            }
+        }
+        Path file = tempDir.resolve("task-center-info.2026-01-08.1.log");
+        Files.write(file, lines, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    /**
+     * 原先一次性读入整个文件的实现，作为对照
+     */
+    private List<String> referenceScan(Path file, String keyword, String startTime, String endTime, int limit) throws IOException {
+        List<String> allLines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        List<String> matched = new ArrayList<>();
+        for (int i = 0; i < allLines.size(); i++) {
+            String line = allLines.get(i);
+            boolean timeMatch = isWithinTimeRange(line, startTime, endTime);
+            boolean kwMatch = keyword == null || keyword.isEmpty() || line.toLowerCase().contains(keyword.toLowerCase());
+            if (timeMatch && kwMatch) {
+                matched.add(line);
+                if (TIMESTAMP_PATTERN.matcher(line).find()) {
+                    int j = i + 1;
+                    while (j < allLines.size() && !TIMESTAMP_PATTERN.matcher(allLines.get(j)).find()) {
+                        String additionalLine = allLines.get(j);
+                        if (keyword == null || keyword.isEmpty() || additionalLine.toLowerCase().contains(keyword.toLowerCase())) {
+                            matched.add(additionalLine);
+                        }
+                        j++;
+                    }
+                    i = j - 1;
+                }
+            }
+            if (matched.size() >= limit) break;
+        }
+        return matched;
+    }
+
+    private boolean isWithinTimeRange(String line, String startTime, String endTime) {
+        Matcher matcher = TIMESTAMP_PATTERN.matcher(line);
+        if (matcher.find()) {
+            String logTime = matcher.group(1).split(" ")[1];
+            return logTime.compareTo(startTime) >= 0 && logTime.compareTo(endTime) <= 0;
+        }
+        return startTime.compareTo("00:00:00") <= 0 && endTime.compareTo("23:59:59") >= 0;
+    }
+}
@@ -0,0 +1,119 @@
+package log.tsuperman.com.logplatform.search;
+
+import log.tsuperman.com.logplatform.config.LogPlatformProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelFileScannerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ParallelFileScanner parallelFileScanner;
+
+    @BeforeEach
+    void setUp() {
+        LogPlatformProperties properties = new LogPlatformProperties();
+        properties.setParallelScanThreshold(0);
+        properties.setScanThreads(4);
+        parallelFileScanner = new ParallelFileScanner(properties, 4096);
+    }
+
+    @AfterEach
+    void tearDown() {
+        parallelFileScanner.shutdown();
+    }
+
+    @Test
+    void testSameResultsAsSequentialScan() throws IOException {
+        Path file = writeLog();
+        String[][] queries = {
+                {null, "00:00:00", "23:59:59"},
+                {"exception", "00:00:00", "23:59:59"},
+                {"at com", "10:00:00", "10:59:59"},
+                {null, "11:30:00", "11:30:59"},
+        };
+        for (String[] q : queries) {
+            for (int limit : new int[]{7, 1000, 100000}) {
+                LogFileScanner scanner = new LogFileScanner(q[0], q[1], q[2]);
+                assertEquals(scanner.scan(file, limit), parallelFileScanner.scan(scanner, file, limit, null).getLines(),
+                        "keyword=" + q[0] + ", " + q[1] + "-" + q[2] + ", limit=" + limit);
+            }
+        }
+    }
+
+    @Test
+    void testBuildsTimeIndexFromSegments() throws IOException {
+        Path file = writeLog();
+        SparseTimeIndex index = new SparseTimeIndex("key");
+        LogFileScanner wholeDay = new LogFileScanner(null, "00:00:00", "23:59:59");
+        FileScanResult result = parallelFileScanner.scan(wholeDay, file, 100000, index);
+
+        assertEquals(wholeDay.scan(file, 100000), result.getLines());
+        assertTrue(index.isUsable());
+        assertEquals(Files.size(file), index.coveredUpTo());
+
+        // 用并行建立的索引定位，结果仍与不带索引的扫描一致
+        LogFileScanner window = new LogFileScanner("exception", "11:00:00", "11:20:59");
+        assertEquals(window.scan(file, 100000), parallelFileScanner.scan(window, file, 100000, index).getLines());
+    }
+
+    @Test
+    void testCancelledScanKeepsContiguousPrefix() throws IOException {
+        Path file = writeLog();
+        List<String> expected = new LogFileScanner(null, "00:00:00", "23:59:59").scan(file, 100000);
+
+        // 前几个开始扫描的段读完，其余的段在开始前就已被取消
+        LogFileScanner scanner = new LogFileScanner(null, "00:00:00", "23:59:59");
+        AtomicInteger checks = new AtomicInteger();
+        scanner.setCancellation(new CancellationToken(0) {
+            @Override
+            public boolean isCancelled() {
+                return checks.incrementAndGet() > 5;
+            }
+        });
+        FileScanResult result = parallelFileScanner.scan(scanner, file, 100000, null);
+        assertTrue(result.isCancelled());
+        assertFalse(result.isLimitReached());
+        assertTrue(result.getLines().size() < expected.size());
+        assertEquals(expected.subList(0, result.getLines().size()), result.getLines());
+
+        // 从停止的位置继续，与完整扫描的结果一致
+        List<String> rest = new LogFileScanner(null, "00:00:00", "23:59:59")
+                .scanFile(file, 100000, null, result.getEndOffset()).getLines();
+        List<String> combined = new ArrayList<>(result.getLines());
+        combined.addAll(rest);
+        assertEquals(expected, combined);
+    }
+
+    private Path writeLog() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            String time = String.format("2026-01-08 %02d:%02d:%02d.%03d", 9 + i / 1000, i % 1000 * 60 / 1000, i % 60, i % 1000);
+            if (i % 13 == 0) {
+                lines.add("[task-center:172.28.243.190:30736] [abc" + i + ",def] " + time
+                        + " ERROR 6762 [http-nio-1] com.central.apps.job.TroubleSubmitJob 调用失败");
+                lines.add("java.lang.IllegalStateException: 位置描述为：拉晶事业部/青海拉晶");
+                lines.add("\tat com.central.apps.job.TroubleSubmitJob.run(TroubleSubmitJob.java:" + i + ")");
+            } else {
+                lines.add("[task-center:172.28.243.190:30736] [,] " + time
+                        + " INFO 6762 [xxl-job, JobThread-11] com.central.apps.job.TroubleSubmitJob 最终的结果是：" + i);
+            }
+        }
+        Path file = tempDir.resolve("task-center-info.2026-01-08.1.log");
+        Files.write(file, lines, StandardCharsets.UTF_8);
+        return file;
+    }
+}
@@ -0,0 +1,40 @@
+package log.tsuperman.com.logplatform.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryCursorTest {
+
+    @Test
+    void testEncodeDecodeRoundTrip() {
+        QueryCursor cursor = new QueryCursor("task-center-info.2026-01-08.3.log", 123456789L, 42, -17, 99);
+        QueryCursor decoded = QueryCursor.decode(cursor.encode());
+        assertEquals("task-center-info.2026-01-08.3.log", decoded.getFileName());
+        assertEquals(123456789L, decoded.getOffset());
+        assertEquals(42, decoded.getEvent());
+        assertEquals(-17, decoded.getFileId());
+        assertEquals(99, decoded.getQueryId());
+        assertTrue(cursor.encode().matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test
+    void testInvalidCursorRejected() {
+        assertThrows(IllegalArgumentException.class, () -> QueryCursor.decode("not a cursor!"));
+        assertThrows(IllegalArgumentException.class, () -> QueryCursor.decode("YWJj"));
+        String negativeOffset = new QueryCursor("task-center-info.2026-01-08.3.log", -1, 0, 1, 2).encode();
+        assertThrows(IllegalArgumentException.class, () -> QueryCursor.decode(negativeOffset));
+        String negativeEvent = new QueryCursor("task-center-info.2026-01-08.3.log", 0, -5, 1, 2).encode();
+        assertThrows(IllegalArgumentException.class, () -> QueryCursor.decode(negativeEvent));
+    }
+
+    @Test
+    void testQueryIdDependsOnConditions() {
+        LogQuery query = new LogQuery("2026-01-08", "error", "10:00:00", "10:59:59", null, "app-1", "all");
+        LogQuery same = new LogQuery("2026-01-08", "error", "10:00:00", "10:59:59", null, "app-1", "all");
+        same.setCursor("ignored");
+        LogQuery other = new LogQuery("2026-01-08", "warn", "10:00:00", "10:59:59", null, "app-1", "all");
+        assertEquals(QueryCursor.queryId(query), QueryCursor.queryId(same));
+        assertNotEquals(QueryCursor.queryId(query), QueryCursor.queryId(other));
+    }
+}
@@ -0,0 +1,42 @@
+package log.tsuperman.com.logplatform.search;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import log.tsuperman.com.logplatform.config.LogPlatformProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryMetricsTest {
+
+    @Test
+    void recordsWorkPerApp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        QueryResultCache cache = new QueryResultCache(new LogPlatformProperties());
+        QueryMetrics metrics = new QueryMetrics(registry, cache);
+
+        LogQueryResult result = new LogQueryResult();
+        result.setFilesScanned(2);
+        result.setFilesPruned(3);
+        result.setFilesKeywordPruned(1);
+        result.setLinesScanned(1000);
+        result.setBytesScanned(64 * 1024);
+        metrics.record("app-1", QueryMetrics.MODE_PAGE, result, TimeUnit.MILLISECONDS.toNanos(20));
+        metrics.record("app-1", QueryMetrics.MODE_STREAM, result, TimeUnit.MILLISECONDS.toNanos(40));
+        metrics.record(QueryMetrics.DEFAULT_APP, QueryMetrics.MODE_PAGE, new LogQueryResult(), 0);
+
+        assertEquals(128 * 1024, registry.get("logplatform.query.bytes.scanned").tag("app", "app-1").counter().count());
+        assertEquals(2000, registry.get("logplatform.query.lines.scanned").tag("app", "app-1").counter().count());
+        assertEquals(4, registry.get("logplatform.query.files.opened").tag("app", "app-1").counter().count());
+        assertEquals(6, registry.get("logplatform.query.files.pruned").tags("app", "app-1", "reason", "time").counter().count());
+        assertEquals(2, registry.get("logplatform.query.files.pruned").tags("app", "app-1", "reason", "keyword").counter().count());
+        assertEquals(1, registry.get("logplatform.query.duration").tags("app", "app-1", "mode", "stream").timer().count());
+        assertEquals(0, registry.get("logplatform.query.bytes.scanned").tag("app", "default").counter().count());
+
+        // 缓存命中次数直接读取缓存的统计
+        cache.get("missing");
+        assertEquals(1, registry.get("logplatform.query.cache.requests").tag("result", "miss").functionCounter().count());
+        assertEquals(0, registry.get("logplatform.query.cache.requests").tag("result", "hit").functionCounter().count());
+    }
+}
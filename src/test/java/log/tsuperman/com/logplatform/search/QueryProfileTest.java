@@ -0,0 +1,57 @@
+package log.tsuperman.com.logplatform.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryProfileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void addScanSumsWorkPerFile() throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            lines.add(String.format("[task-center:1.1.1.1:1] [,] 2026-01-08 10:%02d:%02d.000 INFO 1 [main] com.x.Job 第%d条",
+                    i / 60 % 60, i % 60, i));
+        }
+        Path a = dir.resolve("task-center-info.2026-01-08.0.log");
+        Path b = dir.resolve("task-center-info.2026-01-08.1.log");
+        Files.write(a, lines, StandardCharsets.UTF_8);
+        Files.write(b, lines.subList(0, 500), StandardCharsets.UTF_8);
+
+        LogFileScanner scanner = new LogFileScanner("第1", "00:00:00", "23:59:59");
+        FileScanResult scanA = scanner.scanFile(a, Integer.MAX_VALUE, null, 0, null);
+        FileScanResult scanB = scanner.scanFile(b, Integer.MAX_VALUE, null, 0, null);
+        assertTrue(scanA.getReadNanos() > 0);
+        assertTrue(scanA.getScanNanos() >= scanA.getReadNanos());
+
+        QueryProfile profile = new QueryProfile();
+        QueryProfile.FileProfile fileA = new QueryProfile.FileProfile(a.getFileName().toString(), Files.size(a), true);
+        QueryProfile.FileProfile fileB = new QueryProfile.FileProfile(b.getFileName().toString(), Files.size(b), true);
+        QueryProfile.FileProfile fileC = new QueryProfile.FileProfile("task-center-info.2026-01-08.2.log", 10, true);
+        profile.getFiles().add(fileA);
+        profile.getFiles().add(fileB);
+        profile.getFiles().add(fileC);
+        profile.addScan(fileA, scanA, 100);
+        profile.addScan(fileB, scanB, scanB.getLineCount());
+
+        assertEquals(QueryProfile.FileProfile.SCANNED, fileA.getAction());
+        assertEquals(100, fileA.getMatches());
+        assertEquals(2000, fileA.getLinesScanned());
+        assertEquals(Files.size(a), fileA.getBytesScanned());
+        assertEquals(111, fileB.getMatches());
+        assertEquals(QueryProfile.FileProfile.SKIPPED, fileC.getAction());
+        assertEquals(2500, profile.getLinesScanned());
+        assertEquals(Files.size(a) + Files.size(b), profile.getBytesScanned());
+        assertEquals(QueryProfile.CACHE_BYPASS, profile.getResultCache());
+    }
+}
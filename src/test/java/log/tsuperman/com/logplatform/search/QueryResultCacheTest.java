@@ -0,0 +1,79 @@
+package log.tsuperman.com.logplatform.search;
+
+import log.tsuperman.com.logplatform.config.LogPlatformProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryResultCacheTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void keyChangesWhenFileChanges() throws Exception {
+        Path file = dir.resolve("app-info.2026-01-08.0.log");
+        Files.write(file, "2026-01-08 10:00:00 INFO a\n".getBytes(StandardCharsets.UTF_8));
+        LogQuery query = new LogQuery("2026-01-08", "a", "00:00:00", "23:59:59", null, null, "all");
+        File[] files = {file.toFile()};
+
+        QueryResultCache cache = new QueryResultCache(new LogPlatformProperties());
+        String key = QueryResultCache.key(query, files);
+        assertNull(cache.get(key));
+        cache.put(key, result("2026-01-08 10:00:00 INFO a"));
+
+        LogQueryResult hit = cache.get(key);
+        assertEquals(Collections.singletonList("2026-01-08 10:00:00 INFO a"), hit.getLines());
+        assertTrue(hit.isCached());
+        hit.getLines().clear();
+        assertEquals(1, cache.get(key).getLines().size(), "返回的是副本");
+
+        query.setPageSize(10);
+        assertNotEquals(key, QueryResultCache.key(query, files));
+        query.setPageSize(0);
+        Files.write(file, "2026-01-08 10:00:01 INFO b\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        assertNotEquals(key, QueryResultCache.key(query, files));
+
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedWhenOverByteLimit() {
+        LogPlatformProperties properties = new LogPlatformProperties();
+        properties.setResultCacheBytes(10 * 1024);
+        QueryResultCache cache = new QueryResultCache(properties);
+        String line = new String(new char[1000]).replace('\0', 'x');
+
+        cache.put("a", result(line));
+        cache.put("b", result(line));
+        assertNotNull(cache.get("a"));
+        cache.put("c", result(line));
+        cache.put("d", result(line));
+        cache.put("e", result(line));
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertTrue((long) cache.getStats().get("bytes") <= 10 * 1024);
+        assertEquals(1L, cache.getStats().get("evictions"));
+
+        // 超过上限1/4的结果不缓存
+        cache.put("big", result(line + line));
+        assertNull(cache.get("big"));
+    }
+
+    private static LogQueryResult result(String line) {
+        LogQueryResult result = new LogQueryResult();
+        result.getLines().add(line);
+        result.setFilesMatched(1);
+        return result;
+    }
+}
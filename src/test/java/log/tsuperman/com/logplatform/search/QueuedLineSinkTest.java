@@ -0,0 +1,128 @@
+package log.tsuperman.com.logplatform.search;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueuedLineSinkTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void deliversBatchesInOrderOnAnotherThread() throws Exception {
+        List<String> received = new CopyOnWriteArrayList<>();
+        CountDownLatch flushed = new CountDownLatch(3);
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        QueuedLineSink sink = new QueuedLineSink(new LineSink() {
+            @Override
+            public void accept(String line) {
+                received.add(line);
+            }
+
+            @Override
+            public void flush() {
+                threads.add(Thread.currentThread());
+                flushed.countDown();
+            }
+        }, executor, 4);
+
+        sink.accept("a");
+        sink.accept("b");
+        sink.flush();
+        // 心跳
+        sink.flush();
+        sink.accept("c");
+        sink.flush();
+
+        assertTrue(flushed.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("a", "b", "c"), received);
+        assertFalse(threads.contains(Thread.currentThread()));
+        assertFalse(sink.isClosed());
+    }
+
+    @Test
+    void stalledClientNeverBlocksCallerAndIsDroppedWhenQueueFills() throws Exception {
+        CountDownLatch stalled = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        QueuedLineSink sink = new QueuedLineSink(new LineSink() {
+            @Override
+            public void accept(String line) {
+            }
+
+            @Override
+            public void flush() {
+                try {
+                    // 客户端不接收，发送一直阻塞
+                    stalled.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void close() {
+                closed.countDown();
+            }
+        }, executor, 2);
+
+        long start = System.nanoTime();
+        UncheckedIOException error = null;
+        for (int i = 0; i < 10 && error == null; i++) {
+            try {
+                sink.accept("line " + i);
+                sink.flush();
+            } catch (UncheckedIOException e) {
+                error = e;
+            }
+        }
+        assertNotNull(error);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertTrue(sink.isClosed());
+        assertThrows(UncheckedIOException.class, () -> sink.accept("more"));
+
+        // 阻塞的发送结束后在发送线程中关闭客户端
+        assertEquals(1, closed.getCount());
+        stalled.countDown();
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void sendFailureClosesSink() throws Exception {
+        CountDownLatch closed = new CountDownLatch(1);
+        QueuedLineSink sink = new QueuedLineSink(new LineSink() {
+            @Override
+            public void accept(String line) {
+            }
+
+            @Override
+            public void flush() {
+                throw new UncheckedIOException(new IOException("Broken pipe"));
+            }
+
+            @Override
+            public void close() {
+                closed.countDown();
+            }
+        }, executor, 2);
+
+        sink.flush();
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+        assertThrows(UncheckedIOException.class, sink::flush);
+    }
+}
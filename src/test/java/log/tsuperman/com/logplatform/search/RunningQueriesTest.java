@@ -0,0 +1,41 @@
+package log.tsuperman.com.logplatform.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunningQueriesTest {
+
+    @Test
+    void newQueryWithSameIdCancelsPrevious() {
+        RunningQueries queries = new RunningQueries();
+        CancellationToken first = new CancellationToken(0);
+        CancellationToken second = new CancellationToken(0);
+        Runnable unregisterFirst = queries.register("page-1", first);
+        Runnable unregisterSecond = queries.register("page-1", second);
+
+        assertTrue(first.isCancelled());
+        assertEquals(CancellationToken.CANCELLED, first.getReason());
+        assertFalse(second.isCancelled());
+
+        // 先结束的旧查询不能注销新查询的登记
+        unregisterFirst.run();
+        assertEquals(1, queries.size());
+        unregisterSecond.run();
+        assertEquals(0, queries.size());
+    }
+
+    @Test
+    void cancelById() {
+        RunningQueries queries = new RunningQueries();
+        CancellationToken token = new CancellationToken(0);
+        queries.register("page-1", token);
+
+        assertFalse(queries.cancel("page-2"));
+        assertFalse(token.isCancelled());
+        assertTrue(queries.cancel("page-1"));
+        assertTrue(token.isCancelled());
+        assertEquals(0, queries.size());
+        assertFalse(queries.cancel("page-1"));
+    }
+}
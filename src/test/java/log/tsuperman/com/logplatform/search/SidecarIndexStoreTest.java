@@ -0,0 +1,109 @@
+package log.tsuperman.com.logplatform.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SidecarIndexStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private final AtomicInteger reads = new AtomicInteger();
+
+    @Test
+    void remembersStaleSidecarUntilFileChangesOrIsRebuilt() throws Exception {
+        Path file = writeLog(Files.createDirectory(dir.resolve("logs")).resolve("app.2026-01-08.0.log"));
+        SidecarIndexStore<TokenBloomFilter> store = newStore();
+        try {
+            store.build(file, null);
+            Files.write(file, "2026-01-08 11:00:00 INFO appended\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+            // 磁盘上的索引已过期，只读取一次
+            int before = reads.get();
+            for (int i = 0; i < 5; i++) {
+                assertNull(store.find(file));
+            }
+            assertEquals(before + 1, reads.get());
+            assertEquals(0, store.cachedBytes());
+
+            store.build(file, null);
+            assertNotNull(store.find(file));
+        } finally {
+            store.shutdown();
+        }
+
+        // 重启后内存中没有，从磁盘读取一次后留在内存中
+        SidecarIndexStore<TokenBloomFilter> reloaded = newStore();
+        try {
+            int before = reads.get();
+            assertNotNull(reloaded.find(file));
+            assertNotNull(reloaded.find(file));
+            assertEquals(before + 1, reads.get());
+        } finally {
+            reloaded.shutdown();
+        }
+    }
+
+    @Test
+    void prunesOnlySidecarsOfDeletedFilesInThatDirectory() throws Exception {
+        Path logs = Files.createDirectory(dir.resolve("logs"));
+        Path other = Files.createDirectory(dir.resolve("other"));
+        Path deleted = writeLog(logs.resolve("app.2026-01-07.0.log"));
+        Path kept = writeLog(logs.resolve("app.2026-01-08.0.log"));
+        Path sameName = writeLog(other.resolve("app.2026-01-07.0.log"));
+        SidecarIndexStore<TokenBloomFilter> store = newStore();
+        try {
+            store.build(deleted, null);
+            store.build(kept, null);
+            store.build(sameName, null);
+            Files.delete(deleted);
+
+            assertEquals(1, store.pruneOrphans(logs));
+            assertEquals(0, store.pruneOrphans(logs));
+            assertEquals(0, store.pruneOrphans(other));
+            assertTrue(store.isStored(kept));
+            assertTrue(store.isStored(sameName));
+            assertEquals(2, store.cachedCount());
+        } finally {
+            store.shutdown();
+        }
+    }
+
+    private SidecarIndexStore<TokenBloomFilter> newStore() {
+        return new SidecarIndexStore<>("布隆过滤器", "bloom-filter-builder", dir.resolve("index"), ".bloom",
+                Long.MAX_VALUE, new SidecarIndexStore.Codec<TokenBloomFilter>() {
+            @Override
+            public TokenBloomFilter build(Path file, long size, long modified, ReadThrottle throttle) throws IOException {
+                return TokenBloomFilter.build(file, size, modified, throttle);
+            }
+
+            @Override
+            public TokenBloomFilter read(DataInputStream in) throws IOException {
+                reads.incrementAndGet();
+                return TokenBloomFilter.readFrom(in);
+            }
+
+            @Override
+            public boolean headerMatches(DataInputStream in, long size, long modified) throws IOException {
+                return TokenBloomFilter.headerMatches(in, size, modified);
+            }
+        });
+    }
+
+    private static Path writeLog(Path file) throws Exception {
+        Files.write(file, Collections.nCopies(50, "2026-01-08 10:00:00.714 INFO 6762 [main] com.x.Job 处理任务 order-1001"),
+                StandardCharsets.UTF_8);
+        return file;
+    }
+}
@@ -0,0 +1,72 @@
+package log.tsuperman.com.logplatform.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimestampParserTest {
+
+    private static final Pattern TIMESTAMP_PATTERN = Pattern.compile("(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2})");
+
+    @Test
+    void testParseLogLayout() {
+        String line = "[task-center:172.28.243.190:30736] [,] 2026-01-08 14:02:00.894 INFO 6762 [xxl-job, JobThread-11-1767852120013] 最终的结果是：null";
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        TimestampParser parser = new TimestampParser();
+
+        long packed = parser.parse(bytes, 0, bytes.length);
+        assertEquals(20260108140200L, packed);
+        assertEquals(140200, TimestampParser.timeOfDay(packed));
+        assertEquals(20260108, TimestampParser.date(packed));
+        assertEquals("2026-01-08 14:02:00", TimestampParser.format(packed));
+        assertEquals(packed, TimestampParser.parse(line));
+        // 第二次按记住的列解析
+        assertEquals(packed, parser.parse(bytes, 0, bytes.length));
+
+        byte[] stack = "\tat com.central.apps.job.TroubleSubmitJob.run(TroubleSubmitJob.java:42)".getBytes(StandardCharsets.UTF_8);
+        assertEquals(TimestampParser.NONE, parser.parse(stack, 0, stack.length));
+    }
+
+    @Test
+    void testEpochSecondMatchesJavaTime() {
+        long packed = TimestampParser.parse("2026-03-01 00:00:05");
+        assertEquals(java.time.LocalDateTime.of(2026, 3, 1, 0, 0, 5).toEpochSecond(java.time.ZoneOffset.UTC),
+                TimestampParser.toEpochSecond(packed));
+        assertEquals(140205, TimestampParser.parseTimeOfDay("14:02:05"));
+        assertEquals(-1, TimestampParser.parseTimeOfDay("14:02"));
+        assertEquals(14 * 3600 + 2 * 60 + 5, TimestampParser.secondOfDay(140205));
+    }
+
+    @Test
+    void testSameTimestampAsRegex() {
+        Random random = new Random(42);
+        String alphabet = "0123456789-: []拉晶ab";
+        TimestampParser parser = new TimestampParser();
+        for (int round = 0; round < 20000; round++) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(40);
+            for (int i = 0; i < length; i++) {
+                sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                if (random.nextInt(30) == 0) {
+                    sb.append("2026-01-0").append(random.nextInt(10)).append(" 1").append(random.nextInt(10)).append(":3").append(random.nextInt(10)).append(":0").append(random.nextInt(10));
+                }
+            }
+            String line = sb.toString();
+            Matcher matcher = TIMESTAMP_PATTERN.matcher(line);
+            long expected = matcher.find() ? Long.parseLong(matcher.group(1).replaceAll("[^0-9]", "")) : TimestampParser.NONE;
+
+            assertEquals(expected, TimestampParser.parse(line), line);
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            // 新的解析器没有列提示，结果应与正则的第一次匹配完全一致
+            assertEquals(expected, new TimestampParser().parse(bytes, 0, bytes.length), line);
+            if (expected == TimestampParser.NONE) {
+                assertEquals(expected, parser.parse(bytes, 0, bytes.length), line);
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package log.tsuperman.com.logplatform.search;
+
+import log.tsuperman.com.logplatform.config.LogPlatformProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBloomFilterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void neverRejectsSubstringsOfTheFile() throws Exception {
+        Path file = writeLog();
+        TokenBloomFilter filter = TokenBloomFilter.build(file, Files.size(file), 0);
+
+        for (String present : new String[]{"traceId=9f86d081884c7d65", "9F86D081884C7D65", "86d081884c7d", "c7d65",
+                "orderNo: 20260108000123", "0108000", "TroubleSubmitJob", "ubmitJo", " INFO ", "处理任务",
+                "[xxl-job, JobThread-11", "order-1234", "x"}) {
+            assertTrue(filter.mayContain(present), present);
+        }
+        // 文件中没有的长词、两侧有分隔符的短词
+        assertFalse(filter.mayContain("traceId=0123456789abcdef"));
+        assertFalse(filter.mayContain("20260108999999"));
+        assertFalse(filter.mayContain("job zzz job"));
+        assertTrue(filter.sizeInBytes() < Files.size(file));
+    }
+
+    @Test
+    void neverRejectsCasedNonAsciiKeywords() throws Exception {
+        Path file = dir.resolve("task-center-info.2026-01-08.0.log");
+        Files.write(file, ("[task-center:1.1.1.1:1] [,] 2026-01-08 10:00:00.000 ERROR 1 [main] com.x.Pay "
+                + "ÉCHECDUSERVICE paiement Übertragung straße\n").getBytes(StandardCharsets.UTF_8));
+        TokenBloomFilter filter = TokenBloomFilter.build(file, Files.size(file), 0);
+
+        for (String present : new String[]{"ÉCHECDUSERVICE", "échecduservice", "Übertragung", "übertragung",
+                "ÜBERTRAGUNG", "paiement Übertragung", "Straße"}) {
+            assertTrue(filter.mayContain(present), present);
+        }
+        assertFalse(filter.mayContain("paiement zzz paiement"));
+    }
+
+    @Test
+    void roundTripsThroughStream() throws Exception {
+        Path file = writeLog();
+        TokenBloomFilter filter = TokenBloomFilter.build(file, 123, 456);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        filter.writeTo(new DataOutputStream(bytes));
+        TokenBloomFilter read = TokenBloomFilter.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertTrue(read.isValidFor(123, 456));
+        assertFalse(read.isValidFor(124, 456));
+        assertTrue(read.mayContain("9f86d081884c7d65"));
+        assertFalse(read.mayContain("0123456789abcdef"));
+    }
+
+    @Test
+    void registryBuildsInBackgroundPersistsAndInvalidates() throws Exception {
+        Path file = writeLog();
+        LogPlatformProperties properties = new LogPlatformProperties();
+        properties.setIndexPath(dir.resolve("index").toString());
+        FileBloomFilterRegistry registry = new FileBloomFilterRegistry(properties);
+        try {
+            // 没有过滤器时不跳过，并在后台建立
+            assertTrue(registry.mayContain(file, true, "0123456789abcdef"));
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!registry.hasFilter(file) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertFalse(registry.mayContain(file, true, "0123456789abcdef"));
+            assertTrue(registry.mayContain(file, true, "9f86d081884c7d65"));
+            assertTrue(registry.mayContain(file, true, ""));
+        } finally {
+            registry.shutdown();
+        }
+
+        // 重启后从磁盘加载
+        FileBloomFilterRegistry reloaded = new FileBloomFilterRegistry(properties);
+        try {
+            assertTrue(reloaded.hasFilter(file));
+            Files.write(file, "2026-01-08 10:00:00 INFO 0123456789abcdef\n".getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.APPEND);
+            // 文件变化后过滤器失效；活跃文件不建立过滤器
+            assertFalse(reloaded.hasFilter(file));
+            assertTrue(reloaded.mayContain(file, false, "0123456789abcdef"));
+        } finally {
+            reloaded.shutdown();
+        }
+    }
+
+    @Test
+    void queryTriggeredBuildReadsThroughBackgroundThrottle() throws Exception {
+        Path file = writeLog();
+        LogPlatformProperties properties = new LogPlatformProperties();
+        properties.setIndexPath(dir.resolve("index").toString());
+        FileSearchExecutor executor = new FileSearchExecutor(properties);
+        FileBloomFilterRegistry registry = new FileBloomFilterRegistry(properties, executor);
+        try {
+            assertTrue(registry.mayContain(file, true, "0123456789abcdef"));
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!registry.hasFilter(file) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertTrue(registry.hasFilter(file));
+            assertEquals(Files.size(file), executor.getBackgroundThrottle().getBytesRead());
+        } finally {
+            registry.shutdown();
+            executor.shutdown();
+        }
+    }
+
+    private Path writeLog() throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            lines.add("2026-01-08 10:00:" + String.format("%02d", i % 60) + ".714 INFO 6762 [xxl-job, JobThread-11-1767852360014] "
+                    + "com.x.TroubleSubmitJob 处理任务 order-" + (1000 + i));
+        }
+        lines.add("2026-01-08 10:01:00.000 ERROR 6762 [main] traceId=9f86d081884c7d65 orderNo: 20260108000123");
+        lines.add("\tat com.x.TroubleSubmitJob.run(TroubleSubmitJob.java:42)");
+        Path file = dir.resolve("app-info.2026-01-08.1.log");
+        Files.write(file, lines, StandardCharsets.UTF_8);
+        return file;
+    }
+}
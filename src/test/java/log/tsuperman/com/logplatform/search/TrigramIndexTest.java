@@ -0,0 +1,171 @@
+package log.tsuperman.com.logplatform.search;
+
+import log.tsuperman.com.logplatform.config.LogPlatformProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrigramIndexTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void candidateBlocksGiveSameResultsAsFullScan() throws Exception {
+        Path file = writeLog();
+        long size = Files.size(file);
+        TrigramIndex index = TrigramIndex.build(file, size, 0, 512, 10);
+        assertFalse(index.isOversized());
+        assertTrue(index.getBlockCount() > 20);
+
+        String[][] queries = {
+                {"order-0042", "00:00:00", "23:59:59"},
+                {"ORDER-004", "00:00:00", "23:59:59"},
+                {"NullPointerException", "00:00:00", "23:59:59"},
+                {"at com.example.Worker", "10:00:00", "10:30:00"},
+                {"处理订单", "10:10:00", "10:20:00"},
+                {"not in file", "00:00:00", "23:59:59"},
+        };
+        for (String[] q : queries) {
+            LogFileScanner scanner = new LogFileScanner(q[0], q[1], q[2]);
+            long[] ranges = index.candidateRanges(q[0]);
+            assertNotNull(ranges, q[0]);
+            List<String> expected = scanner.scanFile(file, Integer.MAX_VALUE, null).getLines();
+            assertEquals(expected, scanner.scanRanges(file, ranges, Integer.MAX_VALUE, null, 0).getLines(), q[0]);
+        }
+        assertEquals(0, index.candidateRanges("not in file").length);
+        // 关键字很少出现时只读很少的块
+        long[] ranges = index.candidateRanges("order-0042");
+        long read = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            read += ranges[i + 1] - ranges[i];
+        }
+        assertTrue(read < size / 4);
+        // 太短或需要 toLowerCase 的关键字不能使用索引
+        assertNull(index.candidateRanges("or"));
+        assertNull(index.candidateRanges("ÄRGER"));
+    }
+
+    @Test
+    void pagesAcrossBlocksLikeFullScan() throws Exception {
+        Path file = writeLog();
+        TrigramIndex index = TrigramIndex.build(file, Files.size(file), 0, 512, 10);
+        LogFileScanner scanner = new LogFileScanner("exception", "00:00:00", "23:59:59");
+        long[] ranges = index.candidateRanges("exception");
+
+        FileScanResult expected = scanner.scanFile(file, 7, null, 0);
+        FileScanResult page = scanner.scanRanges(file, ranges, 7, null, 0);
+        assertEquals(expected.getLines(), page.getLines());
+        assertTrue(page.isLimitReached());
+        assertEquals(expected.getEndOffset(), page.getEndOffset());
+
+        // 从上一页停止的位置继续
+        FileScanResult rest = scanner.scanRanges(file, ranges, Integer.MAX_VALUE, null, page.getEndOffset());
+        assertEquals(scanner.scanFile(file, Integer.MAX_VALUE, null, page.getEndOffset()).getLines(), rest.getLines());
+        assertEquals(Files.size(file), rest.getEndOffset());
+    }
+
+    @Test
+    void persistsAndGivesUpWhenTooLarge() throws Exception {
+        Path file = writeLog();
+        TrigramIndex index = TrigramIndex.build(file, 123, 456, 512, 10);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(bytes));
+        TrigramIndex read = TrigramIndex.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertTrue(read.isValidFor(123, 456));
+        assertFalse(read.isValidFor(124, 456));
+        assertArrayEquals(index.candidateRanges("order-0042"), read.candidateRanges("order-0042"));
+
+        TrigramIndex oversized = TrigramIndex.build(file, Files.size(file), 0, 512, 0.001);
+        assertTrue(oversized.isOversized());
+        assertNull(oversized.candidateRanges("order-0042"));
+    }
+
+    @Test
+    void registryBuildsInBackgroundAndInvalidates() throws Exception {
+        Path file = writeLog();
+        LogPlatformProperties properties = new LogPlatformProperties();
+        properties.setIndexPath(dir.resolve("index").toString());
+        properties.setTrigramBlockSize(512);
+        properties.setTrigramIndexMaxRatio(10);
+        TrigramIndexRegistry registry = new TrigramIndexRegistry(properties);
+        try {
+            // 没有索引时顺序扫描，并在后台建立
+            assertNull(registry.candidateRanges(file, "order-0042"));
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!registry.hasIndex(file) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertNotNull(registry.candidateRanges(file, "order-0042"));
+        } finally {
+            registry.shutdown();
+        }
+
+        TrigramIndexRegistry reloaded = new TrigramIndexRegistry(properties);
+        try {
+            assertTrue(reloaded.hasIndex(file));
+            Files.write(file, "2026-01-08 23:00:00 INFO appended\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+            assertFalse(reloaded.hasIndex(file));
+        } finally {
+            reloaded.shutdown();
+        }
+    }
+
+    @Test
+    void registryBoundsCachedIndexesByBytes() throws Exception {
+        Path file = writeLog();
+        long indexBytes = TrigramIndex.build(file, Files.size(file), 0, 512, 10).sizeInBytes();
+        LogPlatformProperties properties = new LogPlatformProperties();
+        properties.setIndexPath(dir.resolve("index").toString());
+        properties.setTrigramBlockSize(512);
+        properties.setTrigramIndexMaxRatio(10);
+        properties.setTrigramCacheBytes(indexBytes * 2 + indexBytes / 2);
+        TrigramIndexRegistry registry = new TrigramIndexRegistry(properties);
+        try {
+            List<Path> files = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                Path copy = dir.resolve("copy-" + i + ".log");
+                Files.copy(file, copy);
+                files.add(copy);
+                registry.build(copy);
+            }
+            // 只留下最近的两个，淘汰的仍可从磁盘加载
+            assertEquals(indexBytes * 2, registry.getCachedBytes());
+            assertNotNull(registry.candidateRanges(files.get(0), "order-0042"));
+            assertEquals(indexBytes * 2, registry.getCachedBytes());
+        } finally {
+            registry.shutdown();
+        }
+    }
+
+    private Path writeLog() throws Exception {
+        List<String> lines = new ArrayList<>();
+        lines.add("启动日志，没有时间戳");
+        for (int i = 0; i < 200; i++) {
+            String time = String.format("10:%02d:%02d", i / 6, i % 6 * 10);
+            lines.add("[task-center] 2026-01-08 " + time + ".123 INFO 6762 [main] com.example.Worker 处理订单 order-"
+                    + String.format("%04d", i));
+            if (i % 15 == 0) {
+                lines.add("2026-01-08 " + time + ".456 ERROR 6762 [main] com.example.Worker failed order-" + String.format("%04d", i));
+                lines.add("java.lang.NullPointerException: order-" + String.format("%04d", i));
+                lines.add("\tat com.example.Worker.run(Worker.java:42)");
+                lines.add("\tat java.lang.Thread.run(Thread.java:750)");
+            }
+        }
+        Path file = dir.resolve("task-center-info.2026-01-08.0.log");
+        Files.write(file, lines, StandardCharsets.UTF_8);
+        return file;
+    }
+}
@@ -0,0 +1,272 @@
+package log.tsuperman.com.logplatform.service;
+
+import com.sun.net.httpserver.HttpServer;
+import log.tsuperman.com.logplatform.config.LogPlatformProperties;
+import log.tsuperman.com.logplatform.entity.AppConfig;
+import log.tsuperman.com.logplatform.entity.ServerConfig;
+import log.tsuperman.com.logplatform.search.FederatedLogLine;
+import log.tsuperman.com.logplatform.search.FederatedQueryResult;
+import log.tsuperman.com.logplatform.search.LogBatchCodec;
+import log.tsuperman.com.logplatform.search.SourceQueryStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RemoteLogServiceTest {
+
+    private final List<HttpServer> stubs = new ArrayList<>();
+
+    @AfterEach
+    void stopStubs() {
+        for (HttpServer stub : stubs) {
+            stub.stop(0);
+        }
+    }
+
+    @Test
+    void mergesSourcesByTimestampAndReportsSlowAndFailedServers() throws Exception {
+        int fast1 = stub(200, 0, "{\"success\":true,\"data\":["
+                + "\"2026-01-08 10:00:01 INFO a1\",\"2026-01-08 10:00:05 ERROR a2\",\"\\tat a.B(B.java:1)\"]}");
+        int fast2 = stub(200, 0, "{\"success\":true,\"data\":["
+                + "\"2026-01-08 10:00:03 INFO b1\",\"2026-01-08 10:00:07 INFO b2\"]}");
+        int slow = stub(200, 3000, "{\"success\":true,\"data\":[\"2026-01-08 10:00:00 INFO slow\"]}");
+        int broken = stub(500, 0, "{}");
+
+        LogPlatformProperties properties = new LogPlatformProperties();
+        properties.setRemoteTimeoutMillis(2000);
+        ConfigService configService = new ConfigService();
+        addServer(configService, "s1", fast1, 0);
+        addServer(configService, "s2", fast2, 0);
+        addServer(configService, "s3", slow, 300);
+        addServer(configService, "s4", broken, 0);
+        configService.addApp(new AppConfig("app-1", "app", "/logs", "app-info", "s1"));
+
+        RemoteLogService service = new RemoteLogService(properties, configService);
+        try {
+            long start = System.currentTimeMillis();
+            FederatedQueryResult result = service.federatedQuery(Arrays.asList("s1", "s2", "s3", "s4", "missing"), null,
+                    "2026-01-08", null, "10:00", "10:59", "all", null, 100);
+            assertTrue(System.currentTimeMillis() - start < 2000, "慢服务器应按自己的超时时间放弃");
+
+            assertEquals(Arrays.asList("2026-01-08 10:00:01 INFO a1", "2026-01-08 10:00:03 INFO b1",
+                    "2026-01-08 10:00:05 ERROR a2", "\tat a.B(B.java:1)", "2026-01-08 10:00:07 INFO b2"),
+                    result.getLines().stream().map(FederatedLogLine::getLine).collect(Collectors.toList()));
+            assertEquals(Arrays.asList("s1", "s2", "s1", "s1", "s2"),
+                    result.getLines().stream().map(FederatedLogLine::getServerId).collect(Collectors.toList()));
+            assertEquals("app-1", result.getLines().get(0).getAppId());
+
+            assertEquals(SourceQueryStatus.ERROR, status(result, "missing").getStatus());
+            assertEquals(SourceQueryStatus.OK, status(result, "s1").getStatus());
+            assertEquals(3, status(result, "s1").getLines());
+            assertEquals(SourceQueryStatus.TIMEOUT, status(result, "s3").getStatus());
+            assertEquals(SourceQueryStatus.ERROR, status(result, "s4").getStatus());
+            assertFalse(result.isComplete());
+            assertFalse(result.isTruncated());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void sortsInfoThenErrorPagesAndMarksCutOffSourcesPartial() throws Exception {
+        // 远程先返回 info 文件的行再返回 error 文件的行，并且还有下一页
+        int port = stub(200, 0, "{\"success\":true,\"data\":["
+                + "\"2026-01-08 10:00:01 INFO a1\",\"2026-01-08 10:00:04 INFO a2\","
+                + "\"2026-01-08 10:00:02 ERROR e1\",\"\\tat a.B(B.java:1)\",\"2026-01-08 10:00:05 ERROR e2\"],"
+                + "\"meta\":{\"hasMore\":true,\"nextCursor\":\"abc\"}}");
+        int other = stub(200, 0, "{\"success\":true,\"data\":[\"2026-01-08 10:00:03 INFO b1\"],"
+                + "\"meta\":{\"hasMore\":false}}");
+        ConfigService configService = new ConfigService();
+        addServer(configService, "s1", port, 0);
+        addServer(configService, "s2", other, 0);
+
+        RemoteLogService service = new RemoteLogService(new LogPlatformProperties(), configService);
+        try {
+            FederatedQueryResult result = service.federatedQuery(Arrays.asList("s1", "s2"), null,
+                    "2026-01-08", null, "10:00", "10:59", "all", null, 10);
+            assertEquals(Arrays.asList("2026-01-08 10:00:01 INFO a1", "2026-01-08 10:00:02 ERROR e1",
+                    "\tat a.B(B.java:1)", "2026-01-08 10:00:03 INFO b1", "2026-01-08 10:00:04 INFO a2",
+                    "2026-01-08 10:00:05 ERROR e2"),
+                    result.getLines().stream().map(FederatedLogLine::getLine).collect(Collectors.toList()));
+            assertEquals(SourceQueryStatus.PARTIAL, status(result, "s1").getStatus());
+            assertEquals(5, status(result, "s1").getLines());
+            assertEquals(SourceQueryStatus.OK, status(result, "s2").getStatus());
+            assertFalse(result.isComplete());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void limitCutsAtEventBoundary() throws Exception {
+        int port = stub(200, 0, "{\"success\":true,\"data\":["
+                + "\"2026-01-08 10:00:01 ERROR a1\",\"\\tat a.B(B.java:1)\",\"2026-01-08 10:00:02 INFO a2\"]}");
+        LogPlatformProperties properties = new LogPlatformProperties();
+        ConfigService configService = new ConfigService();
+        addServer(configService, "s1", port, 0);
+
+        RemoteLogService service = new RemoteLogService(properties, configService);
+        try {
+            FederatedQueryResult result = service.federatedQuery(Collections.singletonList("s1"), null,
+                    "2026-01-08", "", "10:00", "10:59", "all", null, 1);
+            assertEquals(2, result.getLines().size());
+            assertNull(result.getLines().get(0).getAppId());
+            assertTrue(result.isTruncated());
+            assertTrue(result.isComplete());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void batchTransportUsesGzipAndBinaryFormat() throws Exception {
+        List<String> lines = Arrays.asList("2026-01-08 10:00:01 INFO 中文 a&b", "2026-01-08 10:00:02 INFO 中文 a&b c");
+        AtomicReference<String> query = new AtomicReference<>();
+        AtomicReference<String> acceptEncoding = new AtomicReference<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/logs/query/batch", exchange -> {
+            query.set(exchange.getRequestURI().getQuery());
+            acceptEncoding.set(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(LogBatchCodec.encode(lines, null));
+            }
+            exchange.getResponseHeaders().add("Content-Type", LogBatchCodec.MEDIA_TYPE);
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, compressed.size());
+            try (OutputStream out = exchange.getResponseBody()) {
+                compressed.writeTo(out);
+            }
+        });
+        server.start();
+        stubs.add(server);
+
+        ConfigService configService = new ConfigService();
+        ServerConfig config = new ServerConfig("s1", "s1", "127.0.0.1", server.getAddress().getPort(), null);
+        config.setBatchTransport(true);
+        configService.addServer(config);
+
+        RemoteLogService service = new RemoteLogService(new LogPlatformProperties(), configService);
+        try {
+            FederatedQueryResult result = service.federatedQuery(Collections.singletonList("s1"), null,
+                    "2026-01-08", "a&b #1", "10:00", "10:59", "all", null, 10000);
+            assertTrue(result.isComplete());
+            assertEquals(lines, result.getLines().stream().map(FederatedLogLine::getLine).collect(Collectors.toList()));
+            assertTrue(acceptEncoding.get().contains("gzip"));
+            assertTrue(query.get().contains("keyword=a&b #1"), query.get());
+            assertTrue(query.get().contains("pageSize=10000"));
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void encodesReservedCharactersInKeyword() throws Exception {
+        List<String> keywords = new ArrayList<>();
+        int port = recordingStub(keywords);
+        ConfigService configService = new ConfigService();
+        addServer(configService, "s1", port, 5000);
+
+        RemoteLogService service = new RemoteLogService(new LogPlatformProperties(), configService);
+        try {
+            for (String keyword : new String[]{"a+b", "{\"code\":500}", "a&b #1 100%"}) {
+                FederatedQueryResult result = service.federatedQuery(Collections.singletonList("s1"), null,
+                        "2026-01-08", keyword, "10:00", "10:59", "all",
+                        Collections.singletonList("user={id}+1"), 100);
+                assertTrue(result.isComplete(), keyword);
+                // 远程服务器按表单规则解码（+ 解码为空格）后应当得到原来的值
+                assertEquals(keyword, keywords.get(keywords.size() - 2), keyword);
+                assertEquals("user={id}+1", keywords.get(keywords.size() - 1));
+            }
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void singleServerQueryEncodesReservedCharactersInKeyword() throws Exception {
+        List<String> keywords = new ArrayList<>();
+        int port = recordingStub(keywords);
+        RemoteLogService service = new RemoteLogService(new LogPlatformProperties(), new ConfigService());
+        try {
+            ServerConfig server = new ServerConfig("s1", "s1", "127.0.0.1", port, null);
+            for (String keyword : new String[]{"a+b", "{\"code\":500}", "a&b #1 100%"}) {
+                assertNotNull(service.queryRemoteLogs(server, "2026-01-08", keyword, "10:00", "10:59", null), keyword);
+                assertEquals(keyword, keywords.get(keywords.size() - 1), keyword);
+            }
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    /**
+     * 记录每个请求按 Servlet 规则解码后的 keyword 和 filter 参数
+     */
+    private int recordingStub(List<String> values) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/logs/query", exchange -> {
+            for (String pair : exchange.getRequestURI().getRawQuery().split("&")) {
+                String[] kv = pair.split("=", 2);
+                if (kv[0].equals("keyword") || kv[0].equals("filter")) {
+                    values.add(URLDecoder.decode(kv[1], "UTF-8"));
+                }
+            }
+            byte[] bytes = "{\"success\":true,\"data\":[]}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        stubs.add(server);
+        return server.getAddress().getPort();
+    }
+
+    private int stub(int code, long delayMillis, String body) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/logs/query", exchange -> {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(code, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            } catch (Exception ignored) {
+                // 客户端已超时断开
+            }
+        });
+        server.setExecutor(java.util.concurrent.Executors.newCachedThreadPool());
+        server.start();
+        stubs.add(server);
+        return server.getAddress().getPort();
+    }
+
+    private static void addServer(ConfigService configService, String id, int port, int timeoutMillis) {
+        ServerConfig server = new ServerConfig(id, id, "127.0.0.1", port, null);
+        server.setTimeoutMillis(timeoutMillis);
+        configService.addServer(server);
+    }
+
+    private static SourceQueryStatus status(FederatedQueryResult result, String serverId) {
+        return result.getSources().stream().filter(s -> serverId.equals(s.getServerId())).findFirst().orElse(null);
+    }
+}
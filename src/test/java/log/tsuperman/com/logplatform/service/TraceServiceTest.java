@@ -0,0 +1,170 @@
+package log.tsuperman.com.logplatform.service;
+
+import log.tsuperman.com.logplatform.config.LogPlatformProperties;
+import log.tsuperman.com.logplatform.entity.AppConfig;
+import log.tsuperman.com.logplatform.search.FederatedLogLine;
+import log.tsuperman.com.logplatform.search.FederatedQueryResult;
+import log.tsuperman.com.logplatform.search.FileSearchExecutor;
+import log.tsuperman.com.logplatform.search.LogFileCatalog;
+import log.tsuperman.com.logplatform.search.SourceQueryStatus;
+import log.tsuperman.com.logplatform.search.TraceIndexRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraceServiceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void mergesTraceAcrossAppsByTimestamp() throws Exception {
+        String today = LocalDate.now().toString();
+        String yesterday = LocalDate.now().minusDays(1).toString();
+        Path task = Files.createDirectory(dir.resolve("task-center"));
+        Path flow = Files.createDirectory(dir.resolve("flow-center"));
+
+        List<String> taskLines = new ArrayList<>();
+        // 足够多的其他 traceId，让索引扩容
+        for (int i = 0; i < 2000; i++) {
+            taskLines.add(line("task-center", "other" + i, today + " 09:00:00.000", "INFO", "noise " + i));
+        }
+        taskLines.add(line("task-center", "t-42", today + " 10:00:00.120", "INFO", "提交任务"));
+        taskLines.add(line("task-center", "t-420", today + " 10:00:00.130", "INFO", "前缀相同的另一个调用"));
+        taskLines.add(line("task-center", "t-42", today + " 10:00:00.500", "ERROR", "调用失败"));
+        taskLines.add("java.lang.IllegalStateException: boom");
+        taskLines.add("\tat com.x.Job.run(Job.java:1)");
+        taskLines.add(line("task-center", "", today + " 10:00:01.000", "INFO", "无 traceId"));
+        Files.write(task.resolve("task-center-info.log"), taskLines, StandardCharsets.UTF_8);
+        Files.write(task.resolve("task-center-error.log"), taskLines.subList(2002, 2005), StandardCharsets.UTF_8);
+        Files.write(task.resolve("task-center-info." + yesterday + ".0.log"),
+                Collections.singletonList(line("task-center", "t-42", yesterday + " 23:59:59.999", "INFO", "昨天")),
+                StandardCharsets.UTF_8);
+
+        Files.write(flow.resolve("flow-center-info.log"), Arrays.asList(
+                line("flow-center", "t-42", today + " 10:00:00.300", "INFO", "流程开始"),
+                line("flow-center", "t-42", today + " 10:00:00.900", "INFO", "流程结束")), StandardCharsets.UTF_8);
+
+        LogPlatformProperties properties = new LogPlatformProperties();
+        properties.setLogPath(dir.resolve("missing").toString());
+        properties.setTraceIndexRefreshMillis(0);
+        properties.setIndexerReadBytesPerSecond(0);
+        ConfigService configService = new ConfigService();
+        configService.addApp(new AppConfig("app-1", "task-center", task.toString(), "task-center-info", "s1"));
+        configService.addApp(new AppConfig("app-2", "flow-center", flow.toString(), "flow-center-info", "s1"));
+        LogFileCatalog catalog = new LogFileCatalog();
+        TraceIndexRegistry registry = new TraceIndexRegistry();
+        TraceService service = new TraceService(properties, configService, catalog, registry, new FileSearchExecutor());
+        try {
+            assertEquals(3, service.refresh());
+
+            FederatedQueryResult result = service.trace("t-42", null, 1500);
+            assertTrue(result.isComplete());
+            assertEquals(Arrays.asList("昨天", "提交任务", "流程开始", "调用失败", "boom", "Job.java", "流程结束"),
+                    result.getLines().stream().map(l -> tail(l.getLine())).collect(Collectors.toList()));
+            assertEquals(Arrays.asList("app-1", "app-1", "app-2", "app-1", "app-1", "app-1", "app-2"),
+                    result.getLines().stream().map(FederatedLogLine::getAppId).collect(Collectors.toList()));
+
+            // 活跃文件新增的行在下一次查询时即可找到
+            Files.write(flow.resolve("flow-center-info.log"),
+                    Collections.singletonList(line("flow-center", "t-42", today + " 10:00:02.000", "INFO", "回调")),
+                    StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            result = service.trace("t-42", null, 1500);
+            assertEquals("回调", tail(result.getLines().get(result.getLines().size() - 1).getLine()));
+
+            // 按事件截断
+            result = service.trace("t-42", null, 4);
+            assertTrue(result.isTruncated());
+            assertEquals(6, result.getLines().size());
+
+            assertTrue(service.trace("nope", null, 1500).getLines().isEmpty());
+            assertThrows(IllegalArgumentException.class, () -> service.trace(" ", null, 1500));
+        } finally {
+            service.shutdown();
+            catalog.shutdown();
+        }
+    }
+
+    @Test
+    void coldQueryIndexesInBackgroundAndBudgetKeepsNewestFiles() throws Exception {
+        String today = LocalDate.now().toString();
+        String yesterday = LocalDate.now().minusDays(1).toString();
+        Path task = Files.createDirectory(dir.resolve("task-center"));
+        Files.write(task.resolve("task-center-info.log"),
+                Collections.singletonList(line("task-center", "t-1", today + " 10:00:00.000", "INFO", "今天")),
+                StandardCharsets.UTF_8);
+        List<String> older = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            older.add(line("task-center", "other" + i, yesterday + " 09:00:00.000", "INFO", "noise " + i));
+        }
+        older.add(line("task-center", "t-1", yesterday + " 10:00:00.000", "INFO", "昨天"));
+        Files.write(task.resolve("task-center-info." + yesterday + ".0.log"), older, StandardCharsets.UTF_8);
+
+        LogPlatformProperties properties = new LogPlatformProperties();
+        properties.setLogPath(dir.resolve("missing").toString());
+        properties.setTraceIndexRefreshMillis(0);
+        properties.setIndexerReadBytesPerSecond(0);
+        ConfigService configService = new ConfigService();
+        configService.addApp(new AppConfig("app-1", "task-center", task.toString(), "task-center-info", "s1"));
+        LogFileCatalog catalog = new LogFileCatalog();
+        TraceIndexRegistry registry = new TraceIndexRegistry();
+        TraceService service = new TraceService(properties, configService, catalog, registry, new FileSearchExecutor());
+        try {
+            // 没有索引时不在请求线程中读取文件，标记为部分结果并在后台建立
+            FederatedQueryResult result = service.trace("t-1", null, 100);
+            assertEquals(SourceQueryStatus.PARTIAL, result.getSources().get(0).getStatus());
+            assertTrue(result.getLines().isEmpty());
+            long deadline = System.currentTimeMillis() + 10000;
+            while (registry.getFileCount() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            result = service.trace("t-1", null, 100);
+            assertTrue(result.isComplete());
+            assertEquals(Arrays.asList("昨天", "今天"),
+                    result.getLines().stream().map(l -> tail(l.getLine())).collect(Collectors.toList()));
+
+            // 内存上限只够一个文件时保留当天的，较早的文件不建立索引，查询时也不再安排
+            properties.setTraceIndexMaxBytes(1);
+            assertEquals(1, service.refresh());
+            assertEquals(1, registry.getFileCount());
+            assertEquals(1, service.getStatus().get("skippedFiles"));
+            result = service.trace("t-1", null, 100);
+            assertEquals(SourceQueryStatus.PARTIAL, result.getSources().get(0).getStatus());
+            assertEquals(Collections.singletonList("今天"),
+                    result.getLines().stream().map(l -> tail(l.getLine())).collect(Collectors.toList()));
+            Thread.sleep(100);
+            assertEquals(1, registry.getFileCount());
+        } finally {
+            service.shutdown();
+            registry.shutdown();
+            catalog.shutdown();
+        }
+    }
+
+    private static String line(String app, String traceId, String time, String level, String message) {
+        return "[" + app + ":172.28.243.190:30736] [" + traceId + ",] " + time + " " + level
+                + " 6762 [http-nio-1] com.x.Job " + message;
+    }
+
+    /**
+     * 消息部分，堆栈行取最后一个词
+     */
+    private static String tail(String line) {
+        if (line.startsWith("\tat")) {
+            return "Job.java";
+        }
+        return line.substring(line.lastIndexOf(' ') + 1);
+    }
+}